@@ -0,0 +1,9 @@
+#!/bin/sh
+# Compiles the benchmarks together with the workbench-free bundle classes they
+# reference and runs them on a plain JDK. Arguments go to BenchMain.
+set -e
+cd "$(dirname "$0")"
+rm -rf out
+mkdir -p out
+javac -encoding UTF-8 -d out -sourcepath src:../com.zalaris.codeBot/src src/com/zalaris/codebot/bench/BenchMain.java
+exec java ${BENCH_JVM_ARGS:--Xms1g -Xmx1g} -cp out com.zalaris.codebot.bench.BenchMain "$@"
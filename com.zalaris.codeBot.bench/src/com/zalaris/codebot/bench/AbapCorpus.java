@@ -0,0 +1,217 @@
+package com.zalaris.codebot.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic ABAP programs in the shapes local validation meets in HR code
+ * bases, each at 100 to 100k lines:
+ * <ul>
+ * <li>{@code hr}: employee processing that reads infotypes through
+ * {@code PAxxxx} selects, {@code HR_READ_INFOTYPE} and {@code PROVIDE}.</li>
+ * <li>{@code nested}: loops nested up to eight levels deep with lookups and
+ * database reads on the inside.</li>
+ * <li>{@code anonymised}: the layout of an anonymised customer class pool,
+ * with renamed identifiers, comments, string templates and chained statements.</li>
+ * </ul>
+ */
+final class AbapCorpus {
+
+    static final int[] LINE_COUNTS = { 100, 1_000, 10_000, 100_000 };
+
+    private static final String[] INFOTYPES = { "0000", "0001", "0002", "0006", "0007", "0008", "0014", "0015",
+            "0041", "2001", "2002", "2006" };
+
+    record Sample(String name, int lines, String source) {
+    }
+
+    private AbapCorpus() {
+    }
+
+    static List<Sample> samples() {
+        List<Sample> samples = new ArrayList<>();
+        for (int lines : LINE_COUNTS) {
+            samples.add(new Sample("hr.lines" + lines, lines, hrProgram(lines)));
+            samples.add(new Sample("nested.lines" + lines, lines, nestedLoops(lines)));
+            samples.add(new Sample("anonymised.lines" + lines, lines, anonymised(lines)));
+        }
+        return samples;
+    }
+
+    static String hrProgram(int lines) {
+        Random random = new Random(7L);
+        Writer out = new Writer(lines);
+        out.line("REPORT zhr_payroll_prep.");
+        out.line("TABLES: pernr.");
+        out.line("NODES: peras.");
+        out.line("INFOTYPES: 0001, 0002, 0007, 0008.");
+        for (int form = 0; !out.full(); form++) {
+            String infotype = INFOTYPES[random.nextInt(INFOTYPES.length)];
+            out.line("FORM read_employee_" + form + " USING pv_pernr TYPE pernr_d.");
+            out.line("  DATA: lt_p" + infotype + " TYPE STANDARD TABLE OF p" + infotype + ",");
+            out.line("        ls_p" + infotype + " TYPE p" + infotype + ",");
+            out.line("        lv_amount TYPE p LENGTH 15 DECIMALS 2.");
+            out.line("  CALL FUNCTION 'HR_READ_INFOTYPE'");
+            out.line("    EXPORTING");
+            out.line("      pernr     = pv_pernr");
+            out.line("      infty     = '" + infotype + "'");
+            out.line("    TABLES");
+            out.line("      infty_tab = lt_p" + infotype + ".");
+            if (random.nextInt(3) == 0) {
+                out.line("  SELECT * FROM pa" + infotype + " INTO TABLE @lt_p" + infotype);
+            } else {
+                out.line("  SELECT pernr, begda, endda FROM pa" + infotype + " INTO CORRESPONDING FIELDS OF TABLE @lt_p"
+                        + infotype);
+            }
+            out.line("    WHERE pernr = @pv_pernr AND begda <= @pn-endda AND endda >= @pn-begda.");
+            out.line("  rp_provide_from_last p0001 space pn-begda pn-endda.");
+            out.line("  IF pnp-sw-found = 0.");
+            out.line("    RETURN.");
+            out.line("  ENDIF.");
+            out.line("  LOOP AT lt_p" + infotype + " INTO ls_p" + infotype + " WHERE begda <= sy-datum.");
+            if (random.nextInt(4) == 0) {
+                out.line("    SELECT SINGLE ansvh FROM pa0001 INTO @DATA(lv_ansvh_" + form + ")");
+                out.line("      WHERE pernr = @ls_p" + infotype + "-pernr AND endda >= @sy-datum.");
+            }
+            if (random.nextInt(3) == 0) {
+                out.line("    lv_amount = lv_amount + ls_p" + infotype + "-pernr / 12.");
+            }
+            out.line("  ENDLOOP.");
+            out.line("  PROVIDE * FROM p0007 BETWEEN pn-begda AND pn-endda.");
+            out.line("    lv_amount = lv_amount + p0007-wostd.");
+            out.line("  ENDPROVIDE.");
+            out.line("ENDFORM.");
+            out.line("");
+        }
+        return out.toString();
+    }
+
+    static String nestedLoops(int lines) {
+        Random random = new Random(11L);
+        Writer out = new Writer(lines);
+        out.line("REPORT zhr_org_rollup.");
+        for (int form = 0; !out.full(); form++) {
+            int depth = 3 + random.nextInt(6);
+            out.line("FORM rollup_" + form + ".");
+            out.line("  DATA lv_count TYPE i.");
+            String[] closers = new String[depth + 1];
+            for (int level = 1; level <= depth; level++) {
+                String indent = "  ".repeat(level);
+                switch (random.nextInt(4)) {
+                case 0:
+                    out.line(indent + "DO " + (level + 1) + " TIMES.");
+                    closers[level] = "ENDDO.";
+                    break;
+                case 1:
+                    out.line(indent + "WHILE lv_count < " + (level * 100) + ".");
+                    closers[level] = "ENDWHILE.";
+                    break;
+                default:
+                    String parent = level == 1 ? "" : " WHERE parent = <l" + (level - 1) + ">-objid";
+                    out.line(indent + "LOOP AT gt_level" + level + " ASSIGNING FIELD-SYMBOL(<l" + level + ">)"
+                            + parent + ".");
+                    closers[level] = "ENDLOOP.";
+                    break;
+                }
+                out.line(indent + "  lv_count = lv_count + 1.");
+            }
+            String inner = "  ".repeat(depth + 1);
+            out.line(inner + "READ TABLE gt_lookup INTO DATA(ls_lookup) WITH KEY objid = lv_count.");
+            out.line(inner + "IF sy-subrc = 0.");
+            if (random.nextInt(3) == 0) {
+                out.line(inner + "  SELECT SINGLE * FROM pa0002 INTO @DATA(ls_p0002) WHERE pernr = @ls_lookup-pernr.");
+            } else {
+                out.line(inner + "  APPEND ls_lookup TO gt_result.");
+            }
+            out.line(inner + "ENDIF.");
+            for (int level = depth; level >= 1; level--) {
+                out.line("  ".repeat(level) + closers[level]);
+            }
+            out.line("ENDFORM.");
+            out.line("");
+        }
+        return out.toString();
+    }
+
+    static String anonymised(int lines) {
+        Random random = new Random(13L);
+        Writer out = new Writer(lines);
+        for (int pool = 0; !out.full(); pool++) {
+            int methods = 3 + random.nextInt(5);
+            String name = String.format(Locale.ROOT, "zcl_anon_%04d", pool);
+            out.line("CLASS " + name + " DEFINITION PUBLIC FINAL CREATE PUBLIC.");
+            out.line("  PUBLIC SECTION.");
+            for (int m = 0; m < methods; m++) {
+                out.line(String.format(Locale.ROOT,
+                        "    METHODS m_%04d IMPORTING iv_a TYPE string RETURNING VALUE(rv_b) TYPE string.", m));
+            }
+            out.line("ENDCLASS.");
+            out.line("CLASS " + name + " IMPLEMENTATION.");
+            for (int m = 0; m < methods && !out.full(); m++) {
+                out.line(String.format(Locale.ROOT, "  METHOD m_%04d.", m));
+                out.line("    \" Anonymised: customer-specific logic removed, control flow kept");
+                out.line("    DATA: lv_v1 TYPE string,");
+                out.line("          lv_v2 TYPE i,");
+                out.line("          lt_t1 TYPE STANDARD TABLE OF string.");
+                out.line("    lv_v1 = |{ iv_a } / { sy-uname } / { sy-datum DATE = ISO }|.");
+                int statements = 4 + random.nextInt(12);
+                for (int s = 0; s < statements; s++) {
+                    switch (random.nextInt(6)) {
+                    case 0:
+                        out.line("    WRITE: / lv_v1, lv_v2.");
+                        break;
+                    case 1:
+                        out.line("    APPEND lv_v1 TO lt_t1.");
+                        break;
+                    case 2:
+                        out.line("    IF lv_v2 > " + random.nextInt(100) + ".");
+                        out.line("      lv_v2 = lv_v2 - 1.");
+                        out.line("    ENDIF.");
+                        break;
+                    case 3:
+                        out.line("* Anonymised comment " + random.nextInt(10_000));
+                        break;
+                    case 4:
+                        out.line("    CALL METHOD zcl_anon_util=>normalize EXPORTING iv_text = lv_v1 RECEIVING rv_text = lv_v1.");
+                        break;
+                    default:
+                        out.line("    lv_v1 = 'XXXX' && lv_v1.");
+                        break;
+                    }
+                }
+                out.line("    rv_b = lv_v1.");
+                out.line("  ENDMETHOD.");
+            }
+            out.line("ENDCLASS.");
+            out.line("");
+        }
+        return out.toString();
+    }
+
+    /** Collects lines up to a target count. */
+    private static final class Writer {
+        private final StringBuilder text = new StringBuilder();
+        private final int target;
+        private int lines;
+
+        Writer(int target) {
+            this.target = target;
+        }
+
+        void line(String line) {
+            text.append(line).append('\n');
+            lines++;
+        }
+
+        boolean full() {
+            return lines >= target;
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.zalaris.codebot.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.zalaris.codebot.data.AnswerCache;
+
+/**
+ * Looking up chat questions in a full {@link AnswerCache}: the same question,
+ * the question in other words, and a question with no cached answer, which
+ * compares it with every answer for the same source.
+ */
+final class AnswerCacheBenchmarks {
+
+    private static final int ENTRIES = 256;
+    private static final String[] TOPICS = { "select", "loop", "internal table", "field symbol", "bapi", "commit",
+            "authority check", "cds view", "amdp", "exception", "alv grid", "currency conversion", "lock object",
+            "rfc", "badi", "string template" };
+    private static final String[] ASKS = { "how to avoid %s in loop", "best practice for %s", "why is %s slow",
+            "when should I use %s", "difference between %s and join", "how to test %s", "is %s obsolete",
+            "performance of %s with many rows", "how to debug %s", "alternatives to %s", "naming rules for %s",
+            "how to document %s", "security risks of %s", "migrating %s to cloud", "error handling with %s",
+            "memory use of %s" };
+
+    private AnswerCacheBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        AnswerCache cache = new AnswerCache(ENTRIES, Long.MAX_VALUE, AnswerCache.DEFAULT_SIMILARITY);
+        for (String ask : ASKS) {
+            for (String topic : TOPICS) {
+                String question = String.format(Locale.ROOT, ask, topic);
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("type", "info");
+                response.put("message", "An answer about " + question + ". ".repeat(40));
+                cache.put(question, "", response);
+            }
+        }
+        String exact = "How to avoid SELECT in loop?";
+        String similar = "how do I avoid a select inside nested loops";
+        String miss = "how to call a web service from a report";
+        for (String question : new String[] { exact, similar, miss }) {
+            AnswerCache.Hit hit = cache.lookup(question, "");
+            System.out.println(String.format(Locale.ROOT, "# answers%d '%s': %s", ENTRIES, question,
+                    hit == null ? "backend" : String.format(Locale.ROOT, "'%s' (%.2f)", hit.question(),
+                            hit.similarity())));
+        }
+        System.out.println("# answer cache: " + cache.describe());
+
+        bench.run("answers.lookup.exact.entries" + ENTRIES, () -> cache.lookup(exact, ""));
+        bench.run("answers.lookup.similar.entries" + ENTRIES, () -> cache.lookup(similar, ""));
+        bench.run("answers.lookup.miss.entries" + ENTRIES, () -> cache.lookup(miss, ""));
+    }
+}
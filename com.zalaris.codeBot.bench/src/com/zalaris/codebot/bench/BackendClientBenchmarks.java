@@ -0,0 +1,35 @@
+package com.zalaris.codebot.bench;
+
+import com.zalaris.codebot.api.BackendApiClient;
+
+/**
+ * {@link BackendApiClient} round-trips against {@link StubBackend}, once per
+ * wire format ({@code codebot.wire.format}). Allocation
+ * covers both ends: the HttpClient threads and the stand-in server run in the
+ * benchmark JVM.
+ */
+final class BackendClientBenchmarks {
+
+    private BackendClientBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        String source = Payloads.abapSource(Payloads.SOURCE_BYTES);
+        String document = Payloads.technicalDocument(Payloads.DOCUMENT_BYTES);
+        try (StubBackend backend = new StubBackend()) {
+            backend.respond("/api/bot/validate", Payloads.validateResponse(Payloads.VIOLATION_COUNT))
+                    .respond("/api/docs/generate", Payloads.documentResponse(document));
+            System.setProperty("codebot.backend.url", backend.baseUrl());
+
+            for (String format : new String[] { "json", "cbor" }) {
+                System.setProperty("codebot.wire.format", format);
+                BackendApiClient client = new BackendApiClient();
+                bench.run("client." + format + ".validate.source500k",
+                        () -> client.validate(source, "ZHR_BENCH", "ADT", false));
+                bench.run("client." + format + ".generateDoc.document90k",
+                        () -> client.generateTechnicalDoc(source, "ZHR_BENCH", "bench", "bench"));
+            }
+            System.clearProperty("codebot.wire.format");
+        }
+    }
+}
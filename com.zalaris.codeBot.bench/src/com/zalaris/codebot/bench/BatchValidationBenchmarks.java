@@ -0,0 +1,73 @@
+package com.zalaris.codebot.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.zalaris.codebot.api.BackendApiClient;
+import com.zalaris.codebot.bot.BotResponseMapper;
+import com.zalaris.codebot.engine.RuleEngine;
+import com.zalaris.codebot.validation.BatchValidator;
+import com.zalaris.codebot.validation.BatchValidator.ObjectSource;
+
+/**
+ * Validating a batch of objects: one object after another against fork-join
+ * for the local engine, and one request at a time against bounded concurrency
+ * for a backend that spends {@link #BACKEND_LATENCY_MS} per request.
+ */
+final class BatchValidationBenchmarks {
+
+    private static final int LOCAL_OBJECTS = 64;
+    private static final int LOCAL_OBJECT_BYTES = 32 * 1024;
+    private static final int REMOTE_OBJECTS = 16;
+    private static final int REMOTE_OBJECT_BYTES = 8 * 1024;
+    private static final int BACKEND_LATENCY_MS = 20;
+    private static final int BACKEND_CONCURRENCY = 8;
+
+    private BatchValidationBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        RuleEngine engine = new RuleEngine(RuleEngineBenchmarks.rules(100));
+        BatchValidator validator = new BatchValidator(engine);
+
+        List<ObjectSource> local = objects(LOCAL_OBJECTS, LOCAL_OBJECT_BYTES);
+        System.out.println("# batch: " + LOCAL_OBJECTS + " objects x " + (LOCAL_OBJECT_BYTES / 1024) + " KB, "
+                + Runtime.getRuntime().availableProcessors() + " cores");
+        bench.run("batch.local.sequential.objects" + LOCAL_OBJECTS, () -> {
+            int violations = 0;
+            for (ObjectSource source : local) {
+                violations += engine.evaluate(source.code()).size();
+            }
+            return violations;
+        });
+        bench.run("batch.local.forkJoin.objects" + LOCAL_OBJECTS,
+                () -> validator.validateLocally(local, null, null));
+
+        List<ObjectSource> remote = objects(REMOTE_OBJECTS, REMOTE_OBJECT_BYTES);
+        try (StubBackend backend = new StubBackend(BACKEND_CONCURRENCY)) {
+            backend.respond("/api/bot/validate", Payloads.validateResponse(Payloads.VIOLATION_COUNT))
+                    .latency(BACKEND_LATENCY_MS);
+            System.setProperty("codebot.backend.url", backend.baseUrl());
+            BackendApiClient client = new BackendApiClient();
+            BatchValidator.RemoteValidation validate = source -> {
+                Map<String, Object> response = client.validate(source.code(), source.objectName(), "ADT", false);
+                return BotResponseMapper.parseViolations(response.get("violations"));
+            };
+            bench.run("batch.backend.sequential.objects" + REMOTE_OBJECTS,
+                    () -> validator.validateRemotely(remote, validate, 1, null, null));
+            bench.run("batch.backend.concurrent" + BACKEND_CONCURRENCY + ".objects" + REMOTE_OBJECTS,
+                    () -> validator.validateRemotely(remote, validate, BACKEND_CONCURRENCY, null, null));
+        }
+    }
+
+    private static List<ObjectSource> objects(int count, int bytes) {
+        String source = Payloads.abapSource(bytes);
+        List<ObjectSource> objects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Distinct strings, so no object benefits from another's cache lines.
+            objects.add(new ObjectSource("ZHR_BENCH_" + i, new String(source.toCharArray())));
+        }
+        return objects;
+    }
+}
@@ -0,0 +1,209 @@
+package com.zalaris.codebot.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal time-boxed benchmark harness modelled on JMH's throughput mode with
+ * {@code -prof gc}: warmup iterations, measured iterations, ops/s, and
+ * allocated bytes per operation plus GC activity. Allocations are summed over
+ * all live threads, so work handed to pool threads (chunked evaluation, batch
+ * validation) is counted. A thread that ends takes its count with it, so when
+ * threads were started during the measurement B/op is not reported.
+ */
+public final class Bench {
+
+    @FunctionalInterface
+    public interface Op {
+        Object run() throws Exception;
+    }
+
+    public static final class Options {
+        int warmupIterations = 3;
+        int measurementIterations = 5;
+        long iterationMillis = 1000L;
+        Pattern filter;
+        String jsonOutput;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            List<String> filters = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("-wi".equals(arg) && i + 1 < args.length) {
+                    options.warmupIterations = Integer.parseInt(args[++i]);
+                } else if ("-i".equals(arg) && i + 1 < args.length) {
+                    options.measurementIterations = Integer.parseInt(args[++i]);
+                } else if ("-r".equals(arg) && i + 1 < args.length) {
+                    options.iterationMillis = Long.parseLong(args[++i]);
+                } else if ("-json".equals(arg) && i + 1 < args.length) {
+                    options.jsonOutput = args[++i];
+                } else if ("-prof".equals(arg) && i + 1 < args.length) {
+                    // Allocation/GC profiling is always on; accepted for JMH muscle memory.
+                    i++;
+                } else {
+                    filters.add(arg);
+                }
+            }
+            if (!filters.isEmpty()) {
+                options.filter = Pattern.compile(String.join("|", filters));
+            }
+            return options;
+        }
+    }
+
+    public record Result(
+            String name,
+            long operations,
+            double opsPerSecond,
+            double nanosPerOp,
+            double bytesPerOp,
+            double allocMbPerSecond,
+            long gcCount,
+            long gcMillis) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("benchmark", name);
+            map.put("operations", operations);
+            map.put("ops_per_sec", round(opsPerSecond));
+            map.put("ns_per_op", round(nanosPerOp));
+            map.put("gc_alloc_bytes_per_op", Double.isNaN(bytesPerOp) ? null : round(bytesPerOp));
+            map.put("gc_alloc_rate_mb_per_sec", Double.isNaN(allocMbPerSecond) ? null : round(allocMbPerSecond));
+            map.put("gc_count", gcCount);
+            map.put("gc_time_ms", gcMillis);
+            return map;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+
+    private static volatile int sink;
+
+    private final Options options;
+    private final List<Result> results = new ArrayList<>();
+
+    Bench(Options options) {
+        this.options = options;
+    }
+
+    List<Result> results() {
+        return results;
+    }
+
+    /**
+     * Consumes a benchmark result so the JIT cannot eliminate the work.
+     */
+    public static void consume(Object value) {
+        sink ^= System.identityHashCode(value);
+    }
+
+    /**
+     * Runs one benchmark; returns its result, or null when the name is filtered out.
+     */
+    public Result run(String name, Op op) throws Exception {
+        if (options.filter != null && !options.filter.matcher(name).find()) {
+            return null;
+        }
+        for (int i = 0; i < options.warmupIterations; i++) {
+            iterate(op);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long threadsBefore = threads.getTotalStartedThreadCount();
+        Map<Long, Long> bytesBefore = allocatedBytes(threads);
+        long totalOps = 0L;
+        long totalNanos = 0L;
+        for (int i = 0; i < options.measurementIterations; i++) {
+            long start = System.nanoTime();
+            totalOps += iterate(op);
+            totalNanos += System.nanoTime() - start;
+        }
+        Map<Long, Long> bytesAfter = allocatedBytes(threads);
+        double allocated = Double.NaN;
+        if (threads.getTotalStartedThreadCount() == threadsBefore) {
+            long sum = 0L;
+            for (Map.Entry<Long, Long> entry : bytesAfter.entrySet()) {
+                sum += entry.getValue() - bytesBefore.getOrDefault(entry.getKey(), 0L);
+            }
+            allocated = sum;
+        }
+
+        double seconds = totalNanos / 1_000_000_000.0;
+        Result result = new Result(
+                name,
+                totalOps,
+                totalOps / seconds,
+                (double) totalNanos / totalOps,
+                allocated / totalOps,
+                (allocated / (1024.0 * 1024.0)) / seconds,
+                gcCount() - gcCountBefore,
+                gcMillis() - gcMillisBefore);
+        results.add(result);
+        System.out.println(format(result));
+        return result;
+    }
+
+    private long iterate(Op op) throws Exception {
+        long deadline = System.nanoTime() + options.iterationMillis * 1_000_000L;
+        long ops = 0L;
+        do {
+            consume(op.run());
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    static String header() {
+        return String.format(Locale.ROOT, "%-48s %14s %14s %14s %12s %6s",
+                "Benchmark", "ops/s", "ns/op", "B/op", "MB/s alloc", "GCs");
+    }
+
+    private static String format(Result r) {
+        return String.format(Locale.ROOT, "%-48s %14.1f %14.1f %14.0f %12.1f %6d",
+                r.name(), r.opsPerSecond(), r.nanosPerOp(), r.bytesPerOp(), r.allocMbPerSecond(), r.gcCount());
+    }
+
+    /**
+     * Bytes allocated so far by each live thread, by thread id.
+     */
+    private static Map<Long, Long> allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0L) {
+                result.put(ids[i], bytes[i]);
+            }
+        }
+        return result;
+    }
+
+    private static long gcCount() {
+        long total = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0L, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0L, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
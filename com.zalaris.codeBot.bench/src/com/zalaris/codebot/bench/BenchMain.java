@@ -0,0 +1,65 @@
+package com.zalaris.codebot.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zalaris.codebot.util.JsonUtil;
+
+/**
+ * Headless entry point for the CodeBot benchmarks. Only workbench-free bundle
+ * classes are referenced, so it runs on a plain JDK:
+ *
+ * <pre>
+ * ./run-benchmarks.sh [-wi 3] [-i 5] [-r 1000] [-json results.json] [name-regex ...]
+ * </pre>
+ */
+public final class BenchMain {
+
+    private BenchMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Bench.Options options = Bench.Options.parse(args);
+        Bench bench = new Bench(options);
+
+        System.out.println("# JVM: " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        System.out.println("# Warmup: " + options.warmupIterations + " x " + options.iterationMillis
+                + " ms, Measurement: " + options.measurementIterations + " x " + options.iterationMillis + " ms");
+        System.out.println(Bench.header());
+
+        JsonBenchmarks.run(bench);
+        CodecBenchmarks.run(bench);
+        ResponseMappingBenchmarks.run(bench);
+        BackendClientBenchmarks.run(bench);
+        LexerBenchmarks.run(bench);
+        RuleEngineBenchmarks.run(bench);
+        CorpusBenchmarks.run(bench);
+        IncrementalBenchmarks.run(bench);
+        BatchValidationBenchmarks.run(bench);
+        RulePackBenchmarks.run(bench);
+        TemplateIndexBenchmarks.run(bench);
+        IntentRouterBenchmarks.run(bench);
+        AnswerCacheBenchmarks.run(bench);
+
+        if (options.jsonOutput != null) {
+            writeJson(bench.results(), Path.of(options.jsonOutput));
+        }
+    }
+
+    private static void writeJson(List<Bench.Result> results, Path target) throws Exception {
+        List<Object> rows = new ArrayList<>();
+        for (Bench.Result result : results) {
+            rows.add(result.toMap());
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("jvm", System.getProperty("java.version"));
+        root.put("results", rows);
+        Files.writeString(target, JsonUtil.stringify(root), StandardCharsets.UTF_8);
+        System.out.println("# Results written to " + target.toAbsolutePath());
+    }
+}
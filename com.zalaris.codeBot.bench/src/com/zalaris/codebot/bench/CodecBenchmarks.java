@@ -0,0 +1,34 @@
+package com.zalaris.codebot.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.zalaris.codebot.util.WireCodec;
+import com.zalaris.codebot.util.WireCodecs;
+
+/**
+ * Encode/decode cost and wire size of each {@link WireCodec} on the same payloads.
+ */
+final class CodecBenchmarks {
+
+    private CodecBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        Map<String, Map<String, Object>> payloads = new LinkedHashMap<>();
+        payloads.put("validateResponse30", Payloads.validateResponse(Payloads.VIOLATION_COUNT));
+        payloads.put("validateRequest500k", Payloads.validateRequest(Payloads.abapSource(Payloads.SOURCE_BYTES)));
+        payloads.put("document90k", Payloads.documentResponse(Payloads.technicalDocument(Payloads.DOCUMENT_BYTES)));
+
+        for (WireCodec codec : new WireCodec[] { WireCodecs.JSON, WireCodecs.CBOR }) {
+            String name = codec == WireCodecs.JSON ? "json" : "cbor";
+            for (Map.Entry<String, Map<String, Object>> entry : payloads.entrySet()) {
+                Map<String, Object> payload = entry.getValue();
+                byte[] wire = codec.encode(payload);
+                System.out.println("# " + name + " " + entry.getKey() + " wire size: " + wire.length + " bytes");
+                bench.run("codec." + name + ".encode." + entry.getKey(), () -> codec.encode(payload));
+                bench.run("codec." + name + ".decode." + entry.getKey(), () -> codec.decode(wire));
+            }
+        }
+    }
+}
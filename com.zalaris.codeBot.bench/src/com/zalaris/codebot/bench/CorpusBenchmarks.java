@@ -0,0 +1,81 @@
+package com.zalaris.codebot.bench;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.zalaris.codebot.bench.AbapCorpus.Sample;
+import com.zalaris.codebot.engine.RuleEngine;
+
+/**
+ * End-to-end local validation over the {@link AbapCorpus}: lexing, prefilter,
+ * matching and building violations, as {@link RuleEngine#evaluate(String)} runs
+ * them for an editor. Each program reports MB/s of source, latency percentiles
+ * over single runs and bytes allocated per run. The 10k-line HR program is also
+ * validated against 10 to 500 rules.
+ */
+final class CorpusBenchmarks {
+
+    private static final int DEFAULT_RULES = 100;
+    private static final int[] RULE_COUNTS = { 10, 100, 500 };
+    private static final int RULE_SWEEP_LINES = 10_000;
+
+    /** Single runs timed for the percentiles, within a time budget. */
+    private static final int MAX_SAMPLES = 200;
+    private static final int MIN_SAMPLES = 5;
+    private static final long SAMPLE_BUDGET_NANOS = 2_000_000_000L;
+
+    private CorpusBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        RuleEngine engine = new RuleEngine(RuleEngineBenchmarks.rules(DEFAULT_RULES));
+        for (Sample sample : AbapCorpus.samples()) {
+            measure(bench, "corpus." + sample.name() + ".rules" + DEFAULT_RULES, engine, sample);
+        }
+        Sample hr = new Sample("hr.lines" + RULE_SWEEP_LINES, RULE_SWEEP_LINES,
+                AbapCorpus.hrProgram(RULE_SWEEP_LINES));
+        for (int count : RULE_COUNTS) {
+            if (count != DEFAULT_RULES) {
+                measure(bench, "corpus." + hr.name() + ".rules" + count,
+                        new RuleEngine(RuleEngineBenchmarks.rules(count)), hr);
+            }
+        }
+    }
+
+    private static void measure(Bench bench, String name, RuleEngine engine, Sample sample) throws Exception {
+        String source = sample.source();
+        Bench.Result result = bench.run(name, () -> engine.evaluate(source));
+        if (result == null) {
+            return;
+        }
+        long[] latencies = latencies(engine, source);
+        double megabytes = source.length() / (1024.0 * 1024.0);
+        System.out.println(String.format(Locale.ROOT,
+                "# %s: %d lines, %d violations, %.2f MB/s, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms,"
+                        + " %.0f KB/run",
+                name, sample.lines(), engine.evaluate(source).size(),
+                megabytes / (result.nanosPerOp() / 1_000_000_000.0),
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies[latencies.length - 1] / 1_000_000.0, result.bytesPerOp() / 1024.0));
+    }
+
+    private static long[] latencies(RuleEngine engine, String source) {
+        long[] samples = new long[MAX_SAMPLES];
+        int count = 0;
+        long deadline = System.nanoTime() + SAMPLE_BUDGET_NANOS;
+        while (count < MAX_SAMPLES && (count < MIN_SAMPLES || System.nanoTime() < deadline)) {
+            long start = System.nanoTime();
+            Bench.consume(engine.evaluate(source));
+            samples[count++] = System.nanoTime() - start;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /** Nearest-rank percentile of sorted nanoseconds, in milliseconds. */
+    private static double percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.zalaris.codebot.bench;
+
+import java.util.List;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.engine.IncrementalValidator;
+import com.zalaris.codebot.engine.RuleEngine;
+
+/**
+ * Per-keystroke cost of as-you-type validation on a program of about 20k lines
+ * with 100 rules: a character typed into a statement, a line that changes the
+ * block structure, and a full revalidation for comparison. Each edit is undone
+ * by the next operation, so every operation is one edit. The share of rule
+ * evaluations the keyword prefilter skipped on the changed regions is printed
+ * after each edit benchmark.
+ */
+final class IncrementalBenchmarks {
+
+    private static final int SOURCE_BYTES = 660 * 1024;
+    private static final int RULE_COUNT = 100;
+
+    private IncrementalBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        String source = Payloads.abapSource(SOURCE_BYTES);
+        RuleEngine engine = new RuleEngine(RuleEngineBenchmarks.rules(RULE_COUNT));
+        String lines = (source.split("\n", -1).length / 1000) + "k";
+        System.out.println("# incremental: " + lines + " lines, " + engine.getRules().size() + " rules");
+
+        int statement = source.indexOf("lv_total = lv_total + 1.", source.length() / 2);
+        int keystroke = statement + "lv_total".length();
+        String typed = source.substring(0, keystroke) + "x" + source.substring(keystroke);
+        run(bench, "incremental.keystroke.lines" + lines, engine, source, typed, keystroke, "x".length());
+
+        int loop = source.indexOf("\n      lv_total = lv_total + 1.", source.length() / 2) + 1;
+        String closer = "    ENDLOOP.\n";
+        String restructured = source.substring(0, loop) + closer + source.substring(loop);
+        run(bench, "incremental.blockEdit.lines" + lines, engine, source, restructured, loop, closer.length());
+
+        IncrementalValidator full = new IncrementalValidator(engine);
+        bench.run("incremental.fullRevalidate.lines" + lines, () -> {
+            full.reset(source);
+            return full;
+        });
+    }
+
+    /**
+     * Alternates inserting {@code length} characters at {@code offset} (turning
+     * {@code source} into {@code edited}) and removing them again.
+     */
+    private static void run(Bench bench, String name, RuleEngine engine, String source, String edited,
+            int offset, int length) throws Exception {
+        IncrementalValidator validator = new IncrementalValidator(engine);
+        validator.reset(source);
+        validator.apply(edited, offset, 0, length);
+        check(name, validator.getViolations(), engine.evaluate(edited));
+        validator.apply(source, offset, length, 0);
+        check(name, validator.getViolations(), engine.evaluate(source));
+
+        boolean[] inserted = { false };
+        engine.resetPrefilterStats();
+        bench.run(name, () -> {
+            if (inserted[0]) {
+                validator.apply(source, offset, length, 0);
+            } else {
+                validator.apply(edited, offset, 0, length);
+            }
+            inserted[0] = !inserted[0];
+            return validator;
+        });
+        System.out.println("# " + name + ": " + engine.getPrefilterStats());
+    }
+
+    private static void check(String name, List<RuleViolation> incremental, List<RuleViolation> full) {
+        if (incremental.size() != full.size()) {
+            throw new IllegalStateException(name + ": incremental and full validation disagree ("
+                    + incremental.size() + " vs " + full.size() + " violations)");
+        }
+    }
+}
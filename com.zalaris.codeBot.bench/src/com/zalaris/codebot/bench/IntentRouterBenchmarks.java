@@ -0,0 +1,126 @@
+package com.zalaris.codebot.bench;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.zalaris.codebot.bot.IntentRouter;
+import com.zalaris.codebot.bot.IntentRouter.Intent;
+import com.zalaris.codebot.data.TemplateIndex;
+import com.zalaris.codebot.data.TemplateRepository;
+
+/**
+ * Routing of chat prompts as the bot does it: the {@link IntentRouter}'s intent,
+ * and for template requests a lookup in the index over the bundled templates.
+ * Reports the accuracy over hand-labelled prompts, the share of prompts
+ * answered without a backend call, the share of backend calls sent without the
+ * editor's source, and the time to route one prompt.
+ */
+final class IntentRouterBenchmarks {
+
+    /** Prompts with the intent that should answer them. */
+    private static final Object[][] LABELLED = {
+            { "validate current object", Intent.VALIDATE },
+            { "validate", Intent.VALIDATE },
+            { "check code", Intent.VALIDATE },
+            { "check this code for violations", Intent.VALIDATE },
+            { "run a code review on this class", Intent.VALIDATE },
+            { "review my code", Intent.VALIDATE },
+            { "are there any violations in this program?", Intent.VALIDATE },
+            { "lint the current editor", Intent.VALIDATE },
+            { "check naming conventions", Intent.VALIDATE },
+            { "scan this report for guideline issues", Intent.VALIDATE },
+            { "does this method follow our guidelines", Intent.VALIDATE },
+            { "check compliance of the code", Intent.VALIDATE },
+            { "show rule violations", Intent.VALIDATE },
+            { "explain this code", Intent.EXPLAIN },
+            { "explain current object", Intent.EXPLAIN },
+            { "what does this method do?", Intent.EXPLAIN },
+            { "walk me through this program", Intent.EXPLAIN },
+            { "summarize the code", Intent.EXPLAIN },
+            { "describe what this class does", Intent.EXPLAIN },
+            { "explain", Intent.EXPLAIN },
+            { "what is this select doing", Intent.EXPLAIN },
+            { "give me an overview of this report", Intent.EXPLAIN },
+            { "help me understand this loop", Intent.EXPLAIN },
+            { "template for singleton class", Intent.TEMPLATE },
+            { "create singleton", Intent.TEMPLATE },
+            { "amdp class template", Intent.TEMPLATE },
+            { "snippet for personnel area text", Intent.TEMPLATE },
+            { "give me a skeleton for an ALV report", Intent.TEMPLATE },
+            { "generate boilerplate for a BAdI implementation", Intent.TEMPLATE },
+            { "create amdp", Intent.TEMPLATE },
+            { "get employees for manager", Intent.TEMPLATE },
+            { "personnel area text", Intent.TEMPLATE },
+            { "insert a template for reading employees of a manager", Intent.TEMPLATE },
+            { "new class skeleton", Intent.TEMPLATE },
+            { "how do I validate user input in ABAP?", Intent.OPEN },
+            { "what is the difference between SELECT SINGLE and UP TO 1 ROWS", Intent.OPEN },
+            { "why is my SELECT slow", Intent.OPEN },
+            { "best practices for exception handling", Intent.OPEN },
+            { "how to call a BAPI with commit", Intent.OPEN },
+            { "what is a CDS view", Intent.OPEN },
+            { "should I use FOR ALL ENTRIES or a join", Intent.OPEN },
+            { "how can I improve the performance of this loop", Intent.OPEN },
+            { "when should I use field symbols", Intent.OPEN },
+            { "is it ok to use SELECT * here", Intent.OPEN },
+            { "how does the ABAP memory work", Intent.OPEN },
+            { "what are the naming rules for classes", Intent.OPEN },
+            { "which authorization object protects SU01", Intent.OPEN },
+            { "hello", Intent.OPEN },
+            { "how to handle currency conversion", Intent.OPEN },
+            { "tell me about the new ABAP SQL syntax", Intent.OPEN },
+    };
+
+    private IntentRouterBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        TemplateIndex index = new TemplateIndex(TemplateRepository.getAllTemplates());
+        int correct = 0;
+        int local = 0;
+        int backend = 0;
+        int withoutCode = 0;
+        Map<Intent, int[]> perIntent = new EnumMap<>(Intent.class);
+        for (Object[] labelled : LABELLED) {
+            String prompt = (String) labelled[0];
+            Intent expected = (Intent) labelled[1];
+            IntentRouter.Route route = IntentRouter.route(prompt);
+            Intent routed = route.intent();
+            boolean answeredLocally = routed == Intent.VALIDATE;
+            if (routed == Intent.TEMPLATE && index.find(prompt) != null) {
+                answeredLocally = true;
+            }
+            int[] counts = perIntent.computeIfAbsent(expected, i -> new int[2]);
+            counts[1]++;
+            if (routed == expected) {
+                correct++;
+                counts[0]++;
+            } else {
+                System.out.println("# misrouted '" + prompt + "': " + routed + ", expected " + expected);
+            }
+            if (answeredLocally) {
+                local++;
+            } else {
+                backend++;
+                if (!route.needsCode()) {
+                    withoutCode++;
+                }
+            }
+        }
+        StringBuilder breakdown = new StringBuilder();
+        for (Map.Entry<Intent, int[]> entry : perIntent.entrySet()) {
+            breakdown.append(String.format(Locale.ROOT, ", %s %d/%d", entry.getKey(), entry.getValue()[0],
+                    entry.getValue()[1]));
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "# intent routing: %d prompts, accuracy %.1f%%%s; %.1f%% answered without the backend,"
+                        + " %d of %d backend calls without source",
+                LABELLED.length, 100.0 * correct / LABELLED.length, breakdown, 100.0 * local / LABELLED.length,
+                withoutCode, backend));
+
+        String open = "what is the difference between SELECT SINGLE and UP TO 1 ROWS";
+        bench.run("router.route.validate", () -> IntentRouter.route("validate current object"));
+        bench.run("router.route.open", () -> IntentRouter.route(open));
+    }
+}
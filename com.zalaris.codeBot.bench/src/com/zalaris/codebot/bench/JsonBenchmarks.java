@@ -0,0 +1,30 @@
+package com.zalaris.codebot.bench;
+
+import java.util.Map;
+
+import com.zalaris.codebot.util.JsonUtil;
+
+/**
+ * {@link JsonUtil} parse/stringify on the payloads that dominate CodeBot traffic.
+ */
+final class JsonBenchmarks {
+
+    private JsonBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        String source = Payloads.abapSource(Payloads.SOURCE_BYTES);
+        String document = Payloads.technicalDocument(Payloads.DOCUMENT_BYTES);
+        String validateResponse = Payloads.json(Payloads.validateResponse(Payloads.VIOLATION_COUNT));
+        Map<String, Object> validateRequest = Payloads.validateRequest(source);
+        String validateRequestJson = JsonUtil.stringify(validateRequest);
+        Map<String, Object> documentResponse = Payloads.documentResponse(document);
+        String documentResponseJson = JsonUtil.stringify(documentResponse);
+
+        bench.run("json.parse.validateResponse30", () -> JsonUtil.parseObject(validateResponse));
+        bench.run("json.parse.validateRequest500k", () -> JsonUtil.parseObject(validateRequestJson));
+        bench.run("json.parse.document90k", () -> JsonUtil.parseObject(documentResponseJson));
+        bench.run("json.stringify.validateRequest500k", () -> JsonUtil.stringify(validateRequest));
+        bench.run("json.stringify.document90k", () -> JsonUtil.stringify(documentResponse));
+    }
+}
@@ -0,0 +1,41 @@
+package com.zalaris.codebot.bench;
+
+import java.util.Locale;
+
+import com.zalaris.codebot.engine.AbapBlockTree;
+import com.zalaris.codebot.engine.AbapCodeFacts;
+import com.zalaris.codebot.engine.AbapLexer;
+import com.zalaris.codebot.engine.AbapTokens;
+
+/**
+ * ABAP tokenizer throughput on the generated sources, reported in MB/s of
+ * source text, plus the block tree and documentation heuristics built on top
+ * of it. Source sizes differ by 10x, so linear scaling shows directly.
+ */
+final class LexerBenchmarks {
+
+    private LexerBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        for (int bytes : new int[] { 50 * 1024, Payloads.SOURCE_BYTES }) {
+            String source = Payloads.abapSource(bytes);
+            String size = (bytes / 1024) + "k";
+            AbapTokens tokens = AbapLexer.tokenize(source);
+            System.out.println("# source" + size + ": " + tokens.size() + " tokens, " + tokens.statementCount()
+                    + " statements, " + AbapBlockTree.build(tokens).size() + " blocks");
+            reportThroughput(bench.run("lexer.tokenize.source" + size, () -> AbapLexer.tokenize(source)), source);
+            bench.run("lexer.blockTree.source" + size, () -> AbapBlockTree.build(tokens));
+            bench.run("lexer.codeFacts.source" + size, () -> AbapCodeFacts.of(source));
+        }
+    }
+
+    private static void reportThroughput(Bench.Result result, String source) {
+        if (result == null) {
+            return;
+        }
+        double megabytes = source.length() / (1024.0 * 1024.0);
+        System.out.println(String.format(Locale.ROOT, "# %s: %.1f MB/s",
+                result.name(), megabytes / (result.nanosPerOp() / 1_000_000_000.0)));
+    }
+}
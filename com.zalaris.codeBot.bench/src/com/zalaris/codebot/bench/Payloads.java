@@ -0,0 +1,217 @@
+package com.zalaris.codebot.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.zalaris.codebot.model.Rule;
+import com.zalaris.codebot.util.JsonUtil;
+
+/**
+ * Deterministic payloads sized after real traffic: validate responses with 30
+ * violations, ~500 KB ABAP sources and ~90 KB technical documents.
+ */
+public final class Payloads {
+
+    public static final int VIOLATION_COUNT = 30;
+    public static final int SOURCE_BYTES = 500 * 1024;
+    public static final int DOCUMENT_BYTES = 90 * 1024;
+
+    private static final String[] RULE_IDS = {
+            "abap.db.no_select_star",
+            "abap.arith.must_use_try_catch",
+            "abap.perf.no_select_inside_loop",
+            "abap.perf.no_nested_loops_large_tables",
+            "abap.design.no_copy_standard_programs",
+    };
+
+    private static final String[] SEVERITIES = { "MAJOR", "MINOR", "INFO" };
+
+    private Payloads() {
+    }
+
+    public static String abapSource(int targetBytes) {
+        Random random = new Random(42L);
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        sb.append("REPORT zhr_time_schedule_cleanup.\n\n");
+        int form = 0;
+        while (sb.length() < targetBytes) {
+            int infotype = random.nextInt(3000);
+            sb.append("FORM process_block_").append(form++).append(".\n");
+            sb.append("  \" Schedule block ").append(form).append(": custom cleanup logic\n");
+            sb.append("  DATA: lt_p").append(infotype).append(" TYPE STANDARD TABLE OF pa0001,\n");
+            sb.append("        lv_total TYPE p LENGTH 15 DECIMALS 2,\n");
+            sb.append("        lv_text  TYPE string.\n");
+            sb.append("  SELECT pernr, bukrs, persg, plans FROM pa0001\n");
+            sb.append("    INTO TABLE @lt_p").append(infotype).append('\n');
+            sb.append("    WHERE begda <= @sy-datum AND endda >= @sy-datum.\n");
+            sb.append("  LOOP AT lt_p").append(infotype).append(" INTO DATA(ls_row).\n");
+            if (random.nextInt(4) == 0) {
+                sb.append("    SELECT * FROM pa0002 INTO @DATA(ls_p0002) WHERE pernr = @ls_row-pernr.\n");
+                sb.append("    ENDSELECT.\n");
+            }
+            if (random.nextInt(3) == 0) {
+                sb.append("    LOOP AT lt_p").append(infotype).append(" INTO DATA(ls_inner) WHERE pernr = ls_row-pernr.\n");
+                sb.append("      lv_total = lv_total + 1.\n");
+                sb.append("    ENDLOOP.\n");
+            }
+            sb.append("    lv_text = |Employee { ls_row-pernr } in { ls_row-bukrs }|.\n");
+            sb.append("    CALL FUNCTION 'HR_READ_INFOTYPE'\n");
+            sb.append("      EXPORTING pernr = ls_row-pernr infty = '0007'\n");
+            sb.append("      TABLES infty_tab = lt_p").append(infotype).append(".\n");
+            sb.append("  ENDLOOP.\n");
+            sb.append("  TRY.\n");
+            sb.append("      lv_total = lv_total * '1.05'.\n");
+            sb.append("    CATCH cx_sy_arithmetic_error.\n");
+            sb.append("      lv_total = 0.\n");
+            sb.append("  ENDTRY.\n");
+            sb.append("ENDFORM.\n\n");
+        }
+        return sb.toString();
+    }
+
+    public static String technicalDocument(int targetBytes) {
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        sb.append("# Technical Design: ZHR_TIME_SCHEDULE_CLEANUP\n\n");
+        int section = 1;
+        while (sb.length() < targetBytes) {
+            sb.append("## ").append(section).append(". Purpose of Change\n");
+            sb.append("Removes eligible time-management entries based on holiday and rule checks, ")
+                    .append("reads work-schedule and employee-related records for validation and builds ALV output.\n\n");
+            sb.append("## ").append(section).append(".1 Detailed Text Flowchart (Step-by-Step Execution Logic)\n");
+            for (int step = 1; step <= 12; step++) {
+                sb.append(step).append(". Iterate holidays and employees, derive valid holiday dates (\"step ")
+                        .append(step).append("\"), and apply checks.\n");
+            }
+            sb.append("\n```mermaid\nflowchart TD\n    A[Start] --> B[Read data]\n    B --> C{More items?}\n")
+                    .append("    C -- Yes --> D[Process]\n    D --> C\n    C -- No --> E[End]\n```\n\n");
+            section++;
+        }
+        return sb.toString();
+    }
+
+    public static Map<String, Object> validateResponse(int violationCount) {
+        Random random = new Random(7L);
+        List<Object> violations = new ArrayList<>(violationCount);
+        for (int i = 0; i < violationCount; i++) {
+            String ruleId = RULE_IDS[i % RULE_IDS.length];
+            Map<String, Object> v = new LinkedHashMap<>();
+            v.put("project", "ZALARIS_HR");
+            v.put("rule_pack", "hr-performance-pack");
+            v.put("rule_id", ruleId);
+            v.put("title", "Avoid SELECT inside LOOP on HR infotypes (" + ruleId + ")");
+            v.put("description", "Do not perform SELECT on HR infotypes inside LOOP. Use a bulk SELECT with "
+                    + "FOR ALL ENTRIES or a JOIN and read the result with a hashed table key. "
+                    + "Single-row reads inside loops cause one database round-trip per iteration.");
+            v.put("message", "SELECT on PA0002 executed inside LOOP AT lt_p0001 at nesting depth 1.");
+            v.put("severity", SEVERITIES[i % SEVERITIES.length]);
+            v.put("line", 10L + random.nextInt(12000));
+            v.put("suggested_code", "SELECT pernr, nachn, vorna\n  FROM pa0002\n"
+                    + "  FOR ALL ENTRIES IN @lt_p0001\n  WHERE pernr = @lt_p0001-pernr\n"
+                    + "  INTO TABLE @DATA(lt_p0002).\nSORT lt_p0002 BY pernr.\n"
+                    + "LOOP AT lt_p0001 INTO DATA(ls_p0001).\n"
+                    + "  READ TABLE lt_p0002 INTO DATA(ls_p0002) WITH KEY pernr = ls_p0001-pernr BINARY SEARCH.\n"
+                    + "ENDLOOP.");
+            violations.add(v);
+        }
+        Map<String, Object> template = new LinkedHashMap<>();
+        template.put("id", "abap.template.singleton_class");
+        template.put("snippet", "CLASS zcl_singleton_demo DEFINITION PUBLIC CREATE PRIVATE.\nENDCLASS.\n");
+        Map<String, Object> suggestions = new LinkedHashMap<>();
+        suggestions.put("templates", List.of(template));
+        suggestions.put("wizards", List.of());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("message", "Validation completed. " + violationCount + " violation(s) found.");
+        response.put("violations", violations);
+        response.put("suggestions", suggestions);
+        response.put("llm_fallback", new LinkedHashMap<>());
+        return response;
+    }
+
+    /**
+     * Same findings as {@link #validateResponse(int)} with rule text moved to
+     * the metadata dictionary: each violation is a {@code [rule_id, line, severity]} tuple.
+     */
+    public static Map<String, Object> compactValidateResponse(int violationCount) {
+        Map<String, Object> response = validateResponse(violationCount);
+        List<Object> compact = new ArrayList<>(violationCount);
+        for (Object item : (List<?>) response.get("violations")) {
+            Map<?, ?> v = (Map<?, ?>) item;
+            compact.add(List.of(v.get("rule_id"), v.get("line"), v.get("severity")));
+        }
+        response.put("violations", compact);
+        response.put("rule_dictionary_version", "bench-1");
+        return response;
+    }
+
+    public static Map<String, Object> ruleMetadata() {
+        Map<String, Object> full = validateResponse(RULE_IDS.length);
+        List<Object> rules = new ArrayList<>();
+        for (Object item : (List<?>) full.get("violations")) {
+            Map<?, ?> v = (Map<?, ?>) item;
+            Map<String, Object> rule = new LinkedHashMap<>();
+            rule.put("rule_id", v.get("rule_id"));
+            rule.put("title", v.get("title"));
+            rule.put("description", v.get("description"));
+            rule.put("rule_pack", v.get("rule_pack"));
+            rule.put("suggested_code", v.get("suggested_code"));
+            rules.add(rule);
+        }
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("version", "bench-1");
+        metadata.put("rules", rules);
+        return metadata;
+    }
+
+    /**
+     * Rule pack payload as served by {@code /api/rules/pack}.
+     */
+    public static Map<String, Object> rulePack(List<Rule> rules) {
+        List<Object> items = new ArrayList<>();
+        for (Rule rule : rules) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("rule_id", rule.getId());
+            item.put("title", rule.getTitle());
+            item.put("description", rule.getDescription());
+            item.put("type", rule.getType().name());
+            item.put("severity", rule.getSeverity().name());
+            item.put("pattern", rule.getPattern());
+            item.put("scope", rule.getScope().name());
+            item.put("bad_example", rule.getBadExample());
+            item.put("good_example", rule.getGoodExample());
+            items.add(item);
+        }
+        Map<String, Object> pack = new LinkedHashMap<>();
+        pack.put("version", "bench-1");
+        pack.put("rules", items);
+        return pack;
+    }
+
+    public static Map<String, Object> validateRequest(String code) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("code", code);
+        payload.put("object_name", "ZHR_TIME_SCHEDULE_CLEANUP");
+        payload.put("project_id", "zalaris-hr");
+        payload.put("pack_name", "hr-performance-pack");
+        payload.put("developer", "bench@zalaris.com");
+        payload.put("transport", "DEVK912345");
+        payload.put("top_k", 30);
+        payload.put("log_violations", false);
+        return payload;
+    }
+
+    public static Map<String, Object> documentResponse(String document) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("title", "Technical Design");
+        response.put("object_name", "ZHR_TIME_SCHEDULE_CLEANUP");
+        response.put("document", document);
+        return response;
+    }
+
+    public static String json(Map<String, Object> value) {
+        return JsonUtil.stringify(value);
+    }
+}
@@ -0,0 +1,38 @@
+package com.zalaris.codebot.bench;
+
+import java.util.Map;
+
+import com.zalaris.codebot.bot.BotResponseMapper;
+import com.zalaris.codebot.data.RuleMetadataDictionary;
+import com.zalaris.codebot.util.JsonUtil;
+
+/**
+ * Mapping of parsed validate responses into {@code BotResponse}, alone and
+ * together with the JSON parse that precedes it in {@code SimpleRuleBot}, for
+ * full violations and for compact ones expanded from the rule dictionary.
+ */
+final class ResponseMappingBenchmarks {
+
+    private ResponseMappingBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        RuleMetadataDictionary dictionary = new RuleMetadataDictionary(null);
+        dictionary.update("", Payloads.ruleMetadata());
+
+        for (int count : new int[] { Payloads.VIOLATION_COUNT, 300 }) {
+            String full = Payloads.json(Payloads.validateResponse(count));
+            String compact = Payloads.json(Payloads.compactValidateResponse(count));
+            Map<String, Object> parsed = JsonUtil.parseObject(full);
+            System.out.println("# validate" + count + " response size: full=" + full.length()
+                    + " compact=" + compact.length() + " chars");
+
+            bench.run("mapping.toBotResponse.validate" + count,
+                    () -> BotResponseMapper.toBotResponse(parsed, dictionary));
+            bench.run("mapping.parseAndMap.validate" + count + ".full",
+                    () -> BotResponseMapper.toBotResponse(JsonUtil.parseObject(full), dictionary));
+            bench.run("mapping.parseAndMap.validate" + count + ".compact",
+                    () -> BotResponseMapper.toBotResponse(JsonUtil.parseObject(compact), dictionary));
+        }
+    }
+}
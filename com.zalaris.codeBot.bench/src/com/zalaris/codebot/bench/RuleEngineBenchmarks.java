@@ -0,0 +1,131 @@
+package com.zalaris.codebot.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.data.RuleRepository;
+import com.zalaris.codebot.engine.RuleEngine;
+import com.zalaris.codebot.engine.RuleProfiler;
+import com.zalaris.codebot.engine.RuleProfiler.RuleProfile;
+import com.zalaris.codebot.model.Rule;
+import com.zalaris.codebot.model.RuleType;
+import com.zalaris.codebot.model.Severity;
+
+/**
+ * Local rule evaluation over a generated ABAP source as the rule count grows:
+ * the single-pass matcher against one {@code find} loop per rule. A source of
+ * about 50k lines is also evaluated in one pass and in parallel chunks. The
+ * costliest rules of the run are printed from the {@link RuleProfiler}.
+ */
+final class RuleEngineBenchmarks {
+
+    private static final int[] RULE_COUNTS = { 1, 10, 50, 100, 500 };
+    private static final int SOURCE_BYTES = 100 * 1024;
+    private static final int LARGE_SOURCE_BYTES = 1600 * 1024;
+    /** Patterns whose leading assertion decides whether the literal after it matches. */
+    private static final String[] ASSERTED = { "^LOOP", "(?i)^\\s*LOOP AT", "\\bLOOP", "\\BAT", "\\bAT\\b",
+            "\\AREPORT", "(?i)^ENDLOOP\\.", "\\Bpernr" };
+    private static final String ASSERTED_CASES = "\nWRITE x. LOOP AT t.\nXLOOP.\nAT x.\nLOOP AT t INTO s.\n";
+
+    private RuleEngineBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        String source = Payloads.abapSource(SOURCE_BYTES);
+        for (int count : RULE_COUNTS) {
+            RuleEngine engine = new RuleEngine(rules(count));
+            int combined = engine.evaluate(source).size();
+            int perRule = engine.evaluatePerRule(source).size();
+            System.out.println("# rules" + count + ": " + combined + " violations (per-rule: " + perRule + "), "
+                    + engine.getPrefilterStats());
+            if (combined != perRule) {
+                throw new IllegalStateException("Single-pass and per-rule evaluation disagree for " + count + " rules");
+            }
+            bench.run("engine.evaluate.rules" + count, () -> engine.evaluate(source));
+            bench.run("engine.evaluatePerRule.rules" + count, () -> engine.evaluatePerRule(source));
+        }
+
+        crossCheckAsserted(source + ASSERTED_CASES);
+
+        String large = Payloads.abapSource(LARGE_SOURCE_BYTES);
+        String lines = (large.split("\n", -1).length / 1000) + "k";
+        RuleEngine engine = new RuleEngine(rules(100));
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int single = engine.evaluate(large, null).size();
+        int chunked = engine.evaluate(large, pool).size();
+        System.out.println("# large: " + lines + " lines, " + single + " violations (chunked: " + chunked + "), "
+                + pool.getParallelism() + " workers");
+        if (single != chunked) {
+            throw new IllegalStateException("Single-pass and chunked evaluation disagree");
+        }
+        bench.run("engine.large.singlePass.lines" + lines, () -> engine.evaluate(large, null));
+        bench.run("engine.large.chunked.lines" + lines, () -> engine.evaluate(large, pool));
+
+        List<RuleProfile> profile = RuleProfiler.getShared().snapshot();
+        for (RuleProfile row : profile.subList(0, Math.min(5, profile.size()))) {
+            System.out.println("# costliest: " + row.ruleId() + " "
+                    + String.format(Locale.ROOT, "%.1f ms, %.1f us per run, %d/%d skipped", row.totalMillis(),
+                            row.averageMicros(), row.skipped(), row.evaluations()));
+        }
+    }
+
+    /**
+     * Fails unless the single pass finds the same rule lines as one
+     * {@code find} loop per rule for patterns starting with {@code ^},
+     * {@code \b}, {@code \B} or {@code \A}.
+     */
+    private static void crossCheckAsserted(String source) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < ASSERTED.length; i++) {
+            rules.add(new Rule("bench.asserted." + i, "Asserted rule " + i, ASSERTED[i], RuleType.PERFORMANCE,
+                    Severity.WARNING, ASSERTED[i], "", ""));
+        }
+        RuleEngine engine = new RuleEngine(rules);
+        List<String> combined = signatures(engine.evaluate(source));
+        List<String> perRule = signatures(engine.evaluatePerRule(source));
+        System.out.println("# asserted: " + ASSERTED.length + " rules, " + combined.size() + " violations (per-rule: "
+                + perRule.size() + ")");
+        if (!combined.equals(perRule)) {
+            throw new IllegalStateException("Single-pass and per-rule evaluation disagree for asserted patterns");
+        }
+    }
+
+    private static List<String> signatures(List<RuleViolation> violations) {
+        List<String> signatures = new ArrayList<>();
+        for (RuleViolation violation : violations) {
+            signatures.add(violation.getRuleId() + "@" + violation.getLine());
+        }
+        Collections.sort(signatures);
+        return signatures;
+    }
+
+    /**
+     * The repository rules followed by synthetic ones: half plain keywords, the
+     * rest regexes with and without a literal start.
+     */
+    static List<Rule> rules(int count) {
+        List<Rule> rules = new ArrayList<>(RuleRepository.getAllRules());
+        for (int i = 0; rules.size() < count; i++) {
+            String pattern;
+            switch (i % 4) {
+            case 0:
+            case 1:
+                pattern = "(?i)CALL FUNCTION 'Z_BENCH_" + i + "'";
+                break;
+            case 2:
+                pattern = "(?i)SELECT\\s+\\w+\\s+FROM\\s+PA" + String.format("%04d", i) + "\\b";
+                break;
+            default:
+                pattern = "(?i)(?:MOVE|WRITE)\\s+lv_bench_" + i + "\\b";
+                break;
+            }
+            rules.add(new Rule("bench.rule." + i, "Bench rule " + i, "Synthetic rule " + i,
+                    RuleType.PERFORMANCE, Severity.WARNING, pattern, "", ""));
+        }
+        return rules.subList(0, count);
+    }
+}
@@ -0,0 +1,52 @@
+package com.zalaris.codebot.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.zalaris.codebot.data.RulePackCache;
+import com.zalaris.codebot.util.JsonUtil;
+
+/**
+ * Getting a 500-rule pack ready at startup: opening the memory-mapped cache
+ * file and decoding its rules, against parsing and checking the backend JSON
+ * payload that a start without the cache would have to download first.
+ */
+final class RulePackBenchmarks {
+
+    private static final int RULE_COUNT = 500;
+    private static final String PACK = "bench-pack";
+
+    private RulePackBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        String json = Payloads.json(Payloads.rulePack(RuleEngineBenchmarks.rules(RULE_COUNT)));
+        Path directory = Files.createTempDirectory("codebot-rule-packs");
+        try {
+            RulePackCache cache = new RulePackCache(directory, PACK);
+            cache.update(JsonUtil.parseObject(json));
+            long fileBytes;
+            try (Stream<Path> files = Files.list(directory)) {
+                fileBytes = files.mapToLong(f -> f.toFile().length()).sum();
+            }
+            System.out.println("# rule pack: " + cache.getRules().size() + " rules, json=" + json.length()
+                    + " chars, cache file=" + fileBytes + " bytes");
+
+            bench.run("rulePack.cachedOpen.rules" + RULE_COUNT,
+                    () -> new RulePackCache(directory, PACK).getRules());
+            bench.run("rulePack.parseJson.rules" + RULE_COUNT, () -> {
+                Map<String, Object> payload = JsonUtil.parseObject(json);
+                RulePackCache parsed = new RulePackCache(null, PACK);
+                parsed.update(payload);
+                return parsed.getRules();
+            });
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.zalaris.codebot.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zalaris.codebot.util.WireCodec;
+import com.zalaris.codebot.util.WireCodecs;
+
+/**
+ * Local stand-in for the CodeBot backend. Serves canned responses per path so
+ * client round-trips can be measured without network or server-side work.
+ * Request bodies are decoded with the codec named by {@code Content-Type} and
+ * responses are encoded in the first {@code Accept}ed codec, like the backend.
+ */
+public final class StubBackend implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, Map<String, Object>> responses = new LinkedHashMap<>();
+    private final Map<String, byte[]> encoded = new java.util.concurrent.ConcurrentHashMap<>();
+    private volatile boolean rejectBinary;
+    private volatile long latencyMillis;
+
+    public StubBackend() throws IOException {
+        this(4);
+    }
+
+    /**
+     * @param threads requests the stand-in serves concurrently
+     */
+    public StubBackend(int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "codebot-stub-backend");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+    }
+
+    public StubBackend respond(String path, Map<String, Object> body) {
+        responses.put(path, body);
+        return this;
+    }
+
+    /**
+     * Simulates a backend without binary support: non-JSON requests get 415.
+     */
+    public StubBackend rejectBinary(boolean reject) {
+        this.rejectBinary = reject;
+        return this;
+    }
+
+    /**
+     * Delays every response, standing in for server-side validation time.
+     */
+    public StubBackend latency(long millis) {
+        this.latencyMillis = millis;
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        WireCodec requestCodec = WireCodecs.forContentType(exchange.getRequestHeaders().getFirst("Content-Type"));
+        byte[] request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = in.readAllBytes();
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (rejectBinary && requestCodec != WireCodecs.JSON) {
+            send(exchange, 415, WireCodecs.JSON, Map.of("detail", "Unsupported Media Type"));
+            return;
+        }
+        if (request.length > 0) {
+            requestCodec.decode(request);
+        }
+        WireCodec responseCodec = WireCodecs.forContentType(firstAccepted(exchange.getRequestHeaders().getFirst("Accept")));
+        String path = exchange.getRequestURI().getPath();
+        Map<String, Object> body = responses.get(path);
+        if (body == null) {
+            send(exchange, 404, responseCodec, Map.of("detail", "Not Found"));
+            return;
+        }
+        byte[] bytes = encoded.computeIfAbsent(responseCodec.mediaType() + path, k -> responseCodec.encode(body));
+        exchange.getResponseHeaders().set("Content-Type", responseCodec.mediaType());
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, WireCodec codec, Map<String, Object> body)
+            throws IOException {
+        byte[] bytes = codec.encode(body);
+        exchange.getResponseHeaders().set("Content-Type", codec.mediaType());
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String firstAccepted(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return "";
+        }
+        int comma = accept.indexOf(',');
+        return comma < 0 ? accept : accept.substring(0, comma);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
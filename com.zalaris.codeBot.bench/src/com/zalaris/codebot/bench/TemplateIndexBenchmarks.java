@@ -0,0 +1,142 @@
+package com.zalaris.codebot.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.zalaris.codebot.data.TemplateCache;
+import com.zalaris.codebot.data.TemplateIndex;
+import com.zalaris.codebot.model.Template;
+
+/**
+ * Answering template requests from the local index over thousands of
+ * templates: an exact trigger, a misspelt one, a request that matches nothing
+ * and goes to the backend, the proposals for a half-typed trigger in the
+ * editor, and building the index. Also opening the synced
+ * catalog from its memory-mapped cache file and reading one snippet from it.
+ */
+final class TemplateIndexBenchmarks {
+
+    private static final int TEMPLATE_COUNT = 5_000;
+
+    private static final String[] SUBJECTS = { "employee", "payroll", "absence", "infotype", "org", "manager",
+            "position", "cost", "wage", "time", "benefit", "travel", "report", "alv", "amdp", "cds", "bapi",
+            "badi", "rfc", "odata", "workflow", "authority", "lock", "message", "log", "email", "excel", "pdf",
+            "json", "xml", "upload", "download", "batch", "job", "queue", "cache", "config", "date", "currency",
+            "unit" };
+    private static final String[] KINDS = { "class", "report", "method", "function", "table", "view", "service",
+            "handler", "reader", "writer", "validator", "mapper", "builder", "factory", "singleton", "test" };
+    private static final String[] VERBS = { "create", "read", "update", "delete", "get", "list", "check",
+            "convert", "export", "import" };
+
+    private TemplateIndexBenchmarks() {
+    }
+
+    static void run(Bench bench) throws Exception {
+        List<Template> templates = templates(TEMPLATE_COUNT);
+        TemplateIndex index = new TemplateIndex(templates, TemplateIndex.DEFAULT_THRESHOLD);
+        String exact = "template for " + templates.get(TEMPLATE_COUNT / 2).getTriggers().get(0);
+        String misspelt = "templat for " + misspell(templates.get(TEMPLATE_COUNT / 3).getTriggers().get(0));
+        String miss = "validate current object and explain the findings";
+        String typed = templates.get(TEMPLATE_COUNT / 4).getTriggers().get(0);
+        String partial = typed.substring(0, typed.indexOf(' ') + 5);
+        System.out.println("# templates" + TEMPLATE_COUNT + " '" + partial + "': "
+                + index.search(partial, 20).size() + " proposals");
+        for (String query : new String[] { exact, misspelt, miss }) {
+            TemplateIndex.Match match = index.find(query);
+            System.out.println(String.format(Locale.ROOT, "# templates%d '%s': %s", TEMPLATE_COUNT, query,
+                    match == null ? "backend" : match.template().getId() + String.format(Locale.ROOT, " (%.2f)",
+                            match.score())));
+        }
+
+        bench.run("templates.find.exact.templates" + TEMPLATE_COUNT, () -> index.find(exact));
+        bench.run("templates.find.misspelt.templates" + TEMPLATE_COUNT, () -> index.find(misspelt));
+        bench.run("templates.find.miss.templates" + TEMPLATE_COUNT, () -> index.find(miss));
+        bench.run("templates.complete.templates" + TEMPLATE_COUNT, () -> index.search(partial, 20));
+        bench.run("templates.build.templates" + TEMPLATE_COUNT,
+                () -> new TemplateIndex(templates, TemplateIndex.DEFAULT_THRESHOLD));
+
+        Path directory = Files.createTempDirectory("codebot-templates");
+        try {
+            TemplateCache cache = new TemplateCache(directory);
+            cache.update(catalog(templates));
+            long fileBytes;
+            try (Stream<Path> files = Files.list(directory)) {
+                fileBytes = files.mapToLong(f -> f.toFile().length()).sum();
+            }
+            System.out.println("# template catalog: " + cache.getTemplates().size() + " templates, cache file="
+                    + fileBytes + " bytes");
+            Template cached = cache.getTemplates().get(TEMPLATE_COUNT / 2);
+            bench.run("templates.cachedOpen.templates" + TEMPLATE_COUNT,
+                    () -> new TemplateCache(directory).getTemplates());
+            bench.run("templates.cachedSnippet.templates" + TEMPLATE_COUNT, cached::getSnippet);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    /** The templates as a backend catalog payload. */
+    private static Map<String, Object> catalog(List<Template> templates) {
+        List<Object> items = new ArrayList<>(templates.size());
+        for (Template template : templates) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("template_id", template.getId());
+            item.put("title", template.getTitle());
+            item.put("description", template.getDescription());
+            item.put("triggers", template.getTriggers());
+            item.put("snippet", template.getSnippet());
+            items.add(item);
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("version", "bench");
+        payload.put("templates", items);
+        return payload;
+    }
+
+    static List<Template> templates(int count) {
+        Random random = new Random(23L);
+        List<Template> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String subject = SUBJECTS[random.nextInt(SUBJECTS.length)];
+            String second = SUBJECTS[random.nextInt(SUBJECTS.length)];
+            String kind = KINDS[random.nextInt(KINDS.length)];
+            String verb = VERBS[random.nextInt(VERBS.length)];
+            String name = subject + "_" + second + "_" + kind + "_" + i;
+            templates.add(new Template(
+                    "bench.template." + name,
+                    subject + " " + second + " " + kind + " " + i,
+                    "Generated template " + i + ".",
+                    List.of(verb + " " + subject + " " + second + " " + kind + " v" + i,
+                            subject + " " + kind + " " + Integer.toString(i, 36)),
+                    "CLASS zcl_" + name + " DEFINITION PUBLIC.\nENDCLASS.\n"));
+        }
+        return templates;
+    }
+
+    /** Swaps two letters in the middle of the longest word. */
+    private static String misspell(String phrase) {
+        String[] words = phrase.split(" ");
+        int longest = 0;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > words[longest].length()) {
+                longest = i;
+            }
+        }
+        char[] letters = words[longest].toCharArray();
+        int middle = letters.length / 2;
+        char swap = letters[middle];
+        letters[middle] = letters[middle - 1];
+        letters[middle - 1] = swap;
+        words[longest] = new String(letters);
+        return String.join(" ", words);
+    }
+}
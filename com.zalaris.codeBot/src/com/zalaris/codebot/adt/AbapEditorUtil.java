@@ -1,5 +1,8 @@
 package com.zalaris.codebot.adt;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -7,16 +10,24 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextSelection;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.Position;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.ISelectionProvider;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IEditorReference;
 import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.texteditor.ITextEditor;
 
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.validation.BatchValidator.ObjectSource;
+
 public class AbapEditorUtil {
     private static final Pattern TRANSPORT_PATTERN = Pattern.compile("\\b([A-Z][0-9]{6,})\\b");
     private static volatile String lastSnapshotObjectName = "";
@@ -68,6 +79,72 @@ public class AbapEditorUtil {
         return null;
     }
 
+    /**
+     * Document of a text editor part (directly or via adapter), or null for other parts.
+     */
+    public static IDocument getDocument(IWorkbenchPart part) {
+        try {
+            ITextEditor textEditor = null;
+            if (part instanceof ITextEditor) {
+                textEditor = (ITextEditor) part;
+            } else if (part instanceof IAdaptable) {
+                textEditor = ((IAdaptable) part).getAdapter(ITextEditor.class);
+            }
+            if (textEditor == null || textEditor.getDocumentProvider() == null) {
+                return null;
+            }
+            return textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+        } catch (Exception ex) {
+            System.out.println("[CodeBot Debug] getDocument: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Document of the active ABAP/text editor, or null.
+     */
+    public static IDocument getActiveDocument() {
+        try {
+            ITextEditor textEditor = getActiveTextEditor();
+            if (textEditor == null) {
+                return null;
+            }
+            return textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+        } catch (Exception ex) {
+            System.out.println("[CodeBot Debug] getActiveDocument: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Name and current content of every open text editor on the active page.
+     * Editors that were never restored are skipped, since that would load them.
+     * Must be called on the UI thread.
+     */
+    public static List<ObjectSource> getOpenEditorSources() {
+        List<ObjectSource> sources = new ArrayList<>();
+        try {
+            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+            IWorkbenchPage page = window == null ? null : window.getActivePage();
+            if (page == null) {
+                return sources;
+            }
+            for (IEditorReference reference : page.getEditorReferences()) {
+                IEditorPart editorPart = reference.getEditor(false);
+                IDocument document = editorPart == null ? null : getDocument(editorPart);
+                if (document == null) {
+                    continue;
+                }
+                String title = reference.getTitle();
+                String objectName = title == null || title.trim().isEmpty() ? "ADT_OBJECT" : title.trim();
+                sources.add(new ObjectSource(objectName, document.get()));
+            }
+        } catch (Exception ex) {
+            System.out.println("[CodeBot Debug] getOpenEditorSources: " + ex.getMessage());
+        }
+        return sources;
+    }
+
     public static String getActiveEditorNameOrDefault() {
         try {
             IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
@@ -246,6 +323,59 @@ public class AbapEditorUtil {
         }
     }
 
+    /**
+     * Plans the suggested corrections of the violations for the active
+     * ABAP/text editor, for a preview before {@link #applyFixes}. Returns null
+     * if no editor is available.
+     */
+    public static ViolationFixes.Plan planFixes(List<RuleViolation> violations) {
+        ITextEditor textEditor = getActiveTextEditor();
+        if (textEditor == null) {
+            System.out.println("[CodeBot Debug] planFixes: no ITextEditor available.");
+            return null;
+        }
+
+        IDocument document =
+                textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+        if (document == null) {
+            System.out.println("[CodeBot Debug] planFixes: document is null.");
+            return null;
+        }
+        return ViolationFixes.plan(textEditor, document, violations);
+    }
+
+    /**
+     * Apply planned corrections as one undoable change. Returns null if they
+     * could not be applied.
+     */
+    public static ViolationFixes.Outcome applyFixes(ViolationFixes.Plan plan) {
+        try {
+            return ViolationFixes.apply(plan);
+        } catch (Exception e) {
+            System.out.println("[CodeBot Debug] applyFixes: exception " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Text viewer of the active ABAP/text editor, as exposed through its text
+     * operation target, or null if the editor does not expose one.
+     */
+    public static ITextViewer getActiveTextViewer() {
+        ITextEditor textEditor = getActiveTextEditor();
+        if (textEditor == null) {
+            System.out.println("[CodeBot Debug] getActiveTextViewer: no ITextEditor available.");
+            return null;
+        }
+        ITextOperationTarget target = textEditor.getAdapter(ITextOperationTarget.class);
+        if (target instanceof ITextViewer) {
+            return (ITextViewer) target;
+        }
+        System.out.println("[CodeBot Debug] getActiveTextViewer: editor exposes no ITextViewer.");
+        return null;
+    }
+
     /**
      * Navigate the active ABAP/text editor to a 1-based line number.
      */
@@ -286,6 +416,28 @@ public class AbapEditorUtil {
         }
     }
 
+    /**
+     * Navigate the active editor to a violation, following its tracked position
+     * when one is registered. Returns the 1-based line jumped to, or -1.
+     */
+    public static int goToViolation(RuleViolation violation) {
+        try {
+            ITextEditor textEditor = getActiveTextEditor();
+            IDocument document = textEditor == null
+                    ? null
+                    : textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+            ViolationPositions positions = ViolationPositions.forDocument(document);
+            Position position = positions == null ? null : positions.positionOf(violation);
+            if (position != null) {
+                textEditor.selectAndReveal(position.getOffset(), position.getLength());
+                return positions.currentLine(violation);
+            }
+        } catch (Exception e) {
+            System.out.println("[CodeBot Debug] goToViolation: exception " + e.getMessage());
+        }
+        return goToLine(violation.getLine()) ? violation.getLine() : -1;
+    }
+
     public static IResource getActiveEditorResource() {
         try {
             IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
@@ -296,8 +448,18 @@ public class AbapEditorUtil {
             if (page == null) {
                 return null;
             }
-            IEditorPart editorPart = page.getActiveEditor();
-            if (editorPart == null) {
+            return getResource(page.getActiveEditor());
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Workspace resource an editor part edits, or null.
+     */
+    public static IResource getResource(IWorkbenchPart part) {
+        try {
+            if (!(part instanceof IEditorPart editorPart)) {
                 return null;
             }
             IEditorInput input = editorPart.getEditorInput();
@@ -307,15 +469,29 @@ public class AbapEditorUtil {
                     return (IResource) adapted;
                 }
             }
-            if (editorPart instanceof IAdaptable) {
-                Object adapted = ((IAdaptable) editorPart).getAdapter(IResource.class);
-                if (adapted instanceof IResource) {
-                    return (IResource) adapted;
-                }
+            Object adapted = editorPart.getAdapter(IResource.class);
+            if (adapted instanceof IResource) {
+                return (IResource) adapted;
             }
             return null;
         } catch (Exception ex) {
             return null;
         }
     }
+
+    /**
+     * Whether the part is an ADT source editor, judged by its editor id or class.
+     */
+    public static boolean isAbapEditor(IWorkbenchPart part) {
+        if (!(part instanceof IEditorPart)) {
+            return false;
+        }
+        String id = part.getSite() == null ? null : part.getSite().getId();
+        return isAbapName(id) || isAbapName(part.getClass().getName());
+    }
+
+    private static boolean isAbapName(String name) {
+        String lower = name == null ? "" : name.toLowerCase(Locale.ROOT);
+        return lower.startsWith("com.sap.adt") || lower.contains("abap");
+    }
 }
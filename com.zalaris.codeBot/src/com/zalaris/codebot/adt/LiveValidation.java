@@ -0,0 +1,305 @@
+package com.zalaris.codebot.adt;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.swt.widgets.Display;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.engine.IncrementalValidator;
+import com.zalaris.codebot.engine.RuleEngine;
+import com.zalaris.codebot.util.Settings;
+
+/**
+ * As-you-type local validation for an open ABAP editor document. Edits are
+ * collected into one changed region until typing pauses for
+ * {@code codebot.validation.live.delay.ms}; the document text and the region
+ * are then handed to an {@link IncrementalValidator} on a background thread,
+ * which re-evaluates only the statements around it, so the live violation set
+ * stays current without a backend round-trip, without copying the document on
+ * every keystroke and without blocking the editor. A rule pack refresh that
+ * swaps {@link RuleEngine#getDefault()} revalidates the whole document with the
+ * new engine.
+ */
+public final class LiveValidation implements IDocumentListener {
+
+    /**
+     * Notified on the UI thread after the live set was updated, unless the
+     * document was edited again meanwhile, and with an empty list when the
+     * document is detached. Without a display, on the thread that edited.
+     */
+    public interface Listener {
+        void violationsChanged(LiveValidation live, List<RuleViolation> violations);
+    }
+
+    private static final Map<IDocument, LiveValidation> ATTACHED = new IdentityHashMap<>();
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    /** One thread for all documents, so each document's edits are validated in order. */
+    private static final ExecutorService VALIDATION = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "codebot-live-validation");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Document text to validate, with the region changed since the previous one or a full reset. */
+    private record Snapshot(String source, boolean reset, int start, int oldEnd, int newEnd, long edits) {
+    }
+
+    private final IDocument document;
+    private final IResource resource;
+    private final long budgetNanos;
+    private final int delayMillis;
+    private final Runnable flush = this::flush;
+    /** Guards the validator, which the validation thread updates. */
+    private final Object validating = new Object();
+    private IncrementalValidator validator;
+    private volatile long lastUpdateNanos;
+
+    // Region changed since the last snapshot: [pendingStart, pendingOldEnd) of
+    // the source the validator last saw is now [pendingStart, pendingNewEnd).
+    private long edits;
+    private boolean pending;
+    private int pendingStart;
+    private int pendingOldEnd;
+    private int pendingNewEnd;
+
+    private LiveValidation(IDocument document, IResource resource) {
+        this.document = document;
+        this.resource = resource;
+        this.validator = new IncrementalValidator(RuleEngine.getDefault());
+        this.budgetNanos = parseLong(Settings.read("codebot.validation.live.budget.ms", "5"), 5L) * 1_000_000L;
+        this.delayMillis = (int) parseLong(Settings.read("codebot.validation.live.delay.ms", "250"), 250L);
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equalsIgnoreCase(Settings.read("codebot.validation.live", "true"));
+    }
+
+    /**
+     * Starts live validation of an ABAP editor's document, or returns the
+     * existing one. Violations are published to listeners against
+     * {@code resource}, which may be null.
+     */
+    public static LiveValidation attach(IDocument document, IResource resource) {
+        if (document == null) {
+            return null;
+        }
+        LiveValidation live;
+        synchronized (ATTACHED) {
+            LiveValidation existing = ATTACHED.get(document);
+            if (existing != null) {
+                return existing;
+            }
+            live = new LiveValidation(document, resource);
+            document.addDocumentListener(live);
+            ATTACHED.put(document, live);
+        }
+        Snapshot snapshot;
+        synchronized (live) {
+            snapshot = new Snapshot(document.get(), true, 0, 0, 0, live.edits);
+        }
+        live.submit(snapshot);
+        return live;
+    }
+
+    public static void detach(IDocument document) {
+        if (document == null) {
+            return;
+        }
+        LiveValidation live;
+        synchronized (ATTACHED) {
+            live = ATTACHED.remove(document);
+        }
+        if (live != null) {
+            document.removeDocumentListener(live);
+            Display display = Display.getCurrent();
+            if (display != null) {
+                display.timerExec(-1, live.flush);
+            }
+            live.publish(Collections.emptyList());
+        }
+    }
+
+    /**
+     * Live validation of the document, or null when it is not attached.
+     */
+    public static LiveValidation forDocument(IDocument document) {
+        synchronized (ATTACHED) {
+            return ATTACHED.get(document);
+        }
+    }
+
+    public static void addListener(Listener listener) {
+        if (listener != null) {
+            LISTENERS.add(listener);
+        }
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public IDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Workspace resource of the document's editor, or null.
+     */
+    public IResource getResource() {
+        return resource;
+    }
+
+    public List<RuleViolation> getViolations() {
+        synchronized (validating) {
+            return Collections.unmodifiableList(validator.getViolations());
+        }
+    }
+
+    /**
+     * Time spent on the most recent validation, in nanoseconds.
+     */
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    @Override
+    public void documentAboutToBeChanged(DocumentEvent event) {
+        // Offsets and lengths of the change are still valid in documentChanged.
+    }
+
+    @Override
+    public void documentChanged(DocumentEvent event) {
+        int offset = event.getOffset();
+        int removed = event.getLength();
+        int inserted = event.getText() == null ? 0 : event.getText().length();
+        synchronized (this) {
+            edits++;
+            if (!pending) {
+                pending = true;
+                pendingStart = offset;
+                pendingOldEnd = offset + removed;
+                pendingNewEnd = offset + inserted;
+            } else {
+                // Text after the region is unchanged, so an edit reaching past
+                // the region's end extends it by the same amount in the old source.
+                int editEnd = offset + removed;
+                pendingOldEnd += Math.max(0, editEnd - pendingNewEnd);
+                pendingNewEnd = Math.max(pendingNewEnd, editEnd) - removed + inserted;
+                pendingStart = Math.min(pendingStart, offset);
+            }
+        }
+        Display display = Display.getCurrent();
+        if (display != null && delayMillis > 0) {
+            // Rescheduling the same runnable restarts the delay.
+            display.timerExec(delayMillis, flush);
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Hands the region changed since the last snapshot to the validation thread.
+     */
+    private void flush() {
+        Snapshot snapshot;
+        synchronized (this) {
+            if (!pending) {
+                return;
+            }
+            pending = false;
+            snapshot = new Snapshot(document.get(), false, pendingStart, pendingOldEnd, pendingNewEnd, edits);
+        }
+        submit(snapshot);
+    }
+
+    /**
+     * Validates the snapshot on the validation thread and publishes the result
+     * on the UI thread; without a display, both happen on the calling thread.
+     */
+    private void submit(Snapshot snapshot) {
+        Display display = Display.getCurrent();
+        if (display == null) {
+            publish(validate(snapshot));
+            return;
+        }
+        VALIDATION.execute(() -> {
+            List<RuleViolation> violations = validate(snapshot);
+            if (!display.isDisposed()) {
+                display.asyncExec(() -> publishIfCurrent(snapshot, violations));
+            }
+        });
+    }
+
+    private List<RuleViolation> validate(Snapshot snapshot) {
+        long start = System.nanoTime();
+        List<RuleViolation> violations;
+        synchronized (validating) {
+            RuleEngine engine = RuleEngine.getDefault();
+            if (snapshot.reset() || engine != validator.getEngine()) {
+                validator = engine == validator.getEngine() ? validator : new IncrementalValidator(engine);
+                validator.reset(snapshot.source());
+            } else {
+                try {
+                    validator.apply(snapshot.source(), snapshot.start(), snapshot.oldEnd() - snapshot.start(),
+                            snapshot.newEnd() - snapshot.start());
+                } catch (RuntimeException ex) {
+                    System.out.println("[CodeBot] Live validation failed, revalidating document: " + ex.getMessage());
+                    validator.reset(snapshot.source());
+                }
+            }
+            lastUpdateNanos = System.nanoTime() - start;
+            violations = getViolations();
+        }
+        if (snapshot.reset()) {
+            System.out.println("[CodeBot] Live validation attached, violations=" + violations.size());
+        } else if (lastUpdateNanos > budgetNanos) {
+            System.out.println("[CodeBot] Live validation took " + (lastUpdateNanos / 1_000_000L)
+                    + " ms for an edit at offset " + snapshot.start());
+        }
+        return violations;
+    }
+
+    /**
+     * Publishes unless the document was detached or edited after the snapshot;
+     * its lines would no longer match, and a newer result is on its way.
+     */
+    private void publishIfCurrent(Snapshot snapshot, List<RuleViolation> violations) {
+        if (forDocument(document) != this) {
+            return;
+        }
+        synchronized (this) {
+            if (edits != snapshot.edits()) {
+                return;
+            }
+        }
+        publish(violations);
+    }
+
+    private void publish(List<RuleViolation> violations) {
+        for (Listener listener : LISTENERS) {
+            try {
+                listener.violationsChanged(this, violations);
+            } catch (RuntimeException ex) {
+                System.out.println("[CodeBot] Live validation listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.zalaris.codebot.adt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+
+import com.zalaris.codebot.adt.ViolationPositions.ViolationPosition;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+
+/**
+ * Shows the live violation set of each ABAP editor as transient problem
+ * markers on its resource, next to the governance markers of full
+ * validations. Each marker moves with its line through the document's
+ * {@link ViolationPositions#live live positions}, so an edit above
+ * it does not recreate it; only markers of violations that appeared or went
+ * away are created or deleted, in one workspace operation. At most
+ * {@link #MAX_MARKERS} are shown per resource. Runs on the UI thread.
+ */
+public final class LiveViolationMarkers implements LiveValidation.Listener {
+
+    private static final String SOURCE = "CodeBot Live";
+    private static final int MAX_MARKERS = 200;
+
+    @Override
+    public void violationsChanged(LiveValidation live, List<RuleViolation> violations) {
+        IResource resource = live.getResource();
+        ViolationPositions positions = ViolationPositions.live(live.getDocument());
+        if (resource == null || positions == null) {
+            return;
+        }
+        // Markers already shown, by rule and the line they have moved to.
+        Map<String, ViolationPosition> shown = new HashMap<>();
+        List<ViolationPosition> stale = new ArrayList<>();
+        for (ViolationPosition position : positions.getPositions()) {
+            if (position.isDeleted() || position.getMarker() == null || !position.getMarker().exists()
+                    || shown.putIfAbsent(key(position.getViolation(), positions.currentLine(position.getViolation())),
+                            position) != null) {
+                stale.add(position);
+            }
+        }
+        List<RuleViolation> added = new ArrayList<>();
+        int count = Math.min(MAX_MARKERS, violations.size());
+        for (int i = 0; i < count; i++) {
+            RuleViolation violation = violations.get(i);
+            if (shown.remove(key(violation, violation.getLine())) == null) {
+                added.add(violation);
+            }
+        }
+        stale.addAll(shown.values());
+        if (stale.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        try {
+            ResourcesPlugin.getWorkspace().run((IWorkspaceRunnable) monitor -> {
+                for (ViolationPosition position : stale) {
+                    positions.remove(position);
+                    if (position.getMarker() != null && position.getMarker().exists()) {
+                        position.getMarker().delete();
+                    }
+                }
+                for (RuleViolation violation : added) {
+                    if (positions.add(violation) != null) {
+                        positions.attachMarker(violation,
+                                resource.createMarker(IMarker.PROBLEM, attributes(violation)));
+                    }
+                }
+            }, ResourcesPlugin.getWorkspace().getRuleFactory().markerRule(resource), IWorkspace.AVOID_UPDATE, null);
+        } catch (CoreException ex) {
+            System.out.println("[CodeBot] Failed to update live markers: " + ex.getMessage());
+        }
+    }
+
+    private static Map<String, Object> attributes(RuleViolation violation) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(IMarker.SOURCE_ID, SOURCE);
+        attributes.put(IMarker.TRANSIENT, Boolean.TRUE);
+        attributes.put(IMarker.MESSAGE, "CodeBot: " + violation.getTitle()
+                + (violation.getDescription() == null || violation.getDescription().isBlank()
+                        ? ""
+                        : " - " + violation.getDescription()));
+        attributes.put(IMarker.SEVERITY, severity(violation));
+        attributes.put(IMarker.LINE_NUMBER, Math.max(1, violation.getLine()));
+        return attributes;
+    }
+
+    private static int severity(RuleViolation violation) {
+        String severity = violation.getSeverity() == null ? "" : violation.getSeverity().toUpperCase(Locale.ROOT);
+        return "MAJOR".equals(severity) ? IMarker.SEVERITY_WARNING : IMarker.SEVERITY_INFO;
+    }
+
+    private static String key(RuleViolation violation, int line) {
+        return violation.getRuleId() + ":" + line;
+    }
+}
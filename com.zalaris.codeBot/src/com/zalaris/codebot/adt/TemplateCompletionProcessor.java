@@ -0,0 +1,271 @@
+package com.zalaris.codebot.adt;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.ContentAssistant;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+import org.eclipse.jface.text.contentassist.IContextInformationValidator;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+
+import com.zalaris.codebot.data.TemplateIndex;
+import com.zalaris.codebot.model.Template;
+
+/**
+ * Proposes templates for the text typed on the current line, like "create
+ * singleton" or "amdp sel". The text is looked up in the shared
+ * {@link TemplateIndex}; its last word may be a prefix or a misspelling of a
+ * trigger word. Proposals are computed in memory only and never call the
+ * backend. A snippet is read when a proposal is shown in detail or applied,
+ * not when the list is built.
+ */
+public final class TemplateCompletionProcessor implements IContentAssistProcessor {
+
+    private static final int MAX_PROPOSALS = 20;
+    /** Only the end of a longer line is looked up. */
+    private static final int MAX_QUERY_LENGTH = 60;
+    private static final long BUDGET_NANOS = 1_000_000L;
+    private static final String ASSISTANT_KEY = "com.zalaris.codebot.templateAssistant";
+
+    private String errorMessage;
+
+    /**
+     * Shows the template proposals for the viewer's cursor. The viewer gets
+     * its own content assistant on first use, removed with its widget, so the
+     * editor's own content assist is left alone.
+     */
+    public static void showProposals(ITextViewer viewer) {
+        StyledText widget = viewer.getTextWidget();
+        if (widget == null || widget.isDisposed()) {
+            return;
+        }
+        ContentAssistant assistant = (ContentAssistant) widget.getData(ASSISTANT_KEY);
+        if (assistant == null) {
+            assistant = new ContentAssistant();
+            assistant.enableAutoActivation(false);
+            assistant.enableAutoInsert(false);
+            assistant.setShowEmptyList(true);
+            assistant.setStatusLineVisible(true);
+            assistant.setStatusMessage("CodeBot templates");
+            assistant.install(viewer);
+            widget.setData(ASSISTANT_KEY, assistant);
+            ContentAssistant installed = assistant;
+            widget.addListener(SWT.Dispose, event -> installed.uninstall());
+        }
+        // Registered for the partition at the cursor each time, since ABAP
+        // comments and code may be different partitions.
+        TemplateCompletionProcessor processor = new TemplateCompletionProcessor();
+        assistant.setContentAssistProcessor(processor, IDocument.DEFAULT_CONTENT_TYPE);
+        IDocument document = viewer.getDocument();
+        if (document != null) {
+            try {
+                assistant.setContentAssistProcessor(processor,
+                        document.getContentType(viewer.getSelectedRange().x));
+            } catch (BadLocationException ex) {
+                System.out.println("[CodeBot] Template assist: no content type at cursor: " + ex.getMessage());
+            }
+        }
+        assistant.showPossibleCompletions();
+    }
+
+    @Override
+    public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+        long start = System.nanoTime();
+        errorMessage = null;
+        IDocument document = viewer.getDocument();
+        if (document == null) {
+            return new ICompletionProposal[0];
+        }
+        try {
+            IRegion line = document.getLineInformationOfOffset(offset);
+            String before = document.get(line.getOffset(), offset - line.getOffset());
+            int queryStart = queryStart(before);
+            String query = before.substring(queryStart).trim();
+            if (query.isEmpty()) {
+                errorMessage = "Type what the template is for, like \"create singleton\".";
+                return new ICompletionProposal[0];
+            }
+            List<TemplateIndex.Match> matches = TemplateIndex.getShared().search(query, MAX_PROPOSALS);
+            int replaceFrom = line.getOffset() + replaceStart(before, queryStart);
+            String indentation = leadingWhitespace(before);
+            String delimiter = document.getLineDelimiter(document.getLineOfOffset(offset));
+            if (delimiter == null) {
+                delimiter = document.getNumberOfLines() > 1 ? document.getLineDelimiter(0) : null;
+            }
+            ICompletionProposal[] proposals = new ICompletionProposal[matches.size()];
+            for (int i = 0; i < proposals.length; i++) {
+                proposals[i] = new TemplateProposal(matches.get(i), replaceFrom, offset - replaceFrom,
+                        indentation, delimiter == null ? "\n" : delimiter);
+            }
+            if (proposals.length == 0) {
+                errorMessage = "No CodeBot template matches \"" + query + "\".";
+            }
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > BUDGET_NANOS) {
+                System.out.println(String.format(Locale.ROOT,
+                        "[CodeBot] Template proposals for '%s' took %.2f ms", query, elapsed / 1_000_000.0));
+            }
+            return proposals;
+        } catch (BadLocationException ex) {
+            System.out.println("[CodeBot] Template proposals failed at offset " + offset + ": " + ex.getMessage());
+            return new ICompletionProposal[0];
+        }
+    }
+
+    @Override
+    public IContextInformation[] computeContextInformation(ITextViewer viewer, int offset) {
+        return null;
+    }
+
+    @Override
+    public char[] getCompletionProposalAutoActivationCharacters() {
+        return null;
+    }
+
+    @Override
+    public char[] getContextInformationAutoActivationCharacters() {
+        return null;
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public IContextInformationValidator getContextInformationValidator() {
+        return null;
+    }
+
+    /**
+     * Start of the text to look up: after a comment marker, else after the
+     * last statement on the line, and at most {@link #MAX_QUERY_LENGTH}
+     * characters back, at a word start.
+     */
+    private static int queryStart(String before) {
+        int start;
+        int quote = before.lastIndexOf('"');
+        if (quote >= 0) {
+            start = quote + 1;
+        } else if (before.startsWith("*")) {
+            start = 1;
+        } else {
+            start = before.lastIndexOf('.') + 1;
+        }
+        if (before.length() - start > MAX_QUERY_LENGTH) {
+            start = before.length() - MAX_QUERY_LENGTH;
+            while (start < before.length() && !Character.isWhitespace(before.charAt(start - 1))) {
+                start++;
+            }
+        }
+        while (start < before.length() && Character.isWhitespace(before.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Start of the text the snippet replaces: the query, and the comment
+     * marker in front of it when the line holds nothing else.
+     */
+    private static int replaceStart(String before, int queryStart) {
+        int marker = queryStart - 1;
+        while (marker >= 0 && Character.isWhitespace(before.charAt(marker))) {
+            marker--;
+        }
+        if (marker >= 0 && (before.charAt(marker) == '"' || before.charAt(marker) == '*' && marker == 0)
+                && before.substring(0, marker).isBlank()) {
+            return marker;
+        }
+        return queryStart;
+    }
+
+    private static String leadingWhitespace(String text) {
+        int end = 0;
+        while (end < text.length() && (text.charAt(end) == ' ' || text.charAt(end) == '\t')) {
+            end++;
+        }
+        return text.substring(0, end);
+    }
+
+    /** A template replacing the typed text; the snippet is read on demand. */
+    private static final class TemplateProposal implements ICompletionProposal {
+
+        private final TemplateIndex.Match match;
+        private final int offset;
+        private final int length;
+        private final String indentation;
+        private final String delimiter;
+        private int cursor;
+
+        TemplateProposal(TemplateIndex.Match match, int offset, int length, String indentation, String delimiter) {
+            this.match = match;
+            this.offset = offset;
+            this.length = length;
+            this.indentation = indentation;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        public void apply(IDocument document) {
+            String text = indented(match.template().getSnippet());
+            try {
+                document.replace(offset, length, text);
+                cursor = offset + text.length();
+            } catch (BadLocationException ex) {
+                System.out.println("[CodeBot] Could not insert template " + match.template().getId() + ": "
+                        + ex.getMessage());
+                cursor = offset;
+            }
+        }
+
+        /** The snippet's lines after the first, indented like the line it is inserted on. */
+        private String indented(String snippet) {
+            String[] lines = (snippet == null ? "" : snippet.strip()).split("\r\n|\r|\n", -1);
+            StringBuilder text = new StringBuilder(lines[0]);
+            for (int i = 1; i < lines.length; i++) {
+                text.append(delimiter);
+                if (!lines[i].isBlank()) {
+                    text.append(indentation).append(lines[i]);
+                }
+            }
+            return text.toString();
+        }
+
+        @Override
+        public Point getSelection(IDocument document) {
+            return new Point(cursor, 0);
+        }
+
+        @Override
+        public String getAdditionalProposalInfo() {
+            Template template = match.template();
+            String description = template.getDescription() == null ? "" : template.getDescription();
+            return description + "\n\n" + template.getSnippet();
+        }
+
+        @Override
+        public String getDisplayString() {
+            return match.template().getTitle() + " - CodeBot template (" + match.phrase() + ")";
+        }
+
+        @Override
+        public Image getImage() {
+            return null;
+        }
+
+        @Override
+        public IContextInformation getContextInformation() {
+            return null;
+        }
+    }
+}
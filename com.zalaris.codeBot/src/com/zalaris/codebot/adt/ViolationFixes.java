@@ -0,0 +1,235 @@
+package com.zalaris.codebot.adt;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentRewriteSession;
+import org.eclipse.jface.text.DocumentRewriteSessionType;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IRewriteTarget;
+import org.eclipse.ui.texteditor.ITextEditor;
+
+import com.zalaris.codebot.bot.BotResponse.Provenance;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+
+/**
+ * Applies the suggested corrections of many violations in one step. Only a
+ * backend correction that names the statement it replaces, from the
+ * violation's line to its end line, is applied; rule good examples and other
+ * suggestions without a span only illustrate the rule and are never written
+ * into the source. The statement's lines are those the violation's tracked
+ * position has moved to, or the reported ones, and are replaced by the
+ * correction, indented like the first of them. A {@link Plan} is computed
+ * first so the edits can be previewed; applying it skips edits whose text
+ * changed since. Every edit runs in one document rewrite session and one
+ * compound change. The editor then reconciles once, and a single undo
+ * reverts all the fixes. Must be used on the UI thread.
+ */
+public final class ViolationFixes {
+
+    /** Above this many edits the document drops its partitioning until the session ends. */
+    private static final int SMALL_SESSION_EDITS = 50;
+
+    /**
+     * A replacement of lines {@code [firstLine, lastLine]}, currently reading
+     * {@code original}, with the correction of {@code violation}.
+     */
+    public record Fix(RuleViolation violation, int firstLine, int lastLine, int offset, int length, String original,
+            String text) {
+    }
+
+    /**
+     * The fixes for a document, and the fixable violations left out: a second
+     * fix for the same lines, lines outside the document, or lines that already
+     * read like the correction.
+     */
+    public record Plan(ITextEditor editor, IDocument document, List<Fix> fixes, int skipped) {
+    }
+
+    /** Violations whose correction was applied, and fixable violations that were not. */
+    public record Outcome(List<RuleViolation> fixed, int skipped) {
+    }
+
+    private ViolationFixes() {
+    }
+
+    /**
+     * The fixes for the violations' current lines, in list order; the first fix
+     * for a line wins. {@code editor}, when given, later records them as one
+     * undoable change.
+     */
+    public static Plan plan(ITextEditor editor, IDocument document, List<RuleViolation> violations) {
+        List<Fix> fixes = new ArrayList<>();
+        int skipped = 0;
+        if (document == null || violations == null) {
+            return new Plan(editor, document, fixes, skipped);
+        }
+        ViolationPositions positions = ViolationPositions.forDocument(document);
+        BitSet taken = new BitSet();
+        String delimiter = defaultDelimiter(document);
+        for (RuleViolation violation : violations) {
+            if (!isFixable(violation)) {
+                continue;
+            }
+            int first = positions == null ? violation.getLine() : positions.currentLine(violation);
+            int last = first + violation.getEndLine() - violation.getLine();
+            int clash = taken.nextSetBit(Math.max(0, first));
+            Fix fix = first < 1 || last > document.getNumberOfLines() || clash >= 0 && clash <= last
+                    ? null
+                    : statementFix(document, violation, first, last, delimiter);
+            if (fix == null) {
+                skipped++;
+            } else {
+                taken.set(first, last + 1);
+                fixes.add(fix);
+            }
+        }
+        return new Plan(editor, document, fixes, skipped);
+    }
+
+    /**
+     * Applies the planned fixes whose lines still read as planned; the others
+     * count as skipped.
+     */
+    public static Outcome apply(Plan plan) throws BadLocationException {
+        IDocument document = plan.document();
+        int skipped = plan.skipped();
+        List<Fix> fixes = new ArrayList<>(plan.fixes().size());
+        for (Fix fix : plan.fixes()) {
+            if (fix.offset() + fix.length() <= document.getLength()
+                    && document.get(fix.offset(), fix.length()).equals(fix.original())) {
+                fixes.add(fix);
+            } else {
+                skipped++;
+            }
+        }
+        if (fixes.isEmpty()) {
+            return new Outcome(List.of(), skipped);
+        }
+        // Bottom-up, so the offsets of the edits still to come stay valid.
+        List<Fix> ordered = new ArrayList<>(fixes);
+        ordered.sort(Comparator.comparingInt(Fix::offset).reversed());
+
+        IRewriteTarget target = plan.editor() == null ? null : plan.editor().getAdapter(IRewriteTarget.class);
+        DocumentRewriteSession session = null;
+        if (target != null) {
+            target.beginCompoundChange();
+        }
+        try {
+            if (document instanceof IDocumentExtension4 extension) {
+                session = extension.startRewriteSession(ordered.size() > SMALL_SESSION_EDITS
+                        ? DocumentRewriteSessionType.UNRESTRICTED
+                        : DocumentRewriteSessionType.UNRESTRICTED_SMALL);
+            }
+            for (Fix fix : ordered) {
+                document.replace(fix.offset(), fix.length(), fix.text());
+            }
+        } finally {
+            if (session != null) {
+                ((IDocumentExtension4) document).stopRewriteSession(session);
+            }
+            if (target != null) {
+                target.endCompoundChange();
+            }
+        }
+        List<RuleViolation> fixed = new ArrayList<>(fixes.size());
+        for (Fix fix : fixes) {
+            fixed.add(fix.violation());
+        }
+        System.out.println("[CodeBot] Applied " + fixed.size() + " fix(es) in one change, skipped " + skipped);
+        return new Outcome(fixed, skipped);
+    }
+
+    /**
+     * Whether the violation carries a correction for a known statement, which
+     * can replace it. Good examples of a rule never are.
+     */
+    public static boolean isFixable(RuleViolation violation) {
+        String correction = violation.getCorrectCode();
+        return violation.getProvenance() != Provenance.LOCAL && violation.getLine() >= 1
+                && violation.getEndLine() >= violation.getLine() && correction != null && !correction.isBlank();
+    }
+
+    private static Fix statementFix(IDocument document, RuleViolation violation, int first, int last,
+            String delimiter) {
+        try {
+            int offset = document.getLineOffset(first - 1);
+            int end = document.getLineOffset(last - 1) + document.getLineLength(last - 1);
+            String delimiterOfLine = document.getLineDelimiter(last - 1);
+            if (delimiterOfLine != null) {
+                end -= delimiterOfLine.length();
+            }
+            String current = document.get(offset, end - offset);
+            String text = indent(violation.getCorrectCode(), leadingWhitespace(current), delimiter);
+            if (text.equals(current)) {
+                return null;
+            }
+            return new Fix(violation, first, last, offset, end - offset, current, text);
+        } catch (BadLocationException ex) {
+            System.out.println("[CodeBot] Could not fix lines " + first + "-" + last + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The correction's lines under the given indentation, keeping their
+     * indentation relative to each other and dropping blank lines at either end.
+     */
+    private static String indent(String correction, String indentation, String delimiter) {
+        String[] lines = correction.split("\r\n|\r|\n", -1);
+        int first = 0;
+        int last = lines.length - 1;
+        while (first < last && lines[first].isBlank()) {
+            first++;
+        }
+        while (last > first && lines[last].isBlank()) {
+            last--;
+        }
+        int common = Integer.MAX_VALUE;
+        for (int i = first; i <= last; i++) {
+            if (!lines[i].isBlank()) {
+                common = Math.min(common, leadingWhitespace(lines[i]).length());
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            if (i > first) {
+                text.append(delimiter);
+            }
+            String content = stripTrailing(lines[i]);
+            if (!content.isEmpty()) {
+                text.append(indentation).append(content.substring(Math.min(common, content.length())));
+            }
+        }
+        return text.toString();
+    }
+
+    private static String leadingWhitespace(String text) {
+        int end = 0;
+        while (end < text.length() && (text.charAt(end) == ' ' || text.charAt(end) == '\t')) {
+            end++;
+        }
+        return text.substring(0, end);
+    }
+
+    private static String stripTrailing(String text) {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static String defaultDelimiter(IDocument document) {
+        try {
+            String delimiter = document.getNumberOfLines() > 1 ? document.getLineDelimiter(0) : null;
+            return delimiter == null ? "\n" : delimiter;
+        } catch (BadLocationException ex) {
+            return "\n";
+        }
+    }
+}
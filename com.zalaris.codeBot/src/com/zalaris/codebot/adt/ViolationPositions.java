@@ -0,0 +1,314 @@
+package com.zalaris.codebot.adt;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DefaultPositionUpdater;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IPositionUpdater;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.widgets.Display;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+
+/**
+ * Violations of a validation run registered as {@link Position}s on the editor
+ * document. The document's position updater moves them with every edit, so
+ * jumps and markers follow the code until the next validation replaces them.
+ * The live violation set of a document is tracked apart from validation runs,
+ * in {@link #live(IDocument)}. Moved markers are updated in one workspace
+ * operation. Must be used on the UI thread, like the document itself.
+ */
+public final class ViolationPositions implements IDocumentListener {
+
+    public static final String CATEGORY = "com.zalaris.codebot.violations";
+    public static final String LIVE_CATEGORY = "com.zalaris.codebot.liveViolations";
+
+    private static final Map<IDocument, ViolationPositions> REGISTERED = new IdentityHashMap<>();
+    private static final Map<IDocument, ViolationPositions> LIVE = new IdentityHashMap<>();
+
+    /**
+     * The reported line of a violation, tracked through edits, and the marker
+     * published for it, if any.
+     */
+    public static final class ViolationPosition extends Position {
+        private final RuleViolation violation;
+        private IMarker marker;
+        private int markedOffset = -1;
+
+        ViolationPosition(RuleViolation violation, int offset, int length) {
+            super(offset, length);
+            this.violation = violation;
+        }
+
+        public RuleViolation getViolation() {
+            return violation;
+        }
+
+        /** The marker moving with this position, or null. */
+        public IMarker getMarker() {
+            return marker;
+        }
+    }
+
+    private final IDocument document;
+    private final String category;
+    private final IPositionUpdater updater;
+    private final Map<RuleViolation, ViolationPosition> positions = new IdentityHashMap<>();
+    private boolean hasMarkers;
+    private boolean markerSyncPending;
+
+    private ViolationPositions(IDocument document, String category) {
+        this.document = document;
+        this.category = category;
+        this.updater = new DefaultPositionUpdater(category);
+    }
+
+    /**
+     * Replaces the positions registered on the document with one per violation.
+     */
+    public static ViolationPositions register(IDocument document, List<RuleViolation> violations) {
+        if (document == null) {
+            return null;
+        }
+        ViolationPositions registered = install(REGISTERED, document, CATEGORY);
+        registered.clearPositions();
+        if (violations != null) {
+            for (RuleViolation violation : violations) {
+                registered.add(violation);
+            }
+        }
+        return registered;
+    }
+
+    public static ViolationPositions forDocument(IDocument document) {
+        if (document == null) {
+            return null;
+        }
+        synchronized (REGISTERED) {
+            return REGISTERED.get(document);
+        }
+    }
+
+    /**
+     * Positions of the document's live violation set, created on first use;
+     * registering a validation run leaves them alone.
+     */
+    public static ViolationPositions live(IDocument document) {
+        return document == null ? null : install(LIVE, document, LIVE_CATEGORY);
+    }
+
+    /** Removes the positions of validation runs and of the live set from the document. */
+    public static void unregister(IDocument document) {
+        uninstall(REGISTERED, document);
+        uninstall(LIVE, document);
+    }
+
+    private static ViolationPositions install(Map<IDocument, ViolationPositions> registry, IDocument document,
+            String category) {
+        synchronized (registry) {
+            ViolationPositions registered = registry.get(document);
+            if (registered == null) {
+                registered = new ViolationPositions(document, category);
+                document.addPositionCategory(category);
+                document.addPositionUpdater(registered.updater);
+                document.addDocumentListener(registered);
+                registry.put(document, registered);
+            }
+            return registered;
+        }
+    }
+
+    private static void uninstall(Map<IDocument, ViolationPositions> registry, IDocument document) {
+        ViolationPositions registered;
+        synchronized (registry) {
+            registered = registry.remove(document);
+        }
+        if (registered == null) {
+            return;
+        }
+        document.removeDocumentListener(registered);
+        document.removePositionUpdater(registered.updater);
+        try {
+            document.removePositionCategory(registered.category);
+        } catch (BadPositionCategoryException ex) {
+            System.out.println("[CodeBot] Violation positions already removed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Registers one more violation on the line it reports; returns null when
+     * that line is outside the document.
+     */
+    public ViolationPosition add(RuleViolation violation) {
+        ViolationPosition existing = positions.get(violation);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            int line = Math.max(1, violation.getLine()) - 1;
+            if (line >= document.getNumberOfLines()) {
+                return null;
+            }
+            ViolationPosition position = new ViolationPosition(
+                    violation, document.getLineOffset(line), lineLengthWithoutDelimiter(line));
+            document.addPosition(category, position);
+            positions.put(violation, position);
+            return position;
+        } catch (BadLocationException | BadPositionCategoryException ex) {
+            System.out.println("[CodeBot] Could not track violation at line " + violation.getLine() + ": "
+                    + ex.getMessage());
+            return null;
+        }
+    }
+
+    /** Every tracked position, including those whose line was deleted. */
+    public List<ViolationPosition> getPositions() {
+        return new ArrayList<>(positions.values());
+    }
+
+    /** Stops tracking the position; its marker, if any, is left to the caller. */
+    public void remove(ViolationPosition position) {
+        positions.remove(position.getViolation());
+        try {
+            document.removePosition(category, position);
+        } catch (BadPositionCategoryException ex) {
+            System.out.println("[CodeBot] Failed to remove violation position: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Current position of the violation, or null if it is not tracked or its
+     * line was deleted.
+     */
+    public ViolationPosition positionOf(RuleViolation violation) {
+        ViolationPosition position = positions.get(violation);
+        return position == null || position.isDeleted() ? null : position;
+    }
+
+    /**
+     * 1-based line the violation has moved to; the reported line if it is not tracked.
+     */
+    public int currentLine(RuleViolation violation) {
+        ViolationPosition position = positionOf(violation);
+        if (position == null) {
+            return violation.getLine();
+        }
+        try {
+            return document.getLineOfOffset(position.getOffset()) + 1;
+        } catch (BadLocationException ex) {
+            return violation.getLine();
+        }
+    }
+
+    /**
+     * Links a marker to the violation's position; the marker's line and
+     * character range follow later edits.
+     */
+    public void attachMarker(RuleViolation violation, IMarker marker) {
+        ViolationPosition position = add(violation);
+        if (position == null || marker == null) {
+            return;
+        }
+        position.marker = marker;
+        position.markedOffset = -1;
+        hasMarkers = true;
+        syncMarker(position);
+    }
+
+    @Override
+    public void documentAboutToBeChanged(DocumentEvent event) {
+        // Positions are moved by the updater before documentChanged is sent.
+    }
+
+    @Override
+    public void documentChanged(DocumentEvent event) {
+        if (markerSyncPending || !hasMarkers) {
+            return;
+        }
+        Display display = Display.getCurrent();
+        if (display == null) {
+            syncMarkers();
+            return;
+        }
+        // Coalesce a burst of keystrokes into one marker update.
+        markerSyncPending = true;
+        display.asyncExec(() -> {
+            markerSyncPending = false;
+            syncMarkers();
+        });
+    }
+
+    private void syncMarkers() {
+        List<ViolationPosition> moved = new ArrayList<>();
+        for (ViolationPosition position : positions.values()) {
+            if (position.marker != null && !position.isDeleted() && position.getOffset() != position.markedOffset) {
+                moved.add(position);
+            }
+        }
+        if (moved.isEmpty()) {
+            return;
+        }
+        try {
+            // One resource delta for all moved markers instead of one per attribute.
+            ResourcesPlugin.getWorkspace().run((IWorkspaceRunnable) monitor -> {
+                for (ViolationPosition position : moved) {
+                    syncMarker(position);
+                }
+            }, null, IWorkspace.AVOID_UPDATE, null);
+        } catch (CoreException ex) {
+            System.out.println("[CodeBot] Failed to move markers: " + ex.getMessage());
+        }
+    }
+
+    private void syncMarker(ViolationPosition position) {
+        if (position.isDeleted() || position.getOffset() == position.markedOffset || !position.marker.exists()) {
+            return;
+        }
+        try {
+            position.marker.setAttributes(
+                    new String[] { IMarker.LINE_NUMBER, IMarker.CHAR_START, IMarker.CHAR_END },
+                    new Object[] { document.getLineOfOffset(position.getOffset()) + 1, position.getOffset(),
+                            position.getOffset() + position.getLength() });
+            position.markedOffset = position.getOffset();
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Failed to move marker: " + ex.getMessage());
+        }
+    }
+
+    private void clearPositions() {
+        for (ViolationPosition position : positions.values()) {
+            try {
+                document.removePosition(category, position);
+            } catch (BadPositionCategoryException ex) {
+                System.out.println("[CodeBot] Failed to remove violation position: " + ex.getMessage());
+            }
+        }
+        positions.clear();
+        hasMarkers = false;
+    }
+
+    private int lineLengthWithoutDelimiter(int line) throws BadLocationException {
+        int offset = document.getLineOffset(line);
+        int length = document.getLineLength(line);
+        while (length > 0) {
+            char c = document.getChar(offset + length - 1);
+            if (c != '\n' && c != '\r') {
+                break;
+            }
+            length--;
+        }
+        return length;
+    }
+}
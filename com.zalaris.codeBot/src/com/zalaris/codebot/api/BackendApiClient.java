@@ -15,12 +15,21 @@ import java.util.Locale;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import com.zalaris.codebot.util.JsonUtil;
+import com.zalaris.codebot.data.RuleMetadataDictionary;
+import com.zalaris.codebot.data.RulePackCache;
+import com.zalaris.codebot.data.TemplateCache;
+import com.zalaris.codebot.util.Settings;
+import com.zalaris.codebot.util.WireCodec;
+import com.zalaris.codebot.util.WireCodecs;
 
 public class BackendApiClient {
     private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(20);
     private static final Duration DOC_REQUEST_TIMEOUT = Duration.ofSeconds(90);
+    private static final int UNSUPPORTED_MEDIA_TYPE = 415;
+    private static final AtomicBoolean RULE_PACK_SYNCING = new AtomicBoolean();
+    private static final AtomicBoolean RULE_METADATA_SYNCING = new AtomicBoolean();
 
     private final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(8))
@@ -42,25 +51,20 @@ public class BackendApiClient {
     private final String user;
     private final String projectId;
     private final String packName;
+    // Downgraded to JSON for the rest of the session if the backend rejects the binary format.
+    private volatile WireCodec requestCodec;
 
     public BackendApiClient() {
-        this.baseUrl = normalizeBaseUrl(readSetting("codebot.backend.url", "http://127.0.0.1:8000"));
+        this.baseUrl = normalizeBaseUrl(Settings.read("codebot.backend.url", "http://127.0.0.1:8000"));
         this.user = resolveDeveloperIdentity();
-        this.projectId = readSetting("codebot.project.id", "");
-        this.packName = readSetting("codebot.pack.name", "");
-    }
-
-    private static String readSetting(String key, String defaultValue) {
-        String value = System.getProperty(key);
-        if (value == null || value.trim().isEmpty()) {
-            value = System.getenv(key.toUpperCase().replace('.', '_'));
-        }
-        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+        this.projectId = Settings.read("codebot.project.id", "");
+        this.packName = Settings.read("codebot.pack.name", "");
+        this.requestCodec = WireCodecs.byName(Settings.read("codebot.wire.format", "json"));
     }
 
     private static String resolveDeveloperIdentity() {
         // Explicit plugin setting has highest priority.
-        String configured = readSetting("codebot.user", "");
+        String configured = Settings.read("codebot.user", "");
         if (!configured.isBlank()) {
             return configured;
         }
@@ -126,6 +130,23 @@ public class BackendApiClient {
             boolean logViolations,
             boolean llmFallbackConfirmed)
             throws IOException, InterruptedException {
+        return assist(query, code, objectName, transport, logViolations, llmFallbackConfirmed, false);
+    }
+
+    /**
+     * A {@code speculative} request is a confirmed LLM fallback sent before
+     * the user confirmed it; it is flagged so the backend can meter it apart
+     * from confirmed requests. Interrupting the calling thread cancels it.
+     */
+    public Map<String, Object> assist(
+            String query,
+            String code,
+            String objectName,
+            String transport,
+            boolean logViolations,
+            boolean llmFallbackConfirmed,
+            boolean speculative)
+            throws IOException, InterruptedException {
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("query", query == null ? "" : query);
         payload.put("code", code == null ? "" : code);
@@ -137,6 +158,9 @@ public class BackendApiClient {
         payload.put("top_k", 6);
         payload.put("log_violations", logViolations);
         payload.put("llm_fallback_confirmed", llmFallbackConfirmed);
+        if (speculative) {
+            payload.put("speculative", true);
+        }
 
         return postJson("/api/bot/assist", payload);
     }
@@ -157,8 +181,155 @@ public class BackendApiClient {
         payload.put("transport", transport == null ? "ADT" : transport);
         payload.put("top_k", 30);
         payload.put("log_violations", logViolations);
+        // Compact violations carry only rule ids; ask for them only when the
+        // local dictionary can turn the ids back into titles and messages, and
+        // take the rule text embedded in full violations while it is refreshed.
+        RuleMetadataDictionary dictionary = RuleMetadataDictionary.getShared();
+        boolean compact = dictionary.holdsPack(packName) && !RULE_METADATA_SYNCING.get();
+        payload.put("compact_violations", compact);
+        payload.put("rule_dictionary_version", compact ? dictionary.getVersion() : "");
+
+        Map<String, Object> response = postJson("/api/bot/validate", payload);
+        syncRuleMetadataInBackground(response);
+        Object packVersion = response.get("rule_pack_version");
+        if (packVersion != null && RulePackCache.getShared().isStale(String.valueOf(packVersion))) {
+            syncRulePackInBackground();
+        }
+        return response;
+    }
+
+    /**
+     * Fetches the rules of the configured pack. Returns {@code {"version", "rules": [...]}},
+     * or {@code "not_modified": true} when {@code knownVersion} is current.
+     */
+    public Map<String, Object> getRulePack(String knownVersion) throws IOException, InterruptedException {
+        List<String> queryParts = new ArrayList<>();
+        queryParts.add("pack_name=" + urlEncode(packName));
+        if (!projectId.isBlank()) {
+            queryParts.add("project_id=" + urlEncode(projectId));
+        }
+        if (knownVersion != null && !knownVersion.isBlank()) {
+            queryParts.add("version=" + urlEncode(knownVersion));
+        }
+        return getJsonObject("/api/rules/pack?" + String.join("&", queryParts));
+    }
+
+    /**
+     * Brings the cached rule pack up to date with the backend. Returns true when
+     * new rules were stored; the default engine picks them up on its next use.
+     */
+    public boolean syncRulePack() {
+        RulePackCache cache = RulePackCache.getShared();
+        if (packName.isBlank() || !packName.equals(cache.getPackName())) {
+            return false;
+        }
+        try {
+            Map<String, Object> pack = getRulePack(cache.getVersion());
+            return !Boolean.TRUE.equals(pack.get("not_modified")) && cache.update(pack);
+        } catch (IOException | InterruptedException ex) {
+            System.out.println("[CodeBot] Failed to refresh rule pack: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Runs {@link #syncRulePack()} on a daemon thread unless a sync is already
+     * running, so validations that all report a newer pack neither wait for it
+     * nor download it more than once.
+     */
+    public void syncRulePackInBackground() {
+        if (!RULE_PACK_SYNCING.compareAndSet(false, true)) {
+            return;
+        }
+        Thread sync = new Thread(() -> {
+            try {
+                syncRulePack();
+            } finally {
+                RULE_PACK_SYNCING.set(false);
+            }
+        }, "codebot-rule-pack-sync");
+        sync.setDaemon(true);
+        sync.start();
+    }
+
+    /**
+     * Fetches the template catalog. Returns {@code {"version", "templates": [...]}},
+     * or {@code "not_modified": true} when {@code knownVersion} is current.
+     */
+    public Map<String, Object> getTemplates(String knownVersion) throws IOException, InterruptedException {
+        List<String> queryParts = new ArrayList<>();
+        if (!projectId.isBlank()) {
+            queryParts.add("project_id=" + urlEncode(projectId));
+        }
+        if (knownVersion != null && !knownVersion.isBlank()) {
+            queryParts.add("version=" + urlEncode(knownVersion));
+        }
+        return getJsonObject("/api/templates" + (queryParts.isEmpty() ? "" : "?" + String.join("&", queryParts)));
+    }
 
-        return postJson("/api/bot/validate", payload);
+    /**
+     * Brings the cached template catalog up to date with the backend. Returns
+     * true when new templates were stored; the template index picks them up on
+     * its next use.
+     */
+    public boolean syncTemplates() {
+        TemplateCache cache = TemplateCache.getShared();
+        try {
+            Map<String, Object> catalog = getTemplates(cache.getVersion());
+            return !Boolean.TRUE.equals(catalog.get("not_modified")) && cache.update(catalog);
+        } catch (IOException | InterruptedException ex) {
+            System.out.println("[CodeBot] Failed to refresh template catalog: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Fetches per-rule metadata for the configured pack. Returns
+     * {@code {"version", "rules": [...]}}, or {@code "not_modified": true} when
+     * {@code knownVersion} is current.
+     */
+    public Map<String, Object> getRuleMetadata(String knownVersion) throws IOException, InterruptedException {
+        List<String> queryParts = new ArrayList<>();
+        if (!packName.isBlank()) {
+            queryParts.add("pack_name=" + urlEncode(packName));
+        }
+        if (!projectId.isBlank()) {
+            queryParts.add("project_id=" + urlEncode(projectId));
+        }
+        if (knownVersion != null && !knownVersion.isBlank()) {
+            queryParts.add("version=" + urlEncode(knownVersion));
+        }
+        String path = "/api/rules/metadata" + (queryParts.isEmpty() ? "" : "?" + String.join("&", queryParts));
+        return getJsonObject(path);
+    }
+
+    /**
+     * Refreshes the rule metadata dictionary on a daemon thread when the
+     * backend reports a newer version, unless a refresh is already running.
+     * Validations ask for full violations until it has finished.
+     */
+    private void syncRuleMetadataInBackground(Map<String, Object> validateResponse) {
+        Object rawVersion = validateResponse.get("rule_dictionary_version");
+        String backendVersion = rawVersion == null ? "" : String.valueOf(rawVersion).trim();
+        RuleMetadataDictionary dictionary = RuleMetadataDictionary.getShared();
+        if (backendVersion.isEmpty() || !dictionary.isStale(packName, backendVersion)
+                || !RULE_METADATA_SYNCING.compareAndSet(false, true)) {
+            return;
+        }
+        Thread sync = new Thread(() -> {
+            try {
+                Map<String, Object> metadata = getRuleMetadata(dictionary.getVersion());
+                if (!Boolean.TRUE.equals(metadata.get("not_modified"))) {
+                    dictionary.update(packName, metadata);
+                }
+            } catch (IOException | InterruptedException ex) {
+                System.out.println("[CodeBot] Failed to refresh rule metadata: " + ex.getMessage());
+            } finally {
+                RULE_METADATA_SYNCING.set(false);
+            }
+        }, "codebot-rule-metadata-sync");
+        sync.setDaemon(true);
+        sync.start();
     }
 
     public Map<String, Object> explain(String code, String objectName, String transport)
@@ -228,7 +399,6 @@ public class BackendApiClient {
         return postJson("/api/docs/enrich", payload, DOC_REQUEST_TIMEOUT);
     }
 
-
     public Map<String, Object> getLatestTechnicalDoc(String objectName)
             throws IOException, InterruptedException {
         StringBuilder path = new StringBuilder("/api/docs/latest");
@@ -444,23 +614,71 @@ public class BackendApiClient {
 
     private Map<String, Object> postJson(String path, Map<String, Object> payload, Duration timeout)
             throws IOException, InterruptedException {
-        String body = JsonUtil.stringify(payload);
+        WireCodec codec = requestCodec;
+        HttpResponse<byte[]> response = post(path, payload, timeout, codec);
+        if (response.statusCode() == UNSUPPORTED_MEDIA_TYPE && codec != WireCodecs.JSON) {
+            System.out.println("[CodeBot] Backend does not accept " + codec.mediaType() + "; falling back to JSON.");
+            requestCodec = WireCodecs.JSON;
+            response = post(path, payload, timeout, WireCodecs.JSON);
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new IOException(
+                    "Backend API error " + response.statusCode() + " from " + baseUrl + path + ": " + errorText(response));
+        }
+        return asObject(response, path);
+    }
+
+    private HttpResponse<byte[]> post(String path, Map<String, Object> payload, Duration timeout, WireCodec codec)
+            throws IOException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + path))
                 .timeout(timeout == null ? DEFAULT_REQUEST_TIMEOUT : timeout)
-                .header("Content-Type", "application/json")
+                .header("Content-Type", codec.mediaType())
+                .header("Accept", WireCodecs.acceptHeader(codec))
                 .header("x-hb-user", user)
-                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(codec.encode(payload)))
                 .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() < 200 || response.statusCode() >= 300) {
-            throw new IOException(
-                    "Backend API error " + response.statusCode() + " from " + baseUrl + path + ": " + response.body());
+    private Object decode(HttpResponse<byte[]> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        return WireCodecs.forContentType(contentType).decode(response.body());
+    }
+
+    private String errorText(HttpResponse<byte[]> response) {
+        WireCodec codec = WireCodecs.forContentType(response.headers().firstValue("Content-Type").orElse(""));
+        if (codec == WireCodecs.JSON) {
+            return new String(response.body(), StandardCharsets.UTF_8);
+        }
+        try {
+            return String.valueOf(codec.decode(response.body()));
+        } catch (RuntimeException ex) {
+            return "<" + response.body().length + " bytes of " + codec.mediaType() + ">";
         }
-        return JsonUtil.parseObject(response.body());
     }
 
+    /**
+     * The response body decoded as an object; a body that does not decode, or
+     * decodes to something else, is an error rather than an empty answer.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> asObject(HttpResponse<byte[]> response, String path) throws IOException {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        WireCodec codec = WireCodecs.forContentType(contentType);
+        Object parsed;
+        try {
+            parsed = codec.decode(response.body());
+        } catch (RuntimeException ex) {
+            throw new IOException("Backend returned malformed " + codec.mediaType() + " from " + baseUrl + path
+                    + ": " + ex.getMessage(), ex);
+        }
+        if (parsed instanceof Map) {
+            return (Map<String, Object>) parsed;
+        }
+        throw new IOException("Backend returned a non-object " + codec.mediaType() + " response from " + baseUrl
+                + path + (contentType.isEmpty() ? "" : " (Content-Type " + contentType + ")"));
+    }
 
     private String urlEncode(String value) {
         return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
@@ -480,18 +698,20 @@ public class BackendApiClient {
         throw new IOException("Backend returned non-object response from " + baseUrl + path);
     }
     private Object getJsonAny(String path) throws IOException, InterruptedException {
+        WireCodec codec = requestCodec;
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + path))
                 .timeout(Duration.ofSeconds(20))
                 .header("Content-Type", "application/json")
+                .header("Accept", WireCodecs.acceptHeader(codec))
                 .header("x-hb-user", user)
                 .GET()
                 .build();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
         if (response.statusCode() < 200 || response.statusCode() >= 300) {
             throw new IOException(
-                    "Backend API error " + response.statusCode() + " from " + baseUrl + path + ": " + response.body());
+                    "Backend API error " + response.statusCode() + " from " + baseUrl + path + ": " + errorText(response));
         }
-        return JsonUtil.parse(response.body());
+        return decode(response);
     }
 }
@@ -58,6 +58,26 @@ public class BotResponse {
         return !violations.isEmpty();
     }
 
+    /**
+     * Who reported a violation: the local rule engine, the backend, or both.
+     */
+    public enum Provenance {
+        LOCAL,
+        BACKEND,
+        BOTH;
+
+        public String label() {
+            switch (this) {
+            case LOCAL:
+                return "local";
+            case BACKEND:
+                return "backend";
+            default:
+                return "local+backend";
+            }
+        }
+    }
+
     /**
      * Violated rule from the dashboard.
      */
@@ -70,6 +90,8 @@ public class BotResponse {
         private final String severity;
         private final int line;
         private final String correctCode;
+        private final int endLine;
+        private volatile Provenance provenance;
 
         public RuleViolation(String projectName,
                              String rulePackName,
@@ -79,6 +101,38 @@ public class BotResponse {
                              String severity,
                              int line,
                              String correctCode) {
+            this(projectName, rulePackName, ruleId, title, description, severity, line, correctCode,
+                    Provenance.BACKEND);
+        }
+
+        public RuleViolation(String projectName,
+                             String rulePackName,
+                             String ruleId,
+                             String title,
+                             String description,
+                             String severity,
+                             int line,
+                             String correctCode,
+                             Provenance provenance) {
+            this(projectName, rulePackName, ruleId, title, description, severity, line, 0, correctCode,
+                    provenance);
+        }
+
+        /**
+         * @param endLine last line of the statement {@code correctCode} replaces,
+         *        or 0 when the correction only illustrates the rule
+         */
+        public RuleViolation(String projectName,
+                             String rulePackName,
+                             String ruleId,
+                             String title,
+                             String description,
+                             String severity,
+                             int line,
+                             int endLine,
+                             String correctCode,
+                             Provenance provenance) {
+            this.provenance = provenance;
             this.projectName = projectName;
             this.rulePackName = rulePackName;
             this.ruleId = ruleId;
@@ -87,6 +141,7 @@ public class BotResponse {
             this.severity = severity;
             this.line = line;
             this.correctCode = correctCode;
+            this.endLine = endLine;
         }
 
         public String getProjectName() { return projectName; }
@@ -97,5 +152,13 @@ public class BotResponse {
         public String getSeverity() { return severity; }
         public int getLine() { return line; }
         public String getCorrectCode() { return correctCode; }
+        /** Last line of the statement the correction replaces, from {@link #getLine()}; 0 when it has none. */
+        public int getEndLine() { return endLine; }
+        public Provenance getProvenance() { return provenance; }
+
+        /** Set when a hybrid validation hears of the same finding from the other side. */
+        void setProvenance(Provenance provenance) {
+            this.provenance = provenance;
+        }
     }
 }
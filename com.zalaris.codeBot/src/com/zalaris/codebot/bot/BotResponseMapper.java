@@ -0,0 +1,186 @@
+package com.zalaris.codebot.bot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.zalaris.codebot.bot.BotResponse.Kind;
+import com.zalaris.codebot.bot.BotResponse.Provenance;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.data.RuleMetadataDictionary;
+
+/**
+ * Maps parsed backend responses (assist/validate) to {@link BotResponse}.
+ * Kept free of workbench dependencies so it can run headless.
+ */
+public final class BotResponseMapper {
+
+    private static final Pattern CODE_BLOCK_PATTERN =
+            Pattern.compile("```(?:abap|ABAP|[a-zA-Z0-9_-]+)?\\s*\\n([\\s\\S]*?)```");
+
+    private BotResponseMapper() {
+    }
+
+    public static BotResponse toBotResponse(Map<String, Object> response) {
+        return toBotResponse(response, RuleMetadataDictionary.getShared());
+    }
+
+    public static BotResponse toBotResponse(Map<String, Object> response, RuleMetadataDictionary dictionary) {
+        String message = asString(response.get("message"), "No response from backend.");
+        Map<String, Object> llmFallback = asMap(response.get("llm_fallback"));
+        String llmAnswer = asString(llmFallback.get("answer"), "");
+        String llmSuggestedCode = "";
+        if (!llmAnswer.isEmpty()) {
+            message = message + "\n\n--- LLM Guidance ---\n" + llmAnswer;
+            llmSuggestedCode = firstCodeBlock(llmAnswer);
+        }
+        List<RuleViolation> violations = parseViolations(response.get("violations"), dictionary);
+        Map<String, Object> suggestions = asMap(response.get("suggestions"));
+
+        String templateCode = firstSnippet(suggestions, "templates");
+        if (templateCode == null || templateCode.isEmpty()) {
+            templateCode = firstSnippet(suggestions, "wizards");
+        }
+        String violationFixCode = firstViolationFix(violations);
+        String pasteCandidate = (violationFixCode != null && !violationFixCode.isEmpty())
+                ? violationFixCode
+                : templateCode;
+        if ((pasteCandidate == null || pasteCandidate.isEmpty()) && !llmSuggestedCode.isEmpty()) {
+            pasteCandidate = llmSuggestedCode;
+        }
+
+        if (!violations.isEmpty()) {
+            return new BotResponse(Kind.VALIDATION_RESULT, message, pasteCandidate, violations);
+        }
+        if (pasteCandidate != null && !pasteCandidate.isEmpty()) {
+            return new BotResponse(Kind.TEMPLATE_SUGGESTION, message, pasteCandidate, Collections.emptyList());
+        }
+        return new BotResponse(Kind.INFO, message, null, Collections.emptyList());
+    }
+
+    public static List<RuleViolation> parseViolations(Object raw) {
+        return parseViolations(raw, RuleMetadataDictionary.getShared());
+    }
+
+    /**
+     * Accepts full violations, compact ones ({@code rule_id}, {@code line},
+     * {@code severity} without rule text) and compact tuples
+     * {@code [rule_id, line, severity]}; compact forms expand lazily from the dictionary.
+     * A full violation's {@code end_line} marks the statement its {@code suggested_code}
+     * replaces; without it the suggestion is only shown.
+     */
+    public static List<RuleViolation> parseViolations(Object raw, RuleMetadataDictionary dictionary) {
+        List<Object> items = asList(raw);
+        List<RuleViolation> result = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof List<?> tuple) {
+                result.add(new CompactRuleViolation(
+                        "ADT",
+                        asString(tuple.isEmpty() ? null : tuple.get(0), "unknown.rule"),
+                        asString(tuple.size() > 2 ? tuple.get(2) : null, "MAJOR"),
+                        asInt(tuple.size() > 1 ? tuple.get(1) : null, 1),
+                        dictionary));
+                continue;
+            }
+            Map<String, Object> v = asMap(item);
+            if (isCompact(v)) {
+                result.add(new CompactRuleViolation(
+                        asString(v.get("project"), "ADT"),
+                        asString(v.get("rule_id"), "unknown.rule"),
+                        asString(v.get("severity"), "MAJOR"),
+                        asInt(v.get("line"), 1),
+                        dictionary));
+                continue;
+            }
+            result.add(
+                    new RuleViolation(
+                            asString(v.get("project"), "ADT"),
+                            asString(v.get("rule_pack"), "generic"),
+                            asString(v.get("rule_id"), "unknown.rule"),
+                            asString(v.get("title"), "Rule violation"),
+                            asString(v.get("message"), asString(v.get("description"), "Violation detected.")),
+                            asString(v.get("severity"), "MAJOR"),
+                            asInt(v.get("line"), 1),
+                            asInt(v.get("end_line"), 0),
+                            asString(v.get("suggested_code"), asString(v.get("fix"), "")),
+                            Provenance.BACKEND));
+        }
+        return result;
+    }
+
+    private static boolean isCompact(Map<String, Object> v) {
+        return v.containsKey("rule_id")
+                && !v.containsKey("title")
+                && !v.containsKey("description")
+                && !v.containsKey("message");
+    }
+
+    private static String firstCodeBlock(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String normalized = text.replace("\r\n", "\n");
+        Matcher matcher = CODE_BLOCK_PATTERN.matcher(normalized);
+        if (matcher.find()) {
+            return matcher.group(1).trim();
+        }
+        return "";
+    }
+
+    private static String firstSnippet(Map<String, Object> suggestions, String key) {
+        List<Object> entries = asList(suggestions.get(key));
+        if (entries.isEmpty()) {
+            return "";
+        }
+        Map<String, Object> first = asMap(entries.get(0));
+        return asString(first.get("snippet"), "");
+    }
+
+    private static String firstViolationFix(List<RuleViolation> violations) {
+        for (RuleViolation v : violations) {
+            String fix = v.getCorrectCode();
+            if (fix != null && !fix.trim().isEmpty()) {
+                return fix;
+            }
+        }
+        return "";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        return Collections.emptyMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asList(Object value) {
+        if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        return Collections.emptyList();
+    }
+
+    private static String asString(Object value, String fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        String text = String.valueOf(value);
+        return text.isEmpty() ? fallback : text;
+    }
+
+    private static int asInt(Object value, int fallback) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(String.valueOf(value));
+        } catch (Exception ex) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.zalaris.codebot.bot;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.data.RuleMetadataDictionary;
+
+/**
+ * Violation received in compact form (rule id, line, severity). Rule text is
+ * looked up in the {@link RuleMetadataDictionary} on first access and shared
+ * with every other finding of the same rule.
+ */
+final class CompactRuleViolation extends RuleViolation {
+
+    private final RuleMetadataDictionary dictionary;
+    private RuleMetadataDictionary.Entry entry;
+    private boolean resolved;
+
+    CompactRuleViolation(String projectName,
+                         String ruleId,
+                         String severity,
+                         int line,
+                         RuleMetadataDictionary dictionary) {
+        super(projectName, null, ruleId, null, null, severity, line, null);
+        this.dictionary = dictionary;
+    }
+
+    private RuleMetadataDictionary.Entry entry() {
+        if (!resolved) {
+            entry = dictionary.get(getRuleId());
+            resolved = true;
+        }
+        return entry;
+    }
+
+    @Override
+    public String getRulePackName() {
+        RuleMetadataDictionary.Entry e = entry();
+        return e == null ? "generic" : e.rulePack();
+    }
+
+    @Override
+    public String getTitle() {
+        RuleMetadataDictionary.Entry e = entry();
+        return e == null ? "Rule violation" : e.title();
+    }
+
+    @Override
+    public String getDescription() {
+        RuleMetadataDictionary.Entry e = entry();
+        return e == null ? "Violation detected." : e.description();
+    }
+
+    @Override
+    public String getCorrectCode() {
+        RuleMetadataDictionary.Entry e = entry();
+        return e == null ? "" : e.suggestedCode();
+    }
+}
@@ -0,0 +1,85 @@
+package com.zalaris.codebot.bot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zalaris.codebot.bot.BotResponse.Provenance;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+
+/**
+ * One validation run that answers from the local engine at once and from the
+ * backend later. Backend findings are merged by rule id and line: one the local
+ * engine already reported keeps its local instance, now tagged
+ * {@link Provenance#BOTH}, and the others are appended. Each {@link Merge} says
+ * what changed, so a view can update the rows it shows instead of rebuilding them.
+ */
+public final class HybridValidation {
+
+    /** Called on the backend request's thread. */
+    public interface Listener {
+        void backendMerged(HybridValidation validation, Merge merge);
+
+        void backendFailed(HybridValidation validation, String reason);
+    }
+
+    /**
+     * Violations the backend added, and local violations it confirmed; both are
+     * instances from {@link #getViolations()}.
+     */
+    public record Merge(List<RuleViolation> added, List<RuleViolation> confirmed) {
+    }
+
+    private final String code;
+    private final BotResponse localResponse;
+    private final List<RuleViolation> violations = new ArrayList<>();
+    private final Map<String, RuleViolation> byKey = new HashMap<>();
+
+    HybridValidation(String code, BotResponse localResponse) {
+        this.code = code;
+        this.localResponse = localResponse;
+        for (RuleViolation violation : localResponse.getViolations()) {
+            if (byKey.putIfAbsent(key(violation), violation) == null) {
+                violations.add(violation);
+            }
+        }
+    }
+
+    /** The source this run validated, to tell whether backend lines still apply. */
+    public String getCode() {
+        return code;
+    }
+
+    /** The local engine's answer, available as soon as the run starts. */
+    public BotResponse getLocalResponse() {
+        return localResponse;
+    }
+
+    public synchronized List<RuleViolation> getViolations() {
+        return Collections.unmodifiableList(new ArrayList<>(violations));
+    }
+
+    synchronized Merge merge(List<RuleViolation> backend) {
+        List<RuleViolation> added = new ArrayList<>();
+        List<RuleViolation> confirmed = new ArrayList<>();
+        for (RuleViolation violation : backend) {
+            RuleViolation known = byKey.get(key(violation));
+            if (known == null) {
+                violation.setProvenance(Provenance.BACKEND);
+                byKey.put(key(violation), violation);
+                violations.add(violation);
+                added.add(violation);
+            } else if (known.getProvenance() == Provenance.LOCAL) {
+                known.setProvenance(Provenance.BOTH);
+                confirmed.add(known);
+            }
+        }
+        return new Merge(added, confirmed);
+    }
+
+    private static String key(RuleViolation violation) {
+        return violation.getRuleId() + "@" + violation.getLine();
+    }
+}
@@ -0,0 +1,154 @@
+package com.zalaris.codebot.bot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classifies a chat prompt so {@link SimpleRuleBot} can answer it without the
+ * assist endpoint where possible. Words and two-word phrases of the prompt add
+ * weights to the intents they suggest; the opening word counts extra, since
+ * requests are usually phrased as commands ("validate ...") and open
+ * questions as questions ("how do I ..."). Phrases naming the code in the
+ * editor ("this method", "current object") make validating or explaining it
+ * more likely and decide whether an open question carries the source. Ties go
+ * to {@link Intent#OPEN}, so an unclear prompt still reaches the backend.
+ */
+public final class IntentRouter {
+
+    /** What the prompt asks for. */
+    public enum Intent {
+        /** Check the code in the editor against the rules. */
+        VALIDATE,
+        /** Explain the code in the editor. */
+        EXPLAIN,
+        /** A code template for a task. */
+        TEMPLATE,
+        /** Anything else, answered by the backend. */
+        OPEN
+    }
+
+    /** The chosen intent, its score and whether answering needs the editor's source. */
+    public record Route(Intent intent, double score, boolean needsCode) {
+    }
+
+    /** Every prompt is a little bit an open question. */
+    private static final double OPEN_BASE = 1.0;
+    /** Added to validating and explaining when the prompt names the code in the editor. */
+    private static final double REFERENT_WEIGHT = 1.5;
+
+    private static final int INTENTS = Intent.values().length;
+    private static final Map<String, double[]> WEIGHTS = new HashMap<>();
+    private static final Map<String, double[]> OPENING_WEIGHTS = new HashMap<>();
+    private static final Map<String, Boolean> REFERENTS = new HashMap<>();
+
+    static {
+        weigh(WEIGHTS, Intent.VALIDATE, 3.0, "validate", "validation", "violation", "violations", "check code",
+                "lint", "linter", "compliance", "compliant", "guideline check", "rule check", "rules check",
+                "code review", "naming conventions", "check my", "check this", "check the", "check current");
+        weigh(WEIGHTS, Intent.VALIDATE, 1.5, "check", "review", "scan", "findings", "issues", "problems",
+                "guidelines", "rules", "errors");
+        weigh(WEIGHTS, Intent.EXPLAIN, 3.0, "explain", "explanation", "walk me", "walk through", "summarize",
+                "summarise", "summary of", "what does this", "what is this", "how does this");
+        weigh(WEIGHTS, Intent.EXPLAIN, 1.5, "describe", "understand", "purpose", "overview", "does");
+        weigh(WEIGHTS, Intent.TEMPLATE, 3.0, "template", "templates", "snippet", "skeleton", "scaffold",
+                "boilerplate", "stub");
+        weigh(WEIGHTS, Intent.TEMPLATE, 1.5, "generate", "create", "insert", "sample", "example", "give me",
+                "new class", "new report");
+        weigh(WEIGHTS, Intent.OPEN, 2.0, "how do", "how can", "how to", "why is", "why does", "what is the",
+                "difference between", "best practice", "best practices", "should i", "is it", "when should",
+                "in abap", "vs", "versus", "performance of", "alternative");
+        weigh(OPENING_WEIGHTS, Intent.VALIDATE, 1.0, "validate", "check", "review", "scan", "lint");
+        weigh(OPENING_WEIGHTS, Intent.EXPLAIN, 1.0, "explain", "describe", "summarize", "summarise");
+        weigh(OPENING_WEIGHTS, Intent.TEMPLATE, 1.0, "template", "snippet", "create", "generate", "insert",
+                "give", "skeleton", "boilerplate");
+        weigh(OPENING_WEIGHTS, Intent.OPEN, 1.5, "how", "why", "what", "when", "which", "where", "can",
+                "should", "is", "are", "do", "does", "difference");
+        for (String referent : new String[] { "this code", "this program", "this report", "this class",
+                "this method", "this function", "this include", "this object", "this select", "this loop",
+                "this statement", "this line", "my code", "my program", "my class", "my report", "my method",
+                "current code", "current object", "current program", "current class", "current method",
+                "current editor", "current source", "the code", "the editor", "open editor", "selected code",
+                "code here", "below", "above" }) {
+            REFERENTS.put(referent, Boolean.TRUE);
+        }
+    }
+
+    private IntentRouter() {
+    }
+
+    /** Routes a prompt; an empty prompt is an open question. */
+    public static Route route(String prompt) {
+        List<String> words = words(prompt);
+        double[] scores = new double[INTENTS];
+        scores[Intent.OPEN.ordinal()] = OPEN_BASE;
+        boolean referent = false;
+        if (!words.isEmpty()) {
+            add(scores, OPENING_WEIGHTS.get(words.get(0)));
+        }
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            add(scores, WEIGHTS.get(word));
+            referent |= REFERENTS.containsKey(word);
+            if (i + 1 < words.size()) {
+                String pair = word + " " + words.get(i + 1);
+                add(scores, WEIGHTS.get(pair));
+                referent |= REFERENTS.containsKey(pair);
+                if (i + 2 < words.size()) {
+                    add(scores, WEIGHTS.get(pair + " " + words.get(i + 2)));
+                }
+            }
+        }
+        if (referent) {
+            for (Intent intent : new Intent[] { Intent.VALIDATE, Intent.EXPLAIN }) {
+                if (scores[intent.ordinal()] > 0) {
+                    scores[intent.ordinal()] += REFERENT_WEIGHT;
+                }
+            }
+        }
+        Intent best = Intent.OPEN;
+        for (Intent intent : Intent.values()) {
+            if (scores[intent.ordinal()] > scores[best.ordinal()]) {
+                best = intent;
+            }
+        }
+        boolean needsCode = best == Intent.VALIDATE || best == Intent.EXPLAIN || best == Intent.OPEN && referent;
+        return new Route(best, scores[best.ordinal()], needsCode);
+    }
+
+    /** Lower-case words of letters and digits, in order. */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static void add(double[] scores, double[] weights) {
+        if (weights != null) {
+            for (int i = 0; i < INTENTS; i++) {
+                scores[i] += weights[i];
+            }
+        }
+    }
+
+    private static void weigh(Map<String, double[]> table, Intent intent, double weight, String... features) {
+        for (String feature : features) {
+            table.computeIfAbsent(feature, f -> new double[INTENTS])[intent.ordinal()] += weight;
+        }
+    }
+}
@@ -1,25 +1,44 @@
 package com.zalaris.codebot.bot;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.zalaris.codebot.adt.AbapEditorUtil;
 import com.zalaris.codebot.api.BackendApiClient;
 import com.zalaris.codebot.bot.BotResponse.Kind;
 import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.bot.IntentRouter.Intent;
+import com.zalaris.codebot.data.AnswerCache;
+import com.zalaris.codebot.data.TemplateIndex;
+import com.zalaris.codebot.engine.RuleEngine;
+import com.zalaris.codebot.model.Template;
+import com.zalaris.codebot.util.Settings;
 
 public class SimpleRuleBot {
 
+    private static final AtomicLong ROUTED_PROMPTS = new AtomicLong();
+    private static final AtomicLong LOCAL_ANSWERS = new AtomicLong();
+    private static final AtomicLong BACKEND_CALLS_WITHOUT_CODE = new AtomicLong();
+
     private final BackendApiClient apiClient = new BackendApiClient();
     private PendingLlmFallback pendingLlmFallback;
 
+    private static final AtomicLong SPECULATIVE_STARTED = new AtomicLong();
+    private static final AtomicLong SPECULATIVE_USED = new AtomicLong();
+    private static final AtomicLong SPECULATIVE_CANCELLED = new AtomicLong();
+    private static final AtomicLong SPECULATIVE_FAILED = new AtomicLong();
+
     private static final class PendingLlmFallback {
         final String query;
         final String code;
         final String objectName;
         final boolean logViolations;
+        SpeculativeFallback speculative;
 
         PendingLlmFallback(String query, String code, String objectName, boolean logViolations) {
             this.query = query;
@@ -29,6 +48,80 @@ public class SimpleRuleBot {
         }
     }
 
+    /**
+     * The confirmed LLM fallback request of a pending fallback, sent while the
+     * user is still being asked, so a "yes" finds the answer ready or on its
+     * way. Enabled with {@code codebot.llm.speculative=true}; the requests are
+     * flagged as speculative to the backend and counted apart here.
+     */
+    private static final class SpeculativeFallback {
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        private final long startedAt = System.nanoTime();
+        private final Thread thread;
+        private volatile long finishedAt;
+
+        SpeculativeFallback(BackendApiClient apiClient, PendingLlmFallback pending) {
+            thread = new Thread(() -> {
+                try {
+                    Map<String, Object> response = apiClient.assist(
+                            pending.query,
+                            pending.code,
+                            pending.objectName,
+                            "ADT",
+                            pending.logViolations,
+                            true,
+                            true);
+                    finishedAt = System.nanoTime();
+                    result.complete(response);
+                } catch (Exception ex) {
+                    finishedAt = System.nanoTime();
+                    result.completeExceptionally(ex);
+                }
+            }, "codebot-llm-speculative");
+            thread.setDaemon(true);
+            SPECULATIVE_STARTED.incrementAndGet();
+            thread.start();
+        }
+
+        /** The answer, waiting for it if needed, or null if the request failed. */
+        Map<String, Object> await() throws InterruptedException {
+            long confirmedAt = System.nanoTime();
+            boolean ready = result.isDone();
+            try {
+                Map<String, Object> response = result.get();
+                SPECULATIVE_USED.incrementAndGet();
+                logSpeculative(ready
+                        ? "answer was ready " + (confirmedAt - finishedAt) / 1_000_000L + " ms before confirmation"
+                        : "answered " + (finishedAt - confirmedAt) / 1_000_000L + " ms after confirmation, "
+                                + (finishedAt - startedAt) / 1_000_000L + " ms after it was sent");
+                return response;
+            } catch (ExecutionException ex) {
+                SPECULATIVE_FAILED.incrementAndGet();
+                logSpeculative("failed (" + ex.getCause().getMessage() + "), sending the confirmed request");
+                return null;
+            }
+        }
+
+        /** Abandons the request; an unfinished one is aborted. */
+        void cancel() {
+            if (result.cancel(true)) {
+                thread.interrupt();
+                SPECULATIVE_CANCELLED.incrementAndGet();
+                logSpeculative("cancelled after " + (System.nanoTime() - startedAt) / 1_000_000L + " ms");
+            } else {
+                // Already answered: the backend did the work for nothing.
+                SPECULATIVE_CANCELLED.incrementAndGet();
+                logSpeculative("discarded after it finished");
+            }
+        }
+
+        private static void logSpeculative(String outcome) {
+            System.out.println("[CodeBot] Speculative LLM fallback " + outcome + "; started="
+                    + SPECULATIVE_STARTED.get() + ", used=" + SPECULATIVE_USED.get() + ", cancelled="
+                    + SPECULATIVE_CANCELLED.get() + ", failed=" + SPECULATIVE_FAILED.get());
+        }
+    }
+
     public BotResponse reply(String question) {
         String query = (question == null) ? "" : question.trim();
         if (query.isEmpty()) {
@@ -42,13 +135,17 @@ public class SimpleRuleBot {
                 PendingLlmFallback pending = pendingLlmFallback;
                 pendingLlmFallback = null;
                 try {
-                    Map<String, Object> confirmed = apiClient.assist(
-                            pending.query,
-                            pending.code,
-                            pending.objectName,
-                            "ADT",
-                            pending.logViolations,
-                            true);
+                    Map<String, Object> confirmed = pending.speculative == null ? null : pending.speculative.await();
+                    if (confirmed == null) {
+                        confirmed = apiClient.assist(
+                                pending.query,
+                                pending.code,
+                                pending.objectName,
+                                "ADT",
+                                pending.logViolations,
+                                true);
+                    }
+                    AnswerCache.getShared().put(pending.query, pending.code, confirmed);
                     return toBotResponse(confirmed);
                 } catch (Exception ex) {
                     return new BotResponse(
@@ -57,18 +154,45 @@ public class SimpleRuleBot {
                 }
             }
             if (isNegative(query)) {
+                cancelSpeculative(pendingLlmFallback);
                 pendingLlmFallback = null;
                 return new BotResponse(
                         Kind.INFO,
                         "Understood. I will continue with rule-based results only.");
             }
             // Treat any non yes/no answer as a new question and clear stale pending state.
+            cancelSpeculative(pendingLlmFallback);
             pendingLlmFallback = null;
         }
 
-        String activeCode = AbapEditorUtil.getActiveEditorContentOrEmpty();
+        IntentRouter.Route route = IntentRouter.route(query);
+        BotResponse local = null;
+        if (route.intent() == Intent.VALIDATE) {
+            local = validateEditorLocally();
+        } else if (route.intent() == Intent.TEMPLATE) {
+            local = localTemplate(query);
+        }
+        if (local != null) {
+            logRoute(route, true);
+            return local;
+        }
+        if (route.intent() == Intent.EXPLAIN) {
+            logRoute(route, false);
+            return explainCurrentEditor();
+        }
+
+        // Template requests and open questions about ABAP in general go without the source.
+        String activeCode = route.needsCode() ? AbapEditorUtil.getActiveEditorContentOrEmpty() : "";
         String objectName = AbapEditorUtil.getActiveEditorNameOrDefault();
-        boolean shouldLogViolations = isValidationQuery(query);
+        AnswerCache answers = AnswerCache.getShared();
+        AnswerCache.Hit cached = answers.lookup(query, activeCode);
+        logRoute(route, cached != null);
+        if (cached != null) {
+            System.out.println(String.format(Locale.ROOT,
+                    "[CodeBot] Answered from the answer cache, similarity %.2f to \"%s\"; %s",
+                    cached.similarity(), cached.question(), answers.describe()));
+            return toBotResponse(cached.response());
+        }
 
         try {
             Map<String, Object> response = apiClient.assist(
@@ -76,14 +200,18 @@ public class SimpleRuleBot {
                     activeCode,
                     objectName,
                     "ADT",
-                    shouldLogViolations);
+                    false);
             if (requiresLlmFallbackConfirmation(response)) {
-                pendingLlmFallback = new PendingLlmFallback(query, activeCode, objectName, shouldLogViolations);
+                pendingLlmFallback = new PendingLlmFallback(query, activeCode, objectName, false);
+                if (isSpeculativeFallbackEnabled()) {
+                    pendingLlmFallback.speculative = new SpeculativeFallback(apiClient, pendingLlmFallback);
+                }
                 String prompt = asString(response.get("message"),
                         "No satisfactory rule-based result found. Use LLM fallback?")
                         + "\n\nReply with 'yes' to use LLM fallback or 'no' to skip.";
                 return new BotResponse(Kind.INFO, prompt);
             }
+            answers.put(query, activeCode, response);
             return toBotResponse(response);
         } catch (Exception ex) {
             return new BotResponse(
@@ -93,55 +221,128 @@ public class SimpleRuleBot {
         }
     }
 
-    private boolean isValidationQuery(String query) {
-        String q = query.toLowerCase();
-        return q.contains("validate") || q.contains("violation") || q.contains("check code");
+    /**
+     * Validation requests typed in the chat run the bundled rules on the active
+     * editor. The source is still sent to the backend's validation on a
+     * background thread, so its violations are logged for governance as before.
+     */
+    private BotResponse validateEditorLocally() {
+        String activeCode = AbapEditorUtil.getActiveEditorContentOrEmpty();
+        if (activeCode == null || activeCode.isBlank()) {
+            return new BotResponse(Kind.INFO, "Open an ABAP editor with code first.");
+        }
+        String objectName = AbapEditorUtil.getActiveEditorNameOrDefault();
+        Thread logging = new Thread(() -> {
+            try {
+                apiClient.validate(activeCode, objectName, "ADT", true);
+            } catch (Exception ex) {
+                System.out.println("[CodeBot] Could not log chat validation of " + objectName + ": " + ex.getMessage());
+            }
+        }, "codebot-validate-log");
+        logging.setDaemon(true);
+        logging.start();
+        return validateLocally(activeCode, "Validated with local rules; use Validate to include the backend rules.");
     }
 
-    public BotResponse validateCurrentEditor() {
+    /** Explain requests go to the explain endpoint with the active editor's source. */
+    private BotResponse explainCurrentEditor() {
         String activeCode = AbapEditorUtil.getActiveEditorContentOrEmpty();
-        String objectName = AbapEditorUtil.getActiveEditorNameOrDefault();
+        if (activeCode == null || activeCode.isBlank()) {
+            return new BotResponse(Kind.INFO, "Open an ABAP editor with code first.");
+        }
         try {
-            Map<String, Object> response = apiClient.validate(activeCode, objectName, "ADT");
-            return toBotResponse(response);
+            Map<String, Object> response = apiClient.explain(
+                    activeCode, AbapEditorUtil.getActiveEditorNameOrDefault(), "ADT");
+            String message = asString(response.get("message"), "Explain request completed.");
+            return new BotResponse(Kind.INFO, asString(response.get("explanation"), message));
         } catch (Exception ex) {
-            return new BotResponse(
-                    Kind.INFO,
-                    "Backend validation failed. " + ex.getMessage());
+            return new BotResponse(Kind.INFO, "Explain request failed. " + ex.getMessage());
         }
     }
 
-    private BotResponse toBotResponse(Map<String, Object> response) {
-        String message = asString(response.get("message"), "No response from backend.");
-        Map<String, Object> llmFallback = asMap(response.get("llm_fallback"));
-        String llmAnswer = asString(llmFallback.get("answer"), "");
-        String llmSuggestedCode = "";
-        if (!llmAnswer.isEmpty()) {
-            message = message + "\n\n--- LLM Guidance ---\n" + llmAnswer;
-            llmSuggestedCode = firstCodeBlock(llmAnswer);
-        }
-        List<RuleViolation> violations = parseViolations(response.get("violations"));
-        Map<String, Object> suggestions = asMap(response.get("suggestions"));
+    private static void logRoute(IntentRouter.Route route, boolean answeredLocally) {
+        long prompts = ROUTED_PROMPTS.incrementAndGet();
+        long local = answeredLocally ? LOCAL_ANSWERS.incrementAndGet() : LOCAL_ANSWERS.get();
+        long withoutCode = !answeredLocally && !route.needsCode()
+                ? BACKEND_CALLS_WITHOUT_CODE.incrementAndGet()
+                : BACKEND_CALLS_WITHOUT_CODE.get();
+        System.out.println(String.format(Locale.ROOT,
+                "[CodeBot] Routed prompt to %s (score %.1f, %s); %d of %d prompts answered without the backend (%.0f%%),"
+                        + " %d backend call(s) sent without source",
+                route.intent(), route.score(), answeredLocally ? "local" : "backend", local, prompts,
+                100.0 * local / prompts, withoutCode));
+    }
 
-        String templateCode = firstSnippet(suggestions, "templates");
-        if (templateCode == null || templateCode.isEmpty()) {
-            templateCode = firstSnippet(suggestions, "wizards");
-        }
-        String violationFixCode = firstViolationFix(violations);
-        String pasteCandidate = (violationFixCode != null && !violationFixCode.isEmpty())
-                ? violationFixCode
-                : templateCode;
-        if ((pasteCandidate == null || pasteCandidate.isEmpty()) && !llmSuggestedCode.isEmpty()) {
-            pasteCandidate = llmSuggestedCode;
+    /**
+     * A template from the local index when one matches the request well enough;
+     * null sends the request to the backend.
+     */
+    private BotResponse localTemplate(String query) {
+        TemplateIndex.Match match = TemplateIndex.getShared().find(query);
+        if (match == null) {
+            return null;
         }
+        Template template = match.template();
+        String message = template.getTitle()
+                + (template.getDescription() == null || template.getDescription().isBlank()
+                        ? ""
+                        : "\n" + template.getDescription())
+                + String.format(Locale.ROOT, "\n(Local template, matched \"%s\" with score %.2f.)",
+                        match.phrase(), match.score());
+        return new BotResponse(Kind.TEMPLATE_SUGGESTION, message, template.getSnippet());
+    }
+
+    /**
+     * Hybrid validation of the active editor: the local rules answer at once in
+     * {@link HybridValidation#getLocalResponse()}, and the backend's violations are
+     * merged in on a background thread when they arrive, after which
+     * {@code listener} is told what changed.
+     */
+    public HybridValidation validateCurrentEditor(HybridValidation.Listener listener) {
+        String activeCode = AbapEditorUtil.getActiveEditorContentOrEmpty();
+        String objectName = AbapEditorUtil.getActiveEditorNameOrDefault();
+        BotResponse local = validateLocally(activeCode, "Backend validation is running; its results are merged in when they arrive.");
+        HybridValidation validation = new HybridValidation(activeCode, local);
+        Thread request = new Thread(() -> {
+            try {
+                Map<String, Object> response = apiClient.validate(activeCode, objectName, "ADT");
+                HybridValidation.Merge merge = validation.merge(
+                        BotResponseMapper.parseViolations(response.get("violations")));
+                listener.backendMerged(validation, merge);
+            } catch (Exception ex) {
+                listener.backendFailed(validation, ex.getMessage());
+            }
+        }, "codebot-hybrid-validate");
+        request.setDaemon(true);
+        request.start();
+        return validation;
+    }
 
-        if (!violations.isEmpty()) {
-            return new BotResponse(Kind.VALIDATION_RESULT, message, pasteCandidate, violations);
+    /**
+     * Evaluates the bundled rules on the given source without contacting the backend.
+     */
+    public BotResponse validateLocally(String code, String reason) {
+        long started = System.nanoTime();
+        List<RuleViolation> violations = RuleEngine.getDefault().evaluate(code);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000L;
+        String prefix = (reason == null || reason.isBlank()) ? "" : reason + "\n";
+        String message = prefix + "Offline validation with local rules: "
+                + violations.size() + " violation(s) in " + elapsedMs + " ms.";
+        if (violations.isEmpty()) {
+            return new BotResponse(Kind.VALIDATION_RESULT, message, null, Collections.emptyList());
         }
-        if (pasteCandidate != null && !pasteCandidate.isEmpty()) {
-            return new BotResponse(Kind.TEMPLATE_SUGGESTION, message, pasteCandidate, Collections.emptyList());
+        String fix = "";
+        for (RuleViolation v : violations) {
+            if (v.getCorrectCode() != null && !v.getCorrectCode().isBlank()) {
+                fix = v.getCorrectCode();
+                break;
+            }
         }
-        return new BotResponse(Kind.INFO, message, null, Collections.emptyList());
+        return new BotResponse(Kind.VALIDATION_RESULT, message, fix, violations);
+    }
+
+    private BotResponse toBotResponse(Map<String, Object> response) {
+        return BotResponseMapper.toBotResponse(response);
     }
 
     private boolean requiresLlmFallbackConfirmation(Map<String, Object> response) {
@@ -152,18 +353,14 @@ public class SimpleRuleBot {
         return asBoolean(llmFallback.get("enabled")) && asBoolean(llmFallback.get("requires_confirmation"));
     }
 
-    private String firstCodeBlock(String text) {
-        if (text == null || text.isBlank()) {
-            return "";
+    private static void cancelSpeculative(PendingLlmFallback pending) {
+        if (pending.speculative != null) {
+            pending.speculative.cancel();
         }
-        String normalized = text.replace("\r\n", "\n");
-        java.util.regex.Matcher matcher = java.util.regex.Pattern
-                .compile("```(?:abap|ABAP|[a-zA-Z0-9_-]+)?\\s*\\n([\\s\\S]*?)```")
-                .matcher(normalized);
-        if (matcher.find()) {
-            return matcher.group(1).trim();
-        }
-        return "";
+    }
+
+    private static boolean isSpeculativeFallbackEnabled() {
+        return Boolean.parseBoolean(Settings.read("codebot.llm.speculative", "false"));
     }
 
     private boolean isAffirmative(String text) {
@@ -176,44 +373,6 @@ public class SimpleRuleBot {
         return q.equals("no") || q.equals("n") || q.equals("skip") || q.equals("cancel");
     }
 
-    private String firstSnippet(Map<String, Object> suggestions, String key) {
-        List<Object> entries = asList(suggestions.get(key));
-        if (entries.isEmpty()) {
-            return "";
-        }
-        Map<String, Object> first = asMap(entries.get(0));
-        return asString(first.get("snippet"), "");
-    }
-
-    private List<RuleViolation> parseViolations(Object raw) {
-        List<Object> items = asList(raw);
-        List<RuleViolation> result = new ArrayList<>();
-        for (Object item : items) {
-            Map<String, Object> v = asMap(item);
-            result.add(
-                    new RuleViolation(
-                            asString(v.get("project"), "ADT"),
-                            asString(v.get("rule_pack"), "generic"),
-                            asString(v.get("rule_id"), "unknown.rule"),
-                            asString(v.get("title"), "Rule violation"),
-                            asString(v.get("message"), asString(v.get("description"), "Violation detected.")),
-                            asString(v.get("severity"), "MAJOR"),
-                            asInt(v.get("line"), 1),
-                            asString(v.get("suggested_code"), asString(v.get("fix"), ""))));
-        }
-        return result;
-    }
-
-    private String firstViolationFix(List<RuleViolation> violations) {
-        for (RuleViolation v : violations) {
-            String fix = v.getCorrectCode();
-            if (fix != null && !fix.trim().isEmpty()) {
-                return fix;
-            }
-        }
-        return "";
-    }
-
     @SuppressWarnings("unchecked")
     private Map<String, Object> asMap(Object value) {
         if (value instanceof Map) {
@@ -222,14 +381,6 @@ public class SimpleRuleBot {
         return Collections.emptyMap();
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Object> asList(Object value) {
-        if (value instanceof List) {
-            return (List<Object>) value;
-        }
-        return Collections.emptyList();
-    }
-
     private String asString(Object value, String fallback) {
         if (value == null) {
             return fallback;
@@ -238,17 +389,6 @@ public class SimpleRuleBot {
         return text.isEmpty() ? fallback : text;
     }
 
-    private int asInt(Object value, int fallback) {
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
-        }
-        try {
-            return Integer.parseInt(String.valueOf(value));
-        } catch (Exception ex) {
-            return fallback;
-        }
-    }
-
     private boolean asBoolean(Object value) {
         if (value instanceof Boolean) {
             return (Boolean) value;
@@ -0,0 +1,275 @@
+package com.zalaris.codebot.data;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.zalaris.codebot.util.Settings;
+
+/**
+ * Backend answers to chat questions, so a question asked again, or asked in
+ * nearly the same words, is answered without another assist request. An
+ * answer is keyed by the question's words, lower-cased, without filler words
+ * and plural endings, as a set; and by a digest of the source sent with it,
+ * which ignores indentation, blank lines and comment lines. A question finds
+ * an answer for the same source whose word set is close enough by Jaccard
+ * similarity, shares a few words with it and has the same negations and
+ * qualifiers ("not", "without", "avoid"). The least recently used answers are
+ * dropped beyond a number of entries or an approximate size in characters.
+ */
+public final class AnswerCache {
+
+    public static final double DEFAULT_SIMILARITY = 0.75;
+    private static final int DEFAULT_ENTRIES = 256;
+    private static final int DEFAULT_KB = 4096;
+    private static final String NO_CODE = "-";
+    /** A similar question shares at least this many content words with the cached one. */
+    private static final int MIN_SHARED_WORDS = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "to", "in", "inside", "within", "on",
+            "of", "for", "with", "and", "or", "i", "me", "my", "we", "our", "you", "please", "how", "what", "which",
+            "can", "could", "should", "would", "do", "does", "is", "are", "be", "it", "this", "that", "there", "any",
+            "some", "abap", "way");
+
+    /**
+     * Words that turn a question around; two questions differing in one of them
+     * never share an answer. "t" is what is left of "don't" or "isn't".
+     */
+    private static final Set<String> QUALIFIERS = Set.of("not", "no", "never", "without", "avoid", "t", "dont",
+            "doesnt", "isnt", "shouldnt", "cant", "cannot", "wont", "none", "nor", "except", "instead", "only",
+            "prevent", "outside", "unless");
+
+    private static volatile AnswerCache shared;
+
+    /** A cached answer, the question it was given for, and the similarity of the questions. */
+    public record Hit(Map<String, Object> response, String question, double similarity) {
+    }
+
+    private record Entry(String question, String[] words, String codeDigest, Map<String, Object> response,
+            long chars) {
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxChars;
+    private final double similarity;
+    private long chars;
+    private long hits;
+    private long similarHits;
+    private long misses;
+
+    /**
+     * @param maxEntries answers kept at most; 0 keeps none
+     * @param maxChars approximate characters of questions and answers kept at most
+     * @param similarity the Jaccard similarity of word sets a question needs to reuse an answer
+     */
+    public AnswerCache(int maxEntries, long maxChars, double similarity) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.maxChars = Math.max(0L, maxChars);
+        this.similarity = similarity;
+    }
+
+    public static AnswerCache getShared() {
+        AnswerCache current = shared;
+        if (current == null) {
+            synchronized (AnswerCache.class) {
+                current = shared;
+                if (current == null) {
+                    current = new AnswerCache(
+                            parseInt(Settings.read("codebot.answers.cache.entries", ""), DEFAULT_ENTRIES),
+                            parseInt(Settings.read("codebot.answers.cache.kb", ""), DEFAULT_KB) * 1024L,
+                            parseDouble(Settings.read("codebot.answers.cache.similarity", ""), DEFAULT_SIMILARITY));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** The answer for the question about {@code code}, or null to ask the backend. */
+    public synchronized Hit lookup(String question, String code) {
+        String[] words = words(question);
+        if (words.length == 0 || entries.isEmpty()) {
+            misses++;
+            return null;
+        }
+        String codeDigest = codeDigest(code);
+        Entry exact = entries.get(key(codeDigest, words));
+        if (exact != null) {
+            hits++;
+            return new Hit(exact.response(), exact.question(), 1d);
+        }
+        String bestKey = null;
+        double best = 0d;
+        for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+            Entry entry = candidate.getValue();
+            if (entry.codeDigest().equals(codeDigest)) {
+                double score = similarity(words, entry.words());
+                if (score > best) {
+                    best = score;
+                    bestKey = candidate.getKey();
+                }
+            }
+        }
+        if (bestKey == null || best < similarity) {
+            misses++;
+            return null;
+        }
+        // Looked up again so the answer counts as recently used.
+        Entry entry = entries.get(bestKey);
+        hits++;
+        similarHits++;
+        return new Hit(entry.response(), entry.question(), best);
+    }
+
+    /** Keeps the backend's answer to the question about {@code code}. */
+    public synchronized void put(String question, String code, Map<String, Object> response) {
+        String[] words = words(question);
+        if (words.length == 0 || response == null || maxEntries == 0) {
+            return;
+        }
+        long size = question.length() + approximateChars(response);
+        if (size > maxChars) {
+            return;
+        }
+        String codeDigest = codeDigest(code);
+        Entry replaced = entries.put(key(codeDigest, words), new Entry(question, words, codeDigest, response, size));
+        chars += size - (replaced == null ? 0L : replaced.chars());
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext() && (entries.size() > maxEntries || chars > maxChars)) {
+            chars -= eldest.next().chars();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        chars = 0L;
+    }
+
+    /** Entries, approximate size and hit counts, for logging. */
+    public synchronized String describe() {
+        return String.format(Locale.ROOT, "%d answers, ~%d KB, hits=%d (similar=%d), misses=%d",
+                entries.size(), chars / 1024L, hits, similarHits, misses);
+    }
+
+    /** Sorted, de-duplicated content words of a question, without plural endings. */
+    static String[] words(String question) {
+        if (question == null || question.isEmpty()) {
+            return new String[0];
+        }
+        Set<String> words = new TreeSet<>();
+        String lower = question.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = lower.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    words.add(word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")
+                            ? word.substring(0, word.length() - 1)
+                            : word);
+                }
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /** Digest of the source's statements: trimmed lines without blank and full-line comment lines. */
+    static String codeDigest(String code) {
+        if (code == null || code.isBlank()) {
+            return NO_CODE;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : code.split("\r\n|\r|\n")) {
+                String statement = line.strip();
+                if (!statement.isEmpty() && !line.startsWith("*")) {
+                    digest.update(statement.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '\n');
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String key(String codeDigest, String[] words) {
+        return codeDigest + "|" + String.join(" ", words);
+    }
+
+    /**
+     * Jaccard similarity of two sorted word arrays; 0 when they share fewer than
+     * {@link #MIN_SHARED_WORDS} words or one has a {@link #QUALIFIERS qualifier}
+     * the other lacks, as in "with binary search" and "without binary search".
+     */
+    private static double similarity(String[] a, String[] b) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int order = i == a.length ? 1 : j == b.length ? -1 : a[i].compareTo(b[j]);
+            if (order == 0) {
+                common++;
+                i++;
+                j++;
+            } else if (QUALIFIERS.contains(order < 0 ? a[i++] : b[j++])) {
+                return 0d;
+            }
+        }
+        if (common < MIN_SHARED_WORDS) {
+            return 0d;
+        }
+        return common / (double) (a.length + b.length - common);
+    }
+
+    /** Characters of the strings, keys and numbers in a decoded response. */
+    private static long approximateChars(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            long size = 2L;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + approximateChars(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List<?> list) {
+            long size = 2L;
+            for (Object item : list) {
+                size += approximateChars(item);
+            }
+            return size;
+        }
+        return value == null ? 4L : String.valueOf(value).length();
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return value.isEmpty() ? fallback : Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+
+    private static double parseDouble(String value, double fallback) {
+        try {
+            return value.isEmpty() ? fallback : Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.zalaris.codebot.data;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zalaris.codebot.util.JsonUtil;
+import com.zalaris.codebot.util.StateLocation;
+
+/**
+ * Versioned client-side copy of per-rule metadata (title, description, pack,
+ * suggested code). Lets the backend send compact violations that carry only
+ * rule id, line and severity; text is shared from here instead of repeated
+ * per finding. Persisted under the state location so it is fetched once per
+ * version, not per IDE session.
+ */
+public final class RuleMetadataDictionary {
+
+    private static final String FILE_NAME = "rule-metadata.json";
+    private static volatile RuleMetadataDictionary shared;
+
+    public record Entry(String ruleId, String title, String description, String rulePack, String suggestedCode) {
+    }
+
+    private record Snapshot(String version, String packName, Map<String, Entry> entries) {
+    }
+
+    private final Path storage;
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param storage file to persist to, or {@code null} for an in-memory dictionary
+     */
+    public RuleMetadataDictionary(Path storage) {
+        this.storage = storage;
+        this.snapshot = load(storage);
+    }
+
+    public static RuleMetadataDictionary getShared() {
+        RuleMetadataDictionary current = shared;
+        if (current == null) {
+            synchronized (RuleMetadataDictionary.class) {
+                current = shared;
+                if (current == null) {
+                    current = new RuleMetadataDictionary(StateLocation.resolve(FILE_NAME));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public String getVersion() {
+        return snapshot.version();
+    }
+
+    public String getPackName() {
+        return snapshot.packName();
+    }
+
+    public Entry get(String ruleId) {
+        return ruleId == null ? null : snapshot.entries().get(ruleId);
+    }
+
+    public int size() {
+        return snapshot.entries().size();
+    }
+
+    /**
+     * True when the dictionary holds a version of the given pack, so compact
+     * violations of that pack can be expanded from it.
+     */
+    public boolean holdsPack(String packName) {
+        Snapshot current = snapshot;
+        return normalize(packName).equals(current.packName()) && !current.version().isEmpty()
+                && !current.entries().isEmpty();
+    }
+
+    /**
+     * True when the dictionary must be (re)fetched for the given pack and backend version.
+     */
+    public boolean isStale(String packName, String backendVersion) {
+        Snapshot current = snapshot;
+        if (!normalize(packName).equals(current.packName())) {
+            return true;
+        }
+        if (current.version().isEmpty()) {
+            return true;
+        }
+        return !normalize(backendVersion).isEmpty() && !current.version().equals(normalize(backendVersion));
+    }
+
+    /**
+     * Replaces the dictionary with a backend payload of the form
+     * {@code {"version": "...", "rules": [{"rule_id", "title", "description", "rule_pack", "suggested_code"}]}}.
+     */
+    public void update(String packName, Map<String, Object> payload) {
+        Snapshot parsed = parse(packName, payload);
+        if (parsed == null) {
+            return;
+        }
+        snapshot = parsed;
+        persist(payload, packName);
+    }
+
+    private void persist(Map<String, Object> payload, String packName) {
+        if (storage == null) {
+            return;
+        }
+        try {
+            Map<String, Object> stored = new LinkedHashMap<>(payload);
+            stored.put("pack_name", normalize(packName));
+            Path tmp = storage.resolveSibling(FILE_NAME + ".tmp");
+            Files.writeString(tmp, JsonUtil.stringify(stored), StandardCharsets.UTF_8);
+            Files.move(tmp, storage, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                    java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Failed to persist rule metadata: " + ex.getMessage());
+        }
+    }
+
+    private static Snapshot load(Path storage) {
+        Snapshot empty = new Snapshot("", "", Collections.emptyMap());
+        if (storage == null || !Files.isRegularFile(storage)) {
+            return empty;
+        }
+        try {
+            Map<String, Object> stored = JsonUtil.parseObject(Files.readString(storage, StandardCharsets.UTF_8));
+            Snapshot parsed = parse(asString(stored.get("pack_name"), ""), stored);
+            return parsed == null ? empty : parsed;
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Ignoring unreadable rule metadata cache: " + ex.getMessage());
+            return empty;
+        }
+    }
+
+    private static Snapshot parse(String packName, Map<String, Object> payload) {
+        String version = asString(payload.get("version"), "");
+        if (version.isEmpty()) {
+            return null;
+        }
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (Object item : asList(payload.get("rules"))) {
+            if (!(item instanceof Map<?, ?> rule)) {
+                continue;
+            }
+            String ruleId = asString(rule.get("rule_id"), "");
+            if (ruleId.isEmpty()) {
+                continue;
+            }
+            entries.put(ruleId, new Entry(
+                    ruleId,
+                    asString(rule.get("title"), "Rule violation"),
+                    asString(rule.get("description"), "Violation detected."),
+                    asString(rule.get("rule_pack"), "generic"),
+                    asString(rule.get("suggested_code"), "")));
+        }
+        return new Snapshot(version, normalize(packName), Collections.unmodifiableMap(entries));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    private static List<?> asList(Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        return Collections.emptyList();
+    }
+
+    private static String asString(Object value, String fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        String text = String.valueOf(value);
+        return text.isEmpty() ? fallback : text;
+    }
+}
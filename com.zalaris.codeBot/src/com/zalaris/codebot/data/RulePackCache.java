@@ -0,0 +1,424 @@
+package com.zalaris.codebot.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+
+import com.zalaris.codebot.model.MatchScope;
+import com.zalaris.codebot.model.Rule;
+import com.zalaris.codebot.model.RuleType;
+import com.zalaris.codebot.model.Severity;
+import com.zalaris.codebot.util.Settings;
+import com.zalaris.codebot.util.StateLocation;
+
+/**
+ * Rule pack of {@code codebot.pack.name} as last downloaded from the backend,
+ * kept under the state location so the local engine has its rules at startup
+ * without a network round-trip. Rules are stored already parsed and checked, in
+ * a compact binary file that is memory-mapped on open; only the header is read
+ * then, and the rules are decoded on first use. Each version goes to a file named
+ * after its content hash, so an update never replaces a file that is still mapped.
+ */
+public final class RulePackCache {
+
+    private static final String DIRECTORY = "rule-packs";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x43425250; // "CBRP"
+    private static final int FORMAT = 1;
+    private static final IntPredicate HEX = c -> c >= '0' && c <= '9' || c >= 'a' && c <= 'f';
+
+    private static volatile RulePackCache shared;
+
+    private record Header(Path file, ByteBuffer records, String version, String contentHash, int ruleCount) {
+    }
+
+    private final Path directory;
+    private final String packName;
+    private volatile Header header;
+    private volatile List<Rule> rules;
+
+    /**
+     * @param directory where pack files are kept, or {@code null} for an in-memory cache
+     */
+    public RulePackCache(Path directory, String packName) {
+        this.directory = directory;
+        this.packName = packName == null ? "" : packName.trim();
+        this.header = open(directory, this.packName);
+    }
+
+    public static RulePackCache getShared() {
+        RulePackCache current = shared;
+        if (current == null) {
+            synchronized (RulePackCache.class) {
+                current = shared;
+                if (current == null) {
+                    current = new RulePackCache(StateLocation.resolve(DIRECTORY), Settings.read("codebot.pack.name", ""));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public String getPackName() {
+        return packName;
+    }
+
+    /**
+     * Backend version of the cached pack, or "" when nothing is cached.
+     */
+    public String getVersion() {
+        Header current = header;
+        return current == null ? "" : current.version();
+    }
+
+    public String getContentHash() {
+        Header current = header;
+        return current == null ? "" : current.contentHash();
+    }
+
+    /**
+     * True when a pack is configured and the backend has a different version
+     * than the cached one (or nothing is cached yet).
+     */
+    public boolean isStale(String backendVersion) {
+        if (packName.isEmpty()) {
+            return false;
+        }
+        String known = getVersion();
+        String latest = backendVersion == null ? "" : backendVersion.trim();
+        return known.isEmpty() || !latest.isEmpty() && !known.equals(latest);
+    }
+
+    /**
+     * Rules of the cached pack, decoded from the mapped file on first call.
+     */
+    public List<Rule> getRules() {
+        List<Rule> current = rules;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (rules == null) {
+                rules = decode(header);
+            }
+            return rules;
+        }
+    }
+
+    /**
+     * Replaces the cached pack with a backend payload of the form
+     * {@code {"version": "...", "rules": [{"rule_id", "title", "description", "type",
+     * "severity", "pattern", "scope", "bad_example", "good_example"}]}}.
+     * Returns false when the payload has no version or matches the cached pack.
+     */
+    public synchronized boolean update(Map<String, Object> payload) {
+        String version = asString(payload.get("version"), "");
+        if (version.isEmpty()) {
+            return false;
+        }
+        List<Rule> parsed = parseRules(payload.get("rules"));
+        byte[] records = encode(parsed);
+        String contentHash = sha256(version, ByteBuffer.wrap(records));
+        Header current = header;
+        if (current != null && current.contentHash().equals(contentHash)) {
+            return false;
+        }
+        Header written = write(version, contentHash, parsed.size(), records);
+        header = written != null ? written
+                : new Header(null, ByteBuffer.wrap(records).asReadOnlyBuffer(), version, contentHash, parsed.size());
+        rules = Collections.unmodifiableList(parsed);
+        return true;
+    }
+
+    private Header write(String version, String contentHash, int ruleCount, byte[] records) {
+        if (directory == null || packName.isEmpty()) {
+            return null;
+        }
+        try {
+            Files.createDirectories(directory);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.length + 256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            writeString(out, packName);
+            writeString(out, version);
+            writeString(out, contentHash);
+            out.writeInt(ruleCount);
+            out.write(records);
+            out.flush();
+
+            Path target = directory.resolve(filePrefix(packName) + contentHash.substring(0, 16) + SUFFIX);
+            Path tmp = directory.resolve(target.getFileName() + ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteOthers(target);
+            System.out.println("[CodeBot] Rule pack " + packName + " cached, version=" + version + ", rules=" + ruleCount);
+            return map(target, packName);
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Failed to persist rule pack: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps the newest file of the pack; null when there is no readable file.
+     */
+    private static Header open(Path directory, String packName) {
+        if (directory == null || packName.isEmpty() || !Files.isDirectory(directory)) {
+            return null;
+        }
+        List<Path> candidates = packFiles(directory, packName);
+        candidates.sort((a, b) -> Long.compare(lastModified(b), lastModified(a)));
+        for (Path file : candidates) {
+            Header header = map(file, packName);
+            if (header != null) {
+                return header;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps one pack file and reads its header; the rules stay undecoded.
+     */
+    private static Header map(Path file, String packName) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                return null;
+            }
+            String storedPack = readString(buffer);
+            String version = readString(buffer);
+            String contentHash = readString(buffer);
+            int ruleCount = buffer.getInt();
+            if (!packName.equals(storedPack) || version.isEmpty() || ruleCount < 0) {
+                return null;
+            }
+            return new Header(file, buffer.slice(), version, contentHash, ruleCount);
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Ignoring unreadable rule pack " + file.getFileName() + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Files named {@code <pack>-<16 hex digits>.bin} for this pack.
+     */
+    private static List<Path> packFiles(Path directory, String packName) {
+        String prefix = filePrefix(packName);
+        int length = prefix.length() + 16 + SUFFIX.length();
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listed = Files.list(directory)) {
+            listed.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.length() == length && name.startsWith(prefix) && name.endsWith(SUFFIX)
+                        && name.substring(prefix.length(), prefix.length() + 16).chars().allMatch(HEX::test);
+            }).forEach(files::add);
+        } catch (IOException ex) {
+            System.out.println("[CodeBot] Failed to list rule pack cache: " + ex.getMessage());
+        }
+        return files;
+    }
+
+    private static List<Rule> decode(Header header) {
+        if (header == null) {
+            return Collections.emptyList();
+        }
+        ByteBuffer records = header.records().duplicate();
+        if (!header.contentHash().equals(sha256(header.version(), records.duplicate()))) {
+            System.out.println("[CodeBot] Ignoring corrupt rule pack " + header.file());
+            return Collections.emptyList();
+        }
+        try {
+            List<Rule> decoded = new ArrayList<>(header.ruleCount());
+            for (int i = 0; i < header.ruleCount(); i++) {
+                decoded.add(new Rule(
+                        readString(records),
+                        readString(records),
+                        readString(records),
+                        RuleType.values()[records.get()],
+                        Severity.values()[records.get()],
+                        readString(records),
+                        readString(records),
+                        readString(records),
+                        MatchScope.values()[records.get()]));
+            }
+            return Collections.unmodifiableList(decoded);
+        } catch (RuntimeException ex) {
+            System.out.println("[CodeBot] Ignoring unreadable rule pack " + header.file() + ": " + ex.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private static byte[] encode(List<Rule> rules) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (Rule rule : rules) {
+                writeString(out, rule.getId());
+                writeString(out, rule.getTitle());
+                writeString(out, rule.getDescription());
+                out.writeByte(rule.getType().ordinal());
+                out.writeByte(rule.getSeverity().ordinal());
+                writeString(out, rule.getPattern());
+                writeString(out, rule.getBadExample());
+                writeString(out, rule.getGoodExample());
+                out.writeByte(rule.getScope().ordinal());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Rules of a backend payload. Rules without an id or pattern, and regex
+     * rules whose pattern does not compile, are left out here rather than on
+     * every engine build.
+     */
+    private static List<Rule> parseRules(Object raw) {
+        List<Rule> parsed = new ArrayList<>();
+        if (!(raw instanceof List<?> items)) {
+            return parsed;
+        }
+        for (Object item : items) {
+            if (!(item instanceof Map<?, ?> rule)) {
+                continue;
+            }
+            String id = asString(rule.get("rule_id"), "");
+            String pattern = asString(rule.get("pattern"), "");
+            if (id.isEmpty() || pattern.isEmpty()) {
+                continue;
+            }
+            MatchScope scope = parseEnum(MatchScope.class, rule.get("scope"), MatchScope.CODE);
+            if (scope != MatchScope.STRUCTURE) {
+                try {
+                    Pattern.compile(pattern);
+                } catch (PatternSyntaxException ex) {
+                    System.out.println("[CodeBot] Skipping pack rule " + id + ": invalid pattern " + ex.getMessage());
+                    continue;
+                }
+            }
+            parsed.add(new Rule(
+                    id,
+                    asString(rule.get("title"), "Rule violation"),
+                    asString(rule.get("description"), "Violation detected."),
+                    parseEnum(RuleType.class, rule.get("type"), RuleType.CODE),
+                    parseSeverity(rule.get("severity")),
+                    pattern,
+                    asString(rule.get("bad_example"), ""),
+                    asString(rule.get("good_example"), ""),
+                    scope));
+        }
+        return parsed;
+    }
+
+    /**
+     * Accepts both rule severities (ERROR/WARNING/INFO) and the backend
+     * vocabulary (MAJOR/MINOR/INFO).
+     */
+    private static Severity parseSeverity(Object value) {
+        String text = asString(value, "").toUpperCase(Locale.ROOT);
+        switch (text) {
+        case "MAJOR":
+            return Severity.ERROR;
+        case "MINOR":
+            return Severity.WARNING;
+        default:
+            return parseEnum(Severity.class, text, Severity.ERROR);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, Object value, E fallback) {
+        String text = asString(value, "").toUpperCase(Locale.ROOT);
+        try {
+            return text.isEmpty() ? fallback : Enum.valueOf(type, text);
+        } catch (IllegalArgumentException ex) {
+            return fallback;
+        }
+    }
+
+    private void deleteOthers(Path keep) {
+        for (Path file : packFiles(directory, packName)) {
+            if (file.equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                // Still mapped (Windows); removed after the next update.
+            }
+        }
+    }
+
+    private static String filePrefix(String packName) {
+        return packName.replaceAll("[^A-Za-z0-9._-]", "_") + "-";
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash of the version and the encoded rules; names the pack file.
+     */
+    private static String sha256(String version, ByteBuffer records) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(version.getBytes(StandardCharsets.UTF_8));
+            digest.update(records);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String asString(Object value, String fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        String text = String.valueOf(value).trim();
+        return text.isEmpty() ? fallback : text;
+    }
+}
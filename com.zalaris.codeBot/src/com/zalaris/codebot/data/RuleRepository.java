@@ -1,11 +1,15 @@
 package com.zalaris.codebot.data;
 
+import com.zalaris.codebot.model.MatchScope;
 import com.zalaris.codebot.model.Rule;
 import com.zalaris.codebot.model.RuleType;
 import com.zalaris.codebot.model.Severity;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RuleRepository {
 
@@ -43,9 +47,10 @@ public class RuleRepository {
             "Do not perform SELECT on HR infotypes inside LOOP. Use bulk SELECT.",
             RuleType.PERFORMANCE,
             Severity.ERROR,
-            "(?i)LOOP AT|SELECT\\s+.*FROM\\s+PA\\d{4}", // you can refine
+            "db-access-in-loop",
             "",
-            ""
+            "",
+            MatchScope.STRUCTURE
         ),
 
         // 4) No nested loops
@@ -55,9 +60,10 @@ public class RuleRepository {
             "Nested loops on PAxxxx tables cause O(n^2) behavior. Use hashed tables.",
             RuleType.PERFORMANCE,
             Severity.WARNING,
-            "(?i)LOOP AT.*\\n.*LOOP AT",   // very simplified
+            "nested-loop",
+            "",
             "",
-            ""
+            MatchScope.STRUCTURE
         ),
 
         // 5) Design: do not copy standard program
@@ -69,11 +75,31 @@ public class RuleRepository {
             Severity.WARNING,
             "(?i)Copied from SAP",   // trigger phrase in comment
             "\" Copied from SAPFALHR",
-            ""
+            "",
+            MatchScope.COMMENTS
         )
     );
 
     public static List<Rule> getAllRules() {
         return RULES;
     }
+
+    /**
+     * Built-in rules overlaid with the cached backend rule pack; a pack rule
+     * replaces a built-in rule with the same id.
+     */
+    public static List<Rule> getEffectiveRules() {
+        List<Rule> packRules = RulePackCache.getShared().getRules();
+        if (packRules.isEmpty()) {
+            return RULES;
+        }
+        Map<String, Rule> byId = new LinkedHashMap<>();
+        for (Rule rule : RULES) {
+            byId.put(rule.getId(), rule);
+        }
+        for (Rule rule : packRules) {
+            byId.put(rule.getId(), rule);
+        }
+        return new ArrayList<>(byId.values());
+    }
 }
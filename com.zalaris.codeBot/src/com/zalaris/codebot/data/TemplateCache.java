@@ -0,0 +1,379 @@
+package com.zalaris.codebot.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+import com.zalaris.codebot.model.Template;
+import com.zalaris.codebot.util.StateLocation;
+
+/**
+ * Template catalog as last synced from the backend, kept under the state
+ * location so it is downloaded once per version rather than per IDE session.
+ * The file is memory-mapped on open. Ids, titles, descriptions and triggers
+ * are decoded then, since the template index needs them. Snippet bodies stay
+ * in the mapping and are read each time a template's snippet is asked for, so
+ * the heap does not grow with the size of the catalog. Each version goes to a
+ * file named after its content hash, so an update never replaces a file that
+ * is still mapped.
+ */
+public final class TemplateCache {
+
+    private static final String DIRECTORY = "templates";
+    private static final String PREFIX = "catalog-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x43425450; // "CBTP"
+    private static final int FORMAT = 1;
+    private static final IntPredicate HEX = c -> c >= '0' && c <= '9' || c >= 'a' && c <= 'f';
+
+    private static volatile TemplateCache shared;
+
+    /** One catalog version and the file it was mapped from, if any. */
+    private record Catalog(Path file, String version, String contentHash, List<Template> templates) {
+    }
+
+    private final Path directory;
+    private volatile Catalog catalog;
+
+    /**
+     * @param directory where catalog files are kept, or {@code null} for an in-memory cache
+     */
+    public TemplateCache(Path directory) {
+        this.directory = directory;
+        this.catalog = open(directory);
+    }
+
+    public static TemplateCache getShared() {
+        TemplateCache current = shared;
+        if (current == null) {
+            synchronized (TemplateCache.class) {
+                current = shared;
+                if (current == null) {
+                    current = new TemplateCache(StateLocation.resolve(DIRECTORY));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Backend version of the cached catalog, or "" when nothing is cached.
+     */
+    public String getVersion() {
+        Catalog current = catalog;
+        return current == null ? "" : current.version();
+    }
+
+    public String getContentHash() {
+        Catalog current = catalog;
+        return current == null ? "" : current.contentHash();
+    }
+
+    /**
+     * Templates of the cached catalog; their snippets are read from the mapped
+     * file on each call.
+     */
+    public List<Template> getTemplates() {
+        Catalog current = catalog;
+        return current == null ? Collections.emptyList() : current.templates();
+    }
+
+    /**
+     * Replaces the cached catalog with a backend payload of the form
+     * {@code {"version": "...", "templates": [{"template_id", "title",
+     * "description", "triggers": [...], "snippet"}]}}. Returns false when the
+     * payload has no version or matches the cached catalog.
+     */
+    public synchronized boolean update(Map<String, Object> payload) {
+        String version = asString(payload.get("version"), "");
+        if (version.isEmpty()) {
+            return false;
+        }
+        byte[] body = encode(parseTemplates(payload.get("templates")));
+        String contentHash = sha256(version, ByteBuffer.wrap(body));
+        Catalog current = catalog;
+        if (current != null && current.contentHash().equals(contentHash)) {
+            return false;
+        }
+        Catalog written = write(version, contentHash, body);
+        catalog = written != null ? written
+                : decode(null, version, contentHash, ByteBuffer.wrap(body).asReadOnlyBuffer());
+        return true;
+    }
+
+    private Catalog write(String version, String contentHash, byte[] body) {
+        if (directory == null) {
+            return null;
+        }
+        try {
+            Files.createDirectories(directory);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            writeString(out, version);
+            writeString(out, contentHash);
+            out.write(body);
+            out.flush();
+
+            Path target = directory.resolve(PREFIX + contentHash.substring(0, 16) + SUFFIX);
+            Path tmp = directory.resolve(target.getFileName() + ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteOthers(target);
+            Catalog mapped = map(target);
+            System.out.println("[CodeBot] Template catalog cached, version=" + version + ", templates="
+                    + (mapped == null ? 0 : mapped.templates().size()));
+            return mapped;
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Failed to persist template catalog: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps the newest catalog file; null when there is no readable file.
+     */
+    private static Catalog open(Path directory) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return null;
+        }
+        List<Path> candidates = catalogFiles(directory);
+        candidates.sort((a, b) -> Long.compare(lastModified(b), lastModified(a)));
+        for (Path file : candidates) {
+            Catalog catalog = map(file);
+            if (catalog != null) {
+                return catalog;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps one catalog file, checks its hash and decodes the template metadata;
+     * the snippets stay in the mapping.
+     */
+    private static Catalog map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                return null;
+            }
+            String version = readString(buffer);
+            String contentHash = readString(buffer);
+            ByteBuffer body = buffer.slice();
+            if (version.isEmpty() || !contentHash.equals(sha256(version, body.duplicate()))) {
+                System.out.println("[CodeBot] Ignoring corrupt template catalog " + file.getFileName());
+                return null;
+            }
+            return decode(file, version, contentHash, body);
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Ignoring unreadable template catalog " + file.getFileName() + ": "
+                    + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Body layout: template count, then per template its id, title,
+     * description, trigger count and triggers, and the offset and length of its
+     * snippet; then the snippets, back to back. Offsets are relative to the
+     * start of the snippets.
+     */
+    private static Catalog decode(Path file, String version, String contentHash, ByteBuffer body) {
+        ByteBuffer records = body.duplicate();
+        int count = records.getInt();
+        if (count < 0) {
+            throw new IllegalStateException("bad template count " + count);
+        }
+        String[][] metadata = new String[count][];
+        List<List<String>> triggers = new ArrayList<>(count);
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            metadata[i] = new String[] { readString(records), readString(records), readString(records) };
+            int triggerCount = records.getInt();
+            if (triggerCount < 0 || triggerCount > records.remaining()) {
+                throw new IllegalStateException("bad trigger count " + triggerCount);
+            }
+            List<String> phrases = new ArrayList<>(triggerCount);
+            for (int t = 0; t < triggerCount; t++) {
+                phrases.add(readString(records));
+            }
+            triggers.add(Collections.unmodifiableList(phrases));
+            offsets[i] = records.getInt();
+            lengths[i] = records.getInt();
+        }
+        ByteBuffer snippets = records.slice().asReadOnlyBuffer();
+        List<Template> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] > snippets.capacity() - lengths[i]) {
+                throw new IllegalStateException("bad snippet range for " + metadata[i][0]);
+            }
+            int offset = offsets[i];
+            int length = lengths[i];
+            templates.add(new Template(metadata[i][0], metadata[i][1], metadata[i][2], triggers.get(i),
+                    () -> readSnippet(snippets, offset, length)));
+        }
+        return new Catalog(file, version, contentHash, Collections.unmodifiableList(templates));
+    }
+
+    private static String readSnippet(ByteBuffer snippets, int offset, int length) {
+        byte[] bytes = new byte[length];
+        snippets.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(List<Map<?, ?>> templates) {
+        try {
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(records);
+            ByteArrayOutputStream snippets = new ByteArrayOutputStream();
+            out.writeInt(templates.size());
+            for (Map<?, ?> template : templates) {
+                writeString(out, asString(template.get("template_id"), ""));
+                writeString(out, asString(template.get("title"), "Template"));
+                writeString(out, asString(template.get("description"), ""));
+                List<String> phrases = asStrings(template.get("triggers"));
+                out.writeInt(phrases.size());
+                for (String phrase : phrases) {
+                    writeString(out, phrase);
+                }
+                Object code = template.get("snippet");
+                byte[] snippet = (code == null ? "" : String.valueOf(code)).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(snippets.size());
+                out.writeInt(snippet.length);
+                snippets.write(snippet);
+            }
+            snippets.writeTo(out);
+            out.flush();
+            return records.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Templates of a backend payload; those without an id or snippet are left out.
+     */
+    private static List<Map<?, ?>> parseTemplates(Object raw) {
+        List<Map<?, ?>> parsed = new ArrayList<>();
+        if (!(raw instanceof List<?> items)) {
+            return parsed;
+        }
+        for (Object item : items) {
+            if (item instanceof Map<?, ?> template && !asString(template.get("template_id"), "").isEmpty()
+                    && !asString(template.get("snippet"), "").isEmpty()) {
+                parsed.add(template);
+            }
+        }
+        return parsed;
+    }
+
+    private void deleteOthers(Path keep) {
+        for (Path file : catalogFiles(directory)) {
+            if (file.equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                // Still mapped (Windows); removed after the next update.
+            }
+        }
+    }
+
+    /**
+     * Files named {@code catalog-<16 hex digits>.bin}.
+     */
+    private static List<Path> catalogFiles(Path directory) {
+        int length = PREFIX.length() + 16 + SUFFIX.length();
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listed = Files.list(directory)) {
+            listed.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.length() == length && name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                        && name.substring(PREFIX.length(), PREFIX.length() + 16).chars().allMatch(HEX::test);
+            }).forEach(files::add);
+        } catch (IOException ex) {
+            System.out.println("[CodeBot] Failed to list template cache: " + ex.getMessage());
+        }
+        return files;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException ex) {
+            return 0L;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash of the version and the encoded catalog; names the catalog file.
+     */
+    private static String sha256(String version, ByteBuffer body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(version.getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static List<String> asStrings(Object value) {
+        List<String> strings = new ArrayList<>();
+        if (value instanceof List<?> items) {
+            for (Object item : items) {
+                String text = asString(item, "");
+                if (!text.isEmpty()) {
+                    strings.add(text);
+                }
+            }
+        }
+        return strings;
+    }
+
+    private static String asString(Object value, String fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        String text = String.valueOf(value).trim();
+        return text.isEmpty() ? fallback : text;
+    }
+}
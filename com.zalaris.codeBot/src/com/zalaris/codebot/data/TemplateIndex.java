@@ -0,0 +1,420 @@
+package com.zalaris.codebot.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.zalaris.codebot.model.Template;
+import com.zalaris.codebot.util.Settings;
+
+/**
+ * In-memory index over template triggers and titles, so that template requests
+ * are answered without the backend. Phrases are normalised into tokens: lower
+ * case, letters and digits only, with request words such as "template" or "for"
+ * dropped. The tokens form a sorted dictionary, searched by binary search like
+ * a flat trie, with the list of phrases that hold each token. A query token
+ * that is not in the dictionary matches the shortest token it is a prefix of.
+ * Otherwise it matches the closest token by edit distance among those that
+ * share trigrams with it, so a misspelt word still counts. Rarer tokens weigh
+ * more. A phrase scores as the mean of two shares: the query weight it matches
+ * and its own weight the query matches. A template scores as its best phrase.
+ */
+public final class TemplateIndex {
+
+    public static final double DEFAULT_THRESHOLD = 0.6;
+
+    /** Similarity, by edit distance, a misspelt token needs to stand for a dictionary token. */
+    private static final double FUZZY_MIN_SIMILARITY = 0.7;
+    /** Share of trigrams a dictionary token must have in common to be compared at all. */
+    private static final double FUZZY_MIN_TRIGRAMS = 0.25;
+    private static final int MIN_PREFIX = 3;
+    /** A best template closer than this to the next one is ambiguous and left to the backend. */
+    private static final double AMBIGUITY_MARGIN = 0.05;
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "for", "of", "to", "in", "on", "with",
+            "and", "me", "my", "i", "please", "need", "want", "give", "show", "template", "templates", "snippet",
+            "example", "code", "abap", "how", "do", "can", "you", "some", "write");
+
+    private static volatile TemplateIndex shared;
+    private static volatile String sharedCatalogHash = "";
+
+    /** A template, the phrase of it that matched best, and the score in [0, 1]. */
+    public record Match(Template template, String phrase, double score) {
+    }
+
+    private final double threshold;
+    private final Template[] templates;
+    private final String[] phrases;
+    private final int[] phraseTemplate;
+    private final double[] phraseWeight;
+    /** Sorted token dictionary; a token's id is its index. */
+    private final String[] terms;
+    private final double[] termWeight;
+    private final int[][] termPhrases;
+    private final Map<String, Integer> termIds;
+    private final Map<String, int[]> trigramTerms;
+    private final int[] termTrigrams;
+    /** Weight of a query token the dictionary does not know: that of the rarest token. */
+    private final double unknownWeight;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(this));
+
+    public TemplateIndex(List<Template> templates) {
+        this(templates, parseDouble(Settings.read("codebot.templates.threshold", ""), DEFAULT_THRESHOLD));
+    }
+
+    public TemplateIndex(List<Template> templates, double threshold) {
+        this.threshold = threshold;
+        this.templates = templates.toArray(new Template[0]);
+
+        List<String> phraseList = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        List<String[]> phraseTokens = new ArrayList<>();
+        TreeMap<String, List<Integer>> postings = new TreeMap<>();
+        for (int t = 0; t < this.templates.length; t++) {
+            Template template = this.templates[t];
+            List<String> texts = new ArrayList<>();
+            if (template.getTriggers() != null) {
+                texts.addAll(template.getTriggers());
+            }
+            texts.add(template.getTitle());
+            for (String text : texts) {
+                String[] tokens = tokenize(text);
+                if (tokens.length == 0) {
+                    continue;
+                }
+                int phrase = phraseList.size();
+                phraseList.add(text.trim());
+                owners.add(t);
+                phraseTokens.add(tokens);
+                for (String token : tokens) {
+                    postings.computeIfAbsent(token, k -> new ArrayList<>()).add(phrase);
+                }
+            }
+        }
+
+        phrases = phraseList.toArray(new String[0]);
+        phraseTemplate = owners.stream().mapToInt(Integer::intValue).toArray();
+        terms = postings.keySet().toArray(new String[0]);
+        termWeight = new double[terms.length];
+        termPhrases = new int[terms.length][];
+        termIds = new HashMap<>(terms.length * 2);
+        termTrigrams = new int[terms.length];
+        Map<String, List<Integer>> grams = new HashMap<>();
+        int id = 0;
+        for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+            termIds.put(entry.getKey(), id);
+            termPhrases[id] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            termWeight[id] = Math.log(1d + (double) phrases.length / termPhrases[id].length);
+            Set<String> trigrams = trigrams(entry.getKey());
+            termTrigrams[id] = trigrams.size();
+            for (String gram : trigrams) {
+                grams.computeIfAbsent(gram, k -> new ArrayList<>()).add(id);
+            }
+            id++;
+        }
+        trigramTerms = new HashMap<>(grams.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : grams.entrySet()) {
+            trigramTerms.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        phraseWeight = new double[phrases.length];
+        for (int p = 0; p < phrases.length; p++) {
+            for (String token : phraseTokens.get(p)) {
+                phraseWeight[p] += termWeight[termIds.get(token)];
+            }
+        }
+        unknownWeight = Math.log(1d + phrases.length);
+    }
+
+    /**
+     * Index over the bundled templates and the cached catalog; rebuilt once the
+     * cache holds a different catalog.
+     */
+    public static TemplateIndex getShared() {
+        String catalogHash = TemplateCache.getShared().getContentHash();
+        TemplateIndex current = shared;
+        if (current == null || !catalogHash.equals(sharedCatalogHash)) {
+            synchronized (TemplateIndex.class) {
+                current = shared;
+                if (current == null || !catalogHash.equals(sharedCatalogHash)) {
+                    current = new TemplateIndex(TemplateRepository.getEffectiveTemplates());
+                    shared = current;
+                    sharedCatalogHash = catalogHash;
+                }
+            }
+        }
+        return current;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public int size() {
+        return templates.length;
+    }
+
+    /**
+     * The best match for the query if it scores at least the threshold and
+     * clearly ahead of the next template, or null when the request should go
+     * to the backend.
+     */
+    public Match find(String query) {
+        List<Match> matches = search(query, 2);
+        if (matches.isEmpty() || matches.get(0).score() < threshold) {
+            return null;
+        }
+        if (matches.size() > 1 && matches.get(0).score() - matches.get(1).score() < AMBIGUITY_MARGIN) {
+            return null;
+        }
+        return matches.get(0);
+    }
+
+    /** Up to {@code limit} templates by descending score, without the threshold. */
+    public List<Match> search(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || phrases.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        // Query tokens resolved to dictionary tokens, keeping the best similarity of each.
+        Map<Integer, Double> resolved = new LinkedHashMap<>();
+        double queryWeight = 0d;
+        for (String token : tokens) {
+            Integer exact = termIds.get(token);
+            if (exact != null) {
+                resolved.put(exact, 1d);
+                continue;
+            }
+            double[] similarity = new double[1];
+            int term = resolveInexact(token, similarity);
+            if (term < 0) {
+                queryWeight += unknownWeight;
+            } else {
+                resolved.merge(term, similarity[0], Math::max);
+            }
+        }
+
+        Scratch scratch = this.scratch.get();
+        double[] matched = scratch.matched;
+        int[] touched = scratch.touched;
+        int touchedCount = 0;
+        for (Map.Entry<Integer, Double> entry : resolved.entrySet()) {
+            int term = entry.getKey();
+            double weight = termWeight[term];
+            queryWeight += weight;
+            for (int phrase : termPhrases[term]) {
+                if (matched[phrase] == 0d) {
+                    touched[touchedCount++] = phrase;
+                }
+                matched[phrase] += entry.getValue() * weight;
+            }
+        }
+
+        // Best phrase per template, then the top templates by insertion into a short list.
+        double[] templateScore = scratch.templateScore;
+        int[] templatePhrase = scratch.templatePhrase;
+        int[] touchedTemplates = scratch.touchedTemplates;
+        int templateCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int phrase = touched[i];
+            double score = (matched[phrase] / queryWeight + matched[phrase] / phraseWeight[phrase]) / 2d;
+            matched[phrase] = 0d;
+            int template = phraseTemplate[phrase];
+            if (templateScore[template] == 0d) {
+                touchedTemplates[templateCount++] = template;
+            }
+            if (score > templateScore[template]) {
+                templateScore[template] = score;
+                templatePhrase[template] = phrase;
+            }
+        }
+        List<Match> ranked = new ArrayList<>(Math.min(limit, templateCount));
+        for (int i = 0; i < templateCount; i++) {
+            int template = touchedTemplates[i];
+            double score = Math.min(1d, templateScore[template]);
+            templateScore[template] = 0d;
+            int at = ranked.size();
+            while (at > 0 && score > ranked.get(at - 1).score()) {
+                at--;
+            }
+            if (at < limit) {
+                if (ranked.size() == limit) {
+                    ranked.remove(limit - 1);
+                }
+                ranked.add(at, new Match(templates[template], phrases[templatePhrase[template]], score));
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * Tokens of the dictionary starting with {@code prefix}, in sorted order;
+     * the prefix is normalised like a query token.
+     */
+    public List<String> termsWithPrefix(String prefix, int limit) {
+        String normalised = prefix == null ? "" : prefix.toLowerCase(Locale.ROOT).trim();
+        List<String> found = new ArrayList<>();
+        if (normalised.isEmpty()) {
+            return found;
+        }
+        for (int i = lowerBound(normalised); i < terms.length && found.size() < limit
+                && terms[i].startsWith(normalised); i++) {
+            found.add(terms[i]);
+        }
+        return found;
+    }
+
+    /** Normalised, de-duplicated tokens of a phrase or query. */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean tokenChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                String token = lower.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /** The shortest token the query token is a prefix of, else the closest misspelling; -1 if none. */
+    private int resolveInexact(String token, double[] similarity) {
+        if (token.length() >= MIN_PREFIX) {
+            int shortest = -1;
+            for (int i = lowerBound(token); i < terms.length && terms[i].startsWith(token); i++) {
+                if (shortest < 0 || terms[i].length() < terms[shortest].length()) {
+                    shortest = i;
+                }
+            }
+            if (shortest >= 0) {
+                similarity[0] = Math.max(FUZZY_MIN_SIMILARITY, (double) token.length() / terms[shortest].length());
+                return shortest;
+            }
+        }
+        Set<String> grams = trigrams(token);
+        Scratch scratch = this.scratch.get();
+        int[] common = scratch.termCommon;
+        int[] candidates = scratch.touchedTerms;
+        int candidateCount = 0;
+        for (String gram : grams) {
+            int[] holders = trigramTerms.get(gram);
+            if (holders != null) {
+                for (int term : holders) {
+                    if (common[term]++ == 0) {
+                        candidates[candidateCount++] = term;
+                    }
+                }
+            }
+        }
+        int bestTerm = -1;
+        double bestSimilarity = 0d;
+        for (int i = 0; i < candidateCount; i++) {
+            int term = candidates[i];
+            double dice = 2d * common[term] / (grams.size() + termTrigrams[term]);
+            common[term] = 0;
+            if (dice < FUZZY_MIN_TRIGRAMS) {
+                continue;
+            }
+            double edit = 1d - (double) editDistance(token, terms[term])
+                    / Math.max(token.length(), terms[term].length());
+            if (edit > bestSimilarity || (edit == bestSimilarity && term < bestTerm)) {
+                bestSimilarity = edit;
+                bestTerm = term;
+            }
+        }
+        if (bestSimilarity < FUZZY_MIN_SIMILARITY) {
+            return -1;
+        }
+        similarity[0] = bestSimilarity;
+        return bestTerm;
+    }
+
+    /** Edits between two tokens, counting a swap of adjacent letters as one. */
+    private static int editDistance(String a, String b) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int best = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    best = Math.min(best, previous2[j - 2] + 1);
+                }
+                current[j] = best;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private int lowerBound(String key) {
+        int index = Arrays.binarySearch(terms, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /** Trigrams of the token padded with '^' and '$', so short tokens still have some. */
+    private static Set<String> trigrams(String token) {
+        String padded = "^" + token + "$";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Per-thread score arrays, sized to the index and zero between queries, so
+     * a lookup allocates nothing in proportion to the number of templates.
+     */
+    private static final class Scratch {
+        final double[] matched;
+        final int[] touched;
+        final double[] templateScore;
+        final int[] templatePhrase;
+        final int[] touchedTemplates;
+        final int[] termCommon;
+        final int[] touchedTerms;
+
+        Scratch(TemplateIndex index) {
+            matched = new double[index.phrases.length];
+            touched = new int[index.phrases.length];
+            templateScore = new double[index.templates.length];
+            templatePhrase = new int[index.templates.length];
+            touchedTemplates = new int[index.templates.length];
+            termCommon = new int[index.terms.length];
+            touchedTerms = new int[index.terms.length];
+        }
+    }
+
+    private static double parseDouble(String value, double defaultValue) {
+        try {
+            return value.isEmpty() ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.zalaris.codebot.data;
 
 import com.zalaris.codebot.model.Template;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TemplateRepository {
 
@@ -104,5 +107,24 @@ public class TemplateRepository {
     public static List<Template> getAllTemplates() {
         return TEMPLATES;
     }
+
+    /**
+     * Bundled templates, with the ones of the cached backend catalog added or
+     * replacing bundled templates of the same id.
+     */
+    public static List<Template> getEffectiveTemplates() {
+        List<Template> cached = TemplateCache.getShared().getTemplates();
+        if (cached.isEmpty()) {
+            return TEMPLATES;
+        }
+        Map<String, Template> byId = new LinkedHashMap<>();
+        for (Template template : TEMPLATES) {
+            byId.put(template.getId(), template);
+        }
+        for (Template template : cached) {
+            byId.put(template.getId(), template);
+        }
+        return new ArrayList<>(byId.values());
+    }
 }
 
@@ -0,0 +1,340 @@
+package com.zalaris.codebot.engine;
+
+import java.util.Arrays;
+
+/**
+ * Block structure of an ABAP source, built in one pass over the statements of
+ * an {@link AbapTokens} stream with an explicit stack.
+ * <p>
+ * Blocks are LOOP, DO, WHILE, SELECT...ENDSELECT, TRY with its CATCH and
+ * CLEANUP sections, METHOD, FORM, FUNCTION, IF and CASE. A block's kind is
+ * the {@link AbapKeywords} id of its opening keyword. Opening and closing
+ * statements belong to the parent block; everything between them to the block.
+ * <p>
+ * A SELECT opens a block unless it is SINGLE, reads INTO/APPENDING TABLE or
+ * only aggregates. If no ENDSELECT closes it, it is demoted to a plain
+ * statement. Unbalanced closers are tolerated: a closer pops every block
+ * above its matching opener, and a closer without an opener is ignored.
+ * METHOD, FORM and FUNCTION close every block still open, so an unbalanced
+ * block never leaks into the next procedure.
+ */
+public final class AbapBlockTree {
+
+    public static final int NONE = -1;
+
+    private final AbapTokens tokens;
+
+    private int count;
+    private int[] kinds = new int[32];
+    private int[] parents = new int[32];
+    private int[] depths = new int[32];
+    private int[] opens = new int[32];
+    private int[] closes = new int[32];
+    private int[] loops = new int[32];
+    private boolean[] demoted = new boolean[32];
+
+    private final int[] statementBlocks;
+
+    private AbapBlockTree(AbapTokens tokens) {
+        this.tokens = tokens;
+        this.statementBlocks = new int[tokens.statementCount()];
+    }
+
+    public static AbapBlockTree build(AbapTokens tokens) {
+        AbapBlockTree tree = new AbapBlockTree(tokens);
+        tree.construct();
+        return tree;
+    }
+
+    public AbapTokens getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Number of blocks, demoted SELECT statements included.
+     */
+    public int size() {
+        return count;
+    }
+
+    public int kind(int block) {
+        return kinds[block];
+    }
+
+    public int parent(int block) {
+        return parents[block];
+    }
+
+    /**
+     * Nesting depth; top-level blocks have depth 0.
+     */
+    public int depth(int block) {
+        return depths[block];
+    }
+
+    public int openStatement(int block) {
+        return opens[block];
+    }
+
+    /**
+     * Statement that closes the block, or {@link #NONE} when it was closed implicitly.
+     */
+    public int closeStatement(int block) {
+        return closes[block];
+    }
+
+    /**
+     * False for SELECT statements that turned out not to open a loop.
+     */
+    public boolean isBlock(int block) {
+        return !demoted[block];
+    }
+
+    public boolean isLoop(int block) {
+        if (demoted[block]) {
+            return false;
+        }
+        int kind = kinds[block];
+        return kind == AbapKeywords.LOOP || kind == AbapKeywords.DO || kind == AbapKeywords.WHILE
+                || kind == AbapKeywords.SELECT;
+    }
+
+    /**
+     * Innermost block containing the statement, or {@link #NONE} at top level.
+     */
+    public int blockOf(int statement) {
+        return statementBlocks[statement];
+    }
+
+    /**
+     * Innermost loop containing the statement, or {@link #NONE}.
+     */
+    public int enclosingLoop(int statement) {
+        int block = statementBlocks[statement];
+        return block == NONE ? NONE : loops[block];
+    }
+
+    /**
+     * Nearest block of the given kind at or above {@code block}, or {@link #NONE}.
+     */
+    public int ancestor(int block, int kind) {
+        while (block != NONE && kinds[block] != kind) {
+            block = parents[block];
+        }
+        return block;
+    }
+
+    /**
+     * The block a statement opens, or {@link #NONE}.
+     */
+    public int blockOpenedBy(int statement) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (opens[mid] < statement) {
+                low = mid + 1;
+            } else if (opens[mid] > statement) {
+                high = mid - 1;
+            } else {
+                return demoted[mid] ? NONE : mid;
+            }
+        }
+        return NONE;
+    }
+
+    private void construct() {
+        int[] stack = new int[16];
+        int top = -1;
+        for (int s = 0; s < tokens.statementCount(); s++) {
+            int keyword = tokens.keyword(tokens.statementLead(s));
+            int current = top < 0 ? NONE : stack[top];
+            statementBlocks[s] = current;
+            if (keyword == AbapKeywords.NONE) {
+                continue;
+            }
+            int closed = closedKind(keyword);
+            if (closed != AbapKeywords.NONE) {
+                int match = top;
+                while (match >= 0 && kinds[stack[match]] != closed) {
+                    match--;
+                }
+                if (match < 0) {
+                    continue;
+                }
+                for (int i = top; i > match; i--) {
+                    closeNested(stack[i], keyword == AbapKeywords.ENDTRY && i == match + 1, s);
+                }
+                closes[stack[match]] = s;
+                top = match - 1;
+                statementBlocks[s] = top < 0 ? NONE : stack[top];
+            } else if (keyword == AbapKeywords.CATCH || keyword == AbapKeywords.CLEANUP) {
+                int tryIndex = top;
+                while (tryIndex >= 0 && kinds[stack[tryIndex]] != AbapKeywords.TRY) {
+                    tryIndex--;
+                }
+                if (tryIndex < 0) {
+                    continue;
+                }
+                // The previous section ends where this one starts.
+                for (int i = top; i > tryIndex; i--) {
+                    closeNested(stack[i], i == tryIndex + 1, s);
+                }
+                top = tryIndex;
+                statementBlocks[s] = stack[top];
+                stack = push(stack, ++top, open(keyword, stack[tryIndex], top, s));
+            } else if (keyword == AbapKeywords.METHOD || keyword == AbapKeywords.FORM
+                    || keyword == AbapKeywords.FUNCTION) {
+                // Procedures do not nest: whatever is still open was left open.
+                for (int i = top; i >= 0; i--) {
+                    closeNested(stack[i], false, s);
+                }
+                top = -1;
+                statementBlocks[s] = NONE;
+                stack = push(stack, ++top, open(keyword, NONE, top, s));
+            } else if (opensBlock(keyword, s)) {
+                stack = push(stack, ++top, open(keyword, current, top, s));
+            }
+        }
+        for (int i = top; i >= 0; i--) {
+            closeNested(stack[i], false, NONE);
+        }
+        resolve();
+    }
+
+    /**
+     * Re-parents around demoted SELECTs and fills in depths and enclosing loops.
+     * Parents precede children, so one pass in creation order suffices.
+     */
+    private void resolve() {
+        for (int b = 0; b < count; b++) {
+            int parent = parents[b];
+            if (parent != NONE && demoted[parent]) {
+                parent = parents[parent];
+                parents[b] = parent;
+            }
+            depths[b] = parent == NONE ? 0 : depths[parent] + 1;
+            int enclosing = parent == NONE ? NONE : loops[parent];
+            loops[b] = isLoop(b) ? b : enclosing;
+        }
+        for (int s = 0; s < statementBlocks.length; s++) {
+            int block = statementBlocks[s];
+            if (block != NONE && demoted[block]) {
+                statementBlocks[s] = parents[block];
+            }
+        }
+    }
+
+    /**
+     * Closes a block that sits above the one being closed: a TRY section ends
+     * regularly, anything else was left open.
+     */
+    private void closeNested(int block, boolean section, int statement) {
+        int kind = kinds[block];
+        if (section && (kind == AbapKeywords.CATCH || kind == AbapKeywords.CLEANUP)) {
+            closes[block] = statement;
+            return;
+        }
+        closes[block] = NONE;
+        if (kind == AbapKeywords.SELECT) {
+            demoted[block] = true;
+        }
+    }
+
+    private int open(int kind, int parent, int depth, int statement) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            loops = Arrays.copyOf(loops, capacity);
+            demoted = Arrays.copyOf(demoted, capacity);
+        }
+        kinds[count] = kind;
+        parents[count] = parent;
+        depths[count] = depth;
+        opens[count] = statement;
+        closes[count] = NONE;
+        return count++;
+    }
+
+    private static int[] push(int[] stack, int index, int block) {
+        if (index == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[index] = block;
+        return stack;
+    }
+
+    private boolean opensBlock(int keyword, int statement) {
+        if (keyword == AbapKeywords.SELECT) {
+            return isSelectLoop(statement);
+        }
+        return keyword == AbapKeywords.LOOP || keyword == AbapKeywords.DO || keyword == AbapKeywords.WHILE
+                || keyword == AbapKeywords.TRY || keyword == AbapKeywords.METHOD || keyword == AbapKeywords.FORM
+                || keyword == AbapKeywords.FUNCTION || keyword == AbapKeywords.IF || keyword == AbapKeywords.CASE;
+    }
+
+    private static int closedKind(int keyword) {
+        if (keyword == AbapKeywords.ENDLOOP) {
+            return AbapKeywords.LOOP;
+        } else if (keyword == AbapKeywords.ENDDO) {
+            return AbapKeywords.DO;
+        } else if (keyword == AbapKeywords.ENDWHILE) {
+            return AbapKeywords.WHILE;
+        } else if (keyword == AbapKeywords.ENDSELECT) {
+            return AbapKeywords.SELECT;
+        } else if (keyword == AbapKeywords.ENDTRY) {
+            return AbapKeywords.TRY;
+        } else if (keyword == AbapKeywords.ENDMETHOD) {
+            return AbapKeywords.METHOD;
+        } else if (keyword == AbapKeywords.ENDFORM) {
+            return AbapKeywords.FORM;
+        } else if (keyword == AbapKeywords.ENDFUNCTION) {
+            return AbapKeywords.FUNCTION;
+        } else if (keyword == AbapKeywords.ENDIF) {
+            return AbapKeywords.IF;
+        } else if (keyword == AbapKeywords.ENDCASE) {
+            return AbapKeywords.CASE;
+        }
+        return AbapKeywords.NONE;
+    }
+
+    /**
+     * Whether a SELECT reads row by row and therefore needs an ENDSELECT.
+     */
+    private boolean isSelectLoop(int statement) {
+        int first = tokens.statementLead(statement);
+        int end = tokens.statementEnd(statement);
+        boolean aggregateOnly = false;
+        int next = tokens.nextCode(first + 1, end);
+        if (next < end && tokens.kind(next) != AbapTokens.KEYWORD) {
+            int after = tokens.nextCode(next + 1, end);
+            aggregateOnly = after < end && tokens.textEquals(after, "(")
+                    && (tokens.textEquals(next, "COUNT") || tokens.textEquals(next, "SUM")
+                            || tokens.textEquals(next, "MAX") || tokens.textEquals(next, "MIN")
+                            || tokens.textEquals(next, "AVG"));
+        }
+        boolean target = false;
+        for (int t = first + 1; t < end; t++) {
+            int keyword = tokens.keyword(t);
+            if (keyword == AbapKeywords.SINGLE) {
+                return false;
+            }
+            if (keyword == AbapKeywords.INTO || tokens.textEquals(t, "APPENDING")) {
+                target = true;
+            } else if (target && keyword == AbapKeywords.TABLE) {
+                return false;
+            } else if (keyword == AbapKeywords.GROUP) {
+                aggregateOnly = false;
+            } else if (target && tokens.kind(t) != AbapTokens.COMMENT
+                    && !tokens.textEquals(t, "CORRESPONDING") && !tokens.textEquals(t, "FIELDS")
+                    && !tokens.textEquals(t, "OF")) {
+                target = false;
+            }
+        }
+        return !aggregateOnly;
+    }
+}
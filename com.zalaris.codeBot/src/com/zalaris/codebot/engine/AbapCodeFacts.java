@@ -0,0 +1,90 @@
+package com.zalaris.codebot.engine;
+
+/**
+ * Statement-level facts about an ABAP source used by the documentation
+ * heuristics. Derived from the token stream, so keywords in comments, strings
+ * and templates do not count and colon-chained statements do.
+ */
+public final class AbapCodeFacts {
+
+    private boolean select;
+    private boolean groupBy;
+    private boolean loop;
+    private boolean functionCall;
+    private boolean dbDelete;
+    private boolean alvOutput;
+    private boolean tryCatch;
+
+    private AbapCodeFacts() {
+    }
+
+    public static AbapCodeFacts of(CharSequence code) {
+        AbapCodeFacts facts = new AbapCodeFacts();
+        if (code == null || code.length() == 0) {
+            return facts;
+        }
+        AbapTokens tokens = AbapLexer.tokenize(code);
+        for (int s = 0; s < tokens.statementCount(); s++) {
+            int lead = tokens.statementLead(s);
+            int end = tokens.statementEnd(s);
+            int second = tokens.nextCode(tokens.isChained(s) ? tokens.statementFirst(s) : lead + 1, end);
+            int keyword = tokens.keyword(lead);
+            if (keyword == AbapKeywords.SELECT) {
+                facts.select = true;
+            } else if (keyword == AbapKeywords.LOOP && tokens.isKeyword(second, AbapKeywords.AT)) {
+                facts.loop = true;
+            } else if (keyword == AbapKeywords.CALL && tokens.isKeyword(second, AbapKeywords.FUNCTION)) {
+                facts.functionCall = true;
+            } else if (keyword == AbapKeywords.DELETE && tokens.isKeyword(second, AbapKeywords.FROM)) {
+                facts.dbDelete = true;
+            } else if (keyword == AbapKeywords.TRY || keyword == AbapKeywords.CATCH) {
+                facts.tryCatch = true;
+            }
+            for (int t = tokens.statementFirst(s); t < end; t++) {
+                if (tokens.kind(t) == AbapTokens.COMMENT) {
+                    continue;
+                }
+                if (tokens.isKeyword(t, AbapKeywords.GROUP) && tokens.isKeyword(tokens.nextCode(t + 1, end), AbapKeywords.BY)) {
+                    facts.groupBy = true;
+                }
+                if (tokens.kind(t) == AbapTokens.OPERATOR && t > 0 && t + 1 < end
+                        && ((tokens.textEquals(t, "=>") && tokens.textEquals(t - 1, "cl_salv_table")
+                                && tokens.textEquals(t + 1, "factory"))
+                                || (tokens.textEquals(t, "->") && tokens.textEquals(t - 1, "lo_alv")
+                                        && tokens.textEquals(t + 1, "display")))) {
+                    facts.alvOutput = true;
+                }
+            }
+        }
+        return facts;
+    }
+
+    public boolean hasSelect() {
+        return select;
+    }
+
+    public boolean hasGroupBy() {
+        return groupBy;
+    }
+
+    public boolean hasLoop() {
+        return loop;
+    }
+
+    public boolean hasFunctionCall() {
+        return functionCall;
+    }
+
+    /** {@code DELETE FROM} a database table. */
+    public boolean hasDbDelete() {
+        return dbDelete;
+    }
+
+    public boolean hasAlvOutput() {
+        return alvOutput;
+    }
+
+    public boolean hasTryCatch() {
+        return tryCatch;
+    }
+}
@@ -0,0 +1,155 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ABAP keywords known to the {@link AbapLexer}, with stable ids for the ones
+ * that open or close blocks. Lookup is case-insensitive and allocation-free.
+ */
+public final class AbapKeywords {
+
+    public static final int NONE = -1;
+
+    private static final List<String> NAMES = new ArrayList<>();
+
+    public static final int LOOP = register("LOOP");
+    public static final int ENDLOOP = register("ENDLOOP");
+    public static final int DO = register("DO");
+    public static final int ENDDO = register("ENDDO");
+    public static final int WHILE = register("WHILE");
+    public static final int ENDWHILE = register("ENDWHILE");
+    public static final int SELECT = register("SELECT");
+    public static final int ENDSELECT = register("ENDSELECT");
+    public static final int TRY = register("TRY");
+    public static final int CATCH = register("CATCH");
+    public static final int CLEANUP = register("CLEANUP");
+    public static final int ENDTRY = register("ENDTRY");
+    public static final int METHOD = register("METHOD");
+    public static final int ENDMETHOD = register("ENDMETHOD");
+    public static final int FORM = register("FORM");
+    public static final int ENDFORM = register("ENDFORM");
+    public static final int FUNCTION = register("FUNCTION");
+    public static final int ENDFUNCTION = register("ENDFUNCTION");
+    public static final int IF = register("IF");
+    public static final int ELSEIF = register("ELSEIF");
+    public static final int ELSE = register("ELSE");
+    public static final int ENDIF = register("ENDIF");
+    public static final int CASE = register("CASE");
+    public static final int WHEN = register("WHEN");
+    public static final int ENDCASE = register("ENDCASE");
+    public static final int CLASS = register("CLASS");
+    public static final int ENDCLASS = register("ENDCLASS");
+    public static final int AT = register("AT");
+    public static final int ENDAT = register("ENDAT");
+    public static final int CALL = register("CALL");
+    public static final int FROM = register("FROM");
+    public static final int INTO = register("INTO");
+    public static final int TABLE = register("TABLE");
+    public static final int DELETE = register("DELETE");
+    public static final int GROUP = register("GROUP");
+    public static final int BY = register("BY");
+    public static final int DATA = register("DATA");
+    public static final int SINGLE = register("SINGLE");
+    public static final int FOR = register("FOR");
+    public static final int ALL = register("ALL");
+    public static final int ENTRIES = register("ENTRIES");
+    public static final int READ = register("READ");
+    public static final int MODIFY = register("MODIFY");
+    public static final int INSERT = register("INSERT");
+    public static final int UPDATE = register("UPDATE");
+
+    static {
+        for (String name : new String[] {
+                "REPORT", "PROGRAM", "FUNCTION-POOL", "INCLUDE", "TYPES", "TYPE", "CONSTANTS", "PARAMETERS",
+                "SELECT-OPTIONS", "TABLES", "FIELD-SYMBOLS", "STATICS", "CLASS-DATA", "DEFINITION",
+                "IMPLEMENTATION", "PUBLIC", "PROTECTED", "PRIVATE", "SECTION", "METHODS", "CLASS-METHODS",
+                "INTERFACE", "ENDINTERFACE", "INTERFACES", "ALIASES", "EVENTS", "INHERITING", "REDEFINITION",
+                "FINAL", "ABSTRACT", "CREATE", "OBJECT", "NEW", "PERFORM", "USING", "CHANGING", "IMPORTING",
+                "EXPORTING", "RETURNING", "RAISING", "EXCEPTIONS", "EXCEPTION", "RAISE", "RECEIVING", "VALUE",
+                "REF", "CONV", "CAST", "COND", "SWITCH", "REDUCE", "LET", "INIT", "NEXT", "ASSIGNING",
+                "REFERENCE", "WHERE", "TIMES", "VARYING", "OTHERS", "UP", "TO", "ROWS", "ORDER", "HAVING",
+                "JOIN", "INNER", "LEFT", "RIGHT", "OUTER", "ON", "IN", "APPEND", "CLEAR", "REFRESH", "FREE",
+                "SORT", "COLLECT", "MOVE", "WRITE", "MESSAGE", "EXIT", "CONTINUE", "CHECK", "RETURN", "COMMIT",
+                "ROLLBACK", "WORK", "AND", "OR", "NOT", "IS", "INITIAL", "BOUND", "ASSIGNED", "SUPPLIED", "EQ",
+                "NE", "LT", "GT", "LE", "GE", "BETWEEN", "LIKE", "OF", "STANDARD", "SORTED", "HASHED", "KEY",
+                "WITH", "DEFAULT", "EMPTY", "UNIQUE", "NON-UNIQUE", "LENGTH", "DECIMALS", "BEGIN", "END",
+                "START-OF-SELECTION", "END-OF-SELECTION", "INITIALIZATION", "TOP-OF-PAGE", "SELECTION-SCREEN",
+                "ASCENDING", "DESCENDING", "BINARY", "SEARCH", "TRANSPORTING", "INDEX", "LINES", "ASSIGN",
+                "UNASSIGN", "CONCATENATE", "SPLIT", "REPLACE", "FIND", "CONDENSE", "TRANSLATE", "SHIFT",
+                "OPTIONAL", "LOCAL", "FRIENDS", "SET", "GET", "HANDLER", "PACKAGE", "SIZE", "DISTINCT",
+                "CORRESPONDING", "FIELDS", "APPENDING", "NEW-LINE", "SKIP", "ULINE", "FORMAT", "AUTHORITY-CHECK",
+                "SUBMIT", "LEAVE", "BREAK-POINT", "ASSERT", "ENDON", "ENDPROVIDE", "PROVIDE", "ENDENHANCEMENT",
+                "ENHANCEMENT", "DEFINE", "END-OF-DEFINITION", "ENDMODULE", "MODULE" }) {
+            register(name);
+        }
+    }
+
+    private static final char[][] TABLE_WORDS;
+    private static final int[] TABLE_IDS;
+    private static final int MASK;
+
+    static {
+        int size = Integer.highestOneBit(NAMES.size() * 4 - 1) << 1;
+        TABLE_WORDS = new char[size][];
+        TABLE_IDS = new int[size];
+        MASK = size - 1;
+        for (int id = 0; id < NAMES.size(); id++) {
+            char[] word = NAMES.get(id).toCharArray();
+            int slot = hash(NAMES.get(id), 0, word.length) & MASK;
+            while (TABLE_WORDS[slot] != null) {
+                slot = (slot + 1) & MASK;
+            }
+            TABLE_WORDS[slot] = word;
+            TABLE_IDS[slot] = id;
+        }
+    }
+
+    private AbapKeywords() {
+    }
+
+    /**
+     * Keyword id of {@code text[start, start + length)}, or {@link #NONE}.
+     */
+    public static int lookup(CharSequence text, int start, int length) {
+        int slot = hash(text, start, length) & MASK;
+        char[] word;
+        while ((word = TABLE_WORDS[slot]) != null) {
+            if (word.length == length && equalsUpper(word, text, start)) {
+                return TABLE_IDS[slot];
+            }
+            slot = (slot + 1) & MASK;
+        }
+        return NONE;
+    }
+
+    public static String name(int id) {
+        return id >= 0 && id < NAMES.size() ? NAMES.get(id) : "";
+    }
+
+    private static int register(String name) {
+        NAMES.add(name);
+        return NAMES.size() - 1;
+    }
+
+    private static int hash(CharSequence text, int start, int length) {
+        int h = length;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + upper(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsUpper(char[] word, CharSequence text, int start) {
+        for (int i = 0; i < word.length; i++) {
+            if (word[i] != upper(text.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char upper(char c) {
+        return (c >= 'a' && c <= 'z') ? (char) (c - 32) : c;
+    }
+}
@@ -0,0 +1,248 @@
+package com.zalaris.codebot.engine;
+
+/**
+ * Single-pass ABAP tokenizer. Produces an {@link AbapTokens} stream of
+ * primitive arrays; the only allocations are the arrays themselves.
+ * <p>
+ * The lexer is deliberately tolerant: unterminated literals end at the line
+ * break, unknown characters become one-character operators, and keyword
+ * recognition is by word list rather than by grammar.
+ */
+public final class AbapLexer {
+
+    private AbapLexer() {
+    }
+
+    public static AbapTokens tokenize(CharSequence source) {
+        int length = source == null ? 0 : source.length();
+        AbapTokens tokens = new AbapTokens(source == null ? "" : source, length / 5);
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                i++;
+            } else if (c == '"' || (c == '*' && (i == 0 || source.charAt(i - 1) == '\n'))) {
+                int end = lineEnd(source, i, length);
+                tokens.add(AbapTokens.COMMENT, i, end - i, AbapKeywords.NONE);
+                i = end;
+            } else if (c == '\'' || c == '`') {
+                int end = quoted(source, i, length, c);
+                tokens.add(AbapTokens.STRING, i, end - i, AbapKeywords.NONE);
+                i = end;
+            } else if (c == '|') {
+                int end = template(source, i, length);
+                tokens.add(AbapTokens.TEMPLATE, i, end - i, AbapKeywords.NONE);
+                i = end;
+            } else if (c == '.') {
+                tokens.add(AbapTokens.PERIOD, i, 1, AbapKeywords.NONE);
+                i++;
+            } else if (c == ':') {
+                tokens.add(AbapTokens.COLON, i, 1, AbapKeywords.NONE);
+                i++;
+            } else if (c == ',') {
+                tokens.add(AbapTokens.COMMA, i, 1, AbapKeywords.NONE);
+                i++;
+            } else if (c >= '0' && c <= '9') {
+                int end = i + 1;
+                while (end < length && isDigit(source.charAt(end))) {
+                    end++;
+                }
+                if (end < length && isWordChar(source.charAt(end))) {
+                    end = word(source, end, length);
+                    tokens.add(AbapTokens.IDENTIFIER, i, end - i, AbapKeywords.NONE);
+                } else {
+                    tokens.add(AbapTokens.NUMBER, i, end - i, AbapKeywords.NONE);
+                }
+                i = end;
+            } else if (isWordStart(c) || (c == '/' && isNamespace(source, i, length))) {
+                int end = word(source, c == '/' ? namespaceEnd(source, i, length) : i + 1, length);
+                int keyword = AbapKeywords.lookup(source, i, end - i);
+                tokens.add(keyword == AbapKeywords.NONE ? AbapTokens.IDENTIFIER : AbapTokens.KEYWORD,
+                        i, end - i, keyword);
+                i = end;
+            } else if (c == '<' && i + 1 < length && isWordStart(source.charAt(i + 1))) {
+                int close = word(source, i + 2, length);
+                if (close < length && source.charAt(close) == '>') {
+                    // Field symbol, with any component selectors that follow it.
+                    int end = close + 1;
+                    while (end + 1 < length && source.charAt(end) == '-' && isWordStart(source.charAt(end + 1))) {
+                        end = word(source, end + 2, length);
+                    }
+                    tokens.add(AbapTokens.IDENTIFIER, i, end - i, AbapKeywords.NONE);
+                    i = end;
+                } else {
+                    i = operator(tokens, source, i, length);
+                }
+            } else {
+                i = operator(tokens, source, i, length);
+            }
+        }
+        segment(tokens);
+        return tokens;
+    }
+
+    /**
+     * Splits the token stream into statements at periods, and at commas once a
+     * chain colon has been seen.
+     */
+    private static void segment(AbapTokens tokens) {
+        int first = -1;
+        boolean chained = false;
+        int chainFirst = 0;
+        int chainEnd = 0;
+        int links = 0;
+        int count = tokens.size();
+        for (int t = 0; t < count; t++) {
+            int kind = tokens.kind(t);
+            if (kind == AbapTokens.COMMENT) {
+                continue;
+            }
+            if (kind == AbapTokens.PERIOD || (kind == AbapTokens.COMMA && chained)) {
+                if (first >= 0) {
+                    tokens.addStatement(first, t, chained ? chainFirst : first, chained ? chainEnd : first);
+                    links++;
+                } else if (kind == AbapTokens.PERIOD && chained && links == 0 && chainEnd > chainFirst) {
+                    // "FORM a:." is "FORM a.": keep the prefix with an empty link.
+                    tokens.addStatement(t, t, chainFirst, chainEnd);
+                }
+                first = -1;
+                if (kind == AbapTokens.PERIOD) {
+                    chained = false;
+                }
+            } else if (kind == AbapTokens.COLON && !chained) {
+                chained = true;
+                chainFirst = first >= 0 ? first : t;
+                chainEnd = t;
+                links = 0;
+                first = -1;
+            } else if (first < 0) {
+                first = t;
+            }
+        }
+        if (first >= 0) {
+            tokens.addStatement(first, count, chained ? chainFirst : first, chained ? chainEnd : first);
+        }
+    }
+
+    private static int operator(AbapTokens tokens, CharSequence source, int i, int length) {
+        char c = source.charAt(i);
+        int size = 1;
+        if (i + 1 < length) {
+            char next = source.charAt(i + 1);
+            if ((next == '>' && (c == '-' || c == '=' || c == '<'))
+                    || (next == '=' && (c == '<' || c == '>' || c == '?' || c == '+' || c == '-' || c == '*' || c == '/'))
+                    || (c == '&' && next == '&')
+                    || (c == '*' && next == '*')) {
+                size = 2;
+            }
+        }
+        tokens.add(AbapTokens.OPERATOR, i, size, AbapKeywords.NONE);
+        return i + size;
+    }
+
+    /**
+     * End of a word starting before {@code i}: letters, digits and underscores,
+     * plus {@code -} and {@code ~} component selectors written without spaces.
+     */
+    private static int word(CharSequence source, int i, int length) {
+        while (i < length) {
+            char c = source.charAt(i);
+            if (isWordChar(c)) {
+                i++;
+            } else if ((c == '-' || c == '~') && i + 1 < length && isWordStart(source.charAt(i + 1))
+                    && isWordChar(source.charAt(i - 1))) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isNamespace(CharSequence source, int i, int length) {
+        return namespaceEnd(source, i, length) > i;
+    }
+
+    /**
+     * End of a {@code /NAMESPACE/} prefix at {@code i}, or {@code i} if there is none.
+     */
+    private static int namespaceEnd(CharSequence source, int i, int length) {
+        int j = i + 1;
+        while (j < length && isWordChar(source.charAt(j))) {
+            j++;
+        }
+        if (j > i + 1 && j + 1 < length && source.charAt(j) == '/' && isWordStart(source.charAt(j + 1))) {
+            return j + 1;
+        }
+        return i;
+    }
+
+    private static int quoted(CharSequence source, int i, int length, char quote) {
+        int j = i + 1;
+        while (j < length) {
+            char c = source.charAt(j);
+            if (c == quote) {
+                if (j + 1 < length && source.charAt(j + 1) == quote) {
+                    j += 2;
+                    continue;
+                }
+                return j + 1;
+            }
+            if (c == '\n' || c == '\r') {
+                return j;
+            }
+            j++;
+        }
+        return j;
+    }
+
+    private static int template(CharSequence source, int i, int length) {
+        int depth = 0;
+        int j = i + 1;
+        while (j < length) {
+            char c = source.charAt(j);
+            if (c == '\\') {
+                j += 2;
+                continue;
+            }
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+            } else if (c == '|' && depth == 0) {
+                return j + 1;
+            } else if ((c == '\n' || c == '\r') && depth == 0) {
+                return j;
+            } else if (c == '.' && depth > 0 && (j + 1 == length || Character.isWhitespace(source.charAt(j + 1)))) {
+                // An embedded expression cannot hold a statement terminator: the
+                // template was left open, so it ends before the period.
+                return j;
+            }
+            j++;
+        }
+        return Math.min(j, length);
+    }
+
+    private static int lineEnd(CharSequence source, int i, int length) {
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || (c > 127 && Character.isLetter(c));
+    }
+
+    private static boolean isWordChar(char c) {
+        return isWordStart(c) || isDigit(c);
+    }
+}
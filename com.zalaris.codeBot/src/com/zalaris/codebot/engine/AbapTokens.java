@@ -0,0 +1,212 @@
+package com.zalaris.codebot.engine;
+
+import java.util.Arrays;
+
+/**
+ * Token stream produced by {@link AbapLexer}: parallel int arrays of kind,
+ * offset, length and keyword id, plus the statements they form. Nothing is
+ * allocated per token.
+ * <p>
+ * Statements exclude their terminating period or chain comma. A colon-chained
+ * statement such as {@code DATA: a TYPE i, b TYPE p.} yields one statement per
+ * link, each with the tokens before the colon as its chain prefix.
+ */
+public final class AbapTokens {
+
+    public static final int KEYWORD = 1;
+    public static final int IDENTIFIER = 2;
+    public static final int NUMBER = 3;
+    /** {@code '...'} and {@code `...`} literals. */
+    public static final int STRING = 4;
+    /** {@code |...|} string templates, embedded expressions included. */
+    public static final int TEMPLATE = 5;
+    /** {@code *} in the first column or {@code "}, up to the end of the line. */
+    public static final int COMMENT = 6;
+    public static final int OPERATOR = 7;
+    public static final int PERIOD = 8;
+    public static final int COLON = 9;
+    public static final int COMMA = 10;
+
+    private final CharSequence source;
+
+    private int count;
+    private int[] kinds;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] keywords;
+
+    private int statementCount;
+    private int[] statementFirst;
+    private int[] statementEnd;
+    private int[] prefixFirst;
+    private int[] prefixEnd;
+
+    AbapTokens(CharSequence source, int expectedTokens) {
+        this.source = source;
+        int capacity = Math.max(16, expectedTokens);
+        this.kinds = new int[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+        this.keywords = new int[capacity];
+        int statements = Math.max(4, capacity / 8);
+        this.statementFirst = new int[statements];
+        this.statementEnd = new int[statements];
+        this.prefixFirst = new int[statements];
+        this.prefixEnd = new int[statements];
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int kind(int token) {
+        return kinds[token];
+    }
+
+    public int offset(int token) {
+        return offsets[token];
+    }
+
+    public int length(int token) {
+        return lengths[token];
+    }
+
+    public int end(int token) {
+        return offsets[token] + lengths[token];
+    }
+
+    /**
+     * Keyword id (see {@link AbapKeywords}) or {@link AbapKeywords#NONE}.
+     */
+    public int keyword(int token) {
+        return keywords[token];
+    }
+
+    public boolean isKeyword(int token, int keyword) {
+        return token >= 0 && token < count && keywords[token] == keyword;
+    }
+
+    /**
+     * Case-insensitive comparison of a token's text, without allocating.
+     */
+    public boolean textEquals(int token, String text) {
+        int length = lengths[token];
+        if (length != text.length()) {
+            return false;
+        }
+        int offset = offsets[token];
+        for (int i = 0; i < length; i++) {
+            char a = source.charAt(offset + i);
+            char b = text.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String text(int token) {
+        return source.subSequence(offsets[token], offsets[token] + lengths[token]).toString();
+    }
+
+    /**
+     * Index of the token covering the given offset, or -1 for whitespace.
+     */
+    public int indexAt(int offset) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] > offset) {
+                high = mid - 1;
+            } else if (offsets[mid] + lengths[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int statementCount() {
+        return statementCount;
+    }
+
+    /**
+     * First token of a statement's own part (after the chain colon, if chained).
+     */
+    public int statementFirst(int statement) {
+        return statementFirst[statement];
+    }
+
+    /**
+     * Token index just past the statement; its terminator is not included.
+     */
+    public int statementEnd(int statement) {
+        return statementEnd[statement];
+    }
+
+    public int chainPrefixFirst(int statement) {
+        return prefixFirst[statement];
+    }
+
+    public int chainPrefixEnd(int statement) {
+        return prefixEnd[statement];
+    }
+
+    public boolean isChained(int statement) {
+        return prefixEnd[statement] > prefixFirst[statement];
+    }
+
+    /**
+     * The token that names the statement: the first prefix token when chained,
+     * otherwise the first token.
+     */
+    public int statementLead(int statement) {
+        return isChained(statement) ? prefixFirst[statement] : statementFirst[statement];
+    }
+
+    /**
+     * Next non-comment token in {@code [token, end)}, or {@code end} if none.
+     */
+    public int nextCode(int token, int end) {
+        while (token < end && kinds[token] == COMMENT) {
+            token++;
+        }
+        return token;
+    }
+
+    void add(int kind, int offset, int length, int keyword) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            keywords = Arrays.copyOf(keywords, capacity);
+        }
+        kinds[count] = kind;
+        offsets[count] = offset;
+        lengths[count] = length;
+        keywords[count] = keyword;
+        count++;
+    }
+
+    void addStatement(int first, int end, int chainFirst, int chainEnd) {
+        if (statementCount == statementFirst.length) {
+            int capacity = statementCount * 2;
+            statementFirst = Arrays.copyOf(statementFirst, capacity);
+            statementEnd = Arrays.copyOf(statementEnd, capacity);
+            prefixFirst = Arrays.copyOf(prefixFirst, capacity);
+            prefixEnd = Arrays.copyOf(prefixEnd, capacity);
+        }
+        statementFirst[statementCount] = first;
+        statementEnd[statementCount] = end;
+        prefixFirst[statementCount] = chainFirst;
+        prefixEnd[statementCount] = chainEnd;
+        statementCount++;
+    }
+}
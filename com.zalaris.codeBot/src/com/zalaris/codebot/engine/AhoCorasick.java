@@ -0,0 +1,171 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton compiled to a dense DFA over the alphabet of its
+ * keywords. Matching folds ASCII letters to lower case, like
+ * {@code Pattern.CASE_INSENSITIVE}; callers verify case-sensitive keywords.
+ */
+public final class AhoCorasick {
+
+    @FunctionalInterface
+    public interface HitSink {
+        void hit(int keyword, int start);
+    }
+
+    private final int[] asciiClass = new int[128];
+    private final Map<Character, Integer> otherClass = new HashMap<>();
+    private final int classCount;
+    private final int[] delta;
+    private final int[][] outputs;
+    private final int[] lengths;
+
+    public AhoCorasick(List<String> keywords) {
+        lengths = new int[keywords.size()];
+        int classes = 1; // class 0: characters that appear in no keyword
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = fold(keyword.charAt(i));
+                if (c < 128) {
+                    if (asciiClass[c] == 0) {
+                        asciiClass[c] = classes++;
+                    }
+                } else if (!otherClass.containsKey(c)) {
+                    otherClass.put(c, classes++);
+                }
+            }
+        }
+        classCount = classes;
+
+        // Trie with goto function; -1 marks a missing edge.
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> out = new ArrayList<>();
+        trie.add(newRow());
+        out.add(null);
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            lengths[k] = keyword.length();
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = classOf(fold(keyword.charAt(i)));
+                int next = trie.get(state)[cls];
+                if (next < 0) {
+                    next = trie.size();
+                    trie.add(newRow());
+                    out.add(null);
+                    trie.get(state)[cls] = next;
+                }
+                state = next;
+            }
+            out.set(state, append(out.get(state), k));
+        }
+
+        // Breadth-first failure links, folded directly into a complete transition table.
+        int states = trie.size();
+        delta = new int[states * classCount];
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < classCount; cls++) {
+            int next = trie.get(0)[cls];
+            if (next < 0) {
+                delta[cls] = 0;
+            } else {
+                delta[cls] = next;
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = trie.get(state);
+            out.set(state, merge(out.get(state), out.get(fail[state])));
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = row[cls];
+                if (next < 0) {
+                    delta[state * classCount + cls] = delta[fail[state] * classCount + cls];
+                } else {
+                    delta[state * classCount + cls] = next;
+                    fail[next] = delta[fail[state] * classCount + cls];
+                    queue.add(next);
+                }
+            }
+        }
+        outputs = out.toArray(new int[0][]);
+    }
+
+    public int keywordCount() {
+        return lengths.length;
+    }
+
+    /**
+     * Reports every keyword occurrence in {@code [from, to)}, in order of end position.
+     */
+    public void scan(CharSequence text, int from, int to, HitSink sink) {
+        int state = 0;
+        final int[] d = delta;
+        final int[][] out = outputs;
+        final int classes = classCount;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int cls;
+            if (c < 128) {
+                cls = asciiClass[(c >= 'A' && c <= 'Z') ? c + 32 : c];
+            } else {
+                Integer mapped = otherClass.get(c);
+                cls = mapped == null ? 0 : mapped;
+            }
+            state = d[state * classes + cls];
+            int[] hits = out[state];
+            if (hits != null) {
+                for (int k : hits) {
+                    sink.hit(k, i - lengths[k] + 1);
+                }
+            }
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[classCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        Integer mapped = otherClass.get(c);
+        return mapped == null ? 0 : mapped;
+    }
+
+    static char fold(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+    }
+
+    private static int[] append(int[] values, int value) {
+        if (values == null) {
+            return new int[] { value };
+        }
+        int[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+
+    private static int[] merge(int[] own, int[] inherited) {
+        if (inherited == null) {
+            return own;
+        }
+        if (own == null) {
+            return inherited;
+        }
+        int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+        return merged;
+    }
+}
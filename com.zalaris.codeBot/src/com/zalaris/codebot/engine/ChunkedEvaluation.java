@@ -0,0 +1,142 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates one large source as independent chunks on a fork-join pool. Chunks
+ * are cut before FORM, METHOD or FUNCTION statements, where the block tree
+ * starts over, so no block is split between two chunks and each chunk is lexed
+ * once for all rules. A long stretch without procedure starts becomes a single
+ * structure chunk, while its text rules run on chunks cut at statement
+ * boundaries. Chunk results are shifted back to source lines and merged per rule.
+ * Rules anchored to the start or end of the input would match at every chunk
+ * boundary, so their chunk results are replaced by a pass over the whole source.
+ */
+final class ChunkedEvaluation {
+
+    /** Chunks per worker, so workers that finish early can steal the rest. */
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MIN_CHUNK_LINES = 1000;
+
+    private ChunkedEvaluation() {
+    }
+
+    static BitSet[] findLines(RuleEngine engine, String source, ForkJoinPool pool) {
+        LineIndex index = new LineIndex(source);
+        int lineCount = index.getLineCount();
+        int chunkLines = Math.max(MIN_CHUNK_LINES, lineCount / (pool.getParallelism() * CHUNKS_PER_WORKER));
+
+        boolean structure = engine.hasStructureRules();
+        List<Chunk> chunks = new ArrayList<>();
+        for (int first = 1; first <= lineCount;) {
+            int last = Math.min(lineCount, first + chunkLines - 1);
+            if (!structure) {
+                last = SourceBoundaries.widenToStatementEnd(source, index, last);
+                chunks.add(new Chunk(first, last, true, false));
+                first = last + 1;
+                continue;
+            }
+            int unitEnd = unitEnd(source, index, last, last + chunkLines);
+            if (unitEnd > 0) {
+                chunks.add(new Chunk(first, unitEnd, true, true));
+                first = unitEnd + 1;
+                continue;
+            }
+            // A long stretch without procedure starts: one structure chunk for
+            // all of it, with the text rules still split at statements.
+            unitEnd = SourceBoundaries.widenToUnitEnd(source, index, last);
+            chunks.add(new Chunk(first, unitEnd, false, true));
+            while (first <= unitEnd) {
+                last = SourceBoundaries.widenToStatementEnd(source, index, Math.min(unitEnd, first + chunkLines - 1));
+                chunks.add(new Chunk(first, last, true, false));
+                first = last + 1;
+            }
+        }
+        BitSet[] found = pool.invoke(new ChunkTask(engine, source, index, chunks, 0, chunks.size()));
+        engine.findAnchoredLines(source, found);
+        return found;
+    }
+
+    /**
+     * Last line before the next procedure start after {@code line}, the last
+     * line of the source, or -1 when no procedure starts up to {@code limit}.
+     */
+    private static int unitEnd(String source, LineIndex index, int line, int limit) {
+        int lineCount = index.getLineCount();
+        for (; line < lineCount && line <= limit; line++) {
+            if (SourceBoundaries.opensUnit(source, index, line + 1)) {
+                return line;
+            }
+        }
+        return line == lineCount ? line : -1;
+    }
+
+    private record Chunk(int first, int last, boolean textual, boolean structure) {
+    }
+
+    private static final class ChunkTask extends RecursiveTask<BitSet[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RuleEngine engine;
+        private final String source;
+        private final transient LineIndex index;
+        private final transient List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(RuleEngine engine, String source, LineIndex index, List<Chunk> chunks, int from, int to) {
+            this.engine = engine;
+            this.source = source;
+            this.index = index;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BitSet[] compute() {
+            if (to - from == 1) {
+                return evaluate(chunks.get(from));
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask right = new ChunkTask(engine, source, index, chunks, mid, to);
+            right.fork();
+            BitSet[] left = new ChunkTask(engine, source, index, chunks, from, mid).compute();
+            BitSet[] merged = right.join();
+            for (int r = 0; r < merged.length; r++) {
+                if (left[r] == null) {
+                    continue;
+                }
+                if (merged[r] == null) {
+                    merged[r] = left[r];
+                } else {
+                    merged[r].or(left[r]);
+                }
+            }
+            return merged;
+        }
+
+        private BitSet[] evaluate(Chunk chunk) {
+            String region = SourceBoundaries.slice(source, index, chunk.first(), chunk.last());
+            BitSet[] found = engine.findSliceLines(region, chunk.textual(), chunk.structure());
+            int regionLines = chunk.last() - chunk.first() + 1;
+            int shift = chunk.first() - 1;
+            for (int r = 0; r < found.length; r++) {
+                BitSet hits = found[r];
+                if (hits == null || shift == 0 && hits.length() <= regionLines + 1) {
+                    continue;
+                }
+                BitSet shifted = new BitSet();
+                for (int line = hits.nextSetBit(1); line >= 0 && line <= regionLines; line = hits.nextSetBit(line + 1)) {
+                    shifted.set(line + shift);
+                }
+                found[r] = shifted.isEmpty() ? null : shifted;
+            }
+            return found;
+        }
+    }
+}
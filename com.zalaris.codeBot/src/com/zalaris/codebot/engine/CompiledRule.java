@@ -0,0 +1,166 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.zalaris.codebot.model.Rule;
+import com.zalaris.codebot.model.Severity;
+
+/**
+ * A {@link Rule} with its pattern compiled once, ready for repeated evaluation.
+ * Structure rules have no pattern; their rule pattern names a structural query.
+ * Each rule declares the tokens a source must contain before it can match, so
+ * the engine can skip rules whose prerequisites are absent.
+ */
+public final class CompiledRule {
+
+    private final Rule rule;
+    private final Pattern pattern;
+    private final String severity;
+    private final List<List<String>> requiredTokens;
+    private final int[][] requiredKeywords;
+    private final boolean anchorsInput;
+
+    CompiledRule(Rule rule, Pattern pattern) {
+        this.rule = rule;
+        this.pattern = pattern;
+        this.severity = toBackendSeverity(rule.getSeverity());
+        if (pattern == null) {
+            this.requiredKeywords = StructuralRules.requiredKeywords(rule.getPattern());
+            this.requiredTokens = keywordNames(requiredKeywords);
+        } else {
+            this.requiredKeywords = new int[0][];
+            this.requiredTokens = literals(rule.getPattern());
+        }
+        this.anchorsInput = pattern != null && anchorsInput(rule.getPattern());
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Compiled pattern, or null for {@code MatchScope.STRUCTURE} rules.
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Severity in the backend vocabulary (MAJOR/MINOR/INFO) used by governance and the view.
+     */
+    public String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Groups of tokens of which a source must contain at least one each for the
+     * rule to match; empty when the rule has no prerequisites. Text rules need the
+     * literal start or a required literal of one of their pattern branches.
+     */
+    public List<List<String>> getRequiredTokens() {
+        return requiredTokens;
+    }
+
+    /**
+     * Structure rules only: required {@link AbapKeywords} ids, grouped like
+     * {@link #getRequiredTokens()}.
+     */
+    int[][] getRequiredKeywords() {
+        return requiredKeywords;
+    }
+
+    /**
+     * Whether the source has a keyword of every required group.
+     */
+    boolean hasRequiredKeywords(BitSet present) {
+        for (int[] group : requiredKeywords) {
+            boolean found = false;
+            for (int keyword : group) {
+                if (present.get(keyword)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the pattern uses {@code \A}, {@code \z}, {@code \Z} or
+     * {@code \G}, which match at the start or end of the whole text rather
+     * than of a line. Such a rule only gives the right lines on the full
+     * source, never on a slice of it.
+     */
+    boolean anchorsInput() {
+        return anchorsInput;
+    }
+
+    private static List<List<String>> keywordNames(int[][] keywords) {
+        List<List<String>> groups = new ArrayList<>();
+        for (int[] group : keywords) {
+            List<String> names = new ArrayList<>();
+            for (int keyword : group) {
+                names.add(AbapKeywords.name(keyword));
+            }
+            groups.add(Collections.unmodifiableList(names));
+        }
+        return Collections.unmodifiableList(groups);
+    }
+
+    private static List<List<String>> literals(String pattern) {
+        List<String> tokens = new ArrayList<>();
+        for (PatternBranch branch : PatternBranch.analyze(pattern)) {
+            String prefix = branch.getLiteralPrefix();
+            String literal = branch.getRequiredLiteral();
+            String token = literal.length() > prefix.length() ? literal : prefix;
+            if (token.isEmpty()) {
+                return Collections.emptyList();
+            }
+            if (!tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens.isEmpty() ? Collections.emptyList()
+                : Collections.singletonList(Collections.unmodifiableList(tokens));
+    }
+
+    private static boolean anchorsInput(String pattern) {
+        for (int i = 0; i + 1 < pattern.length(); i++) {
+            if (pattern.charAt(i) != '\\') {
+                continue;
+            }
+            char escaped = pattern.charAt(++i);
+            if (escaped == 'Q') {
+                int end = pattern.indexOf("\\E", i + 1);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 1;
+            } else if (escaped == 'A' || escaped == 'z' || escaped == 'Z' || escaped == 'G') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String toBackendSeverity(Severity severity) {
+        if (severity == null) {
+            return "MAJOR";
+        }
+        switch (severity) {
+        case ERROR:
+            return "MAJOR";
+        case WARNING:
+            return "MINOR";
+        default:
+            return "INFO";
+        }
+    }
+}
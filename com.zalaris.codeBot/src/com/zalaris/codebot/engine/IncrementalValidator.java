@@ -0,0 +1,192 @@
+package com.zalaris.codebot.engine;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+
+/**
+ * Live rule results for a document that is edited in place. After each edit only
+ * the dirty lines, widened to whole statements, are re-lexed and re-evaluated;
+ * results elsewhere keep their rules and move with the line shift. Structure
+ * rules are re-evaluated from the enclosing FORM, METHOD or FUNCTION up to the
+ * next one, and only when the old or new statements contain a block or database
+ * keyword. Rules anchored to the start or end of the input are re-evaluated on
+ * the whole text when the edit touches the first or the last statement, one of
+ * their matches or a colon-chained statement.
+ * <p>
+ * A match that spans past the statements around an edit is picked up again by
+ * the next {@link #reset(String)}.
+ */
+public final class IncrementalValidator {
+
+    private final RuleEngine engine;
+
+    private String text = "";
+    private LineIndex lines = new LineIndex("");
+    private BitSet[] found;
+
+    public IncrementalValidator(RuleEngine engine) {
+        this.engine = engine;
+        this.found = new BitSet[engine.getRules().size()];
+    }
+
+    public RuleEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Evaluates the whole text and replaces the live results.
+     */
+    public synchronized void reset(String source) {
+        text = source == null ? "" : source;
+        lines = new LineIndex(text);
+        found = engine.findLines(text, true, true);
+    }
+
+    /**
+     * Applies an edit that replaced {@code removedLength} characters at
+     * {@code offset} with {@code insertedLength} characters; {@code source} is
+     * the full text after the edit. Falls back to {@link #reset(String)} when the
+     * edit does not fit the text seen so far.
+     */
+    public synchronized void apply(String source, int offset, int removedLength, int insertedLength) {
+        if (source == null || offset < 0 || removedLength < 0 || insertedLength < 0
+                || offset + removedLength > text.length() || offset + insertedLength > source.length()
+                || source.length() != text.length() - removedLength + insertedLength) {
+            reset(source);
+            return;
+        }
+        String oldText = text;
+        LineIndex oldLines = lines;
+        LineIndex newLines = oldLines.edit(source, offset, removedLength, insertedLength);
+        int lineDelta = newLines.getLineCount() - oldLines.getLineCount();
+        text = source;
+        lines = newLines;
+
+        // Lines outside the edit are the same in both texts, so only the end can
+        // need widening to a statement boundary of the old text as well.
+        int first = SourceBoundaries.widenToStatementStart(source, newLines, newLines.lineOf(offset));
+        int last = newLines.lineOf(offset + insertedLength);
+        while (true) {
+            int newEnd = SourceBoundaries.widenToStatementEnd(source, newLines, last);
+            int oldEnd = SourceBoundaries.widenToStatementEnd(oldText, oldLines, newEnd - lineDelta) + lineDelta;
+            if (oldEnd == newEnd) {
+                last = newEnd;
+                break;
+            }
+            last = oldEnd;
+        }
+        String region = SourceBoundaries.slice(source, newLines, first, last);
+        String oldRegion = SourceBoundaries.slice(oldText, oldLines, first, last - lineDelta);
+        // Anchored rules can only change when the edit reaches the first or last
+        // statement, one of their matches, or a colon-chained statement (the
+        // chain text has a start and end of its own); the slice pass drops them
+        // meanwhile.
+        boolean anchored = engine.hasAnchoredRules() && (first == 1 || anchoredHitWithin(first, last - lineDelta)
+                || !endsStatementAfter(source, newLines, last) || region.indexOf(':') >= 0
+                || oldRegion.indexOf(':') >= 0);
+        splice(false, first, last - lineDelta, lineDelta, engine.findSliceLines(region, true, false),
+                last - first + 1);
+        if (anchored) {
+            engine.findAnchoredLines(source, found);
+        }
+
+        if (!engine.hasStructureRules()) {
+            return;
+        }
+        if (!StructuralRules.mentionsStructure(AbapLexer.tokenize(region))
+                && !StructuralRules.mentionsStructure(AbapLexer.tokenize(oldRegion))) {
+            splice(true, first, last - lineDelta, lineDelta, null, 0);
+            return;
+        }
+        // The block tree closes everything still open at a procedure, so structure
+        // results only depend on the text between two procedure starts.
+        int unitFirst = first;
+        while (unitFirst > 1
+                && !(SourceBoundaries.opensUnit(source, newLines, unitFirst)
+                        && SourceBoundaries.opensUnit(oldText, oldLines, unitFirst))) {
+            unitFirst--;
+        }
+        int unitLast = last;
+        while (true) {
+            int newEnd = SourceBoundaries.widenToUnitEnd(source, newLines, unitLast);
+            int oldEnd = SourceBoundaries.widenToUnitEnd(oldText, oldLines, newEnd - lineDelta) + lineDelta;
+            if (oldEnd == newEnd) {
+                unitLast = newEnd;
+                break;
+            }
+            unitLast = oldEnd;
+        }
+        splice(true, unitFirst, unitLast - lineDelta, lineDelta,
+                engine.findSliceLines(SourceBoundaries.slice(source, newLines, unitFirst, unitLast), false, true),
+                unitLast - unitFirst + 1);
+    }
+
+    /** Whether a rule anchored to the whole input has a result on old lines {@code [first, oldLast]}. */
+    private boolean anchoredHitWithin(int first, int oldLast) {
+        for (int r = 0; r < found.length; r++) {
+            if (found[r] != null && engine.isAnchoredRule(r)) {
+                int line = found[r].nextSetBit(first);
+                if (line >= 0 && line <= oldLast) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Whether a statement ends below {@code line}; looked for from the end of the text. */
+    private static boolean endsStatementAfter(String source, LineIndex lines, int line) {
+        for (int below = lines.getLineCount(); below > line; below--) {
+            if (SourceBoundaries.endsStatement(source, lines, below)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized List<RuleViolation> getViolations() {
+        return engine.toViolations(found);
+    }
+
+    public synchronized int getViolationCount() {
+        int count = 0;
+        for (BitSet hits : found) {
+            if (hits != null) {
+                count += hits.cardinality();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the results of one rule kind on old lines {@code [first, oldLast]}
+     * with {@code hits} (region-relative, up to {@code regionLines}) and shifts
+     * results below the region by {@code lineDelta}.
+     */
+    private void splice(boolean structure, int first, int oldLast, int lineDelta, BitSet[] hits, int regionLines) {
+        for (int r = 0; r < found.length; r++) {
+            if (engine.isStructureRule(r) != structure) {
+                continue;
+            }
+            BitSet old = found[r];
+            BitSet fresh = hits == null ? null : hits[r];
+            if (old == null && fresh == null) {
+                continue;
+            }
+            BitSet next = old == null ? new BitSet() : old.get(0, first);
+            if (old != null) {
+                for (int line = old.nextSetBit(oldLast + 1); line >= 0; line = old.nextSetBit(line + 1)) {
+                    next.set(line + lineDelta);
+                }
+            }
+            if (fresh != null) {
+                for (int line = fresh.nextSetBit(1); line >= 0 && line <= regionLines; line = fresh.nextSetBit(line + 1)) {
+                    next.set(line + first - 1);
+                }
+            }
+            found[r] = next.isEmpty() ? null : next;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.zalaris.codebot.engine;
+
+import java.util.Arrays;
+
+/**
+ * Offsets of line starts in a source, built in one pass; maps character
+ * offsets to 1-based line numbers by binary search.
+ */
+public final class LineIndex {
+
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    public LineIndex(CharSequence source) {
+        int[] starts = new int[64];
+        int count = 1;
+        int length = source == null ? 0 : source.length();
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        this.lineStarts = starts;
+        this.lineCount = count;
+    }
+
+    private LineIndex(int[] lineStarts, int lineCount) {
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Index of the source after {@code removedLength} characters at {@code offset}
+     * were replaced by {@code insertedLength} characters, now in {@code source}.
+     * Only the inserted text is scanned; later line starts are shifted.
+     */
+    public LineIndex edit(CharSequence source, int offset, int removedLength, int insertedLength) {
+        int delta = insertedLength - removedLength;
+        // Line starts in (offset, offset + removedLength] followed a removed newline.
+        int keep = lineOf(offset);
+        int tail = lineOf(offset + removedLength);
+        int inserted = 0;
+        for (int i = offset; i < offset + insertedLength; i++) {
+            if (source.charAt(i) == '\n') {
+                inserted++;
+            }
+        }
+        int count = keep + inserted + (lineCount - tail);
+        int[] starts = new int[Math.max(count, 1)];
+        System.arraycopy(lineStarts, 0, starts, 0, keep);
+        int next = keep;
+        for (int i = offset; i < offset + insertedLength; i++) {
+            if (source.charAt(i) == '\n') {
+                starts[next++] = i + 1;
+            }
+        }
+        for (int line = tail; line < lineCount; line++) {
+            starts[next++] = lineStarts[line] + delta;
+        }
+        return new LineIndex(starts, count);
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * 1-based line containing the given character offset.
+     */
+    public int lineOf(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return (index >= 0 ? index : -index - 2) + 1;
+    }
+
+    /**
+     * Offset of the first character of a 1-based line.
+     */
+    public int lineStart(int line) {
+        return lineStarts[Math.max(0, Math.min(lineCount, line) - 1)];
+    }
+}
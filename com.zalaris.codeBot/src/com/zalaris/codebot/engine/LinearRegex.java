@@ -0,0 +1,1258 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rule pattern compiled for matching in linear time: a Thompson NFA that is
+ * simulated breadth-first (a Pike VM), so the cost is bounded by text length
+ * times pattern size whatever the pattern looks like. It covers the
+ * {@code java.util.regex} syntax rule authors use: literals and escapes,
+ * classes, dot, {@code ^ $ \b \B \A \z}, groups, alternation, greedy and lazy
+ * quantifiers and the {@code i}, {@code s} and {@code m} flags, always in
+ * {@code MULTILINE} mode and with the JDK's ASCII-only case folding, word
+ * characters and line terminators. {@link #compile} returns null for anything
+ * else (back-references, lookaround, possessive quantifiers, Unicode
+ * properties, ...), which then runs on the JDK engine.
+ * <p>
+ * Only match starts are computed. None of the supported constructs can turn a
+ * match into a non-match, so a match starts at a position exactly when some
+ * path through the NFA accepts from there, however the JDK would prioritise
+ * the paths. Texts with surrogate pairs are left to the JDK engine, which
+ * matches by code point.
+ */
+final class LinearRegex {
+
+    static final int NO_MATCH = 0;
+    static final int MATCH = 1;
+    /** {@link Simulation#matchAt} gave up after its character budget. */
+    static final int EXHAUSTED = -1;
+
+    /** Larger programs (mostly from counted repetition) are left to the JDK engine. */
+    private static final int MAX_PROGRAM = 4000;
+    private static final int MAX_REPEAT = 1000;
+
+    private static final int CHAR = 0;
+    private static final int SET = 1;
+    private static final int ANY = 2;
+    private static final int SPLIT = 3;
+    private static final int ASSERT = 4;
+    private static final int ACCEPT = 5;
+
+    private static final int LINE_START = 0;
+    private static final int LINE_END = 1;
+    private static final int INPUT_START = 2;
+    private static final int INPUT_END = 3;
+    private static final int WORD_BOUNDARY = 4;
+    private static final int NOT_WORD_BOUNDARY = 5;
+
+    private static final int UNBOUNDED = -1;
+
+    private final Node root;
+    private final Program forward;
+    private final Program reverse;
+
+    private LinearRegex(Node root, Program forward, Program reverse) {
+        this.root = root;
+        this.forward = forward;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Compiles a pattern as {@code Pattern.compile(regex, Pattern.MULTILINE)}
+     * would read it, or returns null when it uses an unsupported construct.
+     */
+    static LinearRegex compile(String regex) {
+        Node root;
+        try {
+            Parser parser = new Parser(regex);
+            root = parser.parseAlternation(0);
+            if (parser.pos != regex.length()) {
+                return null;
+            }
+        } catch (Unsupported ex) {
+            return null;
+        }
+        Program forward = Program.of(Collections.singletonList(root), false);
+        Program reverse = Program.of(Collections.singletonList(root), true);
+        return forward == null || reverse == null ? null : new LinearRegex(root, forward, reverse);
+    }
+
+    /**
+     * One reverse program for several patterns; {@link Simulation#scanStarts}
+     * reports the index (in {@code regexes}) of every pattern that starts a match.
+     * Null when the combined program would be too large.
+     */
+    static Program union(List<LinearRegex> regexes) {
+        List<Node> roots = new ArrayList<>(regexes.size());
+        for (LinearRegex regex : regexes) {
+            roots.add(regex.root);
+        }
+        return Program.of(roots, true);
+    }
+
+    Program forward() {
+        return forward;
+    }
+
+    Program reverse() {
+        return reverse;
+    }
+
+    /**
+     * True when the text has a surrogate pair, which this engine does not match
+     * the way the JDK engine does.
+     */
+    static boolean hasSurrogates(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isSurrogate(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Receives (pattern index, match start) pairs from a reverse scan. */
+    interface StartSink {
+        void accept(int pattern, int start);
+    }
+
+    /**
+     * An NFA flattened into instruction arrays. Immutable; matching state lives
+     * in a {@link Simulation}.
+     */
+    static final class Program {
+        private final int[] op;
+        private final int[] arg;
+        private final int[] next;
+        private final int[] alternative;
+        private final CharSet[] sets;
+        private final int start;
+        /** ASCII characters that can be consumed first, ignoring assertions. */
+        private final boolean[] firstAscii = new boolean[128];
+        /** Whether any character above ASCII can be consumed first. */
+        private final boolean firstNonAscii;
+        /** True when the start state may accept without consuming anything. */
+        private final boolean nullable;
+        /** Consuming instructions reachable from the start without consuming anything. */
+        private final boolean[] startConsumer;
+        /** ASCII characters grouped by how every instruction and assertion treats them. */
+        private final int[] charClass = new int[128];
+        private final int classCount;
+
+        private Program(Emitter emitter, int start) {
+            this.op = Arrays.copyOf(emitter.op, emitter.size);
+            this.arg = Arrays.copyOf(emitter.arg, emitter.size);
+            this.next = Arrays.copyOf(emitter.next, emitter.size);
+            this.alternative = Arrays.copyOf(emitter.alternative, emitter.size);
+            this.sets = emitter.sets.toArray(new CharSet[0]);
+            this.start = start;
+            boolean nonAscii = false;
+            boolean[] seen = new boolean[op.length];
+            this.startConsumer = new boolean[op.length];
+            int[] stack = new int[2 * op.length + 2];
+            int sp = 0;
+            boolean accepts = false;
+            stack[sp++] = start;
+            while (sp > 0) {
+                int pc = stack[--sp];
+                if (seen[pc]) {
+                    continue;
+                }
+                seen[pc] = true;
+                startConsumer[pc] = op[pc] <= ANY;
+                switch (op[pc]) {
+                case CHAR:
+                    if (arg[pc] < 128) {
+                        firstAscii[arg[pc]] = true;
+                    } else {
+                        nonAscii = true;
+                    }
+                    break;
+                case SET:
+                    for (char c = 0; c < 128; c++) {
+                        firstAscii[c] |= sets[arg[pc]].contains(c);
+                    }
+                    nonAscii |= sets[arg[pc]].hasNonAscii();
+                    break;
+                case ANY:
+                    Arrays.fill(firstAscii, true);
+                    nonAscii = true;
+                    break;
+                case SPLIT:
+                    stack[sp++] = alternative[pc];
+                    stack[sp++] = next[pc];
+                    break;
+                case ASSERT:
+                    stack[sp++] = next[pc];
+                    break;
+                default:
+                    accepts = true;
+                    break;
+                }
+            }
+            this.firstNonAscii = nonAscii;
+            this.nullable = accepts;
+
+            Map<String, Integer> classes = new HashMap<>();
+            StringBuilder signature = new StringBuilder();
+            for (char c = 0; c < 128; c++) {
+                signature.setLength(0);
+                signature.append(context(c));
+                for (int pc = 0; pc < op.length; pc++) {
+                    if (op[pc] <= ANY) {
+                        signature.append(consumes(pc, c) ? '1' : '0');
+                    }
+                }
+                Integer id = classes.get(signature.toString());
+                if (id == null) {
+                    id = classes.size();
+                    classes.put(signature.toString(), id);
+                }
+                charClass[c] = id;
+            }
+            this.classCount = classes.size();
+        }
+
+        static Program of(List<Node> roots, boolean reverse) {
+            Emitter emitter = new Emitter(reverse);
+            try {
+                int start = -1;
+                for (int i = roots.size() - 1; i >= 0; i--) {
+                    int accept = emitter.emit(ACCEPT, i, -1, -1);
+                    int entry = emitter.emit(roots.get(i), accept);
+                    start = start < 0 ? entry : emitter.emit(SPLIT, 0, entry, start);
+                }
+                return start < 0 ? null : new Program(emitter, start);
+            } catch (Unsupported ex) {
+                return null;
+            }
+        }
+
+        int size() {
+            return op.length;
+        }
+
+        private boolean canStart(char c) {
+            return c < 128 ? firstAscii[c] : firstNonAscii;
+        }
+
+        Simulation newSimulation() {
+            return new Simulation(this);
+        }
+
+        private boolean consumes(int pc, char c) {
+            switch (op[pc]) {
+            case CHAR:
+                return arg[pc] == c;
+            case SET:
+                return sets[arg[pc]].contains(c);
+            case ANY:
+                return arg[pc] != 0 || !isLineTerminator(c);
+            default:
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Matching state for one {@link Program}; not thread-safe, but reusable for
+     * any number of texts. Sets of NFA states are interned as DFA states whose
+     * transitions are cached per character class and context, so the NFA is
+     * only stepped the first time a combination comes up (and for characters
+     * above ASCII). The cache is bounded and starts over when full.
+     */
+    static final class Simulation {
+        private static final int MAX_STATES = 1024;
+
+        private final Program program;
+        private final StateList states;
+        private final int[] stack;
+        private int consumed;
+
+        private final Map<StateKey, Integer> ids = new HashMap<>();
+        private int[][] stateSets = new int[16][];
+        private int[][] stateAccepts = new int[16][];
+        private boolean[] stateIdle = new boolean[16];
+        private int[][] transitions = new int[16][];
+        private final int[] startStates = new int[CONTEXTS * CONTEXTS];
+        private int stateCount;
+        private int generation;
+
+        private Simulation(Program program) {
+            this.program = program;
+            this.states = new StateList(program.size());
+            this.stack = new int[2 * program.size() + 2];
+        }
+
+        /**
+         * Whether a match of a forward program starts at {@code start}, giving up
+         * with {@link #EXHAUSTED} after {@code maxChars} characters.
+         */
+        int matchAt(String text, int start, int maxChars) {
+            int length = text.length();
+            int state = startState(text, start);
+            for (int i = start;; i++) {
+                consumed = i - start;
+                if (stateAccepts[state].length > 0) {
+                    return MATCH;
+                }
+                if (stateSets[state].length == 0 || i == length) {
+                    return NO_MATCH;
+                }
+                if (consumed >= maxChars) {
+                    return EXHAUSTED;
+                }
+                state = step(state, text.charAt(i), context(text, i + 1), text, i + 1, false);
+            }
+        }
+
+        /** Characters the last {@link #matchAt} call read. */
+        int consumed() {
+            return consumed;
+        }
+
+        /**
+         * Runs a reverse program from the end of the text to its start and
+         * reports every position at which one of its patterns has a match.
+         */
+        void scanStarts(String text, StartSink sink) {
+            Program p = program;
+            int i = text.length();
+            int state = startState(text, i);
+            while (true) {
+                for (int pattern : stateAccepts[state]) {
+                    sink.accept(pattern, i);
+                }
+                if (i == 0) {
+                    return;
+                }
+                if (!p.nullable && stateIdle[state] && !p.canStart(text.charAt(i - 1))) {
+                    // Nothing is in flight, so only a character the pattern can
+                    // end with (it is read backwards) starts new work.
+                    do {
+                        i--;
+                    } while (i > 0 && !p.canStart(text.charAt(i - 1)));
+                    if (i == 0) {
+                        return;
+                    }
+                    state = startState(text, i);
+                    continue;
+                }
+                state = step(state, text.charAt(i - 1), context(text, i - 2), text, i - 1, true);
+                i--;
+            }
+        }
+
+        /**
+         * The state after consuming {@code c} and closing at {@code boundary},
+         * where {@code beyond} is the context of the character past the boundary.
+         */
+        private int step(int state, char c, int beyond, String text, int boundary, boolean restart) {
+            if (c >= 128 || beyond == UNCACHED) {
+                return move(state, c, text, boundary, restart);
+            }
+            int slot = program.charClass[c] * CONTEXTS + beyond;
+            int[] row = transitions[state];
+            int target = row[slot] - 1;
+            if (target < 0) {
+                int before = generation;
+                target = move(state, c, text, boundary, restart);
+                if (generation == before) {
+                    row[slot] = target + 1;
+                }
+            }
+            return target;
+        }
+
+        private int move(int state, char c, String text, int boundary, boolean restart) {
+            Program p = program;
+            int[] set = stateSets[state];
+            states.clear();
+            for (int pc : set) {
+                if (p.consumes(pc, c)) {
+                    add(p.next[pc], text, boundary);
+                }
+            }
+            if (restart) {
+                add(p.start, text, boundary);
+            }
+            return intern();
+        }
+
+        /** The closure of the start instruction at {@code boundary}. */
+        private int startState(String text, int boundary) {
+            int left = context(text, boundary - 1);
+            int right = context(text, boundary);
+            int slot = left == UNCACHED || right == UNCACHED ? -1 : left * CONTEXTS + right;
+            if (slot >= 0 && startStates[slot] > 0) {
+                return startStates[slot] - 1;
+            }
+            states.clear();
+            add(program.start, text, boundary);
+            int before = generation;
+            int state = intern();
+            if (slot >= 0 && generation == before) {
+                startStates[slot] = state + 1;
+            }
+            return state;
+        }
+
+        /** Adds {@code pc} and everything reachable from it without consuming a character. */
+        private void add(int pc, String text, int boundary) {
+            Program p = program;
+            int sp = 0;
+            stack[sp++] = pc;
+            while (sp > 0) {
+                pc = stack[--sp];
+                if (!states.add(pc)) {
+                    continue;
+                }
+                switch (p.op[pc]) {
+                case SPLIT:
+                    stack[sp++] = p.alternative[pc];
+                    stack[sp++] = p.next[pc];
+                    break;
+                case ASSERT:
+                    if (holds(p.arg[pc], text, boundary)) {
+                        stack[sp++] = p.next[pc];
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        /** The DFA state for the consuming and accepting instructions in {@link #states}. */
+        private int intern() {
+            Program p = program;
+            int kept = 0;
+            int accepts = 0;
+            for (int k = 0; k < states.size; k++) {
+                int op = p.op[states.dense[k]];
+                if (op <= ANY || op == ACCEPT) {
+                    kept++;
+                    if (op == ACCEPT) {
+                        accepts++;
+                    }
+                }
+            }
+            int[] set = new int[kept];
+            int n = 0;
+            for (int k = 0; k < states.size; k++) {
+                int op = p.op[states.dense[k]];
+                if (op <= ANY || op == ACCEPT) {
+                    set[n++] = states.dense[k];
+                }
+            }
+            Arrays.sort(set);
+            StateKey key = new StateKey(set);
+            Integer known = ids.get(key);
+            if (known != null) {
+                return known;
+            }
+            if (stateCount == MAX_STATES) {
+                reset();
+            }
+            int[] accepted = new int[accepts];
+            boolean idle = accepts == 0;
+            int a = 0;
+            for (int pc : set) {
+                if (p.op[pc] == ACCEPT) {
+                    accepted[a++] = p.arg[pc];
+                } else if (!p.startConsumer[pc]) {
+                    idle = false;
+                }
+            }
+            if (stateCount == stateSets.length) {
+                int capacity = stateCount * 2;
+                stateSets = Arrays.copyOf(stateSets, capacity);
+                stateAccepts = Arrays.copyOf(stateAccepts, capacity);
+                stateIdle = Arrays.copyOf(stateIdle, capacity);
+                transitions = Arrays.copyOf(transitions, capacity);
+            }
+            int id = stateCount++;
+            stateSets[id] = set;
+            stateAccepts[id] = accepted;
+            stateIdle[id] = idle;
+            transitions[id] = new int[p.classCount * CONTEXTS];
+            ids.put(key, id);
+            return id;
+        }
+
+        private void reset() {
+            ids.clear();
+            Arrays.fill(startStates, 0);
+            stateCount = 0;
+            generation++;
+        }
+    }
+
+    /** An interned set of instructions, compared by content. */
+    private static final class StateKey {
+        private final int[] pcs;
+        private final int hash;
+
+        StateKey(int[] pcs) {
+            this.pcs = pcs;
+            this.hash = Arrays.hashCode(pcs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateKey && Arrays.equals(pcs, ((StateKey) other).pcs);
+        }
+    }
+
+    /** A sparse set of program counters with constant-time clear. */
+    private static final class StateList {
+        final int[] dense;
+        final int[] sparse;
+        int size;
+
+        StateList(int capacity) {
+            this.dense = new int[capacity];
+            this.sparse = new int[capacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean add(int pc) {
+            int slot = sparse[pc];
+            if (slot < size && dense[slot] == pc) {
+                return false;
+            }
+            sparse[pc] = size;
+            dense[size++] = pc;
+            return true;
+        }
+    }
+
+    /**
+     * What the assertions need to know about a character next to a boundary:
+     * the edge of the text, a word character, \n, \r, or any other ASCII
+     * character. Characters above ASCII are not cached.
+     */
+    private static final int EDGE = 0;
+    private static final int WORD = 1;
+    private static final int LF = 2;
+    private static final int CR = 3;
+    private static final int OTHER = 4;
+    private static final int CONTEXTS = 5;
+    private static final int UNCACHED = -1;
+
+    private static int context(String text, int index) {
+        return index < 0 || index >= text.length() ? EDGE : context(text.charAt(index));
+    }
+
+    private static int context(char c) {
+        if (c >= 128) {
+            return UNCACHED;
+        }
+        return c == '\n' ? LF : c == '\r' ? CR : isAsciiWord(c) ? WORD : OTHER;
+    }
+
+    private static boolean holds(int assertion, String text, int i) {
+        int length = text.length();
+        switch (assertion) {
+        case LINE_START:
+            // As the JDK: never at the end of input, and not between \r and \n.
+            if (i == length) {
+                return false;
+            }
+            if (i == 0) {
+                return true;
+            }
+            char before = text.charAt(i - 1);
+            return isLineTerminator(before) && !(before == '\r' && text.charAt(i) == '\n');
+        case LINE_END:
+            if (i == length) {
+                return true;
+            }
+            char at = text.charAt(i);
+            if (at == '\n') {
+                return i == 0 || text.charAt(i - 1) != '\r';
+            }
+            return isLineTerminator(at);
+        case INPUT_START:
+            return i == 0;
+        case INPUT_END:
+            return i == length;
+        case WORD_BOUNDARY:
+            return (i > 0 && isWordAt(text, i - 1)) != (i < length && isWordAt(text, i));
+        default:
+            return (i > 0 && isWordAt(text, i - 1)) == (i < length && isWordAt(text, i));
+        }
+    }
+
+    /**
+     * The JDK's word test for {@code \b}: an ASCII word character, or a
+     * non-spacing mark on a letter or digit.
+     */
+    private static boolean isWordAt(String text, int i) {
+        char c = text.charAt(i);
+        if (c < 128) {
+            return isAsciiWord(c);
+        }
+        if (Character.getType(c) != Character.NON_SPACING_MARK) {
+            return false;
+        }
+        for (int x = i; x >= 0; x--) {
+            char base = text.charAt(x);
+            if (Character.isLetterOrDigit(base)) {
+                return true;
+            }
+            if (Character.getType(base) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiWord(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Pattern syntax tree. */
+    private static final class Node {
+        static final int EMPTY = 0;
+        static final int LITERAL = 1;
+        static final int CLASS = 2;
+        static final int DOT = 3;
+        static final int ASSERTION = 4;
+        static final int CONCAT = 5;
+        static final int ALTERNATION = 6;
+        static final int REPEAT = 7;
+
+        final int kind;
+        final int value;
+        final CharSet set;
+        final List<Node> children;
+        final int min;
+        final int max;
+
+        private Node(int kind, int value, CharSet set, List<Node> children, int min, int max) {
+            this.kind = kind;
+            this.value = value;
+            this.set = set;
+            this.children = children;
+            this.min = min;
+            this.max = max;
+        }
+
+        static Node of(int kind, int value) {
+            return new Node(kind, value, null, null, 0, 0);
+        }
+
+        static Node of(CharSet set) {
+            return new Node(CLASS, 0, set, null, 0, 0);
+        }
+
+        static Node of(int kind, List<Node> children) {
+            return new Node(kind, 0, null, children, 0, 0);
+        }
+
+        /** Whether the node can match without consuming a character. */
+        boolean isNullable() {
+            switch (kind) {
+            case EMPTY:
+            case ASSERTION:
+                return true;
+            case CONCAT:
+                for (Node child : children) {
+                    if (!child.isNullable()) {
+                        return false;
+                    }
+                }
+                return true;
+            case ALTERNATION:
+                for (Node child : children) {
+                    if (child.isNullable()) {
+                        return true;
+                    }
+                }
+                return false;
+            case REPEAT:
+                return min == 0 || children.get(0).isNullable();
+            default:
+                return false;
+            }
+        }
+
+        static Node repeat(Node child, int min, int max) {
+            return new Node(REPEAT, 0, null, Collections.singletonList(child), min, max);
+        }
+    }
+
+    /** Builds a program back to front, so every node is emitted knowing its successor. */
+    private static final class Emitter {
+        final boolean reverse;
+        int[] op = new int[64];
+        int[] arg = new int[64];
+        int[] next = new int[64];
+        int[] alternative = new int[64];
+        final List<CharSet> sets = new ArrayList<>();
+        int size;
+
+        Emitter(boolean reverse) {
+            this.reverse = reverse;
+        }
+
+        int emit(int code, int value, int to, int or) {
+            if (size == MAX_PROGRAM) {
+                throw new Unsupported();
+            }
+            if (size == op.length) {
+                op = Arrays.copyOf(op, size * 2);
+                arg = Arrays.copyOf(arg, size * 2);
+                next = Arrays.copyOf(next, size * 2);
+                alternative = Arrays.copyOf(alternative, size * 2);
+            }
+            op[size] = code;
+            arg[size] = value;
+            next[size] = to;
+            alternative[size] = or;
+            return size++;
+        }
+
+        int emit(Node node, int to) {
+            switch (node.kind) {
+            case Node.EMPTY:
+                return to;
+            case Node.LITERAL:
+                return emit(CHAR, node.value, to, -1);
+            case Node.CLASS:
+                sets.add(node.set);
+                return emit(SET, sets.size() - 1, to, -1);
+            case Node.DOT:
+                return emit(ANY, node.value, to, -1);
+            case Node.ASSERTION:
+                return emit(ASSERT, node.value, to, -1);
+            case Node.CONCAT:
+                // A reverse program reads the text backwards, so it meets the parts last to first.
+                int entry = to;
+                for (int i = 0; i < node.children.size(); i++) {
+                    entry = emit(node.children.get(reverse ? i : node.children.size() - 1 - i), entry);
+                }
+                return entry;
+            case Node.ALTERNATION:
+                int chain = emit(node.children.get(node.children.size() - 1), to);
+                for (int i = node.children.size() - 2; i >= 0; i--) {
+                    chain = emit(SPLIT, 0, emit(node.children.get(i), to), chain);
+                }
+                return chain;
+            default:
+                return emitRepeat(node.children.get(0), node.min, node.max, to);
+            }
+        }
+
+        private int emitRepeat(Node child, int min, int max, int to) {
+            if (child.kind == Node.EMPTY) {
+                return to;
+            }
+            int tail = to;
+            if (max == UNBOUNDED) {
+                int loop = emit(SPLIT, 0, -1, to);
+                int body = emit(child, loop);
+                next[loop] = body;
+                tail = loop;
+            } else {
+                for (int i = min; i < max; i++) {
+                    tail = emit(SPLIT, 0, emit(child, tail), to);
+                }
+            }
+            for (int i = 0; i < min; i++) {
+                tail = emit(child, tail);
+            }
+            return tail;
+        }
+    }
+
+    /** Recursive-descent parser for the supported subset of the JDK syntax. */
+    private static final class Parser {
+        private static final int CASE_INSENSITIVE = 1;
+        private static final int DOTALL = 2;
+
+        final String regex;
+        int pos;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parseAlternation(int flags) {
+            List<Node> branches = new ArrayList<>();
+            int[] current = { flags };
+            branches.add(parseConcat(current));
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                branches.add(parseConcat(current));
+            }
+            return branches.size() == 1 ? branches.get(0) : Node.of(Node.ALTERNATION, branches);
+        }
+
+        /** Parses up to {@code |} or {@code )}; inline flag groups update {@code flags[0]}. */
+        private Node parseConcat(int[] flags) {
+            List<Node> parts = new ArrayList<>();
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos);
+                if (c == '|' || c == ')') {
+                    break;
+                }
+                if (regex.startsWith("\\Q", pos)) {
+                    // Quoted text is a run of literals; a quantifier binds to the last one.
+                    int end = regex.indexOf("\\E", pos + 2);
+                    String quoted = regex.substring(pos + 2, end < 0 ? regex.length() : end);
+                    pos = end < 0 ? regex.length() : end + 2;
+                    if (quoted.isEmpty()) {
+                        if (pos < regex.length() && "*+?{".indexOf(regex.charAt(pos)) >= 0) {
+                            throw new Unsupported();
+                        }
+                        continue;
+                    }
+                    for (int i = 0; i < quoted.length() - 1; i++) {
+                        parts.add(literal(quoted.charAt(i), flags[0]));
+                    }
+                    parts.add(parseQuantifier(literal(quoted.charAt(quoted.length() - 1), flags[0])));
+                    continue;
+                }
+                Node atom = parseAtom(flags);
+                if (atom == null) {
+                    continue;
+                }
+                parts.add(parseQuantifier(atom));
+            }
+            if (parts.isEmpty()) {
+                return Node.of(Node.EMPTY, 0);
+            }
+            return parts.size() == 1 ? parts.get(0) : Node.of(Node.CONCAT, parts);
+        }
+
+        private Node parseQuantifier(Node atom) {
+            if (pos >= regex.length()) {
+                return atom;
+            }
+            char c = regex.charAt(pos);
+            int min;
+            int max;
+            if (c == '*') {
+                min = 0;
+                max = UNBOUNDED;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = UNBOUNDED;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '{') {
+                int close = regex.indexOf('}', pos);
+                if (close < 0) {
+                    throw new Unsupported();
+                }
+                String spec = regex.substring(pos + 1, close);
+                int comma = spec.indexOf(',');
+                try {
+                    min = Integer.parseInt(comma < 0 ? spec : spec.substring(0, comma));
+                    max = comma < 0 ? min
+                            : comma == spec.length() - 1 ? UNBOUNDED : Integer.parseInt(spec.substring(comma + 1));
+                } catch (NumberFormatException ex) {
+                    throw new Unsupported();
+                }
+                if (min < 0 || min > MAX_REPEAT || max > MAX_REPEAT || max != UNBOUNDED && max < min) {
+                    throw new Unsupported();
+                }
+                pos = close + 1;
+            } else {
+                return atom;
+            }
+            if (pos < regex.length()) {
+                char mode = regex.charAt(pos);
+                if (mode == '+') {
+                    // Possessive quantifiers can make a match fail.
+                    throw new Unsupported();
+                }
+                if (mode == '?') {
+                    pos++;
+                }
+            }
+            if (pos < regex.length() && "*+?{".indexOf(regex.charAt(pos)) >= 0) {
+                throw new Unsupported();
+            }
+            if ((max == UNBOUNDED || max > 1) && atom.isNullable()) {
+                // The JDK stops repeating after an empty iteration in ways a plain NFA does not.
+                throw new Unsupported();
+            }
+            return Node.repeat(atom, min, max);
+        }
+
+        /** Next atom, or null for an inline flag group that only changed {@code flags[0]}. */
+        private Node parseAtom(int[] flags) {
+            char c = regex.charAt(pos++);
+            switch (c) {
+            case '(':
+                return parseGroup(flags);
+            case '[':
+                return Node.of(parseClass(flags[0]));
+            case '.':
+                return Node.of(Node.DOT, (flags[0] & DOTALL) != 0 ? 1 : 0);
+            case '^':
+                return Node.of(Node.ASSERTION, LINE_START);
+            case '$':
+                return Node.of(Node.ASSERTION, LINE_END);
+            case '\\':
+                return parseEscape(flags[0]);
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw new Unsupported();
+            default:
+                return literal(c, flags[0]);
+            }
+        }
+
+        private Node parseGroup(int[] flags) {
+            int inner = flags[0];
+            if (regex.startsWith("?", pos)) {
+                pos++;
+                if (regex.startsWith(":", pos)) {
+                    pos++;
+                } else if (regex.startsWith("<", pos) && pos + 1 < regex.length()
+                        && Character.isLetter(regex.charAt(pos + 1))) {
+                    // Named group; nothing refers to it here.
+                    int close = regex.indexOf('>', pos);
+                    if (close < 0) {
+                        throw new Unsupported();
+                    }
+                    pos = close + 1;
+                } else {
+                    int updated = parseFlags(inner);
+                    if (regex.startsWith(")", pos)) {
+                        pos++;
+                        flags[0] = updated;
+                        return null;
+                    }
+                    if (!regex.startsWith(":", pos)) {
+                        // Lookaround and atomic groups.
+                        throw new Unsupported();
+                    }
+                    pos++;
+                    inner = updated;
+                }
+            }
+            Node body = parseAlternation(inner);
+            if (!regex.startsWith(")", pos)) {
+                throw new Unsupported();
+            }
+            pos++;
+            return body;
+        }
+
+        private int parseFlags(int flags) {
+            boolean on = true;
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos);
+                int flag;
+                if (c == '-' && on) {
+                    on = false;
+                    pos++;
+                    continue;
+                } else if (c == 'i') {
+                    flag = CASE_INSENSITIVE;
+                } else if (c == 's') {
+                    flag = DOTALL;
+                } else if (c == 'm' && on) {
+                    // MULTILINE is always on.
+                    flag = 0;
+                } else if (Character.isLetter(c)) {
+                    throw new Unsupported();
+                } else {
+                    return flags;
+                }
+                flags = on ? flags | flag : flags & ~flag;
+                pos++;
+            }
+            throw new Unsupported();
+        }
+
+        private Node parseEscape(int flags) {
+            if (pos >= regex.length()) {
+                throw new Unsupported();
+            }
+            char c = regex.charAt(pos++);
+            switch (c) {
+            case 'b':
+                if (regex.startsWith("{g}", pos)) {
+                    throw new Unsupported();
+                }
+                return Node.of(Node.ASSERTION, WORD_BOUNDARY);
+            case 'B':
+                return Node.of(Node.ASSERTION, NOT_WORD_BOUNDARY);
+            case 'A':
+                return Node.of(Node.ASSERTION, INPUT_START);
+            case 'z':
+                return Node.of(Node.ASSERTION, INPUT_END);
+            default:
+                pos--;
+                CharSet predefined = parsePredefined();
+                if (predefined != null) {
+                    return Node.of(predefined);
+                }
+                return literal(parseEscapedChar(), flags);
+            }
+        }
+
+        /** {@code \d \D \s \S \w \W} at {@code pos}, consumed; null when the escape is another one. */
+        private CharSet parsePredefined() {
+            char c = regex.charAt(pos);
+            CharSet set = new CharSet();
+            switch (Character.toLowerCase(c)) {
+            case 'd':
+                set.add('0', '9');
+                break;
+            case 's':
+                set.add(' ', ' ');
+                set.add('\t', '\r');
+                break;
+            case 'w':
+                set.add('a', 'z');
+                set.add('A', 'Z');
+                set.add('0', '9');
+                set.add('_', '_');
+                break;
+            default:
+                return null;
+            }
+            pos++;
+            return Character.isUpperCase(c) ? set.negate() : set;
+        }
+
+        /** A single-character escape at {@code pos} (after the backslash), consumed. */
+        private char parseEscapedChar() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'a':
+                return '\u0007';
+            case 'e':
+                return '\u001B';
+            case 'x':
+                if (regex.startsWith("{", pos)) {
+                    throw new Unsupported();
+                }
+                return hex(2);
+            case 'u':
+                return hex(4);
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    // Back-references, \p{..}, \h, \R, \G, \Z, octal and the like.
+                    throw new Unsupported();
+                }
+                return c;
+            }
+        }
+
+        private char hex(int digits) {
+            if (pos + digits > regex.length()) {
+                throw new Unsupported();
+            }
+            try {
+                char value = (char) Integer.parseInt(regex.substring(pos, pos + digits), 16);
+                pos += digits;
+                return value;
+            } catch (NumberFormatException ex) {
+                throw new Unsupported();
+            }
+        }
+
+        private CharSet parseClass(int flags) {
+            boolean negated = regex.startsWith("^", pos);
+            if (negated) {
+                pos++;
+            }
+            CharSet set = new CharSet();
+            boolean first = true;
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw new Unsupported();
+                }
+                char c = regex.charAt(pos);
+                if (c == ']' && !first) {
+                    pos++;
+                    break;
+                }
+                first = false;
+                if (c == '[' || regex.startsWith("&&", pos)) {
+                    // Unions and intersections of classes.
+                    throw new Unsupported();
+                }
+                char low;
+                if (c == '\\') {
+                    pos++;
+                    if (pos >= regex.length()) {
+                        throw new Unsupported();
+                    }
+                    CharSet predefined = parsePredefined();
+                    if (predefined != null) {
+                        set.addAll(predefined);
+                        if (regex.startsWith("-", pos) && !regex.startsWith("-]", pos)) {
+                            throw new Unsupported();
+                        }
+                        continue;
+                    }
+                    if (regex.charAt(pos) == 'Q') {
+                        throw new Unsupported();
+                    }
+                    low = parseEscapedChar();
+                } else {
+                    low = c;
+                    pos++;
+                }
+                char high = low;
+                if (regex.startsWith("-", pos) && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    char h = regex.charAt(pos);
+                    if (h == '[') {
+                        throw new Unsupported();
+                    }
+                    if (h == '\\') {
+                        pos++;
+                        if (pos >= regex.length() || parsePredefinedAhead()) {
+                            throw new Unsupported();
+                        }
+                        high = parseEscapedChar();
+                    } else {
+                        high = h;
+                        pos++;
+                    }
+                    if (high < low) {
+                        throw new Unsupported();
+                    }
+                    if (regex.startsWith("-", pos) && !regex.startsWith("-]", pos)) {
+                        throw new Unsupported();
+                    }
+                }
+                set.add(low, high);
+                if ((flags & CASE_INSENSITIVE) != 0) {
+                    set.addAsciiCaseVariants(low, high);
+                }
+            }
+            return negated ? set.negate() : set;
+        }
+
+        private boolean parsePredefinedAhead() {
+            return "dDsSwW".indexOf(regex.charAt(pos)) >= 0;
+        }
+
+        private static Node literal(char c, int flags) {
+            if ((flags & CASE_INSENSITIVE) != 0 && c < 128 && Character.isLetter(c)) {
+                CharSet set = new CharSet();
+                set.add(Character.toLowerCase(c), Character.toLowerCase(c));
+                set.add(Character.toUpperCase(c), Character.toUpperCase(c));
+                return Node.of(set);
+            }
+            return Node.of(Node.LITERAL, c);
+        }
+    }
+
+    /** A set of UTF-16 units: a table for ASCII and sorted ranges above it. */
+    private static final class CharSet {
+        private final boolean[] ascii = new boolean[128];
+        private int[] ranges = new int[0];
+        private boolean negated;
+
+        void add(char low, char high) {
+            for (int c = low; c <= Math.min(high, 127); c++) {
+                ascii[c] = true;
+            }
+            if (high >= 128) {
+                int from = Math.max(low, 128);
+                ranges = Arrays.copyOf(ranges, ranges.length + 2);
+                ranges[ranges.length - 2] = from;
+                ranges[ranges.length - 1] = high;
+            }
+        }
+
+        /** The JDK's folding for {@code CASE_INSENSITIVE}: ASCII letters only. */
+        void addAsciiCaseVariants(char low, char high) {
+            for (int c = 0; c < 128; c++) {
+                char lower = Character.toLowerCase((char) c);
+                char upper = Character.toUpperCase((char) c);
+                if (lower >= low && lower <= high || upper >= low && upper <= high) {
+                    ascii[c] = true;
+                }
+            }
+        }
+
+        /** Adds a predefined class such as {@code \\w} or {@code \\S}, which has no ranges of its own. */
+        void addAll(CharSet other) {
+            for (int c = 0; c < 128; c++) {
+                if (other.contains((char) c)) {
+                    ascii[c] = true;
+                }
+            }
+            if (other.negated) {
+                add((char) 128, '\uFFFF');
+            }
+        }
+
+        boolean hasNonAscii() {
+            return negated || ranges.length > 0;
+        }
+
+        CharSet negate() {
+            negated = !negated;
+            return this;
+        }
+
+        boolean contains(char c) {
+            boolean member;
+            if (c < 128) {
+                member = ascii[c];
+            } else {
+                member = false;
+                for (int i = 0; i < ranges.length; i += 2) {
+                    if (c >= ranges[i] && c <= ranges[i + 1]) {
+                        member = true;
+                        break;
+                    }
+                }
+            }
+            return member != negated;
+        }
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Scans a source once for all rules instead of once per rule. Every rule
+ * pattern is split into its top-level branches, and each branch is placed by
+ * what its literal text allows:
+ * <ul>
+ * <li>A branch that starts with literal text registers it as a trigger in one
+ * {@link AhoCorasick} automaton; a trigger hit is the match itself for pure
+ * literals and is verified from the hit otherwise.</li>
+ * <li>A branch that only contains a required literal somewhere is scanned on
+ * its own, and only when that literal occurs in the source.</li>
+ * <li>Remaining branches share one scan that reports every rule starting a
+ * match at each position.</li>
+ * </ul>
+ * Required literals go into the same automaton, so one pass also tells which
+ * branches cannot match at all. The result is the set of lines on which each
+ * rule has an accepted match start, exactly what a separate {@code find} loop
+ * per rule reports.
+ * <p>
+ * Rule patterns come from rule-pack authors, so matching never backtracks:
+ * branches run on {@link LinearRegex}, whose cost grows with source size times
+ * pattern size. Verifying a trigger hit gets a character budget per branch and
+ * source; a branch that uses it up is answered by one scan of the whole source
+ * instead. Only patterns {@link LinearRegex} does not support, and sources with
+ * surrogate pairs, use {@code java.util.regex}, each branch within a time limit
+ * per source after which its remaining matches are dropped.
+ */
+final class MultiPatternMatcher {
+
+    private static final int NONE = -1;
+
+    /** Characters of trigger verification per branch and source: twice the source plus this. */
+    private static final int VERIFY_SLACK = 1024;
+
+    private final int ruleCount;
+    private final List<CompiledRule> rules;
+    private final long timeLimitNanos;
+
+    private final AhoCorasick automaton;
+    private final int[][] triggeredBranches;
+
+    private final int[] branchRule;
+    private final int[] branchTrigger;
+    private final Pattern[] branchPattern;
+    private final LinearRegex[] branchLinear;
+    private final boolean[] branchPure;
+    private final String[] branchExact;
+    private final int[] branchRequired;
+
+    private final int[] filteredBranches;
+    private final int[] standaloneBranches;
+
+    private final LinearRegex.Program alternation;
+    private final int[] alternativeBranch;
+    /** Rules with a branch in {@link #alternation}, each once. */
+    private final int[] alternationRules;
+
+    /** Rules already reported for running out of time, so the log says it once. */
+    private final Set<String> slowRules = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param timeLimitMillis time each {@code java.util.regex} branch may spend on one source
+     */
+    MultiPatternMatcher(List<CompiledRule> rules, int timeLimitMillis) {
+        this.ruleCount = rules.size();
+        this.rules = rules;
+        this.timeLimitNanos = timeLimitMillis * 1_000_000L;
+        Map<String, Integer> keywordIds = new HashMap<>();
+        List<String> keywords = new ArrayList<>();
+        List<List<Integer>> triggers = new ArrayList<>();
+        List<Integer> ruleOf = new ArrayList<>();
+        List<Integer> triggerOf = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+        List<LinearRegex> linear = new ArrayList<>();
+        List<Boolean> pure = new ArrayList<>();
+        List<String> exact = new ArrayList<>();
+        List<Integer> required = new ArrayList<>();
+        List<Integer> filtered = new ArrayList<>();
+        List<Integer> standalone = new ArrayList<>();
+        List<Integer> alternatives = new ArrayList<>();
+        List<LinearRegex> alternativeRegexes = new ArrayList<>();
+
+        for (int r = 0; r < rules.size(); r++) {
+            CompiledRule rule = rules.get(r);
+            List<PatternBranch> branches = PatternBranch.analyze(rule.getRule().getPattern());
+            List<Pattern> compiled = compileAll(branches);
+            if (compiled == null) {
+                // The split did not survive compilation; keep the rule whole.
+                standalone.add(ruleOf.size());
+                ruleOf.add(r);
+                triggerOf.add(NONE);
+                patterns.add(rule.getPattern());
+                linear.add(compileLinear(rule, rule.getRule().getPattern()));
+                pure.add(false);
+                exact.add(null);
+                required.add(NONE);
+                continue;
+            }
+            for (int b = 0; b < branches.size(); b++) {
+                PatternBranch branch = branches.get(b);
+                int index = ruleOf.size();
+                String prefix = branch.getLiteralPrefix();
+                String literal = branch.getRequiredLiteral();
+                boolean literalAddsInformation = literal.length() > prefix.length();
+                LinearRegex regex = branch.isPureLiteral() ? null : compileLinear(rule, branch.toRegex());
+                ruleOf.add(r);
+                patterns.add(compiled.get(b));
+                linear.add(regex);
+                pure.add(branch.isPureLiteral());
+                exact.add(branch.isPureLiteral() && !branch.isCaseInsensitive() ? prefix : null);
+                required.add(literalAddsInformation ? keywordId(literal, keywordIds, keywords, triggers) : NONE);
+
+                int trigger = prefix.isEmpty() ? NONE : keywordId(prefix, keywordIds, keywords, triggers);
+                triggerOf.add(trigger);
+
+                if (trigger != NONE) {
+                    triggers.get(trigger).add(index);
+                } else if (literalAddsInformation) {
+                    filtered.add(index);
+                } else if (regex != null) {
+                    alternatives.add(index);
+                    alternativeRegexes.add(regex);
+                } else {
+                    standalone.add(index);
+                }
+            }
+        }
+
+        LinearRegex.Program union = alternativeRegexes.isEmpty() ? null : LinearRegex.union(alternativeRegexes);
+        if (union == null) {
+            // Too large to combine: scan each on its own.
+            standalone.addAll(alternatives);
+            alternatives.clear();
+        }
+
+        this.automaton = keywords.isEmpty() ? null : new AhoCorasick(keywords);
+        this.triggeredBranches = new int[triggers.size()][];
+        for (int k = 0; k < triggers.size(); k++) {
+            triggeredBranches[k] = triggers.get(k).isEmpty() ? null : toIntArray(triggers.get(k));
+        }
+        this.branchRule = toIntArray(ruleOf);
+        this.branchTrigger = toIntArray(triggerOf);
+        this.branchPattern = patterns.toArray(new Pattern[0]);
+        this.branchLinear = linear.toArray(new LinearRegex[0]);
+        this.branchPure = new boolean[pure.size()];
+        for (int i = 0; i < branchPure.length; i++) {
+            branchPure[i] = pure.get(i);
+        }
+        this.branchExact = exact.toArray(new String[0]);
+        this.branchRequired = toIntArray(required);
+        this.filteredBranches = toIntArray(filtered);
+        this.standaloneBranches = toIntArray(standalone);
+        this.alternation = union;
+        this.alternativeBranch = toIntArray(alternatives);
+        this.alternationRules = Arrays.stream(alternativeBranch).map(b -> branchRule[b]).distinct().toArray();
+    }
+
+    /**
+     * Lines (1-based) with a match start, per rule index; null where a rule has none.
+     * Match starts rejected by {@code accept} are skipped as if there were no match.
+     */
+    BitSet[] match(String source, LineIndex lines, IntPredicate accept) {
+        return match(source, lines, accept, null, null);
+    }
+
+    /**
+     * As {@link #match(String, LineIndex, IntPredicate)}; also sets in
+     * {@code possible} every rule that has a branch whose trigger and required
+     * literal both occur in the source. The other rules were skipped. When
+     * {@code cost} is given, the nanoseconds spent on each rule are added to it:
+     * trigger verification split by hits verified, and the scan shared by
+     * several rules split evenly among them.
+     */
+    BitSet[] match(String source, LineIndex lines, IntPredicate accept, BitSet possible, long[] cost) {
+        BitSet[] found = new BitSet[ruleCount];
+        Scan scan = new Scan(source);
+        BitSet present = new BitSet();
+        int[] hits = new int[0];
+        if (automaton != null) {
+            hits = scanKeywords(source, present);
+        }
+        if (possible != null) {
+            for (int branch = 0; branch < branchRule.length; branch++) {
+                int trigger = branchTrigger[branch];
+                if ((trigger == NONE || present.get(trigger)) && isPossible(branch, present)) {
+                    possible.set(branchRule[branch]);
+                }
+            }
+        }
+        // Reading the clock per verification would cost more than most of them,
+        // so the pass is timed once and split by verifications per rule.
+        int[] verifications = cost == null ? null : new int[ruleCount];
+        long began = cost == null ? 0L : System.nanoTime();
+        for (int i = 0; i < hits.length; i += 2) {
+            int keyword = hits[i];
+            int start = hits[i + 1];
+            if (!accept.test(start)) {
+                continue;
+            }
+            int line = lines.lineOf(start);
+            for (int branch : triggeredBranches[keyword]) {
+                if (isMarked(found, branchRule[branch], line) || !isPossible(branch, present)) {
+                    continue;
+                }
+                if (verifications != null) {
+                    verifications[branchRule[branch]]++;
+                }
+                if (verify(branch, scan, start)) {
+                    mark(found, branchRule[branch], line);
+                }
+            }
+        }
+        if (cost != null) {
+            share(System.nanoTime() - began, verifications, cost);
+        }
+        for (int branch : filteredBranches) {
+            if (isPossible(branch, present)) {
+                scanBranch(branch, scan, lines, accept, found, cost);
+            }
+        }
+        if (alternation != null) {
+            began = cost == null ? 0L : System.nanoTime();
+            if (scan.linear) {
+                scan.simulation(alternation).scanStarts(source, (alternative, start) -> {
+                    if (accept.test(start)) {
+                        mark(found, branchRule[alternativeBranch[alternative]], lines.lineOf(start));
+                    }
+                });
+            } else {
+                for (int branch : alternativeBranch) {
+                    scanBranch(branch, scan, lines, accept, found, null);
+                }
+            }
+            if (cost != null) {
+                long each = (System.nanoTime() - began) / alternationRules.length;
+                for (int rule : alternationRules) {
+                    cost[rule] += each;
+                }
+            }
+        }
+        for (int branch : standaloneBranches) {
+            scanBranch(branch, scan, lines, accept, found, cost);
+        }
+        return found;
+    }
+
+    /**
+     * One automaton pass: records which keywords occur and returns the
+     * (keyword, start) pairs of trigger hits.
+     */
+    private int[] scanKeywords(String source, BitSet present) {
+        int[][] buffer = { new int[64] };
+        int[] size = { 0 };
+        automaton.scan(source, 0, source.length(), (keyword, start) -> {
+            present.set(keyword);
+            if (triggeredBranches[keyword] == null) {
+                return;
+            }
+            int[] hits = buffer[0];
+            if (size[0] + 2 > hits.length) {
+                hits = Arrays.copyOf(hits, hits.length * 2);
+                buffer[0] = hits;
+            }
+            hits[size[0]++] = keyword;
+            hits[size[0]++] = start;
+        });
+        return Arrays.copyOf(buffer[0], size[0]);
+    }
+
+    private boolean verify(int branch, Scan scan, int start) {
+        if (branchPure[branch]) {
+            String exact = branchExact[branch];
+            return exact == null || scan.source.regionMatches(start, exact, 0, exact.length());
+        }
+        LinearRegex regex = branchLinear[branch];
+        if (regex == null || !scan.linear) {
+            return lookingAt(branch, scan, start);
+        }
+        BitSet starts = scan.starts[branch];
+        if (starts == null) {
+            LinearRegex.Simulation forward = scan.simulation(regex.forward());
+            int budget = 2 * scan.source.length() + VERIFY_SLACK - scan.verified[branch];
+            int result = forward.matchAt(scan.source, start, Math.max(0, budget));
+            scan.verified[branch] += forward.consumed();
+            if (result != LinearRegex.EXHAUSTED) {
+                return result == LinearRegex.MATCH;
+            }
+            // Hits cost too much one by one; find every start of the branch at once.
+            BitSet all = new BitSet();
+            scan.simulation(regex.reverse()).scanStarts(scan.source, (alternative, at) -> all.set(at));
+            scan.starts[branch] = all;
+            starts = all;
+        }
+        return starts.get(start);
+    }
+
+    private void scanBranch(int branch, Scan scan, LineIndex lines, IntPredicate accept, BitSet[] found,
+            long[] cost) {
+        int rule = branchRule[branch];
+        long began = cost == null ? 0L : System.nanoTime();
+        LinearRegex regex = branchLinear[branch];
+        if (regex != null && scan.linear) {
+            scan.simulation(regex.reverse()).scanStarts(scan.source, (alternative, start) -> {
+                if (accept.test(start)) {
+                    mark(found, rule, lines.lineOf(start));
+                }
+            });
+        } else {
+            try {
+                findLines(branchPattern[branch], scan.limited(), lines, accept, line -> mark(found, rule, line));
+            } catch (TimeLimitExceeded ex) {
+                reportSlow(branch, scan.source);
+            }
+        }
+        if (cost != null) {
+            cost[rule] += System.nanoTime() - began;
+        }
+    }
+
+    /**
+     * The per-rule loop: reports each line with an accepted match start once.
+     */
+    static void findLines(Pattern pattern, CharSequence source, LineIndex lines, IntPredicate accept,
+            IntConsumer sink) {
+        Matcher matcher = pattern.matcher(source);
+        int length = source.length();
+        int from = 0;
+        while (from <= length && matcher.find(from)) {
+            int start = matcher.start();
+            if (!accept.test(start)) {
+                from = start + 1;
+                continue;
+            }
+            int line = lines.lineOf(start);
+            sink.accept(line);
+            from = nextLineStart(lines, line, length);
+        }
+    }
+
+    /** Splits {@code nanos} between rules in proportion to their {@code weights}. */
+    private static void share(long nanos, int[] weights, long[] cost) {
+        long total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        if (total == 0) {
+            return;
+        }
+        for (int rule = 0; rule < weights.length; rule++) {
+            if (weights[rule] > 0) {
+                cost[rule] += nanos * weights[rule] / total;
+            }
+        }
+    }
+
+    static int nextLineStart(LineIndex lines, int line, int length) {
+        return line < lines.getLineCount() ? lines.lineStart(line + 1) : length + 1;
+    }
+
+    private boolean isPossible(int branch, BitSet present) {
+        int required = branchRequired[branch];
+        return required == NONE || present.get(required);
+    }
+
+    private boolean lookingAt(int branch, Scan scan, int start) {
+        if (scan.timedOut.get(branch)) {
+            return false;
+        }
+        Matcher matcher = scan.matchers[branch];
+        if (matcher == null) {
+            matcher = branchPattern[branch].matcher(scan.limited());
+            matcher.useTransparentBounds(true);
+            matcher.useAnchoringBounds(false);
+            scan.matchers[branch] = matcher;
+        }
+        try {
+            matcher.region(start, scan.source.length());
+            return matcher.lookingAt();
+        } catch (TimeLimitExceeded ex) {
+            scan.timedOut.set(branch);
+            reportSlow(branch, scan.source);
+            return false;
+        }
+    }
+
+    private void reportSlow(int branch, String source) {
+        String id = rules.get(branchRule[branch]).getRule().getId();
+        if (slowRules.add(id)) {
+            System.out.println("[CodeBot] Local rule " + id + " exceeded its regex time limit of "
+                    + (timeLimitNanos / 1_000_000L) + " ms on a source of " + source.length()
+                    + " chars; its remaining matches were skipped");
+        }
+    }
+
+    private static LinearRegex compileLinear(CompiledRule rule, String regex) {
+        LinearRegex compiled = LinearRegex.compile(regex);
+        if (compiled == null) {
+            System.out.println("[CodeBot] Local rule " + rule.getRule().getId()
+                    + " uses java.util.regex with a time limit: its pattern has constructs the linear matcher does not support");
+        }
+        return compiled;
+    }
+
+    private static boolean isMarked(BitSet[] found, int rule, int line) {
+        BitSet lines = found[rule];
+        return lines != null && lines.get(line);
+    }
+
+    private static void mark(BitSet[] found, int rule, int line) {
+        BitSet lines = found[rule];
+        if (lines == null) {
+            lines = new BitSet();
+            found[rule] = lines;
+        }
+        lines.set(line);
+    }
+
+    private static int keywordId(String keyword, Map<String, Integer> ids, List<String> keywords,
+            List<List<Integer>> triggers) {
+        // The automaton folds ASCII case, so keywords differing only in case share an entry.
+        StringBuilder folded = new StringBuilder(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            folded.append(AhoCorasick.fold(keyword.charAt(i)));
+        }
+        String key = folded.toString();
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = keywords.size();
+            ids.put(key, id);
+            keywords.add(keyword);
+            triggers.add(new ArrayList<>());
+        }
+        return id;
+    }
+
+    private static List<Pattern> compileAll(List<PatternBranch> branches) {
+        List<Pattern> compiled = new ArrayList<>(branches.size());
+        try {
+            for (PatternBranch branch : branches) {
+                compiled.add(Pattern.compile(branch.toRegex(), Pattern.MULTILINE));
+            }
+        } catch (PatternSyntaxException ex) {
+            return null;
+        }
+        return compiled;
+    }
+
+    private static int[] toIntArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /** Per-call matching state, so one matcher can serve several threads. */
+    private final class Scan {
+        final String source;
+        /** False when the source has surrogate pairs and everything runs on java.util.regex. */
+        final boolean linear;
+        final int[] verified = new int[branchRule.length];
+        final BitSet[] starts = new BitSet[branchRule.length];
+        final Matcher[] matchers = new Matcher[branchRule.length];
+        final BitSet timedOut = new BitSet();
+        private final Map<LinearRegex.Program, LinearRegex.Simulation> simulations = new HashMap<>();
+
+        Scan(String source) {
+            this.source = source;
+            this.linear = !LinearRegex.hasSurrogates(source);
+        }
+
+        LinearRegex.Simulation simulation(LinearRegex.Program program) {
+            return simulations.computeIfAbsent(program, LinearRegex.Program::newSimulation);
+        }
+
+        /** The source for one java.util.regex branch, failing once its time is up. */
+        CharSequence limited() {
+            return new TimeLimitedText(source, System.nanoTime() + timeLimitNanos);
+        }
+    }
+
+    /** A text that throws {@link TimeLimitExceeded} when read past its deadline. */
+    private static final class TimeLimitedText implements CharSequence {
+        private static final int CHECK_INTERVAL = 4096;
+
+        private final String text;
+        private final long deadline;
+        private int reads;
+
+        TimeLimitedText(String text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads == CHECK_INTERVAL) {
+                reads = 0;
+                if (System.nanoTime() > deadline) {
+                    throw new TimeLimitExceeded();
+                }
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static final class TimeLimitExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TimeLimitExceeded() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One top-level alternative of a rule pattern, with the facts the
+ * {@link MultiPatternMatcher} needs to place it: the literal text every match
+ * starts with, the literal every match contains, and whether the branch is
+ * nothing but its starting literal.
+ */
+final class PatternBranch {
+
+    private static final Pattern LEADING_FLAGS = Pattern.compile("\\(\\?([a-zA-Z-]+)\\)");
+    private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[a-zA-Z-]*\\)");
+    private static final Pattern MULTI_CHAR_ESCAPES = Pattern.compile("\\\\[xu0cpPNk]");
+    private static final String META = "[](){}.*+?^$|";
+
+    private final String flags;
+    private final String body;
+    private final String literalPrefix;
+    private final String requiredLiteral;
+    private final boolean pureLiteral;
+
+    private PatternBranch(String flags, String body, String literalPrefix, String requiredLiteral,
+            boolean pureLiteral) {
+        this.flags = flags;
+        this.body = body;
+        this.literalPrefix = literalPrefix;
+        this.requiredLiteral = requiredLiteral;
+        this.pureLiteral = pureLiteral;
+    }
+
+    /**
+     * Splits a rule pattern at its top-level {@code |}. Patterns whose flags or
+     * quoting would change meaning when split are returned as a single branch
+     * without a literal prefix.
+     */
+    static List<PatternBranch> analyze(String pattern) {
+        String flags = "";
+        String body = pattern;
+        Matcher leading = LEADING_FLAGS.matcher(pattern);
+        if (leading.lookingAt()) {
+            flags = leading.group(1);
+            body = pattern.substring(leading.end());
+        }
+        boolean literalsAllowed = flags.chars().allMatch(c -> c == 'i' || c == 'm' || c == 's')
+                && !body.contains("\\Q")
+                && !INLINE_FLAGS.matcher(body).find();
+        List<String> parts = literalsAllowed ? splitTopLevel(body) : null;
+        if (parts == null) {
+            return Collections.singletonList(new PatternBranch(flags, body, "", "", false));
+        }
+        List<PatternBranch> branches = new ArrayList<>(parts.size());
+        for (String part : parts) {
+            branches.add(withPrefix(flags, part));
+        }
+        return branches;
+    }
+
+    /**
+     * Literal text that every match of this branch starts with; empty when none.
+     */
+    String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * The longest literal run that every match contains somewhere; empty when
+     * there is none of at least two characters. Its absence rules the branch out.
+     */
+    String getRequiredLiteral() {
+        return requiredLiteral;
+    }
+
+    /**
+     * True when a match is exactly {@link #getLiteralPrefix()} and needs no regex verification.
+     */
+    boolean isPureLiteral() {
+        return pureLiteral;
+    }
+
+    boolean isCaseInsensitive() {
+        return flags.indexOf('i') >= 0;
+    }
+
+    /**
+     * The branch as a standalone pattern, flags included.
+     */
+    String toRegex() {
+        return flags.isEmpty() ? body : "(?" + flags + ")" + body;
+    }
+
+    private static PatternBranch withPrefix(String flags, String body) {
+        int n = body.length();
+        int i = 0;
+        // Zero-width assertions do not move the match start.
+        while (i < n) {
+            if (body.charAt(i) == '^') {
+                i++;
+            } else if (body.startsWith("\\b", i) || body.startsWith("\\B", i) || body.startsWith("\\A", i)) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        StringBuilder literal = new StringBuilder();
+        // A match still starts with the literal, but must be verified against the assertion.
+        boolean complete = i == 0;
+        while (i < n) {
+            char c = body.charAt(i);
+            char value;
+            int end;
+            if (c == '\\') {
+                if (i + 1 >= n) {
+                    complete = false;
+                    break;
+                }
+                char escaped = body.charAt(i + 1);
+                int control = "tnrf".indexOf(escaped);
+                if (control >= 0) {
+                    value = "\t\n\r\f".charAt(control);
+                } else if (Character.isLetterOrDigit(escaped)) {
+                    complete = false;
+                    break;
+                } else {
+                    value = escaped;
+                }
+                end = i + 2;
+            } else if (META.indexOf(c) >= 0) {
+                complete = false;
+                break;
+            } else {
+                value = c;
+                end = i + 1;
+            }
+            if (end < n) {
+                char quantifier = body.charAt(end);
+                if (quantifier == '*' || quantifier == '?' || quantifier == '{') {
+                    complete = false;
+                    break;
+                }
+                if (quantifier == '+') {
+                    literal.append(value);
+                    complete = false;
+                    break;
+                }
+            }
+            literal.append(value);
+            i = end;
+        }
+        return new PatternBranch(flags, body, literal.toString(), requiredLiteral(body),
+                complete && literal.length() > 0);
+    }
+
+    private static String requiredLiteral(String body) {
+        if (MULTI_CHAR_ESCAPES.matcher(body).find()) {
+            return "";
+        }
+        int n = body.length();
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < n) {
+            char c = body.charAt(i);
+            char value;
+            int end;
+            if (c == '(' || c == '[') {
+                best = longer(best, run);
+                i = skipQuantifier(body, c == '(' ? skipGroup(body, i) : skipClass(body, i));
+                continue;
+            } else if (c == '.' || c == '^' || c == '$') {
+                best = longer(best, run);
+                i = skipQuantifier(body, i + 1);
+                continue;
+            } else if (META.indexOf(c) >= 0) {
+                break;
+            } else if (c == '\\') {
+                if (i + 1 >= n) {
+                    break;
+                }
+                char escaped = body.charAt(i + 1);
+                int control = "tnrf".indexOf(escaped);
+                if (control < 0 && Character.isLetterOrDigit(escaped)) {
+                    best = longer(best, run);
+                    i = skipQuantifier(body, i + 2);
+                    continue;
+                }
+                value = control >= 0 ? "\t\n\r\f".charAt(control) : escaped;
+                end = i + 2;
+            } else {
+                value = c;
+                end = i + 1;
+            }
+            char quantifier = end < n ? body.charAt(end) : 0;
+            if (quantifier == '*' || quantifier == '?' || quantifier == '{') {
+                best = longer(best, run);
+            } else if (quantifier == '+') {
+                run.append(value);
+                best = longer(best, run);
+            } else {
+                run.append(value);
+            }
+            i = skipQuantifier(body, end);
+        }
+        best = longer(best, run);
+        return best.length() >= 2 ? best : "";
+    }
+
+    private static String longer(String best, StringBuilder run) {
+        String result = run.length() > best.length() ? run.toString() : best;
+        run.setLength(0);
+        return result;
+    }
+
+    private static int skipQuantifier(String body, int i) {
+        if (i >= body.length()) {
+            return i;
+        }
+        char c = body.charAt(i);
+        if (c == '*' || c == '+' || c == '?') {
+            i++;
+        } else if (c == '{') {
+            int close = body.indexOf('}', i);
+            i = close < 0 ? body.length() : close + 1;
+        } else {
+            return i;
+        }
+        if (i < body.length() && (body.charAt(i) == '?' || body.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipGroup(String body, int open) {
+        int depth = 0;
+        for (int i = open; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = skipClass(body, i) - 1;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return body.length();
+    }
+
+    private static int skipClass(String body, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < body.length()) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                // A leading ']' (or '^]') is a literal member of the class.
+                if (i + 1 < body.length() && body.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < body.length() && body.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return body.length();
+    }
+
+    /**
+     * Splits at {@code |} outside groups and character classes, or returns null
+     * when the brackets do not balance.
+     */
+    private static List<String> splitTopLevel(String body) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int classDepth = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (classDepth > 0) {
+                if (c == '[') {
+                    classDepth++;
+                } else if (c == ']') {
+                    classDepth--;
+                }
+            } else if (c == '[') {
+                classDepth = 1;
+                // A leading ']' (or '^]') is a literal member of the class.
+                if (i + 1 < body.length() && body.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < body.length() && body.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth < 0) {
+                    return null;
+                }
+            } else if (c == '|' && depth == 0) {
+                parts.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (depth != 0 || classDepth != 0) {
+            return null;
+        }
+        parts.add(body.substring(start));
+        return parts;
+    }
+}
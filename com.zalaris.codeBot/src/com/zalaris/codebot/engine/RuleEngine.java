@@ -0,0 +1,459 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.IntStream;
+
+import com.zalaris.codebot.bot.BotResponse.Provenance;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.data.RulePackCache;
+import com.zalaris.codebot.data.RuleRepository;
+import com.zalaris.codebot.model.MatchScope;
+import com.zalaris.codebot.model.Rule;
+import com.zalaris.codebot.util.Settings;
+
+/**
+ * Evaluates {@link RuleRepository} rules locally, without a backend round-trip.
+ * Patterns are compiled once per engine (with {@code MULTILINE}, so {@code ^}
+ * and {@code $} anchor at lines); each rule reports one violation for every line
+ * on which one of its matches starts. The source is tokenized first so that each
+ * rule only sees its {@link MatchScope}: code rules skip comments and literals
+ * and also see colon-chained statements spelled out. All rules of a scope share
+ * a single pass over the source through a {@link MultiPatternMatcher}; structure
+ * rules query an {@link AbapBlockTree} instead. Sources of at least
+ * {@code codebot.engine.parallel.min.kb} (default 512) are split into chunks that
+ * are evaluated in parallel; see {@link ChunkedEvaluation}. Rules whose
+ * {@linkplain CompiledRule#getRequiredTokens() required tokens} do not occur in
+ * the source (or changed region) are skipped; see {@link #getPrefilterStats()}.
+ * Patterns are matched in time linear in the source size; the few that need
+ * {@code java.util.regex} get {@code codebot.engine.regex.timeout.ms} (default
+ * 250) per source. Time, matches and skips per rule are added to the shared
+ * {@link RuleProfiler} unless {@code codebot.engine.profile} is {@code false}.
+ */
+public final class RuleEngine {
+
+    public static final String LOCAL_RULE_PACK = "local-rules";
+
+    private static final MatchScope[] SCOPES = MatchScope.values();
+
+    private static volatile RuleEngine defaultEngine;
+    private static volatile String defaultPackHash;
+
+    private final List<CompiledRule> rules;
+    private final int[][] scopeRules;
+    /** Per text scope, the rules not anchored to the whole input and their matcher. */
+    private final int[][] sliceRules;
+    private final MultiPatternMatcher[] matchers;
+    /** Per text scope, the rules anchored to the whole input and their matcher. */
+    private final int[][] anchoredScopeRules;
+    private final MultiPatternMatcher[] anchoredMatchers;
+    private final int[] anchoredRules;
+    private final int parallelMinChars;
+    private final LongAdder rulesChecked = new LongAdder();
+    private final LongAdder rulesSkipped = new LongAdder();
+    private final RuleProfiler profiler;
+    private final RuleProfiler.Entry[] profiles;
+
+    public RuleEngine(List<Rule> rules) {
+        this(rules, Boolean.parseBoolean(Settings.read("codebot.engine.profile", "true")) ? RuleProfiler.getShared() : null);
+    }
+
+    /**
+     * @param profiler where rule costs are recorded, or null to not measure them
+     */
+    public RuleEngine(List<Rule> rules, RuleProfiler profiler) {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (Rule rule : rules) {
+            CompiledRule c = compile(rule);
+            if (c != null) {
+                compiled.add(c);
+            }
+        }
+        this.rules = Collections.unmodifiableList(compiled);
+        this.scopeRules = new int[SCOPES.length][];
+        this.sliceRules = new int[SCOPES.length][];
+        this.matchers = new MultiPatternMatcher[SCOPES.length];
+        this.anchoredScopeRules = new int[SCOPES.length][];
+        this.anchoredMatchers = new MultiPatternMatcher[SCOPES.length];
+        int regexTimeLimit = parseInt(Settings.read("codebot.engine.regex.timeout.ms", "250"), 250);
+        for (MatchScope scope : SCOPES) {
+            int s = scope.ordinal();
+            scopeRules[s] = IntStream.range(0, compiled.size())
+                    .filter(r -> compiled.get(r).getRule().getScope() == scope).toArray();
+            if (scope == MatchScope.STRUCTURE) {
+                continue;
+            }
+            sliceRules[s] = Arrays.stream(scopeRules[s]).filter(r -> !compiled.get(r).anchorsInput()).toArray();
+            matchers[s] = matcher(compiled, sliceRules[s], regexTimeLimit);
+            anchoredScopeRules[s] = Arrays.stream(scopeRules[s]).filter(r -> compiled.get(r).anchorsInput()).toArray();
+            anchoredMatchers[s] = matcher(compiled, anchoredScopeRules[s], regexTimeLimit);
+        }
+        this.anchoredRules = IntStream.range(0, compiled.size()).filter(r -> compiled.get(r).anchorsInput()).toArray();
+        this.parallelMinChars = parseInt(Settings.read("codebot.engine.parallel.min.kb", "512"), 512) * 1024;
+        this.profiler = profiler;
+        this.profiles = new RuleProfiler.Entry[compiled.size()];
+        if (profiler != null) {
+            for (int r = 0; r < profiles.length; r++) {
+                profiles[r] = profiler.entry(compiled.get(r).getRule());
+            }
+        }
+    }
+
+    /**
+     * Engine for the built-in rules and the cached rule pack; rebuilt once the
+     * cache holds a different pack.
+     */
+    public static RuleEngine getDefault() {
+        String packHash = RulePackCache.getShared().getContentHash();
+        RuleEngine engine = defaultEngine;
+        if (engine == null || !packHash.equals(defaultPackHash)) {
+            engine = new RuleEngine(RuleRepository.getEffectiveRules());
+            defaultEngine = engine;
+            defaultPackHash = packHash;
+        }
+        return engine;
+    }
+
+    public List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    public List<RuleViolation> evaluate(String source) {
+        boolean large = source != null && source.length() >= parallelMinChars
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+        return evaluate(source, large ? ForkJoinPool.commonPool() : null);
+    }
+
+    /**
+     * Evaluates the source in chunks on {@code pool}, or in one pass on the
+     * calling thread when {@code pool} is null. Both give the same violations.
+     */
+    public List<RuleViolation> evaluate(String source, ForkJoinPool pool) {
+        if (source == null || source.isEmpty() || rules.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (pool == null) {
+            return toViolations(findLines(source, true, true));
+        }
+        return toViolations(ChunkedEvaluation.findLines(this, source, pool));
+    }
+
+    /**
+     * Evaluates only the textual rules, only the structure rules, or both, on the
+     * calling thread; for callers that want the cheap rules answered first.
+     */
+    public List<RuleViolation> evaluate(String source, boolean textual, boolean structure) {
+        if (source == null || source.isEmpty() || rules.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return toViolations(findLines(source, textual, structure));
+    }
+
+    /**
+     * How many rule evaluations this engine was asked for so far and how many of
+     * them were skipped because a required token was missing.
+     */
+    public PrefilterStats getPrefilterStats() {
+        return new PrefilterStats(rulesChecked.sum(), rulesSkipped.sum());
+    }
+
+    public void resetPrefilterStats() {
+        rulesChecked.reset();
+        rulesSkipped.reset();
+    }
+
+    /**
+     * Rule evaluations considered and skipped by the keyword prefilter.
+     */
+    public record PrefilterStats(long checked, long skipped) {
+
+        public double skipRatio() {
+            return checked == 0 ? 0d : (double) skipped / checked;
+        }
+
+        @Override
+        public String toString() {
+            return skipped + "/" + checked + " rule evaluations skipped ("
+                    + String.format(Locale.ROOT, "%.1f", skipRatio() * 100) + "%)";
+        }
+    }
+
+    boolean hasStructureRules() {
+        return scopeRules[MatchScope.STRUCTURE.ordinal()].length > 0;
+    }
+
+    boolean isStructureRule(int rule) {
+        return rules.get(rule).getRule().getScope() == MatchScope.STRUCTURE;
+    }
+
+    /**
+     * Lines matched per rule (indexed like {@link #getRules()}, null when none),
+     * limited to the textual rules, the structure rules, or both.
+     */
+    BitSet[] findLines(String source, boolean textual, boolean structure) {
+        return findLines(source, textual, textual, structure);
+    }
+
+    /**
+     * Like {@link #findLines(String, boolean, boolean)} for a slice of a larger
+     * source: the rules anchored to the whole input are left out, see
+     * {@link #findAnchoredLines(String, BitSet[])}.
+     */
+    BitSet[] findSliceLines(String region, boolean textual, boolean structure) {
+        return findLines(region, textual, false, structure);
+    }
+
+    boolean hasAnchoredRules() {
+        return anchoredRules.length > 0;
+    }
+
+    boolean isAnchoredRule(int rule) {
+        return rules.get(rule).anchorsInput();
+    }
+
+    /**
+     * Replaces the results of the rules anchored to the whole input (see
+     * {@link CompiledRule#anchorsInput()}) with their lines in the full
+     * {@code source}, for callers that evaluated slices of it.
+     */
+    void findAnchoredLines(String source, BitSet[] found) {
+        if (anchoredRules.length == 0) {
+            return;
+        }
+        BitSet[] anchored = findLines(source, false, true, false);
+        for (int r : anchoredRules) {
+            found[r] = anchored[r];
+        }
+    }
+
+    private BitSet[] findLines(String source, boolean textual, boolean anchored, boolean structure) {
+        BitSet[] found = new BitSet[rules.size()];
+        if (source.isEmpty()) {
+            return found;
+        }
+        ScopedSource scoped = new ScopedSource(source);
+        Profile profile = profiler == null ? null : new Profile(rules.size());
+        int checked = 0;
+        int skipped = 0;
+        if (structure) {
+            for (int r : scopeRules[MatchScope.STRUCTURE.ordinal()]) {
+                checked++;
+                // The block tree is only built once a rule's keywords are present.
+                if (rules.get(r).hasRequiredKeywords(scoped.getKeywords())) {
+                    long began = profile == null ? 0L : System.nanoTime();
+                    found[r] = evaluateStructure(rules.get(r), scoped);
+                    if (profile != null) {
+                        profile.nanos[r] += System.nanoTime() - began;
+                    }
+                } else {
+                    skipped++;
+                    if (profile != null) {
+                        profile.skipped[r] = true;
+                    }
+                }
+                if (profile != null) {
+                    profile.considered[r] = true;
+                }
+            }
+        }
+        if (textual || anchored) {
+            BitSet possible = new BitSet();
+            for (MatchScope scope : SCOPES) {
+                int s = scope.ordinal();
+                if (textual && matchers[s] != null) {
+                    checked += sliceRules[s].length;
+                    skipped += match(found, scoped, scope, matchers[s], sliceRules[s], profile, possible);
+                }
+                if (anchored && anchoredMatchers[s] != null) {
+                    checked += anchoredScopeRules[s].length;
+                    skipped += match(found, scoped, scope, anchoredMatchers[s], anchoredScopeRules[s], profile,
+                            possible);
+                }
+            }
+        }
+        rulesChecked.add(checked);
+        rulesSkipped.add(skipped);
+        if (profile != null) {
+            for (int r = 0; r < found.length; r++) {
+                profile.matches[r] = found[r] == null ? 0 : found[r].cardinality();
+            }
+            profiler.record(profiles, profile.considered, profile.skipped, profile.matches, profile.nanos);
+        }
+        return found;
+    }
+
+    /**
+     * Runs one matcher over the text of its scope and merges its lines into
+     * {@code found}; returns how many of its rules the prefilter skipped.
+     */
+    private static int match(BitSet[] found, ScopedSource scoped, MatchScope scope, MultiPatternMatcher matcher,
+            int[] indexes, Profile profile, BitSet possible) {
+        long[] cost = profile == null ? null : new long[indexes.length];
+        possible.clear();
+        merge(found, indexes, matcher.match(scoped.text(scope), scoped.getLines(), scoped.starts(scope), possible,
+                cost), null);
+        if (scope == MatchScope.CODE && !scoped.chainText().isEmpty()) {
+            merge(found, indexes, matcher.match(scoped.chainText(), scoped.chainLines(), scoped.chainStarts(),
+                    possible, cost), scoped);
+        }
+        if (profile != null) {
+            for (int i = 0; i < indexes.length; i++) {
+                int r = indexes[i];
+                profile.considered[r] = true;
+                profile.skipped[r] = !possible.get(i);
+                profile.nanos[r] += cost[i];
+            }
+        }
+        return indexes.length - possible.cardinality();
+    }
+
+    private static MultiPatternMatcher matcher(List<CompiledRule> compiled, int[] indexes, int regexTimeLimit) {
+        if (indexes.length == 0) {
+            return null;
+        }
+        List<CompiledRule> scoped = new ArrayList<>(indexes.length);
+        for (int r : indexes) {
+            scoped.add(compiled.get(r));
+        }
+        return new MultiPatternMatcher(scoped, regexTimeLimit);
+    }
+
+    /** What one {@link #findLines} call spent per rule, recorded at its end. */
+    private static final class Profile {
+        final boolean[] considered;
+        final boolean[] skipped;
+        final int[] matches;
+        final long[] nanos;
+
+        Profile(int rules) {
+            considered = new boolean[rules];
+            skipped = new boolean[rules];
+            matches = new int[rules];
+            nanos = new long[rules];
+        }
+    }
+
+    /**
+     * Reference evaluation with one {@code find} loop per rule. Produces the same
+     * violations as {@link #evaluate(String)}; kept for benchmarks and cross-checks.
+     */
+    public List<RuleViolation> evaluatePerRule(String source) {
+        if (source == null || source.isEmpty() || rules.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ScopedSource scoped = new ScopedSource(source);
+        BitSet[] found = new BitSet[rules.size()];
+        for (int r = 0; r < rules.size(); r++) {
+            CompiledRule rule = rules.get(r);
+            found[r] = rule.getRule().getScope() == MatchScope.STRUCTURE ? evaluateStructure(rule, scoped)
+                    : evaluateText(rule, scoped);
+        }
+        return toViolations(found);
+    }
+
+    private static BitSet evaluateText(CompiledRule rule, ScopedSource scoped) {
+        MatchScope scope = rule.getRule().getScope();
+        BitSet lines = new BitSet();
+        MultiPatternMatcher.findLines(rule.getPattern(), scoped.text(scope), scoped.getLines(),
+                scoped.starts(scope), lines::set);
+        if (scope == MatchScope.CODE && !scoped.chainText().isEmpty()) {
+            MultiPatternMatcher.findLines(rule.getPattern(), scoped.chainText(), scoped.chainLines(),
+                    scoped.chainStarts(), line -> lines.set(scoped.sourceLine(line)));
+        }
+        return lines.isEmpty() ? null : lines;
+    }
+
+    private static BitSet evaluateStructure(CompiledRule rule, ScopedSource scoped) {
+        BitSet lines = new BitSet();
+        StructuralRules.evaluate(rule.getRule().getPattern(), scoped.getBlocks(), scoped.getLines(), lines::set);
+        return lines.isEmpty() ? null : lines;
+    }
+
+    /**
+     * Copies per-scope results into rule order. With {@code chains} set, the
+     * results are chain text lines and are mapped back to source lines.
+     */
+    private static void merge(BitSet[] found, int[] indexes, BitSet[] scoped, ScopedSource chains) {
+        for (int i = 0; i < scoped.length; i++) {
+            BitSet hits = scoped[i];
+            if (hits == null) {
+                continue;
+            }
+            int r = indexes[i];
+            if (found[r] == null) {
+                found[r] = new BitSet();
+            }
+            if (chains == null) {
+                found[r].or(hits);
+            } else {
+                for (int line = hits.nextSetBit(0); line >= 0; line = hits.nextSetBit(line + 1)) {
+                    found[r].set(chains.sourceLine(line));
+                }
+            }
+        }
+    }
+
+    List<RuleViolation> toViolations(BitSet[] found) {
+        List<RuleViolation> result = new ArrayList<>();
+        for (int r = 0; r < found.length; r++) {
+            BitSet hits = found[r];
+            if (hits == null) {
+                continue;
+            }
+            for (int line = hits.nextSetBit(0); line >= 0; line = hits.nextSetBit(line + 1)) {
+                result.add(toViolation(rules.get(r), line));
+            }
+        }
+        return result;
+    }
+
+    static RuleViolation toViolation(CompiledRule compiled, int line) {
+        Rule rule = compiled.getRule();
+        return new RuleViolation(
+                "ADT",
+                LOCAL_RULE_PACK,
+                rule.getId(),
+                rule.getTitle(),
+                rule.getDescription(),
+                compiled.getSeverity(),
+                line,
+                rule.getGoodExample() == null ? "" : rule.getGoodExample(),
+                Provenance.LOCAL);
+    }
+
+    private static CompiledRule compile(Rule rule) {
+        String pattern = rule.getPattern();
+        if (pattern == null || pattern.isEmpty()) {
+            return null;
+        }
+        if (rule.getScope() == MatchScope.STRUCTURE) {
+            if (!StructuralRules.isKnown(pattern)) {
+                System.out.println("[CodeBot] Skipping local rule " + rule.getId() + ": unknown structural query " + pattern);
+                return null;
+            }
+            return new CompiledRule(rule, null);
+        }
+        try {
+            return new CompiledRule(rule, Pattern.compile(pattern, Pattern.MULTILINE));
+        } catch (PatternSyntaxException ex) {
+            System.out.println("[CodeBot] Skipping local rule " + rule.getId() + ": invalid pattern " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
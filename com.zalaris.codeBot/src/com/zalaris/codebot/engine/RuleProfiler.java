@@ -0,0 +1,155 @@
+package com.zalaris.codebot.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.zalaris.codebot.model.Rule;
+import com.zalaris.codebot.util.JsonUtil;
+
+/**
+ * Cost of each local rule over the session, kept by rule id so that it adds up
+ * across rule pack reloads and engines. A rule's time is its own scans and
+ * structure query, plus its part of two shared passes: trigger verification in
+ * proportion to the hits verified for it, and an even share of the scan it has
+ * in common with other rules. Tokenizing and the keyword scan serve every rule
+ * and are not attributed.
+ */
+public final class RuleProfiler {
+
+    private static final RuleProfiler SHARED = new RuleProfiler();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long startedAtMs = System.currentTimeMillis();
+
+    RuleProfiler() {
+    }
+
+    public static RuleProfiler getShared() {
+        return SHARED;
+    }
+
+    /** Profile rows sorted by total time, most expensive first. */
+    public synchronized List<RuleProfile> snapshot() {
+        List<RuleProfile> rows = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            rows.add(new RuleProfile(entry.ruleId, entry.title, entry.scope, entry.evaluations, entry.skipped,
+                    entry.matches, entry.nanos));
+        }
+        rows.sort(Comparator.comparingLong(RuleProfile::nanos).reversed()
+                .thenComparing(RuleProfile::ruleId));
+        return rows;
+    }
+
+    public synchronized void reset() {
+        for (Entry entry : entries.values()) {
+            entry.evaluations = 0;
+            entry.skipped = 0;
+            entry.matches = 0;
+            entry.nanos = 0;
+        }
+        startedAtMs = System.currentTimeMillis();
+    }
+
+    /** The snapshot as a JSON document for rule authors. */
+    public String toJson() {
+        List<RuleProfile> rows = snapshot();
+        long total = 0;
+        for (RuleProfile row : rows) {
+            total += row.nanos();
+        }
+        List<Object> rules = new ArrayList<>(rows.size());
+        for (RuleProfile row : rows) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("rule_id", row.ruleId());
+            item.put("title", row.title());
+            item.put("scope", row.scope());
+            item.put("evaluations", row.evaluations());
+            item.put("skipped", row.skipped());
+            item.put("matches", row.matches());
+            item.put("total_ms", round(row.totalMillis()));
+            item.put("avg_us", round(row.averageMicros()));
+            item.put("share", round(total == 0 ? 0d : (double) row.nanos() / total));
+            rules.add(item);
+        }
+        Map<String, Object> document = new LinkedHashMap<>();
+        synchronized (this) {
+            document.put("since", startedAtMs);
+        }
+        document.put("exported", System.currentTimeMillis());
+        document.put("total_ms", round(total / 1_000_000d));
+        document.put("rules", rules);
+        return JsonUtil.stringify(document);
+    }
+
+    /** The entry an engine records a rule into; shared by every engine with that rule id. */
+    synchronized Entry entry(Rule rule) {
+        Entry entry = entries.get(rule.getId());
+        if (entry == null) {
+            entry = new Entry(rule.getId());
+            entries.put(rule.getId(), entry);
+        }
+        entry.title = rule.getTitle() == null ? "" : rule.getTitle();
+        entry.scope = String.valueOf(rule.getScope());
+        return entry;
+    }
+
+    /**
+     * Adds one evaluation per rule; arrays are indexed like {@code rules}, and
+     * {@code considered} marks the rules that took part.
+     */
+    synchronized void record(Entry[] rules, boolean[] considered, boolean[] skipped, int[] matches, long[] nanos) {
+        for (int r = 0; r < rules.length; r++) {
+            if (!considered[r]) {
+                continue;
+            }
+            Entry entry = rules[r];
+            entry.evaluations++;
+            if (skipped[r]) {
+                entry.skipped++;
+            }
+            entry.matches += matches[r];
+            entry.nanos += nanos[r];
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000d) / 1000d;
+    }
+
+    /** Running totals of one rule id; guarded by the profiler. */
+    static final class Entry {
+        private final String ruleId;
+        private String title = "";
+        private String scope = "";
+        private long evaluations;
+        private long skipped;
+        private long matches;
+        private long nanos;
+
+        Entry(String ruleId) {
+            this.ruleId = ruleId;
+        }
+    }
+
+    /**
+     * One rule's totals: evaluations asked for, how many the prefilter skipped,
+     * lines matched, and time spent.
+     */
+    public record RuleProfile(String ruleId, String title, String scope, long evaluations, long skipped,
+            long matches, long nanos) {
+
+        public double totalMillis() {
+            return nanos / 1_000_000d;
+        }
+
+        /** Time per evaluation that was not skipped. */
+        public double averageMicros() {
+            long run = evaluations - skipped;
+            return run == 0 ? 0d : nanos / 1_000d / run;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.zalaris.codebot.engine;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+import com.zalaris.codebot.model.MatchScope;
+
+/**
+ * A tokenized source prepared for rule matching: the text and start filter for
+ * each {@link MatchScope}, and a second text with every colon-chained statement
+ * spelled out in full ({@code DATA: a TYPE i, b TYPE p.} becomes
+ * {@code DATA a TYPE i.} and {@code DATA b TYPE p.}) so code rules also see
+ * chained links.
+ */
+final class ScopedSource {
+
+    private final String source;
+    private final AbapTokens tokens;
+    private final LineIndex lines;
+    private final String code;
+
+    private final String chains;
+    private final LineIndex chainLines;
+    private final int[] chainPrefixLength;
+    private final int[] chainLine;
+
+    private final IntPredicate codeStarts;
+    private final IntPredicate commentStarts;
+    private final IntPredicate chainStarts;
+
+    private AbapBlockTree blocks;
+    private BitSet keywords;
+
+    ScopedSource(String source) {
+        this.source = source;
+        this.tokens = AbapLexer.tokenize(source);
+        this.lines = new LineIndex(source);
+        this.code = blankComments(source, tokens);
+        this.codeStarts = start -> {
+            int token = tokens.indexAt(start);
+            if (token < 0) {
+                return true;
+            }
+            int kind = tokens.kind(token);
+            if (kind == AbapTokens.COMMENT) {
+                return false;
+            }
+            // A match may start at a literal, but not inside one.
+            return (kind != AbapTokens.STRING && kind != AbapTokens.TEMPLATE) || start == tokens.offset(token);
+        };
+        this.commentStarts = start -> {
+            int token = tokens.indexAt(start);
+            return token >= 0 && tokens.kind(token) == AbapTokens.COMMENT;
+        };
+
+        int chained = 0;
+        for (int s = 0; s < tokens.statementCount(); s++) {
+            if (tokens.isChained(s)) {
+                chained++;
+            }
+        }
+        chainPrefixLength = new int[chained];
+        chainLine = new int[chained];
+        StringBuilder sb = new StringBuilder();
+        int c = 0;
+        for (int s = 0; s < tokens.statementCount(); s++) {
+            if (!tokens.isChained(s)) {
+                continue;
+            }
+            int lineStart = sb.length();
+            appendFlat(sb, code, tokens.offset(tokens.chainPrefixFirst(s)), tokens.end(tokens.chainPrefixEnd(s) - 1));
+            sb.append(' ');
+            chainPrefixLength[c] = sb.length() - lineStart;
+            int first = tokens.statementFirst(s);
+            appendFlat(sb, code, tokens.offset(first), tokens.end(tokens.statementEnd(s) - 1));
+            sb.append(".\n");
+            chainLine[c] = lines.lineOf(tokens.offset(first));
+            c++;
+        }
+        this.chains = sb.toString();
+        this.chainLines = new LineIndex(chains);
+        this.chainStarts = start -> {
+            int chain = chainLines.lineOf(start);
+            return chain <= chainPrefixLength.length
+                    && start - chainLines.lineStart(chain) < chainPrefixLength[chain - 1];
+        };
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    AbapTokens getTokens() {
+        return tokens;
+    }
+
+    LineIndex getLines() {
+        return lines;
+    }
+
+    AbapBlockTree getBlocks() {
+        if (blocks == null) {
+            blocks = AbapBlockTree.build(tokens);
+        }
+        return blocks;
+    }
+
+    /**
+     * Ids of the {@link AbapKeywords} that occur as tokens, from one pass over
+     * the tokens.
+     */
+    BitSet getKeywords() {
+        if (keywords == null) {
+            BitSet present = new BitSet();
+            for (int t = 0; t < tokens.size(); t++) {
+                int keyword = tokens.keyword(t);
+                if (keyword != AbapKeywords.NONE) {
+                    present.set(keyword);
+                }
+            }
+            keywords = present;
+        }
+        return keywords;
+    }
+
+    String text(MatchScope scope) {
+        return scope == MatchScope.CODE ? code : source;
+    }
+
+    IntPredicate starts(MatchScope scope) {
+        switch (scope) {
+        case CODE:
+            return codeStarts;
+        case COMMENTS:
+            return commentStarts;
+        default:
+            return start -> true;
+        }
+    }
+
+    /**
+     * Every chained statement with its prefix written out and terminated by a
+     * period, one per line (line breaks inside a link become spaces).
+     */
+    String chainText() {
+        return chains;
+    }
+
+    LineIndex chainLines() {
+        return chainLines;
+    }
+
+    /**
+     * Matches in the chain text only count when they start in a prefix; anything
+     * else is already found in the source itself.
+     */
+    IntPredicate chainStarts() {
+        return chainStarts;
+    }
+
+    /**
+     * Source line of the chain link on the given (1-based) chain text line.
+     */
+    int sourceLine(int chainTextLine) {
+        return chainLine[chainTextLine - 1];
+    }
+
+    private static void appendFlat(StringBuilder sb, String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            sb.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    private static String blankComments(String source, AbapTokens tokens) {
+        char[] chars = null;
+        for (int t = 0; t < tokens.size(); t++) {
+            if (tokens.kind(t) != AbapTokens.COMMENT) {
+                continue;
+            }
+            if (chars == null) {
+                chars = source.toCharArray();
+            }
+            int end = tokens.end(t);
+            for (int i = tokens.offset(t); i < end; i++) {
+                chars[i] = ' ';
+            }
+        }
+        return chars == null ? source : new String(chars);
+    }
+}
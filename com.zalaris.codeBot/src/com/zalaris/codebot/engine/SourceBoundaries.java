@@ -0,0 +1,128 @@
+package com.zalaris.codebot.engine;
+
+/**
+ * Statement and procedure boundaries of ABAP source, decided line by line. Text
+ * rules give the same results on a slice that starts and ends at statement
+ * boundaries as on the whole source, and structure rules on a slice between two
+ * FORM, METHOD or FUNCTION statements, since the block tree closes everything
+ * still open at a procedure. Lines are 1-based, like {@link LineIndex}.
+ */
+final class SourceBoundaries {
+
+    private static final int NO_CODE = 0;
+    private static final int OPEN = 1;
+    private static final int STATEMENT_END = 2;
+
+    private SourceBoundaries() {
+    }
+
+    static int widenToStatementStart(String source, LineIndex index, int line) {
+        while (line > 1 && !endsStatement(source, index, line - 1)) {
+            line--;
+        }
+        return line;
+    }
+
+    static int widenToStatementEnd(String source, LineIndex index, int line) {
+        while (line < index.getLineCount() && !endsStatement(source, index, line)) {
+            line++;
+        }
+        return line;
+    }
+
+    static boolean endsStatement(String source, LineIndex index, int line) {
+        return lineState(source, index, line) == STATEMENT_END;
+    }
+
+    /**
+     * Whether the line starts a statement: the last line with code above it ends one.
+     */
+    static boolean startsStatement(String source, LineIndex index, int line) {
+        for (int above = line - 1; above >= 1; above--) {
+            int state = lineState(source, index, above);
+            if (state != NO_CODE) {
+                return state == STATEMENT_END;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the line has code and whether its last code token is a period.
+     * Comments and literals end with their line, so a single line can be lexed
+     * on its own; lines without quotes, templates or comments are decided by
+     * their last character.
+     */
+    private static int lineState(String source, LineIndex index, int line) {
+        int start = index.lineStart(line);
+        int end = lineEnd(source, index, line);
+        boolean plain = start == end || source.charAt(start) != '*';
+        int last = -1;
+        for (int i = start; i < end && plain; i++) {
+            char c = source.charAt(i);
+            if (c == '"' || c == '\'' || c == '`' || c == '|') {
+                plain = false;
+            } else if (!Character.isWhitespace(c)) {
+                last = i;
+            }
+        }
+        if (plain) {
+            return last < 0 ? NO_CODE : source.charAt(last) == '.' ? STATEMENT_END : OPEN;
+        }
+        AbapTokens tokens = AbapLexer.tokenize(source.substring(start, end));
+        for (int t = tokens.size() - 1; t >= 0; t--) {
+            if (tokens.kind(t) != AbapTokens.COMMENT) {
+                return tokens.kind(t) == AbapTokens.PERIOD ? STATEMENT_END : OPEN;
+            }
+        }
+        return NO_CODE;
+    }
+
+    /**
+     * Last line before the next procedure start after {@code line}, or the last line.
+     */
+    static int widenToUnitEnd(String source, LineIndex index, int line) {
+        while (line < index.getLineCount() && !opensUnit(source, index, line + 1)) {
+            line++;
+        }
+        return line;
+    }
+
+    /**
+     * Whether a FORM, METHOD or FUNCTION statement starts the line.
+     */
+    static boolean opensUnit(String source, LineIndex index, int line) {
+        int start = index.lineStart(line);
+        int end = lineEnd(source, index, line);
+        while (start < end && Character.isWhitespace(source.charAt(start))) {
+            start++;
+        }
+        if (start == end) {
+            return false;
+        }
+        char c = Character.toUpperCase(source.charAt(start));
+        if (c != 'F' && c != 'M') {
+            return false;
+        }
+        int word = start;
+        while (word < end && !Character.isWhitespace(source.charAt(word)) && source.charAt(word) != '.') {
+            word++;
+        }
+        int keyword = AbapKeywords.lookup(source, start, word - start);
+        return (keyword == AbapKeywords.FORM || keyword == AbapKeywords.METHOD || keyword == AbapKeywords.FUNCTION)
+                && startsStatement(source, index, line);
+    }
+
+    static int lineEnd(String source, LineIndex index, int line) {
+        return line < index.getLineCount() ? index.lineStart(line + 1) : source.length();
+    }
+
+    /**
+     * Text of lines {@code [first, last]}, including the final line break.
+     */
+    static String slice(String source, LineIndex index, int first, int last) {
+        int start = index.lineStart(first);
+        int end = last < index.getLineCount() ? index.lineStart(last + 1) : source.length();
+        return source.substring(start, Math.max(start, end));
+    }
+}
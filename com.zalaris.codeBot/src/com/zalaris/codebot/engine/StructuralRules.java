@@ -0,0 +1,110 @@
+package com.zalaris.codebot.engine;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Named queries over an {@link AbapBlockTree}, used by rules with
+ * {@code MatchScope.STRUCTURE} in place of a regular expression.
+ */
+final class StructuralRules {
+
+    /** SELECT, UPDATE or DELETE FROM at any depth inside a loop. */
+    static final String DB_ACCESS_IN_LOOP = "db-access-in-loop";
+    /** LOOP at any depth inside another LOOP. */
+    static final String NESTED_LOOP = "nested-loop";
+
+    private static final boolean[] STRUCTURAL = structuralKeywords(
+            AbapKeywords.LOOP, AbapKeywords.ENDLOOP, AbapKeywords.DO, AbapKeywords.ENDDO,
+            AbapKeywords.WHILE, AbapKeywords.ENDWHILE, AbapKeywords.SELECT, AbapKeywords.ENDSELECT,
+            AbapKeywords.TRY, AbapKeywords.CATCH, AbapKeywords.CLEANUP, AbapKeywords.ENDTRY,
+            AbapKeywords.METHOD, AbapKeywords.ENDMETHOD, AbapKeywords.FORM, AbapKeywords.ENDFORM,
+            AbapKeywords.FUNCTION, AbapKeywords.ENDFUNCTION, AbapKeywords.IF, AbapKeywords.ELSEIF,
+            AbapKeywords.ELSE, AbapKeywords.ENDIF, AbapKeywords.CASE, AbapKeywords.WHEN, AbapKeywords.ENDCASE,
+            AbapKeywords.UPDATE, AbapKeywords.DELETE);
+
+    private StructuralRules() {
+    }
+
+    static boolean isKnown(String query) {
+        return DB_ACCESS_IN_LOOP.equals(query) || NESTED_LOOP.equals(query);
+    }
+
+    /**
+     * Keywords the query needs: a source lacking one of every group has no match.
+     */
+    static int[][] requiredKeywords(String query) {
+        if (DB_ACCESS_IN_LOOP.equals(query)) {
+            return new int[][] {
+                    { AbapKeywords.LOOP, AbapKeywords.DO, AbapKeywords.WHILE, AbapKeywords.SELECT },
+                    { AbapKeywords.SELECT, AbapKeywords.UPDATE, AbapKeywords.DELETE } };
+        }
+        if (NESTED_LOOP.equals(query)) {
+            return new int[][] { { AbapKeywords.LOOP } };
+        }
+        return new int[0][];
+    }
+
+    /**
+     * Whether any token could open, close or section a block, or be reported by a
+     * query. Edits to text without such tokens cannot change structural results.
+     */
+    static boolean mentionsStructure(AbapTokens tokens) {
+        for (int t = 0; t < tokens.size(); t++) {
+            int keyword = tokens.keyword(t);
+            if (keyword != AbapKeywords.NONE && keyword < STRUCTURAL.length && STRUCTURAL[keyword]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports the line of every statement the query matches.
+     */
+    static void evaluate(String query, AbapBlockTree tree, LineIndex lines, IntConsumer sink) {
+        AbapTokens tokens = tree.getTokens();
+        if (DB_ACCESS_IN_LOOP.equals(query)) {
+            for (int s = 0; s < tokens.statementCount(); s++) {
+                if (isDbAccess(tokens, s) && tree.enclosingLoop(s) != AbapBlockTree.NONE) {
+                    sink.accept(lineOf(tokens, lines, s));
+                }
+            }
+        } else if (NESTED_LOOP.equals(query)) {
+            for (int b = 0; b < tree.size(); b++) {
+                if (tree.kind(b) == AbapKeywords.LOOP && tree.parent(b) != AbapBlockTree.NONE
+                        && tree.ancestor(tree.parent(b), AbapKeywords.LOOP) != AbapBlockTree.NONE) {
+                    sink.accept(lineOf(tokens, lines, tree.openStatement(b)));
+                }
+            }
+        }
+    }
+
+    private static boolean isDbAccess(AbapTokens tokens, int statement) {
+        int lead = tokens.statementLead(statement);
+        int keyword = tokens.keyword(lead);
+        if (keyword == AbapKeywords.SELECT || keyword == AbapKeywords.UPDATE) {
+            return true;
+        }
+        if (keyword == AbapKeywords.DELETE) {
+            int first = tokens.isChained(statement) ? tokens.statementFirst(statement) : lead + 1;
+            return tokens.isKeyword(tokens.nextCode(first, tokens.statementEnd(statement)), AbapKeywords.FROM);
+        }
+        return false;
+    }
+
+    private static int lineOf(AbapTokens tokens, LineIndex lines, int statement) {
+        return lines.lineOf(tokens.offset(tokens.statementFirst(statement)));
+    }
+
+    private static boolean[] structuralKeywords(int... keywords) {
+        int max = 0;
+        for (int keyword : keywords) {
+            max = Math.max(max, keyword);
+        }
+        boolean[] table = new boolean[max + 1];
+        for (int keyword : keywords) {
+            table[keyword] = true;
+        }
+        return table;
+    }
+}
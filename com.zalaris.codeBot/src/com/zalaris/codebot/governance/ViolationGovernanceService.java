@@ -10,11 +10,14 @@ import java.util.Map;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.PlatformUI;
 
 import com.zalaris.codebot.adt.AbapEditorUtil;
+import com.zalaris.codebot.adt.ViolationPositions;
 import com.zalaris.codebot.api.BackendApiClient;
+import com.zalaris.codebot.bot.BotResponseMapper;
 import com.zalaris.codebot.bot.BotResponse.RuleViolation;
 import com.zalaris.codebot.util.UserRoleUtil;
 
@@ -40,7 +43,24 @@ public final class ViolationGovernanceService {
             clearAllCodeBotMarkersInWorkspace();
             return;
         }
-        publishMarkers(majors);
+        publishMarkers(majors, true);
+    }
+
+    /**
+     * Adds violations that a later stage of the same validation found, such as
+     * backend results merged after the local ones: markers are created for the
+     * new MAJOR violations and the existing ones are left in place.
+     */
+    public static void addFromValidation(String objectName, List<RuleViolation> added) {
+        List<RuleViolation> majors = filterMajorOnly(added);
+        if (majors.isEmpty()) {
+            return;
+        }
+        List<RuleViolation> pending = new ArrayList<>(pendingMajorViolations);
+        pending.addAll(majors);
+        pendingObjectName = objectName == null ? "ADT_OBJECT" : objectName;
+        pendingMajorViolations = pending;
+        publishMarkers(majors, false);
     }
 
     public static void clear() {
@@ -91,7 +111,7 @@ public final class ViolationGovernanceService {
         BackendApiClient api = new BackendApiClient();
         try {
             Map<String, Object> response = api.validate(code, objectName, transport, false);
-            List<RuleViolation> majors = filterMajorOnly(parseViolations(response.get("violations")));
+            List<RuleViolation> majors = filterMajorOnly(BotResponseMapper.parseViolations(response.get("violations")));
 
             pendingObjectName = objectName;
             pendingMajorViolations = majors;
@@ -106,7 +126,7 @@ public final class ViolationGovernanceService {
                 return;
             }
 
-            publishMarkers(majors);
+            publishMarkers(majors, true);
             showForgotValidationWarning(majors.size());
             logMajorsToBackend(api, majors, objectName, transport);
         } catch (Exception ex) {
@@ -163,49 +183,6 @@ public final class ViolationGovernanceService {
         return value[0];
     }
 
-    private static List<RuleViolation> parseViolations(Object raw) {
-        if (!(raw instanceof List<?>)) {
-            return Collections.emptyList();
-        }
-        List<?> items = (List<?>) raw;
-        List<RuleViolation> result = new ArrayList<>();
-        for (Object item : items) {
-            if (!(item instanceof Map<?, ?>)) {
-                continue;
-            }
-            Map<?, ?> v = (Map<?, ?>) item;
-            result.add(new RuleViolation(
-                    asString(v.get("project"), "ADT"),
-                    asString(v.get("rule_pack"), "generic"),
-                    asString(v.get("rule_id"), "unknown.rule"),
-                    asString(v.get("title"), "Rule violation"),
-                    asString(v.get("message"), asString(v.get("description"), "Violation detected.")),
-                    asString(v.get("severity"), "MAJOR"),
-                    asInt(v.get("line"), 1),
-                    asString(v.get("suggested_code"), asString(v.get("fix"), ""))));
-        }
-        return result;
-    }
-
-    private static String asString(Object value, String fallback) {
-        if (value == null) {
-            return fallback;
-        }
-        String text = String.valueOf(value);
-        return text.isEmpty() ? fallback : text;
-    }
-
-    private static int asInt(Object value, int fallback) {
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
-        }
-        try {
-            return Integer.parseInt(String.valueOf(value));
-        } catch (Exception ex) {
-            return fallback;
-        }
-    }
-
     private static List<RuleViolation> filterMajorOnly(List<RuleViolation> violations) {
         if (violations == null || violations.isEmpty()) {
             return Collections.emptyList();
@@ -256,12 +233,16 @@ public final class ViolationGovernanceService {
         });
     }
 
-    private static void publishMarkers(List<RuleViolation> violations) {
+    private static void publishMarkers(List<RuleViolation> violations, boolean replace) {
         IResource resource = AbapEditorUtil.getActiveEditorResource();
         if (resource == null) {
             return;
         }
-        clearMarkers(resource);
+        if (replace) {
+            clearMarkers(resource);
+        }
+        List<RuleViolation> marked = new ArrayList<>();
+        List<IMarker> markers = new ArrayList<>();
         for (RuleViolation v : violations) {
             try {
                 IMarker marker = resource.createMarker(MARKER_TYPE);
@@ -270,10 +251,44 @@ public final class ViolationGovernanceService {
                         "You have activated the code without performing Zalaris Code governance validations and your code has Major Violations. Open  Zalcode  and fix the Violations.");
                 marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
                 marker.setAttribute(IMarker.LINE_NUMBER, Math.max(1, v.getLine()));
+                marked.add(v);
+                markers.add(marker);
             } catch (Exception ex) {
                 System.out.println("[CodeBot] Failed to create marker: " + ex.getMessage());
             }
         }
+        trackMarkers(marked, markers);
+    }
+
+    /**
+     * Ties each marker to its violation's position in the active document, so
+     * the marker moves with edits instead of waiting for the next validation.
+     */
+    private static void trackMarkers(List<RuleViolation> violations, List<IMarker> markers) {
+        if (markers.isEmpty()) {
+            return;
+        }
+        Runnable track = () -> {
+            IDocument document = AbapEditorUtil.getActiveDocument();
+            ViolationPositions positions = ViolationPositions.forDocument(document);
+            if (positions == null) {
+                positions = ViolationPositions.register(document, violations);
+            }
+            if (positions == null) {
+                return;
+            }
+            for (int i = 0; i < markers.size(); i++) {
+                positions.attachMarker(violations.get(i), markers.get(i));
+            }
+        };
+        if (Display.getCurrent() != null) {
+            track.run();
+            return;
+        }
+        Display display = Display.getDefault();
+        if (display != null && !display.isDisposed()) {
+            display.asyncExec(track);
+        }
     }
 
     public static void clearAllCodeBotMarkersInWorkspace() {
@@ -29,21 +29,22 @@ import org.eclipse.ui.handlers.HandlerUtil;
 
 import com.zalaris.codebot.adt.AbapEditorUtil;
 import com.zalaris.codebot.api.BackendApiClient;
-import com.zalaris.codebot.bot.BotResponse;
 import com.zalaris.codebot.bot.BotResponse.RuleViolation;
-import com.zalaris.codebot.bot.SimpleRuleBot;
+import com.zalaris.codebot.engine.AbapCodeFacts;
 import com.zalaris.codebot.governance.ViolationGovernanceService;
 import com.zalaris.codebot.util.UserRoleUtil;
+import com.zalaris.codebot.validation.ActivationValidator;
+import com.zalaris.codebot.validation.ActivationValidator.ValidationResult;
 import com.zalaris.codebot.views.GeneratedContentDialog;
 import com.zalaris.codebot.views.TechnicalDocumentDialog;
 
 /**
  * Command handler that performs validation before allowing activation.
- * If MAJOR validation fails, activation is blocked.
+ * If MAJOR validation fails, activation is blocked; see {@link ActivationValidator}.
  */
 public class ActivateWithValidationHandler extends AbstractHandler {
 
-    private final SimpleRuleBot bot = new SimpleRuleBot();
+    private final ActivationValidator validator = new ActivationValidator();
     private final BackendApiClient apiClient = new BackendApiClient();
 
     @Override
@@ -55,14 +56,16 @@ public class ActivateWithValidationHandler extends AbstractHandler {
             return null;
         }
 
-        BotResponse response = bot.validateCurrentEditor();
-        List<RuleViolation> violations = response.getViolations();
-        ViolationGovernanceService.updateFromValidation(
-                AbapEditorUtil.getActiveEditorNameOrDefault(),
-                violations);
-
-        if (hasMajor(violations)) {
-            MessageDialog.openError(shell, "Activation blocked", response.getMessage());
+        String objectName = AbapEditorUtil.getActiveEditorNameOrDefault();
+        ValidationResult result = validator.validate(
+                objectName,
+                "ADT",
+                AbapEditorUtil.getActiveEditorContentOrEmpty());
+        ViolationGovernanceService.updateFromValidation(objectName, result.violations());
+
+        if (!result.valid()) {
+            MessageDialog.openError(shell, "Activation blocked",
+                    result.message() + "\n\n" + buildValidationSummary(result.violations()));
             return null;
         }
 
@@ -72,19 +75,6 @@ public class ActivateWithValidationHandler extends AbstractHandler {
         return null;
     }
 
-    private boolean hasMajor(List<RuleViolation> violations) {
-        if (violations == null || violations.isEmpty()) {
-            return false;
-        }
-        for (RuleViolation v : violations) {
-            String severity = (v.getSeverity() == null ? "" : v.getSeverity()).toUpperCase(Locale.ROOT);
-            if ("MAJOR".equals(severity)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void performRealActivation() {
         // Placeholder where you'll call the ABAP activation service.
     }
@@ -350,27 +340,11 @@ public class ActivateWithValidationHandler extends AbstractHandler {
         if (code == null || code.isBlank()) {
             return "";
         }
-        String[] lines = code.split("\\R");
-        boolean hasSelect = false;
-        boolean hasDelete = false;
-        boolean hasAlv = false;
-        boolean hasTryCatch = false;
-        for (String raw : lines) {
-            String line = raw == null ? "" : raw.trim();
-            if (line.isEmpty()) {
-                continue;
-            }
-            String upper = line.toUpperCase(Locale.ROOT);
-            if (upper.startsWith("SELECT ")) {
-                hasSelect = true;
-            } else if (upper.contains("DELETE FROM ")) {
-                hasDelete = true;
-            } else if (upper.contains("CL_SALV_TABLE=>FACTORY") || upper.contains("LO_ALV->DISPLAY")) {
-                hasAlv = true;
-            } else if (upper.startsWith("TRY") || upper.startsWith("CATCH")) {
-                hasTryCatch = true;
-            }
-        }
+        AbapCodeFacts facts = AbapCodeFacts.of(code);
+        boolean hasSelect = facts.hasSelect();
+        boolean hasDelete = facts.hasDbDelete();
+        boolean hasAlv = facts.hasAlvOutput();
+        boolean hasTryCatch = facts.hasTryCatch();
         StringBuilder out = new StringBuilder();
         if (hasSelect) {
             out.append("Reads work-schedule and employee-related records for validation. ");
@@ -392,43 +366,14 @@ public class ActivateWithValidationHandler extends AbstractHandler {
         if (code == null || code.isBlank()) {
             return "";
         }
-        String[] lines = code.split("\\R");
-        boolean hasSelect = false;
-        boolean hasGroupBy = false;
-        boolean hasLoop = false;
-        boolean hasFunctionCall = false;
-        boolean hasDelete = false;
-        boolean hasAlv = false;
-        boolean hasTryCatch = false;
-
-        for (String raw : lines) {
-            String line = raw == null ? "" : raw.trim();
-            if (line.isEmpty()) {
-                continue;
-            }
-            String upper = line.toUpperCase(Locale.ROOT);
-            if (upper.startsWith("SELECT ")) {
-                hasSelect = true;
-            }
-            if (upper.contains("GROUP BY")) {
-                hasGroupBy = true;
-            }
-            if (upper.startsWith("LOOP AT ")) {
-                hasLoop = true;
-            }
-            if (upper.startsWith("CALL FUNCTION")) {
-                hasFunctionCall = true;
-            }
-            if (upper.contains("DELETE FROM ")) {
-                hasDelete = true;
-            }
-            if (upper.contains("CL_SALV_TABLE=>FACTORY") || upper.contains("LO_ALV->DISPLAY")) {
-                hasAlv = true;
-            }
-            if (upper.startsWith("TRY") || upper.startsWith("CATCH")) {
-                hasTryCatch = true;
-            }
-        }
+        AbapCodeFacts facts = AbapCodeFacts.of(code);
+        boolean hasSelect = facts.hasSelect();
+        boolean hasGroupBy = facts.hasGroupBy();
+        boolean hasLoop = facts.hasLoop();
+        boolean hasFunctionCall = facts.hasFunctionCall();
+        boolean hasDelete = facts.hasDbDelete();
+        boolean hasAlv = facts.hasAlvOutput();
+        boolean hasTryCatch = facts.hasTryCatch();
 
         List<String> steps = new java.util.ArrayList<>();
         int stepNo = 1;
@@ -475,27 +420,11 @@ public class ActivateWithValidationHandler extends AbstractHandler {
     }
 
     private String deriveMermaidFromCode(String code) {
-        boolean hasSelect = false;
-        boolean hasLoop = false;
-        boolean hasDelete = false;
-        boolean hasTryCatch = false;
-        if (code != null && !code.isBlank()) {
-            for (String raw : code.split("\\R")) {
-                String upper = (raw == null ? "" : raw.trim()).toUpperCase(Locale.ROOT);
-                if (upper.startsWith("SELECT ")) {
-                    hasSelect = true;
-                }
-                if (upper.startsWith("LOOP AT ")) {
-                    hasLoop = true;
-                }
-                if (upper.contains("DELETE FROM ")) {
-                    hasDelete = true;
-                }
-                if (upper.startsWith("TRY") || upper.startsWith("CATCH")) {
-                    hasTryCatch = true;
-                }
-            }
-        }
+        AbapCodeFacts facts = AbapCodeFacts.of(code);
+        boolean hasSelect = facts.hasSelect();
+        boolean hasLoop = facts.hasLoop();
+        boolean hasDelete = facts.hasDbDelete();
+        boolean hasTryCatch = facts.hasTryCatch();
 
         StringBuilder m = new StringBuilder();
         m.append("```mermaid").append(System.lineSeparator());
@@ -0,0 +1,27 @@
+package com.zalaris.codebot.handlers;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.jface.text.ITextViewer;
+
+import com.zalaris.codebot.adt.AbapEditorUtil;
+import com.zalaris.codebot.adt.TemplateCompletionProcessor;
+
+/**
+ * Opens the CodeBot template proposals in the active ABAP editor. ADT offers
+ * no extension point for its own content assist, so the proposals come from a
+ * separate assistant on the editor's text viewer; see
+ * {@link TemplateCompletionProcessor}.
+ */
+public class TemplateAssistHandler extends AbstractHandler {
+
+    @Override
+    public Object execute(ExecutionEvent event) throws ExecutionException {
+        ITextViewer viewer = AbapEditorUtil.getActiveTextViewer();
+        if (viewer != null) {
+            TemplateCompletionProcessor.showProposals(viewer);
+        }
+        return null;
+    }
+}
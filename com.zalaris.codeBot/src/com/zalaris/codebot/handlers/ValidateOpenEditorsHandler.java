@@ -0,0 +1,153 @@
+package com.zalaris.codebot.handlers;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import com.zalaris.codebot.adt.AbapEditorUtil;
+import com.zalaris.codebot.api.BackendApiClient;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.bot.BotResponseMapper;
+import com.zalaris.codebot.engine.RuleEngine;
+import com.zalaris.codebot.util.Settings;
+import com.zalaris.codebot.validation.BatchValidator;
+import com.zalaris.codebot.validation.BatchValidator.ObjectResult;
+import com.zalaris.codebot.validation.BatchValidator.ObjectSource;
+
+/**
+ * Validates every open ABAP editor in a background job. Objects go to the
+ * backend with a bounded number of requests in flight; with
+ * {@code codebot.batch.offline=true} only the local rule engine is used.
+ */
+public class ValidateOpenEditorsHandler extends AbstractHandler {
+
+    @Override
+    public Object execute(ExecutionEvent event) throws ExecutionException {
+        Shell shell = HandlerUtil.getActiveShell(event);
+        List<ObjectSource> sources = AbapEditorUtil.getOpenEditorSources();
+        if (sources.isEmpty()) {
+            MessageDialog.openInformation(shell, "CodeBot Validation", "No open ABAP editors to validate.");
+            return null;
+        }
+
+        Job job = new Job("Validating " + sources.size() + " open ABAP objects") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                return validate(sources, monitor);
+            }
+        };
+        job.setUser(true);
+        job.schedule();
+        return null;
+    }
+
+    private IStatus validate(List<ObjectSource> sources, IProgressMonitor monitor) {
+        SubMonitor progress = SubMonitor.convert(monitor, "Validating open ABAP objects", sources.size());
+        BatchValidator validator = new BatchValidator(RuleEngine.getDefault());
+        BatchValidator.Listener listener = (result, completed, total) -> {
+            synchronized (progress) {
+                progress.subTask(completed + "/" + total + ": " + result.objectName());
+                progress.worked(1);
+            }
+        };
+
+        long started = System.nanoTime();
+        List<ObjectResult> results;
+        boolean offline = "true".equalsIgnoreCase(Settings.read("codebot.batch.offline", "false"));
+        if (offline) {
+            results = validator.validateLocally(sources, listener, monitor::isCanceled);
+        } else {
+            BackendApiClient api = new BackendApiClient();
+            int concurrency = parseInt(Settings.read("codebot.batch.backend.concurrency", "4"), 4);
+            try {
+                results = validator.validateRemotely(sources, source -> {
+                    Map<String, Object> response = api.validate(source.code(), source.objectName(), "ADT", false);
+                    return BotResponseMapper.parseViolations(response.get("violations"));
+                }, concurrency, listener, monitor::isCanceled);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Status.CANCEL_STATUS;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000L;
+        System.out.println("[CodeBot] Batch validation of " + results.size() + "/" + sources.size()
+                + " objects took " + elapsedMillis + " ms" + (offline ? " (offline)" : ""));
+
+        showSummary(results, sources.size(), monitor.isCanceled());
+        return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+
+    private void showSummary(List<ObjectResult> results, int total, boolean canceled) {
+        StringBuilder summary = new StringBuilder();
+        if (canceled) {
+            summary.append("Canceled after ").append(results.size()).append(" of ").append(total)
+                    .append(" objects.\n\n");
+        }
+        int failedOver = 0;
+        for (ObjectResult result : results) {
+            summary.append(result.objectName()).append(": ").append(countBySeverity(result.violations()));
+            if (result.error() != null) {
+                summary.append(" (local rules)");
+                failedOver++;
+            }
+            summary.append('\n');
+        }
+        if (failedOver > 0) {
+            summary.append('\n').append(failedOver)
+                    .append(" object(s) were checked with local rules because the backend was unavailable.");
+        }
+
+        Display display = Display.getDefault();
+        if (display == null || display.isDisposed()) {
+            return;
+        }
+        display.asyncExec(() -> {
+            if (PlatformUI.getWorkbench().getActiveWorkbenchWindow() == null) {
+                return;
+            }
+            MessageDialog.openInformation(
+                    PlatformUI.getWorkbench().getActiveWorkbenchWindow().getShell(),
+                    "CodeBot Validation",
+                    summary.toString().trim());
+        });
+    }
+
+    private String countBySeverity(List<RuleViolation> violations) {
+        int major = 0;
+        int minor = 0;
+        int info = 0;
+        for (RuleViolation v : violations) {
+            String severity = (v.getSeverity() == null ? "" : v.getSeverity()).toUpperCase(Locale.ROOT);
+            if ("MAJOR".equals(severity)) {
+                major++;
+            } else if ("MINOR".equals(severity)) {
+                minor++;
+            } else {
+                info++;
+            }
+        }
+        return "major=" + major + ", minor=" + minor + ", info=" + info;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+}
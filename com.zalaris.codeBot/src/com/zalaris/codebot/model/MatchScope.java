@@ -0,0 +1,15 @@
+package com.zalaris.codebot.model;
+
+/**
+ * Which parts of the source a rule pattern is matched against.
+ */
+public enum MatchScope {
+    /** Code only: matches may not start in comments, strings or templates. */
+    CODE,
+    /** Comments only, e.g. markers left by copied programs. */
+    COMMENTS,
+    /** Raw source text. */
+    ANY,
+    /** Block structure: the pattern names a structural query such as {@code nested-loop}. */
+    STRUCTURE
+}
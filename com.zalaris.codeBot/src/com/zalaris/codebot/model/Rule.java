@@ -10,6 +10,7 @@ public class Rule {
     private final String pattern;       // simple regex / substring for demo
     private final String badExample;
     private final String goodExample;
+    private final MatchScope scope;
 
     public Rule(String id,
                 String title,
@@ -19,6 +20,18 @@ public class Rule {
                 String pattern,
                 String badExample,
                 String goodExample) {
+        this(id, title, description, type, severity, pattern, badExample, goodExample, MatchScope.CODE);
+    }
+
+    public Rule(String id,
+                String title,
+                String description,
+                RuleType type,
+                Severity severity,
+                String pattern,
+                String badExample,
+                String goodExample,
+                MatchScope scope) {
         this.id = id;
         this.title = title;
         this.description = description;
@@ -27,6 +40,7 @@ public class Rule {
         this.pattern = pattern;
         this.badExample = badExample;
         this.goodExample = goodExample;
+        this.scope = scope == null ? MatchScope.CODE : scope;
     }
 
     public String getId() { return id; }
@@ -37,4 +51,5 @@ public class Rule {
     public String getPattern() { return pattern; }
     public String getBadExample() { return badExample; }
     public String getGoodExample() { return goodExample; }
+    public MatchScope getScope() { return scope; }
 }
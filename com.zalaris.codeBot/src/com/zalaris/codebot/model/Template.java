@@ -1,6 +1,7 @@
 package com.zalaris.codebot.model;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Template {
 
@@ -8,13 +9,25 @@ public class Template {
     private final String title;
     private final String description;
     private final List<String> triggers;   // phrases that activate this template
-    private final String snippet;          // ABAP code to insert
+    private final Supplier<String> snippet; // ABAP code to insert, read when asked for
 
     public Template(String id,
                     String title,
                     String description,
                     List<String> triggers,
                     String snippet) {
+        this(id, title, description, triggers, () -> snippet);
+    }
+
+    /**
+     * Template whose snippet is loaded on each {@link #getSnippet()} call
+     * instead of being held, as for the on-disk template cache.
+     */
+    public Template(String id,
+                    String title,
+                    String description,
+                    List<String> triggers,
+                    Supplier<String> snippet) {
         this.id = id;
         this.title = title;
         this.description = description;
@@ -26,5 +39,5 @@ public class Template {
     public String getTitle() { return title; }
     public String getDescription() { return description; }
     public List<String> getTriggers() { return triggers; }
-    public String getSnippet() { return snippet; }
+    public String getSnippet() { return snippet.get(); }
 }
@@ -7,18 +7,30 @@ import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.commands.IExecutionListener;
 import org.eclipse.core.commands.NotHandledException;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IPartListener2;
 import org.eclipse.ui.IStartup;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.IWorkbenchPartReference;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.commands.ICommandService;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
 
 import com.zalaris.codebot.adt.AbapEditorUtil;
+import com.zalaris.codebot.adt.LiveValidation;
+import com.zalaris.codebot.adt.LiveViolationMarkers;
+import com.zalaris.codebot.adt.ViolationPositions;
 import com.zalaris.codebot.api.BackendApiClient;
+import com.zalaris.codebot.data.RulePackCache;
+import com.zalaris.codebot.data.TemplateIndex;
 import com.zalaris.codebot.governance.ViolationGovernanceService;
 import com.zalaris.codebot.handlers.ActivateWithValidationHandler;
+import com.zalaris.codebot.util.StateLocation;
 import com.zalaris.codebot.util.UserRoleUtil;
 
 public class CodeBotStartup implements IStartup {
@@ -26,6 +38,9 @@ public class CodeBotStartup implements IStartup {
 
     @Override
     public void earlyStartup() {
+        initializeStateLocation();
+        refreshRulePack();
+        refreshTemplates();
         PlatformUI.getWorkbench().getDisplay().asyncExec(() -> {
             ICommandService commandService = PlatformUI.getWorkbench().getService(ICommandService.class);
             if (commandService == null) {
@@ -33,6 +48,7 @@ public class CodeBotStartup implements IStartup {
             }
             System.out.println("[CodeBot] Startup listener initialized");
             ViolationGovernanceService.clearAllCodeBotMarkersInWorkspace();
+            installLiveValidation();
 
             commandService.addExecutionListener(new IExecutionListener() {
                 @Override
@@ -70,6 +86,75 @@ public class CodeBotStartup implements IStartup {
         });
     }
 
+    private static void installLiveValidation() {
+        if (!LiveValidation.isEnabled() || PlatformUI.getWorkbench().getActiveWorkbenchWindow() == null) {
+            return;
+        }
+        IWorkbenchPage page = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
+        if (page == null) {
+            return;
+        }
+        LiveValidation.addListener(new LiveViolationMarkers());
+        page.addPartListener(new IPartListener2() {
+            @Override
+            public void partActivated(IWorkbenchPartReference partRef) {
+                attachLiveValidation(partRef.getPart(false));
+            }
+
+            @Override
+            public void partClosed(IWorkbenchPartReference partRef) {
+                IDocument document = AbapEditorUtil.getDocument(partRef.getPart(false));
+                if (document != null) {
+                    LiveValidation.detach(document);
+                    ViolationPositions.unregister(document);
+                }
+            }
+        });
+        attachLiveValidation(page.getActiveEditor());
+    }
+
+    private static void attachLiveValidation(IWorkbenchPart part) {
+        if (AbapEditorUtil.isAbapEditor(part)) {
+            LiveValidation.attach(AbapEditorUtil.getDocument(part), AbapEditorUtil.getResource(part));
+        }
+    }
+
+    private static void initializeStateLocation() {
+        try {
+            Bundle bundle = FrameworkUtil.getBundle(CodeBotStartup.class);
+            if (bundle != null) {
+                StateLocation.initialize(Platform.getStateLocation(bundle).toFile().toPath());
+            }
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Failed to resolve plugin state location: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Checks the backend for a newer rule pack in the background; until then the
+     * local engine runs on the cached pack.
+     */
+    private static void refreshRulePack() {
+        if (RulePackCache.getShared().getPackName().isEmpty()) {
+            return;
+        }
+        new BackendApiClient().syncRulePackInBackground();
+    }
+
+    /**
+     * Checks the backend for a newer template catalog in the background; until
+     * then templates are answered from the cached catalog. The template index
+     * is built afterwards, so the first template proposals do not build it.
+     */
+    private static void refreshTemplates() {
+        Thread refresh = new Thread(() -> {
+            new BackendApiClient().syncTemplates();
+            TemplateIndex.getShared();
+        }, "codebot-template-sync");
+        refresh.setDaemon(true);
+        refresh.start();
+    }
+
     private static void triggerTechnicalDocOnTransportRelease(String commandId) {
         logTransportLikeCommand(commandId);
         boolean directMatch = isLikelyTransportReleaseCommand(commandId);
@@ -0,0 +1,359 @@
+package com.zalaris.codebot.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding (RFC 8949 CBOR) for the {@link JsonUtil} object model.
+ * Strings are length-prefixed UTF-8, so large sources and documents are copied
+ * instead of escaped and scanned character by character.
+ */
+public final class CborCodec implements WireCodec {
+
+    public static final String MEDIA_TYPE = "application/cbor";
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xff;
+
+    @Override
+    public String mediaType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Map<String, Object> value) {
+        Writer writer = new Writer();
+        writer.writeValue(value);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        return new Reader(body).readValue();
+    }
+
+    private static final class Writer {
+        private byte[] buf = new byte[1024];
+        private int len = 0;
+
+        void writeValue(Object value) {
+            if (value == null) {
+                write(0xf6);
+                return;
+            }
+            if (value instanceof String) {
+                writeText((String) value);
+                return;
+            }
+            if (value instanceof Boolean) {
+                write(((Boolean) value) ? 0xf5 : 0xf4);
+                return;
+            }
+            if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                write(0xfb);
+                writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+                return;
+            }
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() > 63) {
+                writeText(value.toString());
+                return;
+            }
+            if (value instanceof Number) {
+                long n = ((Number) value).longValue();
+                if (n >= 0) {
+                    writeHead(MAJOR_UNSIGNED, n);
+                } else {
+                    writeHead(MAJOR_NEGATIVE, -1L - n);
+                }
+                return;
+            }
+            if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                writeHead(MAJOR_MAP, map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeText(String.valueOf(entry.getKey()));
+                    writeValue(entry.getValue());
+                }
+                return;
+            }
+            if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                writeHead(MAJOR_ARRAY, list.size());
+                for (Object item : list) {
+                    writeValue(item);
+                }
+                return;
+            }
+            if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                writeHead(MAJOR_BYTES, bytes.length);
+                writeBytes(bytes);
+                return;
+            }
+            writeText(String.valueOf(value));
+        }
+
+        private void writeText(String text) {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            writeHead(MAJOR_TEXT, utf8.length);
+            writeBytes(utf8);
+        }
+
+        private void writeHead(int major, long argument) {
+            int type = major << 5;
+            if (argument < 24) {
+                write(type | (int) argument);
+            } else if (argument <= 0xffL) {
+                write(type | 24);
+                write((int) argument);
+            } else if (argument <= 0xffffL) {
+                write(type | 25);
+                write((int) (argument >>> 8));
+                write((int) argument);
+            } else if (argument <= 0xffffffffL) {
+                write(type | 26);
+                writeInt((int) argument);
+            } else {
+                write(type | 27);
+                writeLong(argument);
+            }
+        }
+
+        private void writeInt(int v) {
+            ensure(4);
+            buf[len++] = (byte) (v >>> 24);
+            buf[len++] = (byte) (v >>> 16);
+            buf[len++] = (byte) (v >>> 8);
+            buf[len++] = (byte) v;
+        }
+
+        private void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        private void write(int b) {
+            ensure(1);
+            buf[len++] = (byte) b;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, len, bytes.length);
+            len += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (len + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos = 0;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        Object readValue() {
+            int initial = readByte();
+            int major = initial >>> 5;
+            int info = initial & 0x1f;
+            switch (major) {
+            case MAJOR_UNSIGNED:
+                return readArgument(info);
+            case MAJOR_NEGATIVE:
+                return -1L - readArgument(info);
+            case MAJOR_BYTES:
+                return readBytes(info);
+            case MAJOR_TEXT:
+                return readText(info);
+            case MAJOR_ARRAY:
+                return readArray(info);
+            case MAJOR_MAP:
+                return readMap(info);
+            case MAJOR_TAG:
+                readArgument(info);
+                return readValue();
+            default:
+                return readSimple(info);
+            }
+        }
+
+        private List<Object> readArray(int info) {
+            if (info == INDEFINITE) {
+                List<Object> list = new ArrayList<>();
+                while (!atBreak()) {
+                    list.add(readValue());
+                }
+                pos++;
+                return list;
+            }
+            int size = checkedSize(readArgument(info));
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue());
+            }
+            return list;
+        }
+
+        private Map<String, Object> readMap(int info) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (info == INDEFINITE) {
+                while (!atBreak()) {
+                    map.put(String.valueOf(readValue()), readValue());
+                }
+                pos++;
+                return map;
+            }
+            int size = checkedSize(readArgument(info));
+            for (int i = 0; i < size; i++) {
+                map.put(String.valueOf(readValue()), readValue());
+            }
+            return map;
+        }
+
+        private String readText(int info) {
+            if (info == INDEFINITE) {
+                StringBuilder sb = new StringBuilder();
+                while (!atBreak()) {
+                    sb.append((String) readValue());
+                }
+                pos++;
+                return sb.toString();
+            }
+            int size = checkedSize(readArgument(info));
+            require(size);
+            String text = new String(data, pos, size, StandardCharsets.UTF_8);
+            pos += size;
+            return text;
+        }
+
+        private byte[] readBytes(int info) {
+            if (info == INDEFINITE) {
+                java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+                while (!atBreak()) {
+                    out.writeBytes((byte[]) readValue());
+                }
+                pos++;
+                return out.toByteArray();
+            }
+            int size = checkedSize(readArgument(info));
+            require(size);
+            byte[] bytes = Arrays.copyOfRange(data, pos, pos + size);
+            pos += size;
+            return bytes;
+        }
+
+        private Object readSimple(int info) {
+            switch (info) {
+            case 20:
+                return Boolean.FALSE;
+            case 21:
+                return Boolean.TRUE;
+            case 22:
+            case 23:
+                return null;
+            case 25:
+                return halfToDouble((readByte() << 8) | readByte());
+            case 26:
+                return (double) Float.intBitsToFloat((int) readUnsigned(4));
+            case 27:
+                return Double.longBitsToDouble(readUnsigned(8));
+            default:
+                if (info == 24) {
+                    readByte();
+                }
+                return null;
+            }
+        }
+
+        private long readArgument(int info) {
+            if (info < 24) {
+                return info;
+            }
+            switch (info) {
+            case 24:
+                return readUnsigned(1);
+            case 25:
+                return readUnsigned(2);
+            case 26:
+                return readUnsigned(4);
+            case 27:
+                return readUnsigned(8);
+            default:
+                throw new IllegalArgumentException("Invalid CBOR length encoding at offset " + (pos - 1));
+            }
+        }
+
+        private long readUnsigned(int bytes) {
+            require(bytes);
+            long value = 0L;
+            for (int i = 0; i < bytes; i++) {
+                value = (value << 8) | (data[pos++] & 0xffL);
+            }
+            return value;
+        }
+
+        private int readByte() {
+            require(1);
+            return data[pos++] & 0xff;
+        }
+
+        private boolean atBreak() {
+            require(1);
+            return (data[pos] & 0xff) == BREAK;
+        }
+
+        private int checkedSize(long size) {
+            if (size < 0 || size > data.length - pos) {
+                throw new IllegalArgumentException("Invalid CBOR item length " + size + " at offset " + pos);
+            }
+            return (int) size;
+        }
+
+        private void require(int bytes) {
+            if (pos + bytes > data.length) {
+                throw new IllegalArgumentException("Truncated CBOR payload at offset " + pos);
+            }
+        }
+
+        private static double halfToDouble(int half) {
+            int exp = (half >> 10) & 0x1f;
+            int mant = half & 0x3ff;
+            double value;
+            if (exp == 0) {
+                value = mant * Math.pow(2, -24);
+            } else if (exp != 31) {
+                value = (mant + 1024) * Math.pow(2, exp - 25);
+            } else {
+                value = mant == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+            }
+            return (half & 0x8000) != 0 ? -value : value;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.zalaris.codebot.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * UTF-8 JSON text via {@link JsonUtil}; the default and fallback codec.
+ */
+public final class JsonCodec implements WireCodec {
+
+    public static final String MEDIA_TYPE = "application/json";
+
+    @Override
+    public String mediaType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Map<String, Object> value) {
+        return JsonUtil.stringify(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object decode(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        return JsonUtil.parse(new String(body, StandardCharsets.UTF_8));
+    }
+}
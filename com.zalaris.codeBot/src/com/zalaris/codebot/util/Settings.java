@@ -0,0 +1,22 @@
+package com.zalaris.codebot.util;
+
+/**
+ * Plugin settings: a system property such as {@code codebot.backend.url}, or
+ * else the environment variable named after it ({@code CODEBOT_BACKEND_URL}).
+ */
+public final class Settings {
+
+    private Settings() {
+    }
+
+    /**
+     * Returns the trimmed setting, or {@code defaultValue} when it is unset or blank.
+     */
+    public static String read(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+}
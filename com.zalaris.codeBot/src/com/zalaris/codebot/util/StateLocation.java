@@ -0,0 +1,43 @@
+package com.zalaris.codebot.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Directory used for local caches. {@code CodeBotStartup} points it at the
+ * bundle state location; an explicit {@code codebot.state.dir} setting wins,
+ * and {@code ~/.codebot} is used outside the workbench (benchmarks, tools).
+ */
+public final class StateLocation {
+
+    private static volatile Path bundleStateLocation;
+
+    private StateLocation() {
+    }
+
+    public static void initialize(Path stateLocation) {
+        bundleStateLocation = stateLocation;
+    }
+
+    public static Path resolve(String child) {
+        Path target = base().resolve(child);
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (Exception ex) {
+            System.out.println("[CodeBot] Failed to create state directory " + target.getParent() + ": " + ex.getMessage());
+        }
+        return target;
+    }
+
+    private static Path base() {
+        String configured = Settings.read("codebot.state.dir", "");
+        if (!configured.isEmpty()) {
+            return Path.of(configured);
+        }
+        Path stateLocation = bundleStateLocation;
+        if (stateLocation != null) {
+            return stateLocation;
+        }
+        return Path.of(System.getProperty("user.home", "."), ".codebot");
+    }
+}
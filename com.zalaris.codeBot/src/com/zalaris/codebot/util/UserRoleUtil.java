@@ -23,7 +23,7 @@ public final class UserRoleUtil {
     }
 
     public static String resolveRole() {
-        String explicit = readSetting("codebot.user.role", "");
+        String explicit = Settings.read("codebot.user.role", "");
         if (!explicit.isBlank()) {
             return normalizeRole(explicit);
         }
@@ -107,14 +107,6 @@ public final class UserRoleUtil {
         return normalized;
     }
 
-    private static String readSetting(String key, String defaultValue) {
-        String value = System.getProperty(key);
-        if (value == null || value.trim().isEmpty()) {
-            value = System.getenv(key.toUpperCase().replace('.', '_'));
-        }
-        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
-    }
-
     private static String normalizeRole(String role) {
         if (role == null) {
             return "developer";
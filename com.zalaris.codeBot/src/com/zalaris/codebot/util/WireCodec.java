@@ -0,0 +1,20 @@
+package com.zalaris.codebot.util;
+
+import java.util.Map;
+
+/**
+ * Encoding used for request and response bodies exchanged with the backend.
+ * Values follow the {@link JsonUtil} object model: maps, lists, strings,
+ * {@code Long}/{@code Double} numbers, booleans and {@code null}.
+ */
+public interface WireCodec {
+
+    /**
+     * Media type sent as {@code Content-Type} and matched against response headers.
+     */
+    String mediaType();
+
+    byte[] encode(Map<String, Object> value);
+
+    Object decode(byte[] body);
+}
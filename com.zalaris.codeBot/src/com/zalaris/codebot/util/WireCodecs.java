@@ -0,0 +1,56 @@
+package com.zalaris.codebot.util;
+
+import java.util.Locale;
+
+/**
+ * Available {@link WireCodec}s and media-type negotiation. JSON is always the
+ * fallback so unknown or missing {@code Content-Type} headers keep working.
+ */
+public final class WireCodecs {
+
+    public static final WireCodec JSON = new JsonCodec();
+    public static final WireCodec CBOR = new CborCodec();
+
+    private WireCodecs() {
+    }
+
+    /**
+     * Resolves a configured format name ("json", "cbor") to a codec.
+     */
+    public static WireCodec byName(String name) {
+        String normalized = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        if ("cbor".equals(normalized) || CborCodec.MEDIA_TYPE.equals(normalized)) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    /**
+     * Picks the codec for a {@code Content-Type} header value, ignoring parameters such as charset.
+     */
+    public static WireCodec forContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        String mediaType = contentType;
+        int semicolon = mediaType.indexOf(';');
+        if (semicolon >= 0) {
+            mediaType = mediaType.substring(0, semicolon);
+        }
+        mediaType = mediaType.trim().toLowerCase(Locale.ROOT);
+        if (CborCodec.MEDIA_TYPE.equals(mediaType)) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    /**
+     * {@code Accept} header preferring the given codec with JSON as fallback.
+     */
+    public static String acceptHeader(WireCodec preferred) {
+        if (preferred == null || preferred == JSON) {
+            return JsonCodec.MEDIA_TYPE;
+        }
+        return preferred.mediaType() + ", " + JsonCodec.MEDIA_TYPE + ";q=0.9";
+    }
+}
@@ -1,36 +1,136 @@
 package com.zalaris.codebot.validation;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.zalaris.codebot.api.BackendApiClient;
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.bot.BotResponseMapper;
+import com.zalaris.codebot.engine.RuleEngine;
+
 /**
- * Central place for activation rules.
- * For now it's hardcoded; later we can plug in real logic
- * (naming conventions, forbidden statements, etc.).
+ * Central place for activation rules. Validation runs a pipeline of stages in
+ * order of their declared cost: local lexical rules, local structural rules,
+ * then the backend. As soon as a stage reports a MAJOR finding the activation
+ * is blocked and the remaining stages are not run, so a blocked activation is
+ * usually decided locally in milliseconds. A stage that fails is reported in
+ * the message and does not block on its own.
  */
 public class ActivationValidator {
 
-    public record ValidationResult(boolean valid, String message) {
+    public static final int LEXICAL_COST = 1;
+    public static final int STRUCTURAL_COST = 10;
+    public static final int BACKEND_COST = 1000;
+
+    private static final String BLOCKING_SEVERITY = "MAJOR";
+
+    /**
+     * Outcome of a validation. {@code violations} holds every finding of the
+     * stages that ran, and {@code decidedBy} names the stage that blocked the
+     * activation, or is empty when it was allowed.
+     */
+    public record ValidationResult(boolean valid, String message, List<RuleViolation> violations, String decidedBy) {
         public static ValidationResult ok() {
-            return new ValidationResult(true, "OK");
+            return new ValidationResult(true, "OK", Collections.emptyList(), "");
         }
 
         public static ValidationResult error(String msg) {
-            return new ValidationResult(false, msg);
+            return new ValidationResult(false, msg, Collections.emptyList(), "");
         }
     }
 
-    /**
-     * Skeleton for validation.
-     * Later we can inspect ABAP object name, type and source code.
-     */
+    @FunctionalInterface
+    public interface Check {
+        List<RuleViolation> check(String objectName, String objectType, String sourceCode) throws Exception;
+    }
+
+    /** One step of the pipeline; stages with a lower cost run first. */
+    public record Stage(String name, int cost, Check check) {
+    }
+
+    private final List<Stage> stages;
+
+    /** Local rules of the {@linkplain RuleEngine#getDefault() default engine}, then the backend. */
+    public ActivationValidator() {
+        this(List.of(lexicalRules(RuleEngine::getDefault), structuralRules(RuleEngine::getDefault),
+                backend(new BackendApiClient())));
+    }
+
+    public ActivationValidator(List<Stage> stages) {
+        List<Stage> ordered = new ArrayList<>(stages);
+        ordered.sort(Comparator.comparingInt(Stage::cost));
+        this.stages = Collections.unmodifiableList(ordered);
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
     public ValidationResult validate(String objectName, String objectType, String sourceCode) {
-        // Example dummy rule: forbid some keyword
-        if (sourceCode != null && sourceCode.contains("FORBIDDEN_KEYWORD")) {
-            return ValidationResult.error(
-                "Activation blocked: usage of FORBIDDEN_KEYWORD is not allowed in " + objectName + "."
-            );
+        long started = System.nanoTime();
+        List<RuleViolation> violations = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<String> failed = new ArrayList<>();
+        for (Stage stage : stages) {
+            List<RuleViolation> found;
+            try {
+                found = stage.check().check(objectName, objectType, sourceCode);
+            } catch (Exception ex) {
+                System.out.println("[CodeBot] Activation check " + stage.name() + " failed: " + ex.getMessage());
+                failed.add(stage.name());
+                continue;
+            }
+            int major = 0;
+            for (RuleViolation violation : found) {
+                // Later stages may report what an earlier one already found.
+                if (seen.add(violation.getRuleId() + "@" + violation.getLine())) {
+                    violations.add(violation);
+                    if (BLOCKING_SEVERITY.equalsIgnoreCase(violation.getSeverity())) {
+                        major++;
+                    }
+                }
+            }
+            if (major > 0) {
+                return new ValidationResult(false,
+                        "Activation blocked: " + major + " MAJOR finding(s) from " + stage.name() + " in "
+                                + objectName + " (decided in " + elapsedMs(started) + " ms).",
+                        violations, stage.name());
+            }
+        }
+        String message = "OK: " + violations.size() + " non-blocking finding(s) in " + elapsedMs(started) + " ms.";
+        if (!failed.isEmpty()) {
+            message += " Not checked: " + String.join(", ", failed) + ".";
         }
+        return new ValidationResult(true, message, violations, "");
+    }
+
+    /** Textual rules of the engine: patterns over code, comments and literals. */
+    public static Stage lexicalRules(Supplier<RuleEngine> engine) {
+        return new Stage("local lexical rules", LEXICAL_COST,
+                (objectName, objectType, sourceCode) -> engine.get().evaluate(sourceCode, true, false));
+    }
 
-        // Add more rules here...
+    /** Structure rules of the engine, which need the block tree. */
+    public static Stage structuralRules(Supplier<RuleEngine> engine) {
+        return new Stage("local structural rules", STRUCTURAL_COST,
+                (objectName, objectType, sourceCode) -> engine.get().evaluate(sourceCode, false, true));
+    }
+
+    /** The backend's validation of the object. */
+    public static Stage backend(BackendApiClient client) {
+        return new Stage("backend validation", BACKEND_COST, (objectName, objectType, sourceCode) -> {
+            Map<String, Object> response = client.validate(sourceCode, objectName, "ADT");
+            return BotResponseMapper.parseViolations(response.get("violations"));
+        });
+    }
 
-        return ValidationResult.ok();
+    private static long elapsedMs(long started) {
+        return (System.nanoTime() - started) / 1_000_000L;
     }
-}
\ No newline at end of file
+}
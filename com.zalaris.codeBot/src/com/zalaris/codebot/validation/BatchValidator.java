@@ -0,0 +1,228 @@
+package com.zalaris.codebot.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.engine.RuleEngine;
+
+/**
+ * Validates many ABAP objects in one run. Local validation evaluates the rule
+ * engine on a fork-join pool: the object list is split down to single objects,
+ * so idle workers steal whatever is left. Backend validation keeps at most a
+ * fixed number of requests in flight and validates an object locally when its
+ * request fails. Results are reported per object as soon as they are known;
+ * the listener is called from worker threads.
+ */
+public final class BatchValidator {
+
+    public record ObjectSource(String objectName, String code) {
+    }
+
+    /**
+     * Outcome for one object. {@code local} is false only for backend results;
+     * {@code error} explains why a backend request fell back to local rules.
+     */
+    public record ObjectResult(String objectName, List<RuleViolation> violations, boolean local, String error,
+            long elapsedNanos) {
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void objectValidated(ObjectResult result, int completed, int total);
+    }
+
+    @FunctionalInterface
+    public interface RemoteValidation {
+        List<RuleViolation> validate(ObjectSource source) throws Exception;
+    }
+
+    private static final Listener NO_LISTENER = (result, completed, total) -> {
+    };
+    private static final BooleanSupplier NEVER = () -> false;
+
+    private final RuleEngine engine;
+    private final ForkJoinPool pool;
+
+    public BatchValidator(RuleEngine engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+
+    public BatchValidator(RuleEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+    }
+
+    /**
+     * Validates all sources with the local engine. Returns the results in input
+     * order; objects not started before {@code canceled} turned true are left out.
+     */
+    public List<ObjectResult> validateLocally(List<ObjectSource> sources, Listener listener,
+            BooleanSupplier canceled) {
+        ObjectResult[] results = new ObjectResult[sources.size()];
+        if (results.length == 0) {
+            return Collections.emptyList();
+        }
+        Progress progress = new Progress(results, listener, canceled);
+        pool.invoke(new LocalTask(sources, 0, results.length, progress));
+        return progress.completed();
+    }
+
+    /**
+     * Validates all sources through {@code remote} with at most
+     * {@code maxConcurrent} requests in flight. Cancellation stops new requests
+     * and interrupts the ones in flight; their objects are left out.
+     */
+    public List<ObjectResult> validateRemotely(List<ObjectSource> sources, RemoteValidation remote,
+            int maxConcurrent, Listener listener, BooleanSupplier canceled) throws InterruptedException {
+        ObjectResult[] results = new ObjectResult[sources.size()];
+        if (results.length == 0) {
+            return Collections.emptyList();
+        }
+        Progress progress = new Progress(results, listener, canceled);
+        int permits = Math.max(1, Math.min(maxConcurrent, results.length));
+        Semaphore inFlight = new Semaphore(permits);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(permits, r -> {
+            Thread t = new Thread(r, "codebot-batch-validate-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int i = 0; i < results.length && !progress.isCanceled(); i++) {
+                while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    if (progress.isCanceled()) {
+                        break;
+                    }
+                }
+                if (progress.isCanceled()) {
+                    break;
+                }
+                int index = i;
+                executor.execute(() -> {
+                    try {
+                        progress.complete(index, validateRemote(sources.get(index), remote, progress));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // Wait for the requests in flight, interrupting them on cancellation.
+            while (!inFlight.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+                if (progress.isCanceled()) {
+                    executor.shutdownNow();
+                    executor.awaitTermination(5, TimeUnit.SECONDS);
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return progress.completed();
+    }
+
+    private ObjectResult validateLocal(ObjectSource source, String error) {
+        long started = System.nanoTime();
+        List<RuleViolation> violations = engine.evaluate(source.code());
+        return new ObjectResult(source.objectName(), violations, true, error, System.nanoTime() - started);
+    }
+
+    private ObjectResult validateRemote(ObjectSource source, RemoteValidation remote, Progress progress) {
+        long started = System.nanoTime();
+        try {
+            List<RuleViolation> violations = remote.validate(source);
+            return new ObjectResult(source.objectName(),
+                    violations == null ? Collections.emptyList() : violations, false, null,
+                    System.nanoTime() - started);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception ex) {
+            if (progress.isCanceled()) {
+                return null;
+            }
+            return validateLocal(source, "Backend validation failed (" + ex.getMessage() + ").");
+        }
+    }
+
+    private final class LocalTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<ObjectSource> sources;
+        private final int from;
+        private final int to;
+        private final transient Progress progress;
+
+        LocalTask(List<ObjectSource> sources, int from, int to, Progress progress) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (progress.isCanceled()) {
+                return;
+            }
+            if (to - from == 1) {
+                progress.complete(from, validateLocal(sources.get(from), null));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LocalTask(sources, from, mid, progress), new LocalTask(sources, mid, to, progress));
+        }
+    }
+
+    private static final class Progress {
+        private final ObjectResult[] results;
+        private final Listener listener;
+        private final BooleanSupplier canceled;
+        private final AtomicInteger done = new AtomicInteger();
+
+        Progress(ObjectResult[] results, Listener listener, BooleanSupplier canceled) {
+            this.results = results;
+            this.listener = listener == null ? NO_LISTENER : listener;
+            this.canceled = canceled == null ? NEVER : canceled;
+        }
+
+        boolean isCanceled() {
+            return canceled.getAsBoolean();
+        }
+
+        void complete(int index, ObjectResult result) {
+            if (result == null) {
+                return;
+            }
+            results[index] = result;
+            try {
+                listener.objectValidated(result, done.incrementAndGet(), results.length);
+            } catch (RuntimeException ex) {
+                System.out.println("[CodeBot] Batch validation listener failed: " + ex.getMessage());
+            }
+        }
+
+        /**
+         * Results in input order. Each slot was written by a worker that has
+         * finished, so the pool or executor join makes it visible here.
+         */
+        List<ObjectResult> completed() {
+            List<ObjectResult> completed = new ArrayList<>(done.get());
+            for (ObjectResult result : results) {
+                if (result != null) {
+                    completed.add(result);
+                }
+            }
+            return completed;
+        }
+    }
+}
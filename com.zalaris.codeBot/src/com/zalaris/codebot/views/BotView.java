@@ -12,15 +12,19 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.part.ViewPart;
 
 import com.zalaris.codebot.adt.AbapEditorUtil;
+import com.zalaris.codebot.adt.ViolationFixes;
+import com.zalaris.codebot.adt.ViolationPositions;
 import com.zalaris.codebot.api.BackendApiClient;
 import com.zalaris.codebot.bot.BotResponse;
 import com.zalaris.codebot.bot.BotResponse.RuleViolation;
+import com.zalaris.codebot.bot.HybridValidation;
 import com.zalaris.codebot.bot.SimpleRuleBot;
 import com.zalaris.codebot.governance.ViolationGovernanceService;
 
@@ -50,6 +54,8 @@ public class BotView extends ViewPart {
     private final SimpleRuleBot bot = new SimpleRuleBot();
     private final BackendApiClient apiClient = new BackendApiClient();
     private BotResponse lastResponse;
+    /** The Validate run whose backend results may still arrive; null for chat requests. */
+    private HybridValidation activeValidation;
     private List<RuleViolation> currentViolations = java.util.Collections.emptyList();
     private boolean requestInFlight = false;
     private long lastSubmitAtMs = 0L;
@@ -64,6 +70,7 @@ public class BotView extends ViewPart {
     private long lastExplainClickAtMs = 0L;
     private long lastClearClickAtMs = 0L;
     private long lastPasteClickAtMs = 0L;
+    private static final int MAX_PREVIEWED_FIXES = 10;
 
     @Override
     public void createPartControl(Composite parent) {
@@ -100,7 +107,7 @@ public class BotView extends ViewPart {
         clearButton.setText("Clear");
 
         pasteButton = new Button(actions, SWT.PUSH);
-        pasteButton.setText("Paste Suggestion");
+        pasteButton.setText("Apply Suggestions");
         pasteButton.setEnabled(false);
 
         statusLabel = new Label(actions, SWT.NONE);
@@ -296,8 +303,13 @@ public class BotView extends ViewPart {
         try {
             appendConversation("You", question);
             statusLabel.setText("Processing...");
-            lastResponse = bot.reply(question);
-            pasteButton.setEnabled(lastResponse != null && hasPasteableSuggestion(lastResponse));
+            if (forceValidate) {
+                activeValidation = bot.validateCurrentEditor(backendListener());
+                lastResponse = activeValidation.getLocalResponse();
+            } else {
+                activeValidation = null;
+                lastResponse = bot.reply(question);
+            }
             currentViolations = java.util.Collections.emptyList();
             violationsList.removeAll();
             violationDetailText.setText("");
@@ -326,6 +338,8 @@ public class BotView extends ViewPart {
                 if (lastResponse.hasViolations()) {
                     List<RuleViolation> violations = sortViolationsBySeverity(lastResponse.getViolations());
                     currentViolations = violations;
+                    updatePasteButton();
+                    ViolationPositions.register(AbapEditorUtil.getActiveDocument(), violations);
                     StringBuilder sb = new StringBuilder();
                     sb.append(lastResponse.getMessage())
                             .append("\n\nTotal violations: ").append(violations.size())
@@ -350,7 +364,9 @@ public class BotView extends ViewPart {
                         sb.append("...and ").append(violations.size() - previewCount).append(" more.");
                     }
                     appendConversation("CodeBot", sb.toString());
-                    statusLabel.setText("Validation completed with violations");
+                    statusLabel.setText(activeValidation == null
+                            ? "Validation completed with violations"
+                            : "Local validation completed with violations; waiting for backend...");
                     ViolationGovernanceService.updateFromValidation(
                             AbapEditorUtil.getActiveEditorNameOrDefault(),
                             violations);
@@ -358,7 +374,9 @@ public class BotView extends ViewPart {
                     violationsList.select(0);
                 } else {
                     appendConversation("CodeBot", lastResponse.getMessage() + "\n\nNo violations detected.");
-                    statusLabel.setText("Validation passed");
+                    statusLabel.setText(activeValidation == null
+                            ? "Validation passed"
+                            : "Local validation passed; waiting for backend...");
                     violationDetailText.setText("");
                     ViolationGovernanceService.clear();
                 }
@@ -370,9 +388,101 @@ public class BotView extends ViewPart {
         } finally {
             requestInFlight = false;
             setBusy(false);
+            updatePasteButton();
         }
     }
 
+    /**
+     * Applies backend results to the open validation on the UI thread; runs
+     * started since then, or code edited since, make them stale.
+     */
+    private HybridValidation.Listener backendListener() {
+        Display display = violationsList.getDisplay();
+        return new HybridValidation.Listener() {
+            @Override
+            public void backendMerged(HybridValidation validation, HybridValidation.Merge merge) {
+                runOnView(display, () -> applyBackendMerge(validation, merge));
+            }
+
+            @Override
+            public void backendFailed(HybridValidation validation, String reason) {
+                runOnView(display, () -> {
+                    if (validation == activeValidation) {
+                        statusLabel.setText("Backend validation failed; showing local results (" + reason + ")");
+                    }
+                });
+            }
+        };
+    }
+
+    private void runOnView(Display display, Runnable update) {
+        if (display == null || display.isDisposed()) {
+            return;
+        }
+        display.asyncExec(() -> {
+            if (!violationsList.isDisposed()) {
+                update.run();
+            }
+        });
+    }
+
+    /**
+     * Updates the violations list and markers in place: confirmed rows are
+     * relabelled, backend-only violations are appended.
+     */
+    private void applyBackendMerge(HybridValidation validation, HybridValidation.Merge merge) {
+        if (validation != activeValidation) {
+            return;
+        }
+        if (!validation.getCode().equals(AbapEditorUtil.getActiveEditorContentOrEmpty())) {
+            statusLabel.setText("Backend results ignored: the code changed since validation");
+            return;
+        }
+        for (RuleViolation violation : merge.confirmed()) {
+            int index = indexOf(currentViolations, violation);
+            if (index >= 0) {
+                violationsList.setItem(index, formatViolationListEntry(violation));
+            }
+        }
+        if (!merge.added().isEmpty()) {
+            List<RuleViolation> grown = new ArrayList<>(currentViolations);
+            grown.addAll(merge.added());
+            ViolationPositions positions = ViolationPositions.forDocument(AbapEditorUtil.getActiveDocument());
+            if (positions == null) {
+                ViolationPositions.register(AbapEditorUtil.getActiveDocument(), grown);
+            } else {
+                for (RuleViolation violation : merge.added()) {
+                    positions.add(violation);
+                }
+            }
+            for (RuleViolation violation : merge.added()) {
+                violationsList.add(formatViolationListEntry(violation));
+            }
+            boolean wasEmpty = currentViolations.isEmpty();
+            currentViolations = grown;
+            updatePasteButton();
+            ViolationGovernanceService.addFromValidation(AbapEditorUtil.getActiveEditorNameOrDefault(),
+                    merge.added());
+            if (wasEmpty) {
+                violationsList.select(0);
+                showViolationDetails(grown.get(0));
+            }
+        }
+        activeValidation = null;
+        appendConversation("CodeBot", "Backend validation: " + merge.added().size() + " additional violation(s), "
+                + merge.confirmed().size() + " local finding(s) confirmed.");
+        statusLabel.setText("Backend results merged");
+    }
+
+    private static int indexOf(List<RuleViolation> violations, RuleViolation violation) {
+        for (int i = 0; i < violations.size(); i++) {
+            if (violations.get(i) == violation) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void setBusy(boolean busy) {
         if (chatButton != null && !chatButton.isDisposed()) {
             chatButton.setEnabled(!busy);
@@ -408,6 +518,7 @@ public class BotView extends ViewPart {
         statusLabel.setText("Cleared");
         pasteButton.setEnabled(false);
         lastResponse = null;
+        activeValidation = null;
     }
 
     private void handleViolationClick() {
@@ -416,9 +527,9 @@ public class BotView extends ViewPart {
             return;
         }
         RuleViolation violation = currentViolations.get(index);
-        boolean ok = AbapEditorUtil.goToLine(violation.getLine());
+        int line = AbapEditorUtil.goToViolation(violation);
         showViolationPopup(violation);
-        if (!ok) {
+        if (line < 0) {
             MessageDialog.openError(
                     getSite().getShell(),
                     "CodeBot",
@@ -426,12 +537,13 @@ public class BotView extends ViewPart {
                             + ". Ensure an ABAP editor is active.");
             return;
         }
-        statusLabel.setText("Jumped to line " + violation.getLine());
+        statusLabel.setText("Jumped to line " + line);
     }
 
     private String formatViolationListEntry(RuleViolation violation) {
         String sev = normalizeSeverity(violation.getSeverity());
-        return "[" + sev + "] Line " + violation.getLine() + " [" + violation.getRuleId() + "] " + violation.getTitle();
+        return "[" + sev + "] Line " + violation.getLine() + " [" + violation.getRuleId() + "] " + violation.getTitle()
+                + " (" + violation.getProvenance().label() + ")";
     }
 
     private String normalizeSeverity(String severity) {
@@ -476,11 +588,14 @@ public class BotView extends ViewPart {
                 .append("Rule ID: ").append(violation.getRuleId())
                 .append("\n")
                 .append("Pack: ").append(violation.getRulePackName())
+                .append("\n")
+                .append("Reported by: ").append(violation.getProvenance().label())
                 .append("\n\n")
                 .append("Description:\n")
                 .append(violation.getDescription());
         if (violation.getCorrectCode() != null && !violation.getCorrectCode().trim().isEmpty()) {
-            sb.append("\n\nSuggested correction:\n").append(violation.getCorrectCode());
+            sb.append(ViolationFixes.isFixable(violation) ? "\n\nSuggested correction:\n" : "\n\nExample:\n")
+                    .append(violation.getCorrectCode());
         }
         MessageDialog.openInformation(getSite().getShell(), "Violation Detail", sb.toString());
     }
@@ -496,16 +611,28 @@ public class BotView extends ViewPart {
                 .append("Rule ID: ").append(violation.getRuleId())
                 .append("\n")
                 .append("Pack: ").append(violation.getRulePackName())
+                .append("\n")
+                .append("Reported by: ").append(violation.getProvenance().label())
                 .append("\n\n")
                 .append("Description:\n")
                 .append(violation.getDescription());
         if (violation.getCorrectCode() != null && !violation.getCorrectCode().trim().isEmpty()) {
-            sb.append("\n\nSuggested correction:\n").append(violation.getCorrectCode());
+            sb.append(ViolationFixes.isFixable(violation) ? "\n\nSuggested correction:\n" : "\n\nExample:\n")
+                    .append(violation.getCorrectCode());
         }
         violationDetailText.setText(sb.toString());
     }
 
+    /**
+     * Applies the backend's statement corrections as one undoable change after
+     * a preview, or inserts a template suggestion at the cursor when no
+     * violation can be fixed.
+     */
     private void handlePaste() {
+        if (hasFixableViolations()) {
+            applyFixes();
+            return;
+        }
         String pasteContent = getPasteableSuggestion(lastResponse);
         if (pasteContent.isEmpty()) {
             MessageDialog.openInformation(
@@ -527,23 +654,103 @@ public class BotView extends ViewPart {
         statusLabel.setText("Suggestion pasted into editor");
     }
 
-    private boolean hasPasteableSuggestion(BotResponse response) {
-        return !getPasteableSuggestion(response).isEmpty();
+    private void applyFixes() {
+        ViolationFixes.Plan plan = AbapEditorUtil.planFixes(currentViolations);
+        if (plan == null) {
+            MessageDialog.openError(
+                    getSite().getShell(),
+                    "CodeBot",
+                    "Could not apply suggestions. Ensure an ABAP editor is active.");
+            return;
+        }
+        if (plan.fixes().isEmpty()) {
+            statusLabel.setText("No suggestion applies (" + plan.skipped() + " skipped)");
+            return;
+        }
+        if (!MessageDialog.openConfirm(getSite().getShell(), "Apply Suggestions", describeFixes(plan))) {
+            statusLabel.setText("Suggestions not applied");
+            return;
+        }
+        ViolationFixes.Outcome outcome = AbapEditorUtil.applyFixes(plan);
+        if (outcome == null) {
+            MessageDialog.openError(
+                    getSite().getShell(),
+                    "CodeBot",
+                    "Could not apply suggestions. Ensure an ABAP editor is active.");
+            return;
+        }
+        if (outcome.fixed().isEmpty()) {
+            statusLabel.setText("No suggestion applied (" + outcome.skipped() + " skipped)");
+            return;
+        }
+        List<RuleViolation> remaining = new ArrayList<>(currentViolations);
+        for (RuleViolation violation : outcome.fixed()) {
+            remaining.remove(violation);
+        }
+        currentViolations = remaining;
+        violationsList.removeAll();
+        for (RuleViolation violation : remaining) {
+            violationsList.add(formatViolationListEntry(violation));
+        }
+        violationDetailText.setText("");
+        if (!remaining.isEmpty()) {
+            violationsList.select(0);
+            showViolationDetails(remaining.get(0));
+        }
+        ViolationGovernanceService.updateFromValidation(AbapEditorUtil.getActiveEditorNameOrDefault(), remaining);
+        updatePasteButton();
+        appendConversation("CodeBot", "Applied " + outcome.fixed().size() + " suggestion(s) as one change"
+                + (outcome.skipped() > 0 ? ", skipped " + outcome.skipped() : "")
+                + ". Undo reverts them together; validate again to confirm.");
+        statusLabel.setText("Applied " + outcome.fixed().size() + " suggestion(s)");
     }
 
-    private String getPasteableSuggestion(BotResponse response) {
-        if (response == null) {
-            return "";
-        }
-        if (response.hasViolations()) {
-            for (RuleViolation violation : response.getViolations()) {
-                String correction = violation.getCorrectCode();
-                if (correction != null && !correction.trim().isEmpty()) {
-                    return correction;
-                }
+    /** The planned edits, old lines against new ones, for the confirmation. */
+    private String describeFixes(ViolationFixes.Plan plan) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Replace ").append(plan.fixes().size()).append(" statement(s) with the backend's suggestions?");
+        if (plan.skipped() > 0) {
+            sb.append(" (").append(plan.skipped()).append(" skipped)");
+        }
+        List<ViolationFixes.Fix> fixes = plan.fixes();
+        for (int i = 0; i < fixes.size() && i < MAX_PREVIEWED_FIXES; i++) {
+            ViolationFixes.Fix fix = fixes.get(i);
+            sb.append("\n\n").append(fix.violation().getTitle()).append(", line ").append(fix.firstLine());
+            if (fix.lastLine() > fix.firstLine()) {
+                sb.append("-").append(fix.lastLine());
+            }
+            sb.append(":");
+            for (String line : fix.original().split("\r\n|\r|\n")) {
+                sb.append("\n- ").append(line);
+            }
+            for (String line : fix.text().split("\r\n|\r|\n")) {
+                sb.append("\n+ ").append(line);
+            }
+        }
+        if (fixes.size() > MAX_PREVIEWED_FIXES) {
+            sb.append("\n\n... and ").append(fixes.size() - MAX_PREVIEWED_FIXES).append(" more.");
+        }
+        return sb.toString();
+    }
+
+    private void updatePasteButton() {
+        if (pasteButton != null && !pasteButton.isDisposed()) {
+            pasteButton.setEnabled(hasFixableViolations() || !getPasteableSuggestion(lastResponse).isEmpty());
+        }
+    }
+
+    private boolean hasFixableViolations() {
+        for (RuleViolation violation : currentViolations) {
+            if (ViolationFixes.isFixable(violation)) {
+                return true;
             }
         }
-        if (response.hasTemplate()) {
+        return false;
+    }
+
+    /** A template suggestion of a chat response. */
+    private String getPasteableSuggestion(BotResponse response) {
+        if (response != null && response.hasTemplate()) {
             String code = response.getTemplateCode();
             if (code != null && !code.trim().isEmpty()) {
                 return code;
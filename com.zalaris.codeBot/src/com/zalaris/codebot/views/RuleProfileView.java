@@ -0,0 +1,134 @@
+package com.zalaris.codebot.views;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.ui.part.ViewPart;
+
+import com.zalaris.codebot.engine.RuleProfiler;
+import com.zalaris.codebot.engine.RuleProfiler.RuleProfile;
+
+/**
+ * Diagnostics view: what each local rule cost this session, most expensive
+ * first, with an export for rule authors.
+ */
+public class RuleProfileView extends ViewPart {
+
+    public static final String ID = "com.zalaris.codebot.views.RuleProfileView";
+
+    private static final String[] COLUMNS = {
+            "Rule", "Title", "Scope", "Total ms", "Share", "Avg \u00b5s", "Evaluations", "Skipped", "Matches" };
+    private static final int[] WIDTHS = { 140, 260, 90, 80, 60, 70, 90, 70, 70 };
+
+    private Table table;
+    private Label statusLabel;
+
+    @Override
+    public void createPartControl(Composite parent) {
+        parent.setLayout(new GridLayout(1, false));
+
+        Composite actions = new Composite(parent, SWT.NONE);
+        actions.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        GridLayout actionLayout = new GridLayout(4, false);
+        actionLayout.marginWidth = 0;
+        actionLayout.marginHeight = 0;
+        actions.setLayout(actionLayout);
+
+        Button refreshButton = new Button(actions, SWT.PUSH);
+        refreshButton.setText("Refresh");
+
+        Button resetButton = new Button(actions, SWT.PUSH);
+        resetButton.setText("Reset");
+
+        Button exportButton = new Button(actions, SWT.PUSH);
+        exportButton.setText("Export JSON");
+
+        statusLabel = new Label(actions, SWT.NONE);
+        statusLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+
+        table = new Table(parent, SWT.BORDER | SWT.V_SCROLL | SWT.H_SCROLL);
+        table.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+        table.setHeaderVisible(true);
+        table.setLinesVisible(true);
+        for (int c = 0; c < COLUMNS.length; c++) {
+            TableColumn column = new TableColumn(table, c < 3 ? SWT.LEFT : SWT.RIGHT);
+            column.setText(COLUMNS[c]);
+            column.setWidth(WIDTHS[c]);
+        }
+
+        refreshButton.addListener(SWT.Selection, e -> refresh());
+        resetButton.addListener(SWT.Selection, e -> {
+            RuleProfiler.getShared().reset();
+            refresh();
+        });
+        exportButton.addListener(SWT.Selection, e -> exportJson());
+
+        refresh();
+    }
+
+    private void refresh() {
+        List<RuleProfile> rows = RuleProfiler.getShared().snapshot();
+        long total = 0;
+        for (RuleProfile row : rows) {
+            total += row.nanos();
+        }
+        table.removeAll();
+        for (RuleProfile row : rows) {
+            TableItem item = new TableItem(table, SWT.NONE);
+            item.setText(new String[] {
+                    row.ruleId(),
+                    row.title(),
+                    row.scope(),
+                    format("%.2f", row.totalMillis()),
+                    format("%.1f%%", total == 0 ? 0d : 100d * row.nanos() / total),
+                    format("%.1f", row.averageMicros()),
+                    String.valueOf(row.evaluations()),
+                    String.valueOf(row.skipped()),
+                    String.valueOf(row.matches()) });
+        }
+        statusLabel.setText(rows.size() + " rules, " + format("%.1f", total / 1_000_000d) + " ms in total");
+    }
+
+    private void exportJson() {
+        FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+        dialog.setText("Export Rule Profile");
+        dialog.setFilterExtensions(new String[] { "*.json", "*.*" });
+        dialog.setFileName("codebot-rule-profile.json");
+        dialog.setOverwrite(true);
+        String selected = dialog.open();
+        if (selected == null || selected.isBlank()) {
+            return;
+        }
+        try {
+            Files.writeString(Path.of(selected), RuleProfiler.getShared().toJson(), StandardCharsets.UTF_8);
+            statusLabel.setText("Exported to " + selected);
+        } catch (Exception ex) {
+            MessageDialog.openError(getSite().getShell(), "Export Failed", ex.getMessage());
+        }
+    }
+
+    private static String format(String pattern, double value) {
+        return String.format(Locale.ROOT, pattern, value);
+    }
+
+    @Override
+    public void setFocus() {
+        if (table != null && !table.isDisposed()) {
+            table.setFocus();
+        }
+    }
+}